@@ -0,0 +1,552 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+import com.sun.javafx.geom.transform.BaseTransform;
+
+/**
+ * The {@code ChunkedPath2D} class is a single precision path like
+ * {@link Path2D} whose point types and coordinates are stored in fixed-size
+ * blocks linked together instead of single arrays.
+ * <p>
+ * Growing the path only allocates a new block: the existing segments are
+ * never copied and no huge contiguous array is needed, so very large paths
+ * (millions of points) do not cause humongous allocations in the G1 garbage
+ * collector. Block sizes double from the initial capacity up to 4096
+ * segments so small paths stay small.
+ * <p>
+ * A segment never spans two blocks so every block can be processed like the
+ * arrays of a {@code Path2D} (see {@link #getFirstBlock()}).
+ */
+public final class ChunkedPath2D extends Shape implements PathConsumer2D {
+
+    private static final byte SEG_MOVETO  = (byte) PathIterator.SEG_MOVETO;
+    private static final byte SEG_LINETO  = (byte) PathIterator.SEG_LINETO;
+    private static final byte SEG_QUADTO  = (byte) PathIterator.SEG_QUADTO;
+    private static final byte SEG_CUBICTO = (byte) PathIterator.SEG_CUBICTO;
+    private static final byte SEG_CLOSE   = (byte) PathIterator.SEG_CLOSE;
+
+    // at most 4K segments per block (8K floats = 32K bytes, far below the
+    // G1 humongous object threshold)
+    static final int BLOCK_TYPES = 4096;
+
+    // default size of the first block (see Path2D.INIT_SIZE)
+    static final int INIT_BLOCK_TYPES = Path2D.INIT_SIZE;
+
+    /**
+     * A block of segments: the first {@code getNumCommands()} point types
+     * and their coordinates are valid.
+     */
+    public static final class Block {
+        final byte[] pointTypes;
+        final float[] floatCoords;
+        int numTypes;
+        int numCoords;
+        Block next;
+
+        Block(int types, int coords) {
+            pointTypes = new byte[types];
+            floatCoords = new float[coords];
+        }
+
+        // The following four methods are used only by Prism to access
+        // internal structures; not intended for general use!
+        public int getNumCommands() {
+            return numTypes;
+        }
+        public byte[] getCommandsNoClone() {
+            return pointTypes;
+        }
+        public float[] getFloatCoordsNoClone() {
+            return floatCoords;
+        }
+        public Block getNext() {
+            return next;
+        }
+    }
+
+    // first and last (current) blocks (null if empty)
+    Block first;
+    Block last;
+    int numTypes;
+    int numBlocks;
+    int windingRule;
+
+    // number of segments of the first block to allocate
+    int initialCapacity;
+
+    float moveX, moveY;
+    float currX, currY;
+
+    /**
+     * Constructs a new empty {@code ChunkedPath2D} object with a default
+     * winding rule of {@link Path2D#WIND_NON_ZERO}.
+     */
+    public ChunkedPath2D() {
+        this(Path2D.WIND_NON_ZERO, INIT_BLOCK_TYPES);
+    }
+
+    /**
+     * Constructs a new empty {@code ChunkedPath2D} object with the specified
+     * winding rule.
+     *
+     * @param rule the winding rule
+     */
+    public ChunkedPath2D(int rule) {
+        this(rule, INIT_BLOCK_TYPES);
+    }
+
+    /**
+     * Constructs a new empty {@code ChunkedPath2D} object with the specified
+     * winding rule and the specified initial capacity to store path
+     * segments. This number is an initial guess as to how many path segments
+     * will be added to the path: it gives the size of the first block (up to
+     * 4096 segments), the next blocks are larger as needed.
+     *
+     * @param rule the winding rule
+     * @param initialCapacity the estimate for the number of path segments
+     *                        in the path
+     */
+    public ChunkedPath2D(int rule, int initialCapacity) {
+        setWindingRule(rule);
+        this.initialCapacity = Math.max(1, Math.min(initialCapacity, BLOCK_TYPES));
+    }
+
+    /**
+     * Constructs a new {@code ChunkedPath2D} object from the geometry of
+     * the specified {@code Shape} object.
+     *
+     * @param s the specified {@code Shape} object
+     */
+    public ChunkedPath2D(Shape s) {
+        final PathIterator pi = s.getPathIterator(null);
+        setWindingRule(pi.getWindingRule());
+        this.initialCapacity = INIT_BLOCK_TYPES;
+        append(pi);
+    }
+
+    // return the block having room for the given number of types and coords
+    private Block needRoom(boolean needMove, int newCoords) {
+        if (needMove && (numTypes == 0)) {
+            throw new IllegalPathStateException("missing initial moveto "+
+                                                "in path definition");
+        }
+        Block b = last;
+        if ((b == null) || (b.numTypes >= b.pointTypes.length)
+            || (b.numCoords > (b.floatCoords.length - newCoords)))
+        {
+            // link a new block (never copy) twice larger than the last one:
+            final int types = (b == null) ? initialCapacity
+                : Math.min(Math.max(b.pointTypes.length, INIT_BLOCK_TYPES) * 2,
+                           BLOCK_TYPES);
+            // room for 1 cubic at least:
+            final Block nb = new Block(types, Math.max(types * 2, 6));
+            if (b == null) {
+                first = nb;
+            } else {
+                b.next = nb;
+            }
+            last = b = nb;
+            numBlocks++;
+        }
+        return b;
+    }
+
+    // return the type of the last segment or -1 if empty
+    private int lastType() {
+        return (numTypes == 0) ? -1 : last.pointTypes[last.numTypes - 1];
+    }
+
+    /**
+     * Adds a point to the path by moving to the specified coordinates.
+     *
+     * @param x the specified X coordinate
+     * @param y the specified Y coordinate
+     */
+    public void moveTo(float x, float y) {
+        if (lastType() == SEG_MOVETO) {
+            final Block b = last;
+            b.floatCoords[b.numCoords - 2] = moveX = currX = x;
+            b.floatCoords[b.numCoords - 1] = moveY = currY = y;
+        } else {
+            final Block b = needRoom(false, 2);
+            b.pointTypes[b.numTypes++] = SEG_MOVETO;
+            b.floatCoords[b.numCoords++] = moveX = currX = x;
+            b.floatCoords[b.numCoords++] = moveY = currY = y;
+            numTypes++;
+        }
+    }
+
+    /**
+     * Adds a point to the path by drawing a straight line from the
+     * current coordinates to the new coordinates.
+     *
+     * @param x the specified X coordinate
+     * @param y the specified Y coordinate
+     */
+    public void lineTo(float x, float y) {
+        final Block b = needRoom(true, 2);
+        b.pointTypes[b.numTypes++] = SEG_LINETO;
+        b.floatCoords[b.numCoords++] = currX = x;
+        b.floatCoords[b.numCoords++] = currY = y;
+        numTypes++;
+    }
+
+    /**
+     * Adds a quadratic curve to the path from the current coordinates to
+     * {@code (x2,y2)} using {@code (x1,y1)} as its control point.
+     *
+     * @param x1 the X coordinate of the quadratic control point
+     * @param y1 the Y coordinate of the quadratic control point
+     * @param x2 the X coordinate of the final end point
+     * @param y2 the Y coordinate of the final end point
+     */
+    public void quadTo(float x1, float y1, float x2, float y2) {
+        final Block b = needRoom(true, 4);
+        b.pointTypes[b.numTypes++] = SEG_QUADTO;
+        final float[] fc = b.floatCoords;
+        fc[b.numCoords++] = x1;
+        fc[b.numCoords++] = y1;
+        fc[b.numCoords++] = currX = x2;
+        fc[b.numCoords++] = currY = y2;
+        numTypes++;
+    }
+
+    /**
+     * Adds a Bezier curve to the path from the current coordinates to
+     * {@code (x3,y3)} using {@code (x1,y1)} and {@code (x2,y2)} as its
+     * control points.
+     *
+     * @param x1 the X coordinate of the first B&eacute;zier control point
+     * @param y1 the Y coordinate of the first B&eacute;zier control point
+     * @param x2 the X coordinate of the second B&eacute;zier control point
+     * @param y2 the Y coordinate of the second B&eacute;zier control point
+     * @param x3 the X coordinate of the final end point
+     * @param y3 the Y coordinate of the final end point
+     */
+    public void curveTo(float x1, float y1,
+                        float x2, float y2,
+                        float x3, float y3)
+    {
+        final Block b = needRoom(true, 6);
+        b.pointTypes[b.numTypes++] = SEG_CUBICTO;
+        final float[] fc = b.floatCoords;
+        fc[b.numCoords++] = x1;
+        fc[b.numCoords++] = y1;
+        fc[b.numCoords++] = x2;
+        fc[b.numCoords++] = y2;
+        fc[b.numCoords++] = currX = x3;
+        fc[b.numCoords++] = currY = y3;
+        numTypes++;
+    }
+
+    /**
+     * Closes the current subpath by drawing a straight line back to
+     * the coordinates of the last {@code moveTo}.  If the path is already
+     * closed then this method has no effect.
+     */
+    public void closePath() {
+        if ((numTypes == 0) || (lastType() != SEG_CLOSE)) {
+            final Block b = needRoom(true, 0);
+            b.pointTypes[b.numTypes++] = SEG_CLOSE;
+            numTypes++;
+            currX = moveX;
+            currY = moveY;
+        }
+    }
+
+    public void pathDone() {
+    }
+
+    /**
+     * Appends the geometry of the specified {@code PathIterator} to this
+     * path (segment by segment, no connection).
+     *
+     * @param pi the {@code PathIterator} whose geometry is appended
+     */
+    public void append(PathIterator pi) {
+        final float[] coords = new float[6];
+        for (; !pi.isDone(); pi.next()) {
+            switch (pi.currentSegment(coords)) {
+            case PathIterator.SEG_MOVETO:
+                moveTo(coords[0], coords[1]);
+                break;
+            case PathIterator.SEG_LINETO:
+                lineTo(coords[0], coords[1]);
+                break;
+            case PathIterator.SEG_QUADTO:
+                quadTo(coords[0], coords[1],
+                       coords[2], coords[3]);
+                break;
+            case PathIterator.SEG_CUBICTO:
+                curveTo(coords[0], coords[1],
+                        coords[2], coords[3],
+                        coords[4], coords[5]);
+                break;
+            case PathIterator.SEG_CLOSE:
+                closePath();
+                break;
+            default:
+            }
+        }
+    }
+
+    /**
+     * Resets the path to empty: all blocks are released.
+     */
+    public void reset() {
+        first = last = null;
+        numTypes = numBlocks = 0;
+        moveX = moveY = currX = currY = 0f;
+    }
+
+    /**
+     * Returns the fill style winding rule.
+     *
+     * @return an integer representing the current winding rule.
+     */
+    public int getWindingRule() {
+        return windingRule;
+    }
+
+    /**
+     * Sets the winding rule of this path to the specified value.
+     *
+     * @param rule an integer representing the specified winding rule
+     * @exception IllegalArgumentException if {@code rule} is not either
+     *          {@link Path2D#WIND_EVEN_ODD} or {@link Path2D#WIND_NON_ZERO}
+     */
+    public void setWindingRule(int rule) {
+        if (rule != Path2D.WIND_EVEN_ODD && rule != Path2D.WIND_NON_ZERO) {
+            throw new IllegalArgumentException("winding rule must be "+
+                                               "WIND_EVEN_ODD or "+
+                                               "WIND_NON_ZERO");
+        }
+        windingRule = rule;
+    }
+
+    // The following three methods are used only by Prism to access
+    // internal structures; not intended for general use!
+    public int getNumCommands() {
+        return numTypes;
+    }
+    public int getNumBlocks() {
+        return numBlocks;
+    }
+    public Block getFirstBlock() {
+        return first;
+    }
+
+    /**
+     * Transforms the geometry of this path in place using the specified
+     * {@link BaseTransform}.
+     *
+     * @param tx the {@code BaseTransform} used to transform the area
+     */
+    public void transform(BaseTransform tx) {
+        for (Block b = first; b != null; b = b.next) {
+            if (b.numCoords != 0) {
+                tx.transform(b.floatCoords, 0, b.floatCoords, 0, b.numCoords / 2);
+            }
+        }
+        final float[] pts = new float[] {moveX, moveY, currX, currY};
+        tx.transform(pts, 0, pts, 0, 2);
+        moveX = pts[0];
+        moveY = pts[1];
+        currX = pts[2];
+        currY = pts[3];
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public RectBounds getBounds() {
+        float x1 = Float.POSITIVE_INFINITY, y1 = Float.POSITIVE_INFINITY;
+        float x2 = Float.NEGATIVE_INFINITY, y2 = Float.NEGATIVE_INFINITY;
+
+        for (Block b = first; b != null; b = b.next) {
+            final float[] fc = b.floatCoords;
+            for (int i = 0, n = b.numCoords; i < n; i += 2) {
+                final float x = fc[i];
+                final float y = fc[i + 1];
+                if (x < x1) x1 = x;
+                if (y < y1) y1 = y;
+                if (x > x2) x2 = x;
+                if (y > y2) y2 = y;
+            }
+        }
+        if (x1 > x2) {
+            // no coordinates:
+            x1 = y1 = x2 = y2 = 0.0f;
+        }
+        return new RectBounds(x1, y1, x2, y2);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(float x, float y) {
+        return Path2D.contains(getPathIterator(null), x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(float x, float y, float w, float h) {
+        return Path2D.contains(getPathIterator(null), x, y, w, h);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean intersects(float x, float y, float w, float h) {
+        return Path2D.intersects(getPathIterator(null), x, y, w, h);
+    }
+
+    /**
+     * {@inheritDoc}
+     * <p>
+     * The iterator for this class is not multi-threaded safe.
+     */
+    public PathIterator getPathIterator(BaseTransform tx) {
+        return new Iterator(this, tx);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public PathIterator getPathIterator(BaseTransform tx, float flatness) {
+        return new FlatteningPathIterator(getPathIterator(tx), flatness);
+    }
+
+    /**
+     * Returns a new transformed {@code ChunkedPath2D} of this path.
+     *
+     * @param tx the {@code BaseTransform} used to transform a
+     *           new {@code Shape}.
+     * @return a new {@code Shape}, transformed with the specified
+     *         {@code BaseTransform}.
+     */
+    public Shape createTransformedShape(BaseTransform tx) {
+        final ChunkedPath2D p = copy();
+        if (tx != null) {
+            p.transform(tx);
+        }
+        return p;
+    }
+
+    @Override
+    public ChunkedPath2D copy() {
+        final ChunkedPath2D p = new ChunkedPath2D(windingRule, initialCapacity);
+        Block prev = null;
+        for (Block b = first; b != null; b = b.next) {
+            // trimmed copy (next blocks grow again):
+            final Block nb = new Block(b.numTypes, b.numCoords);
+            System.arraycopy(b.pointTypes, 0, nb.pointTypes, 0, b.numTypes);
+            System.arraycopy(b.floatCoords, 0, nb.floatCoords, 0, b.numCoords);
+            nb.numTypes = b.numTypes;
+            nb.numCoords = b.numCoords;
+            if (prev == null) {
+                p.first = nb;
+            } else {
+                prev.next = nb;
+            }
+            prev = nb;
+        }
+        p.last = prev;
+        p.numTypes = numTypes;
+        p.numBlocks = numBlocks;
+        p.moveX = moveX;
+        p.moveY = moveY;
+        p.currX = currX;
+        p.currY = currY;
+        return p;
+    }
+
+    static final class Iterator implements PathIterator {
+        final ChunkedPath2D path;
+        final BaseTransform transform;
+        Block block;
+        int typeIdx;
+        int pointIdx;
+
+        Iterator(ChunkedPath2D path, BaseTransform tx) {
+            this.path = path;
+            this.transform = tx;
+            this.block = path.first;
+        }
+
+        public int getWindingRule() {
+            return path.getWindingRule();
+        }
+
+        public boolean isDone() {
+            return (block == null) || (typeIdx >= block.numTypes);
+        }
+
+        public void next() {
+            final int type = block.pointTypes[typeIdx++];
+            pointIdx += Path2D.curvecoords[type];
+
+            if ((typeIdx >= block.numTypes) && (block.next != null)) {
+                // go to the next block:
+                block = block.next;
+                typeIdx = pointIdx = 0;
+            }
+        }
+
+        public int currentSegment(float[] coords) {
+            final int type = block.pointTypes[typeIdx];
+            final int numCoords = Path2D.curvecoords[type];
+            if (numCoords > 0) {
+                if (transform == null) {
+                    System.arraycopy(block.floatCoords, pointIdx,
+                                     coords, 0, numCoords);
+                } else {
+                    transform.transform(block.floatCoords, pointIdx,
+                                        coords, 0, numCoords / 2);
+                }
+            }
+            return type;
+        }
+
+        public int currentSegment(double[] coords) {
+            final int type = block.pointTypes[typeIdx];
+            final int numCoords = Path2D.curvecoords[type];
+            if (numCoords > 0) {
+                if (transform == null) {
+                    for (int i = 0; i < numCoords; i++) {
+                        coords[i] = block.floatCoords[pointIdx + i];
+                    }
+                } else {
+                    transform.transform(block.floatCoords, pointIdx,
+                                        coords, 0, numCoords / 2);
+                }
+            }
+            return type;
+        }
+    }
+}
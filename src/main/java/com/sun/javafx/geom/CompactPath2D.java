@@ -0,0 +1,280 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+import com.sun.javafx.geom.transform.BaseTransform;
+import java.util.Arrays;
+
+/**
+ * The {@code CompactPath2D} class is an immutable path for retained geometry
+ * (scene graph nodes) storing its coordinates as 16-bit fixed-point values
+ * relative to the path bounds instead of 32-bit floats: it needs half the
+ * memory of a trimmed {@link Path2D} for its coordinates.
+ * <p>
+ * Coordinates are decoded on the fly by the path iterator and by Prism.
+ * Every decoded coordinate is within {@code (max - min) / 131070} of the
+ * original coordinate along its axis (plus the float rounding error), i.e.
+ * less than 0.008 for a path spanning 1000 units.
+ * <p>
+ * Only finite coordinates are supported.
+ */
+public final class CompactPath2D extends Shape {
+
+    // quantization steps along each axis
+    static final int Q_MAX = 0xFFFF;
+
+    final byte[] pointTypes;
+    final short[] coords;
+    final int numTypes;
+    final int numCoords;
+    final int windingRule;
+
+    // quantization bounds and scales
+    final float minX, minY, maxX, maxY;
+    final float scaleX, scaleY;
+
+    /**
+     * Constructs a new {@code CompactPath2D} object from the geometry of
+     * the specified {@code Path2D} object.
+     *
+     * @param p2d the specified {@code Path2D} object
+     * @exception IllegalArgumentException if the path has non-finite
+     *            coordinates or bounds wider than the float range
+     */
+    public CompactPath2D(Path2D p2d) {
+        this.windingRule = p2d.getWindingRule();
+        this.numTypes = p2d.getNumCommands();
+        this.numCoords = p2d.numCoords;
+        this.pointTypes = Arrays.copyOf(p2d.getCommandsNoClone(), numTypes);
+
+        final float[] fc = p2d.getFloatCoordsNoClone();
+        for (int i = 0; i < numCoords; i++) {
+            if (!(fc[i] * 0f == 0f)) {
+                /* N * 0.0 is 0.0 only if N is finite */
+                throw new IllegalArgumentException("non-finite path coordinates");
+            }
+        }
+
+        final RectBounds b = p2d.getBounds();
+        this.minX = b.getMinX();
+        this.minY = b.getMinY();
+        this.maxX = b.getMaxX();
+        this.maxY = b.getMaxY();
+
+        final float w = maxX - minX;
+        final float h = maxY - minY;
+        if (!(w * 0f + h * 0f == 0f)) {
+            // finite bounds but overflowing extent:
+            throw new IllegalArgumentException("path coordinates out of range");
+        }
+        this.scaleX = w / Q_MAX;
+        this.scaleY = h / Q_MAX;
+
+        // quantize (rounding):
+        final double invX = (w > 0f) ? Q_MAX / (double) w : 0.0;
+        final double invY = (h > 0f) ? Q_MAX / (double) h : 0.0;
+
+        final short[] qc = new short[numCoords];
+
+        for (int i = 0; i < numCoords; i += 2) {
+            qc[i    ] = (short) Math.round((fc[i    ] - minX) * invX);
+            qc[i + 1] = (short) Math.round((fc[i + 1] - minY) * invY);
+        }
+        this.coords = qc;
+    }
+
+    /**
+     * Constructs a new {@code CompactPath2D} object from the geometry of
+     * the specified {@code Shape} object.
+     *
+     * @param s the specified {@code Shape} object
+     * @exception IllegalArgumentException if the shape has non-finite
+     *            coordinates or bounds wider than the float range
+     */
+    public CompactPath2D(Shape s) {
+        this((s instanceof Path2D) ? (Path2D) s : new Path2D(s));
+    }
+
+    /**
+     * Decodes the given range of coordinates into the given array.
+     *
+     * @param off the offset of the first coordinate to decode
+     * @param len the number of coordinates (even)
+     * @param dst the destination array
+     * @param dstOff the offset of the first decoded coordinate in dst
+     */
+    public void decodeCoords(int off, int len, float[] dst, int dstOff) {
+        final short[] qc = coords;
+        final float x0 = minX, y0 = minY, sx = scaleX, sy = scaleY;
+
+        for (int end = off + len; off < end; off += 2) {
+            dst[dstOff++] = x0 + (qc[off    ] & Q_MAX) * sx;
+            dst[dstOff++] = y0 + (qc[off + 1] & Q_MAX) * sy;
+        }
+    }
+
+    // The following three methods are used only by Prism to access
+    // internal structures; not intended for general use!
+    public int getNumCommands() {
+        return numTypes;
+    }
+    public byte[] getCommandsNoClone() {
+        return pointTypes;
+    }
+    public int getNumCoords() {
+        return numCoords;
+    }
+
+    /**
+     * Returns the fill style winding rule.
+     *
+     * @return an integer representing the current winding rule.
+     */
+    public int getWindingRule() {
+        return windingRule;
+    }
+
+    /**
+     * Returns a new {@code Path2D} with the decoded geometry of this path.
+     *
+     * @return a new {@code Path2D}
+     */
+    public Path2D toPath2D() {
+        final Path2D p = new Path2D(windingRule, numTypes);
+        p.append(getPathIterator(null), false);
+        return p;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public RectBounds getBounds() {
+        if (numCoords == 0) {
+            return new RectBounds(0f, 0f, 0f, 0f);
+        }
+        return new RectBounds(minX, minY, maxX, maxY);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(float x, float y) {
+        return Path2D.contains(getPathIterator(null), x, y);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean contains(float x, float y, float w, float h) {
+        return Path2D.contains(getPathIterator(null), x, y, w, h);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public boolean intersects(float x, float y, float w, float h) {
+        return Path2D.intersects(getPathIterator(null), x, y, w, h);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public PathIterator getPathIterator(BaseTransform tx) {
+        return new Iterator(this, tx);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    public PathIterator getPathIterator(BaseTransform tx, float flatness) {
+        return new FlatteningPathIterator(getPathIterator(tx), flatness);
+    }
+
+    /**
+     * Returns this path as it is immutable.
+     *
+     * @return this path
+     */
+    @Override
+    public CompactPath2D copy() {
+        return this;
+    }
+
+    static final class Iterator implements PathIterator {
+        final CompactPath2D path;
+        final BaseTransform transform;
+        final float[] decoded = new float[6];
+        int typeIdx;
+        int pointIdx;
+
+        Iterator(CompactPath2D path, BaseTransform tx) {
+            this.path = path;
+            this.transform = tx;
+        }
+
+        public int getWindingRule() {
+            return path.windingRule;
+        }
+
+        public boolean isDone() {
+            return (typeIdx >= path.numTypes);
+        }
+
+        public void next() {
+            final int type = path.pointTypes[typeIdx++];
+            pointIdx += Path2D.curvecoords[type];
+        }
+
+        public int currentSegment(float[] coords) {
+            final int type = path.pointTypes[typeIdx];
+            final int numCoords = Path2D.curvecoords[type];
+            if (numCoords > 0) {
+                path.decodeCoords(pointIdx, numCoords, coords, 0);
+                if (transform != null) {
+                    transform.transform(coords, 0, coords, 0, numCoords / 2);
+                }
+            }
+            return type;
+        }
+
+        public int currentSegment(double[] coords) {
+            final int type = path.pointTypes[typeIdx];
+            final int numCoords = Path2D.curvecoords[type];
+            if (numCoords > 0) {
+                final float[] fc = decoded;
+                path.decodeCoords(pointIdx, numCoords, fc, 0);
+                if (transform == null) {
+                    for (int i = 0; i < numCoords; i++) {
+                        coords[i] = fc[i];
+                    }
+                } else {
+                    transform.transform(fc, 0, coords, 0, numCoords / 2);
+                }
+            }
+            return type;
+        }
+    }
+}
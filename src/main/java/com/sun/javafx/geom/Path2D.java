@@ -109,6 +109,13 @@ import java.util.Arrays;
     float prevX, prevY;
     float currX, currY;
 
+    // true if the arrays are shared with a path cache (copy on write)
+    boolean shared;
+    // segment index for hit testing (lazy, dropped on any change)
+    PathSegmentIndex index;
+    // number of hit tests since the last change of the geometry
+    int indexQueries;
+
     /**
      * Constructs a new empty single precision {@code Path2D} object
      * with a default winding rule of {@link #WIND_NON_ZERO}.
@@ -262,28 +269,9 @@ import java.util.Arrays;
      * @return true iff the path is a simple rectangle
      */
     public boolean checkAndGetIntRect(Rectangle retrect, float tolerance) {
-        // Valid rectangular paths are:
-        //     4 segs: MOVE, LINE, LINE, LINE (implicit CLOSE)
-        //     5 segs: MOVE, LINE, LINE, LINE, LINE
-        //     5 segs: MOVE, LINE, LINE, LINE, CLOSE
-        //     6 segs: MOVE, LINE, LINE, LINE, LINE, CLOSE
-        if (numTypes == 5) {
-            // points[4] can be LINETO or CLOSE
-            if (pointTypes[4] != SEG_LINETO && pointTypes[4] != SEG_CLOSE) {
-                return false;
-            }
-        } else if (numTypes == 6) {
-            // points[4] must be LINETO and
-            // points[5] must be CLOSE
-            if (pointTypes[4] != SEG_LINETO) return false;
-            if (pointTypes[5] != SEG_CLOSE) return false;
-        } else if (numTypes != 4) {
+        if (!hasRectangleTypes()) {
             return false;
         }
-        if (pointTypes[0] != SEG_MOVETO) return false;
-        if (pointTypes[1] != SEG_LINETO) return false;
-        if (pointTypes[2] != SEG_LINETO) return false;
-        if (pointTypes[3] != SEG_LINETO) return false;
 
         int x0 = (int) (floatCoords[0] + 0.5f);
         int y0 = (int) (floatCoords[1] + 0.5f);
@@ -334,11 +322,82 @@ import java.util.Arrays;
         return false;
     }
 
+    private boolean hasRectangleTypes() {
+        // Valid rectangular paths are:
+        //     4 segs: MOVE, LINE, LINE, LINE (implicit CLOSE)
+        //     5 segs: MOVE, LINE, LINE, LINE, LINE
+        //     5 segs: MOVE, LINE, LINE, LINE, CLOSE
+        //     6 segs: MOVE, LINE, LINE, LINE, LINE, CLOSE
+        if (numTypes == 5) {
+            // points[4] can be LINETO or CLOSE
+            if (pointTypes[4] != SEG_LINETO && pointTypes[4] != SEG_CLOSE) {
+                return false;
+            }
+        } else if (numTypes == 6) {
+            // points[4] must be LINETO and
+            // points[5] must be CLOSE
+            if (pointTypes[4] != SEG_LINETO) return false;
+            if (pointTypes[5] != SEG_CLOSE) return false;
+        } else if (numTypes != 4) {
+            return false;
+        }
+        if (pointTypes[0] != SEG_MOVETO) return false;
+        if (pointTypes[1] != SEG_LINETO) return false;
+        if (pointTypes[2] != SEG_LINETO) return false;
+        if (pointTypes[3] != SEG_LINETO) return false;
+        return true;
+    }
+
+    /**
+     * Check and return if the fillable interior of the path is a simple
+     * axis-aligned rectangle (at any coordinates) and store its bounds
+     * (xmin, ymin, xmax, ymax) in the given array if it is.
+     *
+     * @param retrect the array (length &gt;= 4) to return the rectangle bounds
+     * @return true iff the path is a simple axis-aligned rectangle
+     */
+    public boolean checkAndGetRect(float[] retrect) {
+        if (!hasRectangleTypes()) {
+            return false;
+        }
+
+        final float x0 = floatCoords[0];
+        final float y0 = floatCoords[1];
+        final float x1 = floatCoords[2];
+        final float y1 = floatCoords[3];
+        final float x2 = floatCoords[4];
+        final float y2 = floatCoords[5];
+        final float x3 = floatCoords[6];
+        final float y3 = floatCoords[7];
+
+        if (numTypes > 4 && pointTypes[4] == SEG_LINETO) {
+            if (x0 != floatCoords[8]) return false;
+            if (y0 != floatCoords[9]) return false;
+        }
+
+        if ((x0 == x1 && x2 == x3 && y0 == y3 && y1 == y2) ||
+            (y0 == y1 && y2 == y3 && x0 == x3 && x1 == x2))
+        {
+            // use the diagonal (x0, y0) -> (x2, y2)
+            // to handle upside down and/or backwards rectangles:
+            retrect[0] = Math.min(x0, x2);
+            retrect[1] = Math.min(y0, y2);
+            retrect[2] = Math.max(x0, x2);
+            retrect[3] = Math.max(y0, y2);
+            return true;
+        }
+        return false;
+    }
+
     void needRoom(boolean needMove, int newCoords) {
         if (needMove && (numTypes == 0)) {
             throw new IllegalPathStateException("missing initial moveto "+
                                                 "in path definition");
         }
+        dropIndex();
+        if (shared) {
+            unshare();
+        }
         int size = pointTypes.length;
         if (size == 0) {
             pointTypes = new byte[2];
@@ -350,6 +409,44 @@ import java.util.Arrays;
         }
     }
 
+    // copy the arrays shared with a path cache before writing into them
+    private void unshare() {
+        pointTypes = Arrays.copyOf(pointTypes, pointTypes.length);
+        floatCoords = Arrays.copyOf(floatCoords, floatCoords.length);
+        shared = false;
+    }
+
+    // share the (immutable) arrays and the state of the given path
+    void shareFrom(Path2D p2d) {
+        pointTypes = p2d.pointTypes;
+        floatCoords = p2d.floatCoords;
+        numTypes = p2d.numTypes;
+        numCoords = p2d.numCoords;
+        moveX = p2d.moveX;
+        moveY = p2d.moveY;
+        prevX = p2d.prevX;
+        prevY = p2d.prevY;
+        currX = p2d.currX;
+        currY = p2d.currY;
+        shared = true;
+        dropIndex();
+    }
+
+    /**
+     * Returns a new path sharing the arrays of this path: both paths copy
+     * their arrays on their first write, so they can be modified
+     * independently. Used by caches to store and return the same geometry
+     * without copying it.
+     *
+     * @return a new path with the same geometry and winding rule
+     */
+    public final Path2D sharedCopy() {
+        final Path2D p2d = new Path2D(windingRule, 0);
+        p2d.shareFrom(this);
+        shared = true;
+        return p2d;
+    }
+
     static byte[] expandPointTypes(byte[] oldPointTypes, int needed) {
         final int oldSize = oldPointTypes.length;
         final int newSizeMin = oldSize + needed;
@@ -366,6 +463,9 @@ import java.util.Arrays;
         } else if (grow < INIT_SIZE) {
             grow = INIT_SIZE; // ensure > 6 (cubics)
         }
+        if (grow < needed) {
+            grow = needed; // bulk append
+        }
         assert grow > 0;
 
         int newSize = oldSize + grow;
@@ -403,7 +503,10 @@ import java.util.Arrays;
         } else if (grow < INIT_SIZE) {
             grow = INIT_SIZE; // ensure > 6 (cubics)
         }
-        assert grow > needed;
+        if (grow < needed) {
+            grow = needed; // bulk append
+        }
+        assert grow >= needed;
 
         int newSize = oldSize + grow;
         if (newSize < newSizeMin) {
@@ -432,6 +535,10 @@ import java.util.Arrays;
      */
     public final void moveTo(float x, float y) {
         if (numTypes > 0 && pointTypes[numTypes - 1] == SEG_MOVETO) {
+            dropIndex();
+            if (shared) {
+                unshare();
+            }
             floatCoords[numCoords-2] = moveX = prevX = currX = x;
             floatCoords[numCoords-1] = moveY = prevY = currY = y;
         } else {
@@ -452,6 +559,10 @@ import java.util.Arrays;
      */
     public final void moveToRel(float relx, float rely) {
         if (numTypes > 0 && pointTypes[numTypes - 1] == SEG_MOVETO) {
+            dropIndex();
+            if (shared) {
+                unshare();
+            }
             floatCoords[numCoords-2] = moveX = prevX = (currX += relx);
             floatCoords[numCoords-1] = moveY = prevY = (currY += rely);
         } else {
@@ -492,6 +603,122 @@ import java.util.Arrays;
         floatCoords[numCoords++] = prevY = (currY += rely);
     }
 
+    /**
+     * Appends a polyline to the path: a {@code moveTo} to its first point
+     * followed by a {@code lineTo} to each of its next points, then a
+     * {@code closePath} if requested (polygon).
+     * The storage is grown once and the coordinates are copied in a single
+     * pass, so it is much faster than calling {@code lineTo} for every point.
+     *
+     * @param xy the interleaved (x, y) point coordinates
+     * @param off the offset of the first point in the array
+     * @param count the number of points
+     * @param close true to close the polyline (polygon)
+     * @throws ArrayIndexOutOfBoundsException if the given range exceeds
+     *         the array bounds (the path is left unchanged)
+     */
+    public final void appendPolyline(float[] xy, int off, int count,
+                                     boolean close)
+    {
+        if (!(off >= 0 && count <= (xy.length - off) >> 1)) {
+            throw new ArrayIndexOutOfBoundsException(
+                          "invalid polyline range: off = " + off
+                          + " count = " + count + " length = " + xy.length);
+        }
+        if (count <= 0) {
+            return;
+        }
+        moveTo(xy[off], xy[off + 1]);
+
+        final int nlines = count - 1;
+        if (nlines > 0) {
+            needRoomBulk(close ? nlines + 1 : nlines, nlines << 1);
+
+            final byte[] types = pointTypes;
+            final int ntypes = numTypes;
+            Arrays.fill(types, ntypes, ntypes + nlines, SEG_LINETO);
+            numTypes = ntypes + nlines;
+
+            final int len = nlines << 1;
+            System.arraycopy(xy, off + 2, floatCoords, numCoords, len);
+            numCoords += len;
+
+            prevX = currX = xy[off + len];
+            prevY = currY = xy[off + len + 1];
+        }
+        if (close) {
+            closePath();
+        }
+    }
+
+    /**
+     * Appends a polyline to the path given in double precision: a
+     * {@code moveTo} to its first point followed by a {@code lineTo} to each
+     * of its next points, then a {@code closePath} if requested (polygon).
+     * The storage is grown once and the coordinates are converted in a single
+     * pass.
+     *
+     * @param xy the interleaved (x, y) point coordinates
+     * @param off the offset of the first point in the array
+     * @param count the number of points
+     * @param close true to close the polyline (polygon)
+     * @throws ArrayIndexOutOfBoundsException if the given range exceeds
+     *         the array bounds (the path is left unchanged)
+     */
+    public final void appendPolyline(double[] xy, int off, int count,
+                                     boolean close)
+    {
+        if (!(off >= 0 && count <= (xy.length - off) >> 1)) {
+            throw new ArrayIndexOutOfBoundsException(
+                          "invalid polyline range: off = " + off
+                          + " count = " + count + " length = " + xy.length);
+        }
+        if (count <= 0) {
+            return;
+        }
+        moveTo((float) xy[off], (float) xy[off + 1]);
+
+        final int nlines = count - 1;
+        if (nlines > 0) {
+            needRoomBulk(close ? nlines + 1 : nlines, nlines << 1);
+
+            final byte[] types = pointTypes;
+            final int ntypes = numTypes;
+            Arrays.fill(types, ntypes, ntypes + nlines, SEG_LINETO);
+            numTypes = ntypes + nlines;
+
+            final float[] coords = floatCoords;
+            final int len = nlines << 1;
+            for (int i = 0, j = off + 2, k = numCoords; i < len; i++) {
+                coords[k++] = (float) xy[j++];
+            }
+            numCoords += len;
+
+            prevX = currX = coords[numCoords - 2];
+            prevY = currY = coords[numCoords - 1];
+        }
+        if (close) {
+            closePath();
+        }
+    }
+
+    // grow the storage once to store the given number of types and coords
+    // (bulk append of an already started subpath):
+    private void needRoomBulk(int newTypes, int newCoords) {
+        dropIndex();
+        if (shared) {
+            unshare();
+        }
+        if (numTypes > (pointTypes.length - newTypes)) {
+            pointTypes = expandPointTypes(pointTypes,
+                             numTypes + newTypes - pointTypes.length);
+        }
+        if (numCoords > (floatCoords.length - newCoords)) {
+            floatCoords = expandCoords(floatCoords,
+                              numCoords + newCoords - floatCoords.length);
+        }
+    }
+
     /**
      * Adds a curved segment to the path, defined by two new points, by
      * drawing a Quadratic curve that intersects both the current
@@ -1248,7 +1475,31 @@ import java.util.Arrays;
               currX + relx, currY + rely);
     }
 
+    // drop the segment index on any change of the geometry
+    private void dropIndex() {
+        index = null;
+        indexQueries = 0;
+    }
+
+    // return the segment index of this path or null if not worth building:
+    // a single hit test is cheaper with the full loop than building the
+    // index, so it is only built on the repeated hit tests of the same
+    // (unchanged) geometry
+    private PathSegmentIndex getIndex() {
+        PathSegmentIndex idx = index;
+        if ((idx == null) && (numTypes >= PathSegmentIndex.MIN_SEGMENTS)
+                && (++indexQueries >= PathSegmentIndex.MIN_QUERIES))
+        {
+            index = idx = new PathSegmentIndex(this);
+        }
+        return idx;
+    }
+
     int pointCrossings(float px, float py) {
+        final PathSegmentIndex idx = getIndex();
+        if (idx != null) {
+            return idx.pointCrossings(floatCoords, px, py);
+        }
         float movx, movy, curx, cury, endx, endy;
         float coords[] = floatCoords;
         curx = movx = coords[0];
@@ -1326,6 +1577,11 @@ import java.util.Arrays;
     int rectCrossings(float rxmin, float rymin,
                       float rxmax, float rymax)
     {
+        final PathSegmentIndex idx = getIndex();
+        if (idx != null) {
+            return idx.rectCrossings(floatCoords,
+                                     rxmin, rymin, rxmax, rymax);
+        }
         float coords[] = floatCoords;
         float curx, cury, movx, movy, endx, endy;
         curx = movx = coords[0];
@@ -1508,11 +1764,14 @@ import java.util.Arrays;
         return new RectBounds(x1, y1, x2, y2);
     }
 
-    // The following three methods are used only by Prism to access
+    // The following four methods are used only by Prism to access
     // internal structures; not intended for general use!
     public final int getNumCommands() {
         return numTypes;
     }
+    public final int getNumCoords() {
+        return numCoords;
+    }
     public final byte[] getCommandsNoClone() {
         return pointTypes;
     }
@@ -1641,6 +1900,18 @@ import java.util.Arrays;
     }
 
     static class SVGParser {
+        // max significant digits in a long
+        static final int MAX_DIGITS = 18;
+        // max exponent digits value (overflows to 0 or Infinity anyway)
+        static final int MAX_EXP = 100000;
+        // max mantissa exactly represented by a double (2^53)
+        static final long MAX_EXACT_MANT = 1L << 53;
+        // exact powers of ten in double precision
+        static final double[] POW10 = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22
+        };
+
         final String svgpath;
         final int len;
         int pos;
@@ -1686,17 +1957,144 @@ import java.util.Arrays;
             this.allowcomma = true;
             int end = toNumberEnd();
             if (start < end) {
-                String flstr = svgpath.substring(start, end);
-                try {
-                    return Float.parseFloat(flstr);
-                } catch (NumberFormatException e) {
+                final float f = parseNumber(start, end);
+                if (f == f) {
+                    return f;
                 }
+                String flstr = svgpath.substring(start, end);
                 throw new IllegalArgumentException("invalid float ("+flstr+
                                                    ") in path at pos="+start);
             }
             throw new IllegalArgumentException("end of path looking for float");
         }
 
+        /**
+         * Scans the decimal number in [start, end[ (checked by toNumberEnd)
+         * without any allocation in the common case: up to 18 significant
+         * digits are kept in a long. If the mantissa (up to 2^53) and the
+         * power of ten (up to 1e22) are exact doubles, a single division or
+         * multiplication gives the correctly rounded double, and converting
+         * it to float only rounds twice wrongly if it lies exactly halfway
+         * between two floats. Other numbers (long mantissas, large exponents,
+         * halfway cases) are parsed by Float.parseFloat(), so results are
+         * always identical to Float.parseFloat().
+         *
+         * @return the float value or NaN if the number is invalid
+         */
+        private float parseNumber(final int start, final int end) {
+            final String s = svgpath;
+            int i = start;
+            char c = s.charAt(i);
+            final boolean neg = (c == '-');
+            if (neg || (c == '+')) {
+                i++;
+            }
+            long mant = 0L;
+            int ndigits = 0;
+            int exp10 = 0;
+            boolean digits = false;
+
+            // integer part:
+            for (; i < end; i++) {
+                c = s.charAt(i);
+                if (c < '0' || c > '9') {
+                    break;
+                }
+                digits = true;
+                if (ndigits < MAX_DIGITS) {
+                    mant = mant * 10L + (c - '0');
+                    if (mant != 0L) {
+                        ndigits++;
+                    }
+                } else {
+                    // ignored digit:
+                    exp10++;
+                }
+            }
+            // fraction part:
+            if ((i < end) && (s.charAt(i) == '.')) {
+                for (i++; i < end; i++) {
+                    c = s.charAt(i);
+                    if (c < '0' || c > '9') {
+                        break;
+                    }
+                    digits = true;
+                    if (ndigits < MAX_DIGITS) {
+                        mant = mant * 10L + (c - '0');
+                        if (mant != 0L) {
+                            ndigits++;
+                        }
+                        exp10--;
+                    }
+                }
+            }
+            if (!digits) {
+                return Float.NaN;
+            }
+            // exponent part:
+            if (i < end) {
+                c = s.charAt(i++);
+                if ((c != 'e') && (c != 'E')) {
+                    return Float.NaN;
+                }
+                boolean eneg = false;
+                if (i < end) {
+                    c = s.charAt(i);
+                    if ((c == '-') || (c == '+')) {
+                        eneg = (c == '-');
+                        i++;
+                    }
+                }
+                if (i >= end) {
+                    return Float.NaN;
+                }
+                int e = 0;
+                for (; i < end; i++) {
+                    c = s.charAt(i);
+                    if (c < '0' || c > '9') {
+                        return Float.NaN;
+                    }
+                    if (e < MAX_EXP) {
+                        e = e * 10 + (c - '0');
+                    }
+                }
+                exp10 += (eneg) ? -e : e;
+            }
+            if (mant == 0L) {
+                return (neg) ? -0.0f : 0.0f;
+            }
+            if ((mant <= MAX_EXACT_MANT)
+                && (exp10 > -POW10.length) && (exp10 < POW10.length))
+            {
+                double v = mant;
+                if (exp10 > 0) {
+                    v *= POW10[exp10];
+                } else if (exp10 < 0) {
+                    v /= POW10[-exp10];
+                }
+                final float f = (float) v;
+                if (!isHalfway(v, f)) {
+                    return (neg) ? -f : f;
+                }
+            }
+            // rare: exact conversion
+            try {
+                return Float.parseFloat(s.substring(start, end));
+            } catch (NumberFormatException nfe) {
+                return Float.NaN;
+            }
+        }
+
+        // return true if v (not a float) lies exactly halfway between the
+        // float f nearest to v and its neighbour (double rounding issue):
+        private static boolean isHalfway(final double v, final float f) {
+            if (v == f) {
+                return false;
+            }
+            final float g = (v > f) ? Math.nextUp(f) : Math.nextDown(f);
+            return Float.isInfinite(g) || (v == 0.5d * ((double) f + g));
+        }
+
         public boolean b() {
             toNextNonWsp();
             this.allowcomma = true;
@@ -1790,6 +2188,22 @@ import java.util.Arrays;
      *     if there is no current point in the path
      */
     public final void appendSVGPath(String svgpath) {
+        if ((numTypes == 0) && SVGPathCache.isCacheable(svgpath)) {
+            // empty path: the parsed geometry does not depend on this path
+            // so it can be shared with the cache (copy on write):
+            final Path2D cached = SVGPathCache.get(svgpath);
+            if (cached != null) {
+                shareFrom(cached);
+                return;
+            }
+            parseSVGPath(svgpath);
+            SVGPathCache.put(svgpath, this);
+        } else {
+            parseSVGPath(svgpath);
+        }
+    }
+
+    private void parseSVGPath(String svgpath) {
         SVGParser p = new SVGParser(svgpath);
         p.allowcomma = false;
         while (!p.isDone()) {
@@ -1967,6 +2381,7 @@ import java.util.Arrays;
      * forgotten.
      */
     public final void reset() {
+        dropIndex();
         numTypes = numCoords = 0;
         moveX = moveY = prevX = prevY = currX = currY = 0;
     }
@@ -2349,8 +2764,15 @@ import java.util.Arrays;
     }
 
     public void setTo(Path2D otherPath) {
+        dropIndex();
         numTypes = otherPath.numTypes;
         numCoords = otherPath.numCoords;
+        if (shared) {
+            // never write into the arrays shared with a path cache:
+            pointTypes = new byte[numTypes];
+            floatCoords = new float[numCoords];
+            shared = false;
+        }
         if (numTypes > pointTypes.length) {
             pointTypes = new byte[numTypes];
         }
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+/**
+ * Spatial index of the segments of a large {@link Path2D} for hit testing:
+ * the path y range is split into horizontal bands and every band lists the
+ * segments (including the implicit closing lines) whose y range (control
+ * points included) overlaps it.
+ * <p>
+ * The crossing functions of {@link Shape} return no crossing for segments
+ * out of the y range of the tested point or rectangle, so only the segments
+ * of the bands covering this range are tested: the cost of {@code contains}
+ * and {@code intersects} becomes proportional to the number of segments per
+ * band instead of the number of segments of the path.
+ * <p>
+ * The index is built lazily by {@code Path2D} on the second hit test of the
+ * same geometry (a single hit test is cheaper with a full loop over the
+ * segments) and dropped on any change of its geometry.
+ */
+final class PathSegmentIndex {
+
+    // minimum number of path segments to use an index
+    static final int MIN_SEGMENTS = 256;
+    // minimum number of hit tests of the same geometry to build an index
+    static final int MIN_QUERIES = 2;
+    // average number of segments per band
+    static final int SEGMENTS_PER_BAND = 4;
+    // max number of bands
+    static final int MAX_BANDS = 1 << 16;
+    // max average number of bands per segment (long segments)
+    static final int MAX_FILL = 8;
+
+    private static final byte EDGE_LINE  = (byte) PathIterator.SEG_LINETO;
+    private static final byte EDGE_QUAD  = (byte) PathIterator.SEG_QUADTO;
+    private static final byte EDGE_CUBIC = (byte) PathIterator.SEG_CUBICTO;
+
+    // edges: type, coordinate offset of the start point and of the next
+    // coordinates (end point for lines, control points for curves)
+    final byte[] edgeType;
+    final int[] edgeStart;
+    final int[] edgeNext;
+    final float[] edgeYmin;
+    int numEdges;
+
+    // y range and bands
+    final float ymin, ymax;
+    final int numBands;
+    final float bandScale;
+    // edges of band b are bandEdges[bandStart[b] .. bandStart[b + 1][
+    final int[] bandStart;
+    final int[] bandEdges;
+
+    PathSegmentIndex(final Path2D p2d) {
+        final byte[] types = p2d.pointTypes;
+        final float[] c = p2d.floatCoords;
+        final int nTypes = p2d.numTypes;
+
+        // at most 1 edge per segment + the last closing line:
+        final int cap = nTypes + 1;
+        edgeType = new byte[cap];
+        edgeStart = new int[cap];
+        edgeNext = new int[cap];
+        edgeYmin = new float[cap];
+
+        float y0 = Float.POSITIVE_INFINITY;
+        float y1 = Float.NEGATIVE_INFINITY;
+        for (int i = 1, n = p2d.numCoords; i < n; i += 2) {
+            final float y = c[i];
+            if (y < y0) y0 = y;
+            if (y > y1) y1 = y;
+        }
+        ymin = y0;
+        ymax = y1;
+
+        // first segment is always a moveTo (see Path2D.needRoom):
+        int movOff = 0, curOff = 0;
+        int ci = 2;
+        for (int i = 1; i < nTypes; i++) {
+            switch (types[i]) {
+            case PathIterator.SEG_MOVETO:
+                addClosingLine(c, curOff, movOff);
+                movOff = curOff = ci;
+                ci += 2;
+                break;
+            case PathIterator.SEG_LINETO:
+                addEdge(c, EDGE_LINE, curOff, ci);
+                curOff = ci;
+                ci += 2;
+                break;
+            case PathIterator.SEG_QUADTO:
+                addEdge(c, EDGE_QUAD, curOff, ci);
+                curOff = ci + 2;
+                ci += 4;
+                break;
+            case PathIterator.SEG_CUBICTO:
+                addEdge(c, EDGE_CUBIC, curOff, ci);
+                curOff = ci + 4;
+                ci += 6;
+                break;
+            case PathIterator.SEG_CLOSE:
+                addClosingLine(c, curOff, movOff);
+                curOff = movOff;
+                break;
+            default:
+            }
+        }
+        addClosingLine(c, curOff, movOff);
+
+        // choose the number of bands:
+        int nb = Math.min(MAX_BANDS, Math.max(1, numEdges / SEGMENTS_PER_BAND));
+        if (!(y1 > y0)) {
+            nb = 1;
+        }
+        int[] counts;
+        int total;
+        float scale;
+        while (true) {
+            counts = new int[nb + 1];
+            total = 0;
+            scale = (nb > 1) ? nb / (y1 - y0) : 0f;
+            for (int e = 0; e < numEdges; e++) {
+                final int b0 = band(edgeYmin[e], y0, scale, nb);
+                final int b1 = band(edgeYmax(c, e), y0, scale, nb);
+                for (int b = b0; b <= b1; b++) {
+                    counts[b]++;
+                }
+                total += b1 - b0 + 1;
+            }
+            if ((nb == 1) || (total <= MAX_FILL * numEdges)) {
+                break;
+            }
+            // too many long segments: use fewer bands
+            nb >>= 1;
+        }
+        numBands = nb;
+        bandScale = scale;
+
+        // prefix sums then fill the bands:
+        final int[] starts = new int[nb + 1];
+        for (int b = 0, s = 0; b < nb; b++) {
+            starts[b] = s;
+            s += counts[b];
+        }
+        starts[nb] = total;
+
+        final int[] edges = new int[total];
+        final int[] pos = counts;
+        System.arraycopy(starts, 0, pos, 0, nb);
+        for (int e = 0; e < numEdges; e++) {
+            final int b0 = band(edgeYmin[e], y0, scale, nb);
+            final int b1 = band(edgeYmax(c, e), y0, scale, nb);
+            for (int b = b0; b <= b1; b++) {
+                edges[pos[b]++] = e;
+            }
+        }
+        bandStart = starts;
+        bandEdges = edges;
+    }
+
+    private static int band(final float y, final float y0, final float scale,
+                            final int nb)
+    {
+        final int b = (int) ((y - y0) * scale);
+        return (b <= 0) ? 0 : (b >= nb) ? (nb - 1) : b;
+    }
+
+    private int band(final float y) {
+        return band(y, ymin, bandScale, numBands);
+    }
+
+    private void addClosingLine(final float[] c, final int curOff,
+                                final int movOff)
+    {
+        if ((c[curOff] != c[movOff]) || (c[curOff + 1] != c[movOff + 1])) {
+            addEdge(c, EDGE_LINE, curOff, movOff);
+        }
+    }
+
+    private void addEdge(final float[] c, final byte type, final int start,
+                         final int next)
+    {
+        final int e = numEdges++;
+        edgeType[e] = type;
+        edgeStart[e] = start;
+        edgeNext[e] = next;
+
+        float y = Math.min(c[start + 1], c[next + 1]);
+        if (type != EDGE_LINE) {
+            y = Math.min(y, c[next + 3]);
+            if (type == EDGE_CUBIC) {
+                y = Math.min(y, c[next + 5]);
+            }
+        }
+        edgeYmin[e] = y;
+    }
+
+    private float edgeYmax(final float[] c, final int e) {
+        final int next = edgeNext[e];
+        float y = Math.max(c[edgeStart[e] + 1], c[next + 1]);
+        final byte type = edgeType[e];
+        if (type != EDGE_LINE) {
+            y = Math.max(y, c[next + 3]);
+            if (type == EDGE_CUBIC) {
+                y = Math.max(y, c[next + 5]);
+            }
+        }
+        return y;
+    }
+
+    /**
+     * Returns the crossings of the path (coordinates c) with the ray from
+     * (px, py) to the right (see Path2D.pointCrossings)
+     */
+    int pointCrossings(final float[] c, final float px, final float py) {
+        if (!(py >= ymin && py <= ymax)) {
+            return 0;
+        }
+        final int b = band(py);
+        int crossings = 0;
+
+        for (int k = bandStart[b], end = bandStart[b + 1]; k < end; k++) {
+            final int e = bandEdges[k];
+            final int s = edgeStart[e];
+            final int n = edgeNext[e];
+
+            switch (edgeType[e]) {
+            case EDGE_LINE:
+                crossings +=
+                    Shape.pointCrossingsForLine(px, py,
+                                                c[s], c[s + 1],
+                                                c[n], c[n + 1]);
+                break;
+            case EDGE_QUAD:
+                crossings +=
+                    Shape.pointCrossingsForQuad(px, py,
+                                                c[s], c[s + 1],
+                                                c[n], c[n + 1],
+                                                c[n + 2], c[n + 3],
+                                                0);
+                break;
+            case EDGE_CUBIC:
+                crossings +=
+                    Shape.pointCrossingsForCubic(px, py,
+                                                 c[s], c[s + 1],
+                                                 c[n], c[n + 1],
+                                                 c[n + 2], c[n + 3],
+                                                 c[n + 4], c[n + 5],
+                                                 0);
+                break;
+            default:
+            }
+        }
+        return crossings;
+    }
+
+    /**
+     * Returns the crossings of the path (coordinates c) with the given
+     * rectangle (see Path2D.rectCrossings)
+     */
+    int rectCrossings(final float[] c,
+                      final float rxmin, final float rymin,
+                      final float rxmax, final float rymax)
+    {
+        if ((rymax <= ymin) || (rymin >= ymax)) {
+            // no segment crosses the rectangle y range:
+            return 0;
+        }
+        final int b0 = band(Math.max(rymin, ymin));
+        final int b1 = band(Math.min(rymax, ymax));
+        int crossings = 0;
+
+        for (int b = b0; b <= b1; b++) {
+            for (int k = bandStart[b], end = bandStart[b + 1]; k < end; k++) {
+                final int e = bandEdges[k];
+                // count every edge once (in its first band within [b0, b1]):
+                if ((b != b0) && (band(edgeYmin[e]) < b)) {
+                    continue;
+                }
+                final int s = edgeStart[e];
+                final int n = edgeNext[e];
+
+                switch (edgeType[e]) {
+                case EDGE_LINE:
+                    crossings =
+                        Shape.rectCrossingsForLine(crossings,
+                                                   rxmin, rymin,
+                                                   rxmax, rymax,
+                                                   c[s], c[s + 1],
+                                                   c[n], c[n + 1]);
+                    break;
+                case EDGE_QUAD:
+                    crossings =
+                        Shape.rectCrossingsForQuad(crossings,
+                                                   rxmin, rymin,
+                                                   rxmax, rymax,
+                                                   c[s], c[s + 1],
+                                                   c[n], c[n + 1],
+                                                   c[n + 2], c[n + 3],
+                                                   0);
+                    break;
+                case EDGE_CUBIC:
+                    crossings =
+                        Shape.rectCrossingsForCubic(crossings,
+                                                    rxmin, rymin,
+                                                    rxmax, rymax,
+                                                    c[s], c[s + 1],
+                                                    c[n], c[n + 1],
+                                                    c[n + 2], c[n + 3],
+                                                    c[n + 4], c[n + 5],
+                                                    0);
+                    break;
+                default:
+                }
+                if (crossings == Shape.RECT_INTERSECTS) {
+                    return crossings;
+                }
+            }
+        }
+        return crossings;
+    }
+}
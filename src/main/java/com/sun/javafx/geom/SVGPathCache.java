@@ -0,0 +1,85 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.javafx.geom;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded LRU cache of the geometry parsed by {@link Path2D#appendSVGPath}
+ * keyed by the SVG path content: applications setting the same icon strings
+ * again and again parse them only once.
+ * <p>
+ * Cached paths are never modified: their arrays are shared by the paths
+ * appending the same content to an empty path until they are modified
+ * (copy on write, see {@code Path2D.shared}).
+ */
+final class SVGPathCache {
+
+    // max number of cached paths
+    static final int MAX_ENTRIES = 256;
+    // max length (chars) of the cached SVG path contents
+    static final int MAX_LENGTH = 16 * 1024;
+
+    private static final Map<String, Path2D> CACHE
+        = new LinkedHashMap<String, Path2D>(64, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Path2D> e) {
+                return size() > MAX_ENTRIES;
+            }
+        };
+
+    private SVGPathCache() {
+    }
+
+    static boolean isCacheable(final String svgpath) {
+        return (svgpath.length() <= MAX_LENGTH);
+    }
+
+    static Path2D get(final String svgpath) {
+        synchronized (CACHE) {
+            return CACHE.get(svgpath);
+        }
+    }
+
+    /**
+     * Stores the geometry of the given (just parsed) path: its arrays are
+     * trimmed then shared with the cached path.
+     */
+    static void put(final String svgpath, final Path2D p2d) {
+        p2d.pointTypes = Arrays.copyOf(p2d.pointTypes, p2d.numTypes);
+        p2d.floatCoords = Arrays.copyOf(p2d.floatCoords, p2d.numCoords);
+
+        final Path2D cached = new Path2D(p2d.windingRule, 0);
+        cached.shareFrom(p2d);
+        p2d.shared = true;
+
+        synchronized (CACHE) {
+            CACHE.put(svgpath, cached);
+        }
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+/**
+ * Converts a row of coverage deltas into alpha values (running sum then alpha
+ * map lookup) and clears the deltas.
+ *
+ * This is the Java 8 implementation (scalar): a Vector API fast path for the
+ * chunks of pixels without coverage change is provided as a multi-release
+ * class in META-INF/versions/16 and is enabled when VECTORIZED is true.
+ */
+final class AlphaRowMapper {
+
+    // true if the vectorized implementation is available
+    // (not a compile-time constant as it is overriden by the Java 16+ class):
+    static final boolean VECTORIZED = Boolean.FALSE.booleanValue();
+
+    // minimum row length to use the vectorized implementation:
+    static final int VECTOR_MIN_LENGTH = 64;
+
+    private AlphaRowMapper() {
+        // no instance
+    }
+
+    /**
+     * Convert alpha deltas in [from; to[ into alpha values stored in
+     * out[off + from; off + to[ and clear these deltas.
+     *
+     * @param alphaDeltas coverage deltas (cleared)
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param alphaMap alpha map (coverage to alpha [0..255])
+     * @param out output alphas
+     * @param off offset in output alphas
+     */
+    static void mapAndClearRow(final int[] alphaDeltas, final int from,
+                               final int to, final byte[] alphaMap,
+                               final byte[] out, final int off)
+    {
+        int curAlpha = 0;
+
+        for (int i = from; i < to; i++) {
+            curAlpha += alphaDeltas[i];
+            alphaDeltas[i] = 0;
+
+            out[off + i] = alphaMap[curAlpha]; // [0..255]
+        }
+    }
+}
@@ -0,0 +1,94 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+/**
+ * Retained edge list of an antialiased fill: the path is flattened, clipped
+ * and converted into edges (fixed-point DDA state) once, then the edges can
+ * be rasterized many times at any translation (multiple of one subpixel)
+ * without feeding the path again (no curve decimation, no clipping, no
+ * slope computation).
+ *
+ * Edges are stored as int sextets (curx, err, bumpX, bumpErr, ymin, ymax)
+ * in subpixel coordinates: curx, err, bumpX and bumpErr are the values of
+ * the Renderer edge at its first scanline ymin (inclusive) and ymax is the
+ * last scanline (exclusive). Instances are immutable and may be shared
+ * between threads.
+ */
+public final class CompiledShape {
+    // number of ints per edge:
+    static final int EDGE_STRIDE = 6;
+
+    static final int EDGE_CURX_OR  = 0;
+    static final int EDGE_ERROR    = 1;
+    static final int EDGE_BUMP_X   = 2;
+    static final int EDGE_BUMP_ERR = 3;
+    static final int EDGE_YMIN     = 4;
+    static final int EDGE_YMAX     = 5;
+
+    // subpixel resolution used to build edges:
+    final int subpixLgX;
+    final int subpixLgY;
+    final int windingRule;
+
+    // edge sextets:
+    final int[] edges;
+    final int numEdges;
+
+    // edge bounds in subpixels (x inclusive, y half-open):
+    final int spminX, spmaxX, spminY, spmaxY;
+
+    CompiledShape(final int subpixLgX, final int subpixLgY,
+                  final int windingRule,
+                  final int[] edges, final int numEdges,
+                  final int spminX, final int spmaxX,
+                  final int spminY, final int spmaxY)
+    {
+        this.subpixLgX = subpixLgX;
+        this.subpixLgY = subpixLgY;
+        this.windingRule = windingRule;
+        this.edges = edges;
+        this.numEdges = numEdges;
+        this.spminX = spminX;
+        this.spmaxX = spmaxX;
+        this.spminY = spminY;
+        this.spmaxY = spmaxY;
+    }
+
+    /**
+     * @return true if this shape has no edge
+     */
+    public boolean isEmpty() {
+        return (numEdges == 0);
+    }
+
+    /**
+     * @return number of edges
+     */
+    public int getEdgeCount() {
+        return numEdges;
+    }
+}
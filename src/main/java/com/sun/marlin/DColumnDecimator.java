@@ -0,0 +1,176 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+
+
+/**
+ * Streaming min/max decimator for x-monotone polylines in device space (chart
+ * line series): only the entry point, the min and max points (in their
+ * original order) and the exit point of every column (1/8 pixel) are kept, so
+ * the stroking and rasterization cost is proportional to the pixel width
+ * instead of the number of points.
+ *
+ * The kept points cover the y range of every column, so the dropped points
+ * lie within 1/8 pixel of the decimated polyline (and conversely): round
+ * joins and caps keep the stroke outline within 1/8 pixel.
+ *
+ * DCurves, moveTo and closePath pass through unchanged (current column flushed
+ * first).
+ */
+public final class DColumnDecimator implements DPathConsumer2D {
+
+    // number of columns per pixel
+    public static final int COLUMNS_PER_PIXEL = 8;
+
+    DPathConsumer2D delegate;
+    // current column (floor(x * COLUMNS_PER_PIXEL))
+    int col;
+    // true if points were dropped in the current column
+    boolean dropped;
+    // index of the current point in the current column
+    int idx;
+    // min y point and its index
+    double minX, minY;
+    int minIdx;
+    // max y point and its index
+    double maxX, maxY;
+    int maxIdx;
+    // last point (exit point)
+    double lastX, lastY;
+
+    DColumnDecimator() {
+    }
+
+    public DColumnDecimator init(DPathConsumer2D delegate) {
+        this.delegate = delegate;
+        this.col = Integer.MIN_VALUE;
+        this.dropped = false;
+
+        return this; // fluent API
+    }
+
+    @Override
+    public void pathDone() {
+        flushColumn();
+        delegate.pathDone();
+    }
+
+    @Override
+    public void closePath() {
+        flushColumn();
+        delegate.closePath();
+        // start point of the sub path is unknown: start a new column
+        col = Integer.MIN_VALUE;
+    }
+
+    @Override
+    public void quadTo(double x1, double y1, double x2, double y2) {
+        flushColumn();
+        delegate.quadTo(x1, y1, x2, y2);
+        startColumn(x2, y2);
+    }
+
+    @Override
+    public void curveTo(double x1, double y1, double x2, double y2,
+                        double x3, double y3) {
+        flushColumn();
+        delegate.curveTo(x1, y1, x2, y2, x3, y3);
+        startColumn(x3, y3);
+    }
+
+    @Override
+    public void moveTo(double x, double y) {
+        flushColumn();
+        delegate.moveTo(x, y);
+        startColumn(x, y);
+    }
+
+    @Override
+    public void lineTo(final double x, final double y) {
+        final int c = FloatMath.floor_int(x * COLUMNS_PER_PIXEL);
+
+        if (c != col) {
+            // next column: emit the entry point
+            flushColumn();
+            delegate.lineTo(x, y);
+            startColumn(x, y);
+            return;
+        }
+        // same column: keep min / max and exit points
+        final int i = ++idx;
+        if (y < minY) {
+            minX = x;
+            minY = y;
+            minIdx = i;
+        }
+        if (y > maxY) {
+            maxX = x;
+            maxY = y;
+            maxIdx = i;
+        }
+        lastX = x;
+        lastY = y;
+        dropped = true;
+    }
+
+    // start a new column with the given (emitted) entry point
+    private void startColumn(final double x, final double y) {
+        col = FloatMath.floor_int(x * COLUMNS_PER_PIXEL);
+        idx = 0;
+        minX = maxX = lastX = x;
+        minY = maxY = lastY = y;
+        minIdx = maxIdx = 0;
+        dropped = false;
+    }
+
+    // emit the min / max points (in order) then the exit point
+    private void flushColumn() {
+        if (dropped) {
+            final int last = idx;
+            final DPathConsumer2D out = delegate;
+
+            // skip the entry (0) and exit (last) points:
+            if (minIdx < maxIdx) {
+                if (minIdx != 0) {
+                    out.lineTo(minX, minY);
+                }
+                if (maxIdx != last) {
+                    out.lineTo(maxX, maxY);
+                }
+            } else if (maxIdx < minIdx) {
+                if (maxIdx != 0) {
+                    out.lineTo(maxX, maxY);
+                }
+                if (minIdx != last) {
+                    out.lineTo(minX, minY);
+                }
+            }
+            out.lineTo(lastX, lastY);
+            dropped = false;
+        }
+    }
+}
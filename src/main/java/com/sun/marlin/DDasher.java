@@ -49,6 +49,21 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
     // punt and override the phase to just be 0 past that point.
     static final double MAX_CYCLES = 16000000.0d;
 
+    // maximum number of leaves (subdivided curves) per curve
+    static final int MAX_LEAVES = 1 << REC_LIMIT;
+
+    // number of curves in the arc-length cache (power of 2)
+    static final int CACHE_SIZE = 256;
+
+    // maximum subdivision depth of curves crossing the clip boundary
+    static final int CLIP_REC_LIMIT = 16;
+
+    // curves crossing the clip boundary are only subdivided if their control
+    // polygon is that many times larger than the clip: the arc lengths of
+    // subdivided curves differ from the whole curve (REC_LIMIT), so smaller
+    // curves are dashed as a whole to keep their dashes independent of the clip
+    static final double CLIP_SPLIT_RATIO = 16.0d;
+
     private DPathConsumer2D out;
     private double[] dash;
     private int dashLen;
@@ -68,6 +83,23 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
 
     // temporary storage for the current curve
     private final double[] curCurvepts;
+    // stack of curves subdivided along the clip boundary (dirty)
+    private final double[] clipCurveStack;
+
+    // clip rectangle (ymin, ymax, xmin, xmax) adjusted by the Stroker
+    // (null if clipping is disabled)
+    private double[] clipRect;
+    // maximum curve size (control polygon length) not subdivided at clip
+    private double clipSplitLen;
+    // outcode of the current point (clip)
+    private int cOutCode = 0;
+
+    // dash cycle length (sum of dash lengths)
+    private double cycleLen;
+    // true if the path portions out of clip were skipped
+    private boolean outside;
+    // accumulated length of skipped path portions
+    private double totalSkipLen;
 
     // per-thread renderer context
     final DRendererContext rdrCtx;
@@ -95,6 +127,9 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         // we need curCurvepts to be able to contain 2 curves because when
         // dashing curves, we need to subdivide it
         curCurvepts = new double[8 * 2];
+
+        // left and right parts per subdivision level
+        clipCurveStack = new double[8 * (CLIP_REC_LIMIT + 2)];
     }
 
     /**
@@ -116,8 +151,8 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         int sidx = 0;
         dashOn = true;
         double sum = 0.0d;
-        for (double d : dash) {
-            sum += d;
+        for (int i = 0; i < dashLen; i++) {
+            sum += dash[i];
         }
         double cycles = phase / sum;
         if (phase < 0.0d) {
@@ -165,6 +200,23 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         this.needsMoveTo = false;
         this.firstSegidx = 0;
 
+        this.cycleLen = sum;
+        this.outside = false;
+        this.totalSkipLen = 0.0d;
+
+        // Get clip rectangle (ie. adjusted by Stroker width):
+        if (rdrCtx.doClip) {
+            final double[] _clipRect = rdrCtx.clipRect;
+            this.clipRect = _clipRect;
+            // curves much larger than the clip are subdivided:
+            this.clipSplitLen = CLIP_SPLIT_RATIO
+                * Math.max(_clipRect[1] - _clipRect[0],
+                           _clipRect[3] - _clipRect[2]);
+        } else {
+            this.clipRect = null;
+            this.cOutCode = 0;
+        }
+
         this.recycleDashes = recycleDashes;
 
         return this; // fluent API
@@ -178,6 +230,7 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         if (DO_CLEAN_DIRTY) {
             // Force zero-fill dirty arrays:
             Arrays.fill(curCurvepts, 0.0d);
+            Arrays.fill(clipCurveStack, 0.0d);
         }
         // Return arrays:
         if (recycleDashes) {
@@ -216,6 +269,14 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         this.x0 = x0;
         this.y0 = y0;
         this.starting = true;
+
+        // skipped length is lost (phase reset):
+        this.outside = false;
+        this.totalSkipLen = 0.0d;
+
+        if (clipRect != null) {
+            this.cOutCode = DHelpers.outcode(x0, y0, clipRect);
+        }
     }
 
     private void emitSeg(double[] buf, int off, int type) {
@@ -305,6 +366,164 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
 
     @Override
     public void lineTo(final double x1, final double y1) {
+        final double[] _clipRect = clipRect;
+
+        if (_clipRect != null) {
+            final int outcode0 = this.cOutCode;
+            final int outcode1 = DHelpers.outcode(x1, y1, _clipRect);
+            this.cOutCode = outcode1;
+
+            if ((outcode0 | outcode1) != 0) {
+                if ((outcode0 & outcode1) != 0) {
+                    // segment out of clip (same side):
+                    skipLineTo(x1, y1);
+                } else {
+                    clipLineTo(x1, y1, _clipRect);
+                }
+                return;
+            }
+        }
+        _lineTo(x1, y1);
+    }
+
+    /**
+     * Dash only the part of the line within the clip rectangle and skip
+     * (phase only) its parts out of clip (Liang-Barsky)
+     */
+    private void clipLineTo(final double x1, final double y1,
+                            final double[] _clipRect)
+    {
+        final double xs = x0;
+        final double ys = y0;
+        final double dx = x1 - xs;
+        final double dy = y1 - ys;
+
+        double t0 = 0.0d, t1 = 1.0d, ta, tb, tmp;
+
+        if (dx != 0.0d) {
+            ta = (_clipRect[2] - xs) / dx;
+            tb = (_clipRect[3] - xs) / dx;
+            if (dx < 0.0d) {
+                tmp = ta;
+                ta = tb;
+                tb = tmp;
+            }
+            if (ta > t0) {
+                t0 = ta;
+            }
+            if (tb < t1) {
+                t1 = tb;
+            }
+        }
+        if (dy != 0.0d) {
+            ta = (_clipRect[0] - ys) / dy;
+            tb = (_clipRect[1] - ys) / dy;
+            if (dy < 0.0d) {
+                tmp = ta;
+                ta = tb;
+                tb = tmp;
+            }
+            if (ta > t0) {
+                t0 = ta;
+            }
+            if (tb < t1) {
+                t1 = tb;
+            }
+        }
+        if (!(t0 < t1)) {
+            // segment out of clip (crossing a corner region):
+            skipLineTo(x1, y1);
+            return;
+        }
+        if (t0 > 0.0d) {
+            skipLineTo(xs + t0 * dx, ys + t0 * dy);
+        }
+        if (t1 < 1.0d) {
+            _lineTo(xs + t1 * dx, ys + t1 * dy);
+            skipLineTo(x1, y1);
+        } else {
+            _lineTo(x1, y1);
+        }
+    }
+
+    private void skipLineTo(final double x1, final double y1) {
+        final double dx = x1 - x0;
+        final double dy = y1 - y0;
+
+        double len = dx*dx + dy*dy;
+        if (len != 0.0d) {
+            len = Math.sqrt(len);
+        }
+
+        // Accumulate skipped length:
+        this.outside = true;
+        this.totalSkipLen += len;
+
+        // Fix initial move:
+        this.needsMoveTo = true;
+        this.starting = false;
+
+        this.x0 = x1;
+        this.y0 = y1;
+    }
+
+    /**
+     * Advance the dash phase by the accumulated skipped length: full dash
+     * cycles are skipped at once (no iteration over every dash)
+     */
+    private void skipLen() {
+        double len = this.totalSkipLen;
+        this.totalSkipLen = 0.0d;
+
+        final double[] _dash = dash;
+        final int _dashLen = this.dashLen;
+
+        int _idx = idx;
+        boolean _dashOn = dashOn;
+        double _phase = phase;
+
+        // -2 to ensure having 2 iterations of the post-loop
+        // to compensate the remaining phase
+        final long fullcycles = (long) Math.floor(len / cycleLen) - 2L;
+
+        if (fullcycles > 0L) {
+            len -= cycleLen * fullcycles;
+
+            final long iterations = fullcycles * _dashLen;
+            _idx = (int) ((iterations + _idx) % _dashLen);
+            _dashOn = (((iterations + (_dashOn ? 1L : 0L)) & 1L) == 1L);
+        }
+
+        double leftInThisDashSegment;
+
+        while (true) {
+            leftInThisDashSegment = _dash[_idx] - _phase;
+
+            if (len <= leftInThisDashSegment) {
+                // Advance phase within current dash segment
+                _phase += len;
+
+                if (len == leftInThisDashSegment) {
+                    _phase = 0.0d;
+                    _idx = (_idx + 1) % _dashLen;
+                    _dashOn = !_dashOn;
+                }
+                break;
+            }
+
+            len -= leftInThisDashSegment;
+            // Advance to next dash segment
+            _idx = (_idx + 1) % _dashLen;
+            _dashOn = !_dashOn;
+            _phase = 0.0d;
+        }
+        // Save local state:
+        idx = _idx;
+        dashOn = _dashOn;
+        phase = _phase;
+    }
+
+    private void _lineTo(final double x1, final double y1) {
         final double dx = x1 - x0;
         final double dy = y1 - y0;
 
@@ -314,6 +533,11 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         }
         len = Math.sqrt(len);
 
+        if (outside) {
+            outside = false;
+            skipLen();
+        }
+
         // The scaling factors needed to get the dx and dy of the
         // transformed dash segments.
         final double cx = dx / len;
@@ -388,6 +612,10 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         if (pointCurve(curCurvepts, type)) {
             return;
         }
+        if (outside) {
+            outside = false;
+            skipLen();
+        }
         final LengthIterator _li = li;
         final double[] _curCurvepts = curCurvepts;
         final double[] _dash = dash;
@@ -439,6 +667,81 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         _li.reset();
     }
 
+    // preconditions: curCurvepts must be an array of length at least 2 * type,
+    // that contains the curve we want to skip in the first type elements
+    private void skipSomethingTo(final int type) {
+        final double[] _curCurvepts = curCurvepts;
+        if (pointCurve(_curCurvepts, type)) {
+            return;
+        }
+        final LengthIterator _li = li;
+
+        _li.initializeIterationOnCurve(_curCurvepts, type);
+
+        // In contrary to somethingTo(),
+        // just estimate properly the curve length:
+        final double len = _li.totalLength();
+
+        // Accumulate skipped length:
+        this.outside = true;
+        this.totalSkipLen += len;
+
+        // Fix initial move:
+        this.needsMoveTo = true;
+        this.starting = false;
+
+        this.x0 = _curCurvepts[type - 2];
+        this.y0 = _curCurvepts[type - 1];
+    }
+
+    /**
+     * Dash the curve at clipCurveStack[off] (type values): curves crossing
+     * the clip boundary are subdivided (up to CLIP_REC_LIMIT) while they are
+     * much larger than the clip so their parts out of clip are skipped
+     */
+    private void clipSomethingTo(final double[] stack, final int off,
+                                 final int type, final int level)
+    {
+        final double[] _clipRect = clipRect;
+
+        int orCode = 0;
+        int sideCode = -1;
+        double polyLen = 0.0d;
+        int outcode;
+
+        for (int i = off, end = off + type; i < end; i += 2) {
+            outcode = DHelpers.outcode(stack[i], stack[i + 1], _clipRect);
+            orCode |= outcode;
+            sideCode &= outcode;
+
+            if (i != off) {
+                polyLen += DHelpers.linelen(stack[i - 2], stack[i - 1],
+                                           stack[i], stack[i + 1]);
+            }
+        }
+
+        if ((orCode != 0) && (sideCode == 0)
+                && (level < CLIP_REC_LIMIT) && (polyLen > clipSplitLen))
+        {
+            // right part in place, left part above:
+            DHelpers.subdivide(stack, off, stack, off + type, stack, off, type);
+
+            clipSomethingTo(stack, off + type, type, level + 1);
+            clipSomethingTo(stack, off, type, level + 1);
+            return;
+        }
+
+        // optimize arraycopy (8 values faster than 6 = type):
+        System.arraycopy(stack, off, curCurvepts, 0, 8);
+
+        if (sideCode != 0) {
+            // curve out of clip (same side):
+            skipSomethingTo(type);
+        } else {
+            somethingTo(type);
+        }
+    }
+
     private static boolean pointCurve(double[] curve, int type) {
         for (int i = 2; i < type; i++) {
             if (curve[i] != curve[i-2]) {
@@ -489,6 +792,39 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         // next() for more detail.
         private final double[] curLeafCtrlPolyLengths = new double[3];
 
+        // leaf record (double values):
+        // t and curve length at the end of the leaf, control polygon lengths
+        private static final int OFF_T    = 0;
+        private static final int OFF_LEN  = 1;
+        private static final int OFF_POLY = 2;
+
+        // size of one leaf in doubles
+        private static final int SIZEOF_LEAF = 5;
+
+        // size of one leaf table in doubles
+        private static final int SIZEOF_LEAVES = MAX_LEAVES * SIZEOF_LEAF;
+
+        // leaf table of the current curve (arc-length parameterization)
+        private final double[] leaves = new double[SIZEOF_LEAVES]; // dirty
+        private int leafCount;
+        // index of the current leaf
+        private int leafIdx;
+
+        // arc-length cache (direct-mapped) keyed by the curve points:
+        // the same curves (same path and transform) dashed again (e.g. with
+        // another dash phase) reuse their leaf tables (no subdivision).
+        // curve points per entry (lazily allocated)
+        private double[] cacheKeys;
+        // leaf table per entry
+        private double[] cacheLeaves;
+        // curve type per entry (0 if unused)
+        private int[] cacheTypes;
+        // leaf count per entry
+        private int[] cacheCounts;
+        // cache setting, read once per dasher (prism.marlin.useDashCache)
+        // so curves dashed with and without the cache can be compared:
+        private final boolean useCache = MarlinProperties.isUseDashCache();
+
         LengthIterator() {
             this.recCurveStack = new double[REC_LIMIT + 1][8];
             this.sides = new Side[REC_LIMIT];
@@ -518,29 +854,97 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
                 Arrays.fill(nextRoots, 0.0d);
                 Arrays.fill(flatLeafCoefCache, 0.0d);
                 flatLeafCoefCache[2] = -1.0d;
+                Arrays.fill(leaves, 0.0d);
             }
         }
 
         void initializeIterationOnCurve(double[] pts, int type) {
+            this.curveType = type;
+
+            if (!useCache || !loadLeaves(pts, type)) {
+                computeLeaves(pts, type);
+
+                if (useCache) {
+                    storeLeaves(pts, type);
+                }
+            }
+            this.leafIdx = -1;
+            this.nextT = 0.0d;
+            this.lenAtNextT = 0.0d;
+            goToNextLeaf(); // initializes nextT and lenAtNextT properly
+            this.lenAtLastSplit = 0.0d;
+            this.lastSegLen = 0.0d;
+        }
+
+        // subdivide the whole curve and fill the leaf table
+        private void computeLeaves(final double[] pts, final int type) {
             // optimize arraycopy (8 values faster than 6 = type):
             System.arraycopy(pts, 0, recCurveStack[0], 0, 8);
-            this.curveType = type;
             this.recLevel = 0;
-            this.lastT = 0.0d;
-            this.lenAtLastT = 0.0d;
             this.nextT = 0.0d;
             this.lenAtNextT = 0.0d;
-            goLeft(); // initializes nextT and lenAtNextT properly
-            this.lenAtLastSplit = 0.0d;
+            this.leafCount = 0;
+
+            goLeft();
+
             if (recLevel > 0) {
                 this.sides[0] = Side.LEFT;
-                this.done = false;
-            } else {
-                // the root of the tree is a leaf so we're done.
-                this.sides[0] = Side.RIGHT;
-                this.done = true;
+
+                while (goToNextLeftLeaf()) {
+                    // next leaf
+                }
             }
-            this.lastSegLen = 0.0d;
+        }
+
+        private static int cacheIndex(final double[] pts, final int type) {
+            int h = type;
+            for (int i = 0; i < type; i++) {
+                h = 31 * h + Double.hashCode(pts[i]);
+            }
+            h ^= (h >>> 16);
+            return h & (CACHE_SIZE - 1);
+        }
+
+        // load the leaf table of the given curve from the cache if present
+        private boolean loadLeaves(final double[] pts, final int type) {
+            final int[] _cacheTypes = cacheTypes;
+            if (_cacheTypes == null) {
+                return false;
+            }
+            final int idx = cacheIndex(pts, type);
+            if (_cacheTypes[idx] != type) {
+                return false;
+            }
+            final double[] _cacheKeys = cacheKeys;
+            for (int i = 0, off = idx * 8; i < type; i++) {
+                if (_cacheKeys[off + i] != pts[i]) {
+                    return false;
+                }
+            }
+            final int count = cacheCounts[idx];
+            System.arraycopy(cacheLeaves, idx * SIZEOF_LEAVES, leaves, 0,
+                             count * SIZEOF_LEAF);
+            this.leafCount = count;
+            return true;
+        }
+
+        // store the leaf table of the given curve in the cache
+        private void storeLeaves(final double[] pts, final int type) {
+            if (cacheTypes == null) {
+                cacheKeys   = new double[CACHE_SIZE * 8];
+                cacheLeaves = new double[CACHE_SIZE * SIZEOF_LEAVES];
+                cacheTypes  = new int[CACHE_SIZE];
+                cacheCounts = new int[CACHE_SIZE];
+            }
+            final int idx = cacheIndex(pts, type);
+            final int count = leafCount;
+
+            // optimize arraycopy (8 values faster than 6 = type):
+            System.arraycopy(pts, 0, cacheKeys, idx * 8, 8);
+            System.arraycopy(leaves, 0, cacheLeaves, idx * SIZEOF_LEAVES,
+                             count * SIZEOF_LEAF);
+            cacheTypes[idx]  = type;
+            cacheCounts[idx] = count;
         }
 
         // 0 == false, 1 == true, -1 == invalid cached value.
@@ -660,9 +1064,42 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
             return lastSegLen;
         }
 
+        // return the total length of the curve
+        double totalLength() {
+            // reset LengthIterator:
+            reset();
+
+            return leaves[(leafCount - 1) * SIZEOF_LEAF + OFF_LEN];
+        }
+
         // go to the next leaf (in an inorder traversal) in the recursion tree
         // preconditions: must be on a leaf, and that leaf must not be the root.
         private void goToNextLeaf() {
+            final int idx = ++leafIdx;
+            final int off = idx * SIZEOF_LEAF;
+            final double[] _leaves = leaves;
+
+            lastT = nextT;
+            lenAtLastT = lenAtNextT;
+            nextT = _leaves[off + OFF_T];
+            lenAtNextT = _leaves[off + OFF_LEN];
+
+            curLeafCtrlPolyLengths[0] = _leaves[off + OFF_POLY    ];
+            curLeafCtrlPolyLengths[1] = _leaves[off + OFF_POLY + 1];
+            curLeafCtrlPolyLengths[2] = _leaves[off + OFF_POLY + 2];
+
+            // invalidate caches
+            flatLeafCoefCache[2] = -1.0d;
+            cachedHaveLowAcceleration = -1;
+
+            done = (idx == leafCount - 1);
+        }
+
+        // go to the next leaf (in an inorder traversal) in the recursion tree
+        // and record it in the leaf table
+        // preconditions: must be on a leaf, and that leaf must not be the root.
+        // @return false if there is no more leaf
+        private boolean goToNextLeftLeaf() {
             // We must go to the first ancestor node that has an unvisited
             // right child.
             int _recLevel = recLevel;
@@ -672,8 +1109,7 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
             while(_sides[_recLevel] == Side.RIGHT) {
                 if (_recLevel == 0) {
                     recLevel = 0;
-                    done = true;
-                    return;
+                    return false;
                 }
                 _recLevel--;
             }
@@ -686,19 +1122,25 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
 
             recLevel = _recLevel;
             goLeft();
+            return true;
         }
 
-        // go to the leftmost node from the current node. Return its length.
+        // go to the leftmost node from the current node and record its
+        // end t and length in the leaf table.
         private void goLeft() {
             double len = onLeaf();
             if (len >= 0.0d) {
-                lastT = nextT;
-                lenAtLastT = lenAtNextT;
                 nextT += (1 << (REC_LIMIT - recLevel)) * MIN_T_INC;
                 lenAtNextT += len;
-                // invalidate caches
-                flatLeafCoefCache[2] = -1.0d;
-                cachedHaveLowAcceleration = -1;
+
+                final int off = (leafCount++) * SIZEOF_LEAF;
+                final double[] _leaves = leaves;
+
+                _leaves[off + OFF_T  ] = nextT;
+                _leaves[off + OFF_LEN] = lenAtNextT;
+                _leaves[off + OFF_POLY    ] = curLeafCtrlPolyLengths[0];
+                _leaves[off + OFF_POLY + 1] = curLeafCtrlPolyLengths[1];
+                _leaves[off + OFF_POLY + 2] = curLeafCtrlPolyLengths[2];
             } else {
                 DHelpers.subdivide(recCurveStack[recLevel], 0,
                                   recCurveStack[recLevel+1], 0,
@@ -746,7 +1188,12 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         _curCurvepts[2] = x1;        _curCurvepts[3] = y1;
         _curCurvepts[4] = x2;        _curCurvepts[5] = y2;
         _curCurvepts[6] = x3;        _curCurvepts[7] = y3;
-        somethingTo(8);
+
+        if (clipRect != null) {
+            clipCurveTo(8);
+        } else {
+            somethingTo(8);
+        }
     }
 
     @Override
@@ -757,7 +1204,31 @@ public final class DDasher implements DPathConsumer2D, MarlinConst {
         _curCurvepts[0] = x0;        _curCurvepts[1] = y0;
         _curCurvepts[2] = x1;        _curCurvepts[3] = y1;
         _curCurvepts[4] = x2;        _curCurvepts[5] = y2;
-        somethingTo(6);
+
+        if (clipRect != null) {
+            clipCurveTo(6);
+        } else {
+            somethingTo(6);
+        }
+    }
+
+    private void clipCurveTo(final int type) {
+        final double[] _curCurvepts = curCurvepts;
+        final int outcode0 = this.cOutCode;
+        final int outcode3 = DHelpers.outcode(_curCurvepts[type - 2],
+                                             _curCurvepts[type - 1], clipRect);
+        this.cOutCode = outcode3;
+
+        if ((outcode0 | outcode3) == 0) {
+            // control points may be out of clip but the curve
+            // is not subdivided (endpoints in clip):
+            somethingTo(type);
+            return;
+        }
+        // optimize arraycopy (8 values faster than 6 = type):
+        System.arraycopy(_curCurvepts, 0, clipCurveStack, 0, 8);
+
+        clipSomethingTo(clipCurveStack, 0, type, 0);
     }
 
     @Override
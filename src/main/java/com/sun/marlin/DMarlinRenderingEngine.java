@@ -158,6 +158,12 @@ public final class DMarlinRenderingEngine implements MarlinConst
                 + MarlinConst.SUBPIXEL_LG_POSITIONS_X);
         logInfo("prism.marlin.subPixel_log2_Y  = "
                 + MarlinConst.SUBPIXEL_LG_POSITIONS_Y);
+        logInfo("prism.marlin.subPixel.adaptive = "
+                + MarlinConst.USE_ADAPTIVE_SUBPIXELS);
+        logInfo("prism.marlin.subPixel.adaptive.largeSize = "
+                + MarlinConst.ADAPTIVE_SUBPIXELS_LARGE_SIZE);
+        logInfo("prism.marlin.exactAA          = "
+                + MarlinConst.USE_EXACT_AA);
 
         logInfo("prism.marlin.blockSize_log2   = "
                 + MarlinConst.BLOCK_SIZE_LG);
@@ -178,11 +184,54 @@ public final class DMarlinRenderingEngine implements MarlinConst
         // optimisation parameters
         logInfo("prism.marlin.useSimplifier    = "
                 + MarlinConst.USE_SIMPLIFIER);
+        logInfo("prism.marlin.usePathSimplifier = "
+                + MarlinConst.USE_PATH_SIMPLIFIER);
+        logInfo("prism.marlin.pathSimplifier.tolerance = "
+                + MarlinConst.PATH_SIMPLIFIER_TOLERANCE);
+        logInfo("prism.marlin.useColumnDecimator = "
+                + MarlinConst.USE_COLUMN_DECIMATOR);
+        logInfo("prism.marlin.useRadixSort     = "
+                + MarlinConst.USE_RADIX_SORT);
+        logInfo("prism.marlin.useRectFastPath  = "
+                + MarlinConst.USE_RECT_FAST_PATH);
+        logInfo("prism.marlin.useConvexRenderer = "
+                + MarlinConst.USE_CONVEX_RENDERER);
+        logInfo("prism.marlin.useParabolaFlattener = "
+                + MarlinConst.USE_PARABOLA_FLATTENER);
+        logInfo("prism.marlin.useFixedPointCurves = "
+                + MarlinConst.USE_FIXED_POINT_CURVES);
+        logInfo("prism.marlin.useCurveEdges    = "
+                + MarlinConst.USE_CURVE_EDGES);
+        logInfo("prism.marlin.useThinLineRenderer = "
+                + MarlinConst.USE_THIN_LINE_RENDERER);
+        logInfo("prism.marlin.useDashCache     = "
+                + MarlinConst.USE_DASH_CACHE);
+        logInfo("prism.marlin.useDifferentialStroke = "
+                + MarlinConst.USE_DIFFERENTIAL_STROKE);
+        logInfo("prism.marlin.strokeCache      = "
+                + MarlinProperties.isUseStrokeCache());
+        logInfo("prism.marlin.strokeCache.size = "
+                + MarlinProperties.getStrokeCacheSize());
+        logInfo("prism.marlin.heapStorage      = "
+                + MarlinConst.USE_HEAP_STORAGE);
+        logInfo("prism.marlin.vector           = "
+                + MarlinProperties.isUseVectorAPI()
+                + " (vectorized: " + AlphaRowMapper.VECTORIZED + ")");
         logInfo("prism.marlin.clip             = "
                 + MarlinProperties.isDoClip());
         logInfo("prism.marlin.clip.runtime.enable = "
                 + MarlinProperties.isDoClipRuntimeFlag());
 
+        // parallel rendering settings
+        logInfo("prism.marlin.parallel         = "
+                + MarlinConst.USE_PARALLEL);
+        logInfo("prism.marlin.parallel.threads = "
+                + MarlinConst.PARALLEL_THREADS);
+        logInfo("prism.marlin.parallel.bandHeight = "
+                + MarlinConst.PARALLEL_MIN_BAND_HEIGHT);
+        logInfo("prism.marlin.parallel.minEdges = "
+                + MarlinConst.PARALLEL_MIN_EDGES);
+
         // debugging parameters
         logInfo("prism.marlin.doStats          = "
                 + MarlinConst.DO_STATS);
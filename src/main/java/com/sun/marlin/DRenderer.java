@@ -26,7 +26,11 @@
 package com.sun.marlin;
 
 import static com.sun.marlin.OffHeapArray.SIZE_INT;
-import sun.misc.Unsafe;
+import static com.sun.marlin.OffHeapArray.SIZE_LONG;
+import com.sun.javafx.geom.Rectangle;
+import java.util.Arrays;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
 
 public final class DRenderer implements DMarlinRenderer, MarlinConst {
 
@@ -43,9 +47,6 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
     static final int SUBPIXEL_MASK_X = SUBPIXEL_POSITIONS_X - 1;
     static final int SUBPIXEL_MASK_Y = SUBPIXEL_POSITIONS_Y - 1;
 
-    private static final double RDR_OFFSET_X = 0.5d / SUBPIXEL_SCALE_X;
-    private static final double RDR_OFFSET_Y = 0.5d / SUBPIXEL_SCALE_Y;
-
     // common to all types of input path segments.
     // OFFSET as bytes
     // only integer values:
@@ -104,6 +105,42 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
     public static final double QUAD_DEC_BND
         = 8.0d * QUAD_DEC_ERR_SUBPIX;
 
+    // subpixel settings of the current shape (adaptive subpixel resolution)
+    // defaults are given by SUBPIXEL_LG_POSITIONS_X/Y:
+    private int subpixLgX = SUBPIXEL_LG_POSITIONS_X;
+    private int subpixLgY = SUBPIXEL_LG_POSITIONS_Y;
+    private int subpixMaskX = SUBPIXEL_MASK_X;
+    private int subpixMaskY = SUBPIXEL_MASK_Y;
+    private double subpixScaleX = SUBPIXEL_SCALE_X;
+    private double subpixScaleY = SUBPIXEL_SCALE_Y;
+    // max coverage = subpixel count per pixel:
+    private int maxAAAlpha = MAX_AA_ALPHA;
+    // curve break bind lengths in subpixels:
+    private double cubDecBnd = CUB_DEC_BND;
+    private double cubIncBnd = CUB_INC_BND;
+    private double quadDecBnd = QUAD_DEC_BND;
+    // same bounds in fixed-point (see FIX_LG):
+    private long cubDecBndFix = (long) (CUB_DEC_BND * FIX_ONE);
+    private long cubIncBndFix = (long) (CUB_INC_BND * FIX_ONE);
+    private long quadDecBndFix = (long) (QUAD_DEC_BND * FIX_ONE);
+    // curve flattener, read once per renderer (prism.marlin.useParabolaFlattener)
+    // so renderers created with either setting can be compared:
+    private final boolean useParabolaFlattener
+        = MarlinProperties.isUseParabolaFlattener();
+    // integer curve stepping, read once per renderer
+    // (prism.marlin.useFixedPointCurves) so float and fixed-point curves
+    // can be compared:
+    private final boolean useFixedPointCurves
+        = MarlinProperties.isUseFixedPointCurves();
+    // native curve edges, read once per renderer (prism.marlin.useCurveEdges)
+    // so flattened and curve edges can be compared:
+    private final boolean useCurveEdges = MarlinProperties.isUseCurveEdges();
+    // parallel bands, read once per renderer (prism.marlin.parallel and
+    // prism.marlin.parallel.threads) so serial and parallel renderers can be
+    // compared: 1 means serial rendering
+    private final int parallelThreads = MarlinProperties.isUseParallel()
+        ? MarlinProperties.getParallelThreads() : 1;
+
 //////////////////////////////////////////////////////////////////////////////
 //  SCAN LINE
 //////////////////////////////////////////////////////////////////////////////
@@ -132,6 +169,11 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
     private final IntArrayCache.Reference aux_crossings_ref;
     // aux_edgePtrs ref (dirty)
     private final IntArrayCache.Reference aux_edgePtrs_ref;
+    // radix sort histogram
+    private final int[] radixCounts = new int[RadixSort.RADIX_SIZE];
+    // radix sort, read once per renderer (prism.marlin.useRadixSort) so
+    // merge and radix sorts can be compared:
+    private final boolean useRadixSort = MarlinProperties.isUseRadixSort();
 
 //////////////////////////////////////////////////////////////////////////////
 //  EDGE LIST
@@ -169,7 +211,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         // maximum(ddX|Y) = norm(dbx, dby) * dt^2 (= 1)
         double maxDD = Math.abs(c.dbx) + Math.abs(c.dby);
 
-        final double _DEC_BND = QUAD_DEC_BND;
+        final double _DEC_BND = quadDecBnd;
 
         while (maxDD >= _DEC_BND) {
             // divide step by half:
@@ -241,8 +283,8 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         double x1 = x0, y1 = y0;
         int nL = 0; // line count
 
-        final double _DEC_BND = CUB_DEC_BND;
-        final double _INC_BND = CUB_INC_BND;
+        final double _DEC_BND = cubDecBnd;
+        final double _INC_BND = cubIncBnd;
 
         while (count > 0) {
             // divide step by half:
@@ -300,6 +342,927 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         }
     }
 
+    // Integer adaptive forward differencing (as in the fixed-point design of
+    // Pisces / Ductus): curve control points are converted once into
+    // fixed-point subpixel coordinates, then the AFD loop only uses integer
+    // additions and shifts and every line is written directly as an edge
+    // (see addLineFixed) skipping the double to fixed-point conversions and
+    // NaN checks of addLine.
+
+    // fixed-point coordinates have FIX_LG fractional bits:
+    private static final int FIX_LG = 30;
+    private static final double FIX_ONE = 0x1.0p30d;
+    private static final double FIX_INV = 0x1.0p-30d;
+    private static final long FIX_CEIL = (1L << FIX_LG) - 1L;
+    // shift to convert fixed-point coordinates into 32.32 format:
+    private static final int FIX_TO_32 = 32 - FIX_LG;
+
+    // maximum absolute subpixel coordinate to avoid any long overflow in
+    // AFD variables (larger or NaN coordinates use the double AFD):
+    private static final double FIX_MAX_COORD = 0x1.0p24d;
+
+    // X bounds of the edges added by addLineFixed (fixed-point):
+    private long fixEdgeMinX, fixEdgeMaxX;
+
+    private static boolean isFixedCoord(final double v) {
+        // false for NaN values:
+        return Math.abs(v) < FIX_MAX_COORD;
+    }
+
+    private static long toFixed(final double v) {
+        return (long) (v * FIX_ONE);
+    }
+
+    // returns false if the curve coordinates can not be handled in
+    // fixed-point (huge or NaN values)
+    private boolean quadFixedBreakIntoLinesAndAdd(final double xs0, final double ys0,
+                                                  final double xs1, final double ys1,
+                                                  final double xs2, final double ys2)
+    {
+        if (!(isFixedCoord(xs0) && isFixedCoord(ys0)
+              && isFixedCoord(xs1) && isFixedCoord(ys1)
+              && isFixedCoord(xs2) && isFixedCoord(ys2)))
+        {
+            return false;
+        }
+        long x0 = toFixed(xs0);
+        long y0 = toFixed(ys0);
+        final long x1 = toFixed(xs1);
+        final long y1 = toFixed(ys1);
+        final long x2 = toFixed(xs2);
+        final long y2 = toFixed(ys2);
+
+        // P(t) = b t^2 + c t + P0:
+        final long bx = x0 - 2L * x1 + x2;
+        final long by = y0 - 2L * y1 + y2;
+
+        // maximum(ddX|Y) = norm(dbx, dby) * dt^2 (= 1)
+        long maxDD = 2L * (Math.abs(bx) + Math.abs(by));
+
+        final long _DEC_BND = quadDecBndFix;
+
+        int countLg = 0; // dt = 1 / 2^countLg
+
+        while (maxDD >= _DEC_BND) {
+            // divide step by half:
+            maxDD >>= 2; // error divided by 2^2 = 4
+            countLg++;
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_quadBreak_dec.add(1 << countLg);
+            }
+        }
+
+        fixEdgeMinX = Long.MAX_VALUE;
+        fixEdgeMaxX = Long.MIN_VALUE;
+
+        int count = 1 << countLg;
+
+        if (count > 1) {
+            final long ddx = (2L * bx) >> (2 * countLg);
+            final long ddy = (2L * by) >> (2 * countLg);
+            long dx = (bx >> (2 * countLg)) + ((2L * (x1 - x0)) >> countLg);
+            long dy = (by >> (2 * countLg)) + ((2L * (y1 - y0)) >> countLg);
+
+            long xn, yn;
+
+            while (--count > 0) {
+                xn = x0 + dx;
+                dx += ddx;
+                yn = y0 + dy;
+                dy += ddy;
+
+                addLineFixed(x0, y0, xn, yn);
+
+                x0 = xn;
+                y0 = yn;
+            }
+        }
+        addLineFixed(x0, y0, x2, y2);
+
+        updateFixedEdgeBoundsX();
+
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_quadBreak.add(1 << countLg);
+        }
+        return true;
+    }
+
+    // returns false if the curve coordinates can not be handled in
+    // fixed-point (huge or NaN values)
+    private boolean curveFixedBreakIntoLinesAndAdd(final double xs0, final double ys0,
+                                                   final double xs1, final double ys1,
+                                                   final double xs2, final double ys2,
+                                                   final double xs3, final double ys3)
+    {
+        if (!(isFixedCoord(xs0) && isFixedCoord(ys0)
+              && isFixedCoord(xs1) && isFixedCoord(ys1)
+              && isFixedCoord(xs2) && isFixedCoord(ys2)
+              && isFixedCoord(xs3) && isFixedCoord(ys3)))
+        {
+            return false;
+        }
+        long x0 = toFixed(xs0);
+        long y0 = toFixed(ys0);
+        final long x1 = toFixed(xs1);
+        final long y1 = toFixed(ys1);
+        final long x2 = toFixed(xs2);
+        final long y2 = toFixed(ys2);
+        final long x3 = toFixed(xs3);
+        final long y3 = toFixed(ys3);
+
+        // P(t) = a t^3 + b t^2 + c t + P0:
+        final long ax = x3 - x0 + 3L * (x1 - x2);
+        final long ay = y3 - y0 + 3L * (y1 - y2);
+        final long bx = 3L * (x0 - 2L * x1 + x2);
+        final long by = 3L * (y0 - 2L * y1 + y2);
+        final long cx = 3L * (x1 - x0);
+        final long cy = 3L * (y1 - y0);
+
+        int count = CUB_COUNT;
+
+        // same initial AFD variables as curveBreakIntoLinesAndAdd (dt = 1 / 4):
+        long dddx, dddy, ddx, ddy, dx, dy;
+        dddx = (6L * ax) >> (3 * CUB_COUNT_LG);
+        dddy = (6L * ay) >> (3 * CUB_COUNT_LG);
+        ddx = dddx + ((2L * bx) >> (2 * CUB_COUNT_LG));
+        ddy = dddy + ((2L * by) >> (2 * CUB_COUNT_LG));
+        dx = (ax >> (3 * CUB_COUNT_LG)) + (bx >> (2 * CUB_COUNT_LG))
+                + (cx >> CUB_COUNT_LG);
+        dy = (ay >> (3 * CUB_COUNT_LG)) + (by >> (2 * CUB_COUNT_LG))
+                + (cy >> CUB_COUNT_LG);
+
+        // we use x0, y0 to walk the line
+        long xn = x0, yn = y0;
+        int nL = 0; // line count
+
+        final long _DEC_BND = cubDecBndFix;
+        final long _INC_BND = cubIncBndFix;
+
+        fixEdgeMinX = Long.MAX_VALUE;
+        fixEdgeMaxX = Long.MIN_VALUE;
+
+        while (count > 0) {
+            // divide step by half:
+            while (Math.abs(ddx) + Math.abs(ddy) >= _DEC_BND) {
+                dddx >>= 3;
+                dddy >>= 3;
+                ddx = (ddx >> 2) - dddx;
+                ddy = (ddy >> 2) - dddy;
+                dx = (dx - ddx) >> 1;
+                dy = (dy - ddy) >> 1;
+
+                count <<= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_dec.add(count);
+                }
+            }
+
+            // double step:
+            // can only do this on even "count" values, because we must divide count by 2
+            while ((count & 1) == 0
+                   && Math.abs(dx) + Math.abs(dy) <= _INC_BND)
+            {
+                dx = 2L * dx + ddx;
+                dy = 2L * dy + ddy;
+                ddx = 4L * (ddx + dddx);
+                ddy = 4L * (ddy + dddy);
+                dddx <<= 3;
+                dddy <<= 3;
+
+                count >>= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_inc.add(count);
+                }
+            }
+            if (--count > 0) {
+                xn += dx;
+                dx += ddx;
+                ddx += dddx;
+                yn += dy;
+                dy += ddy;
+                ddy += dddy;
+            } else {
+                xn = x3;
+                yn = y3;
+            }
+
+            addLineFixed(x0, y0, xn, yn);
+
+            if (DO_STATS) { nL++; }
+            x0 = xn;
+            y0 = yn;
+        }
+
+        updateFixedEdgeBoundsX();
+
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_curveBreak.add(nL);
+        }
+        return true;
+    }
+
+    private void updateFixedEdgeBoundsX() {
+        if (fixEdgeMinX <= fixEdgeMaxX) {
+            final double minX = (fixEdgeMinX * FIX_INV);
+            final double maxX = (fixEdgeMaxX * FIX_INV);
+            if (minX < edgeMinX) {
+                edgeMinX = minX;
+            }
+            if (maxX > edgeMaxX) {
+                edgeMaxX = maxX;
+            }
+        }
+    }
+
+    // Native curve edges: large curves are split into y-monotonic pieces
+    // stored as single edges followed by their integer AFD state (see
+    // curveFixedBreakIntoLinesAndAdd). The edge holds the current line
+    // segment of the curve only: when this segment ends, the scanline loop
+    // calls nextCurveSegment() instead of removing the edge, so a huge circle
+    // only needs a few edges instead of thousands.
+
+    // curve state (fixed-point coordinates), after the common edge fields:
+    private static final long OFF_C_X    = OFF_YMAX   + SIZE_INT;
+    private static final long OFF_C_Y    = OFF_C_X    + SIZE_LONG;
+    private static final long OFF_C_DX   = OFF_C_Y    + SIZE_LONG;
+    private static final long OFF_C_DY   = OFF_C_DX   + SIZE_LONG;
+    private static final long OFF_C_DDX  = OFF_C_DY   + SIZE_LONG;
+    private static final long OFF_C_DDY  = OFF_C_DDX  + SIZE_LONG;
+    private static final long OFF_C_DDDX = OFF_C_DDY  + SIZE_LONG;
+    private static final long OFF_C_DDDY = OFF_C_DDDX + SIZE_LONG;
+    private static final long OFF_C_X3   = OFF_C_DDDY + SIZE_LONG;
+    private static final long OFF_C_Y3   = OFF_C_X3   + SIZE_LONG;
+    private static final long OFF_C_DEC_BND = OFF_C_Y3 + SIZE_LONG;
+    private static final long OFF_C_INC_BND = OFF_C_DEC_BND + SIZE_LONG;
+    private static final long OFF_C_COUNT = OFF_C_INC_BND + SIZE_LONG;
+    private static final long OFF_C_YMAX = OFF_C_COUNT + SIZE_INT;
+    // end of the current segment:
+    private static final long OFF_C_SEG_YMAX = OFF_C_YMAX + SIZE_INT;
+
+    // size of one curve edge in bytes (multiple of 8 to align longs)
+    private static final int SIZEOF_CURVE_EDGE_BYTES
+        = (int)((OFF_C_SEG_YMAX + SIZE_INT + 7L) & ~7L);
+
+    // y max of curve edges (below any scanline) so the scanline loop never
+    // evicts them directly:
+    private static final int CURVE_EDGE_YMAX = Integer.MIN_VALUE;
+
+    // minimum height (subpixels) of curves stored as curve edges:
+    // smaller curves are flattened into few lines anyway
+    private static final double CURVE_EDGE_MIN_HEIGHT = 64.0d;
+
+    // number of curve edges in the edge list:
+    private int curveEdgeCount;
+
+    // curve (monotonic pieces) and roots:
+    private final double[] curvePts = new double[8 + 8];
+    private final double[] curveRoots = new double[4];
+
+    // returns false if the curve is too small or its coordinates can not be
+    // handled in fixed-point (huge or NaN values)
+    private boolean quadAddCurveEdges(final double xs0, final double ys0,
+                                      final double xs1, final double ys1,
+                                      final double xs2, final double ys2)
+    {
+        if (!(isFixedCoord(xs0) && isFixedCoord(ys0)
+              && isFixedCoord(xs1) && isFixedCoord(ys1)
+              && isFixedCoord(xs2) && isFixedCoord(ys2)))
+        {
+            return false;
+        }
+        if (Math.max(Math.max(ys0, ys1), ys2)
+                - Math.min(Math.min(ys0, ys1), ys2)
+                < CURVE_EDGE_MIN_HEIGHT)
+        {
+            return false;
+        }
+        final double[] pts = curvePts;
+        pts[0] = xs0; pts[1] = ys0;
+        pts[2] = xs1; pts[3] = ys1;
+        pts[4] = xs2; pts[5] = ys2;
+
+        // x bounds = end points and x extremum:
+        double minX = Math.min(xs0, xs2);
+        double maxX = Math.max(xs0, xs2);
+
+        double t = (xs0 - xs1) / (xs0 - 2.0d * xs1 + xs2);
+        if (t > 0.0d && t < 1.0d) {
+            final double x = DHelpers.evalQuad(xs0 - 2.0d * xs1 + xs2,
+                                             2.0d * (xs1 - xs0), xs0, t);
+            if (x < minX) {
+                minX = x;
+            }
+            if (x > maxX) {
+                maxX = x;
+            }
+        }
+
+        // split at y extremum:
+        boolean added = false;
+
+        t = (ys0 - ys1) / (ys0 - 2.0d * ys1 + ys2);
+        if (t > 0.0d && t < 1.0d) {
+            // left piece in pts[8..13], remaining curve in pts[0..5]:
+            DHelpers.subdivideQuadAt(t, pts, 0, pts, 8, pts, 0);
+            added |= addCurveEdge(pts, 8, true);
+        }
+        added |= addCurveEdge(pts, 0, true);
+
+        if (added) {
+            if (minX < edgeMinX) {
+                edgeMinX = minX;
+            }
+            if (maxX > edgeMaxX) {
+                edgeMaxX = maxX;
+            }
+        }
+        return true;
+    }
+
+    // returns false if the curve is too small or its coordinates can not be
+    // handled in fixed-point (huge or NaN values)
+    private boolean curveAddCurveEdges(final double xs0, final double ys0,
+                                       final double xs1, final double ys1,
+                                       final double xs2, final double ys2,
+                                       final double xs3, final double ys3)
+    {
+        if (!(isFixedCoord(xs0) && isFixedCoord(ys0)
+              && isFixedCoord(xs1) && isFixedCoord(ys1)
+              && isFixedCoord(xs2) && isFixedCoord(ys2)
+              && isFixedCoord(xs3) && isFixedCoord(ys3)))
+        {
+            return false;
+        }
+        if (Math.max(Math.max(ys0, ys1), Math.max(ys2, ys3))
+                - Math.min(Math.min(ys0, ys1), Math.min(ys2, ys3))
+                < CURVE_EDGE_MIN_HEIGHT)
+        {
+            return false;
+        }
+        final double[] pts = curvePts;
+        pts[0] = xs0; pts[1] = ys0;
+        pts[2] = xs1; pts[3] = ys1;
+        pts[4] = xs2; pts[5] = ys2;
+        pts[6] = xs3; pts[7] = ys3;
+
+        final double[] roots = curveRoots;
+
+        // x bounds = end points and x extrema:
+        final double ax = xs3 - xs0 + 3.0d * (xs1 - xs2);
+        final double bx = 3.0d * (xs0 - 2.0d * xs1 + xs2);
+        final double cx = 3.0d * (xs1 - xs0);
+
+        double minX = Math.min(xs0, xs3);
+        double maxX = Math.max(xs0, xs3);
+
+        int n = DHelpers.quadraticRoots(3.0d * ax, 2.0d * bx, cx, roots, 0);
+        for (int i = 0; i < n; i++) {
+            final double t = roots[i];
+            if (t > 0.0d && t < 1.0d) {
+                final double x = DHelpers.evalCubic(ax, bx, cx, xs0, t);
+                if (x < minX) {
+                    minX = x;
+                }
+                if (x > maxX) {
+                    maxX = x;
+                }
+            }
+        }
+
+        // split at y extrema:
+        final double ay = ys3 - ys0 + 3.0d * (ys1 - ys2);
+        final double by = 3.0d * (ys0 - 2.0d * ys1 + ys2);
+        final double cy = 3.0d * (ys1 - ys0);
+
+        n = DHelpers.quadraticRoots(3.0d * ay, 2.0d * by, cy, roots, 0);
+        DHelpers.isort(roots, 0, n);
+
+        boolean added = false;
+        double prevT = 0.0d;
+
+        for (int i = 0; i < n; i++) {
+            final double t = roots[i];
+            if (t > prevT && t < 1.0d) {
+                // left piece in pts[8..15], remaining curve in pts[0..7]:
+                DHelpers.subdivideCubicAt((t - prevT) / (1.0d - prevT),
+                                         pts, 0, pts, 8, pts, 0);
+                added |= addCurveEdge(pts, 8, false);
+                prevT = t;
+            }
+        }
+        added |= addCurveEdge(pts, 0, false);
+
+        if (added) {
+            if (minX < edgeMinX) {
+                edgeMinX = minX;
+            }
+            if (maxX > edgeMaxX) {
+                edgeMaxX = maxX;
+            }
+        }
+        return true;
+    }
+
+    // add the given y-monotonic quad or cubic as a curve edge
+    private boolean addCurveEdge(final double[] pts, final int off,
+                                 final boolean quad)
+    {
+        // index of the last point:
+        final int last = off + (quad ? 4 : 6);
+
+        int or = 1; // orientation of the curve. 1 if y increases, 0 otherwise.
+
+        // control points are stored by pairs (x, y) in increasing y order:
+        final long x0, y0, x1, y1, x2, y2, x3, y3;
+        if (pts[last + 1] < pts[off + 1]) {
+            or = 0;
+            // reverse the curve to step along increasing y:
+            x0 = toFixed(pts[last]); y0 = toFixed(pts[last + 1]);
+            x1 = toFixed(pts[last - 2]); y1 = toFixed(pts[last - 1]);
+            x2 = toFixed(pts[off + 2]); y2 = toFixed(pts[off + 3]);
+            x3 = toFixed(pts[off]); y3 = toFixed(pts[off + 1]);
+        } else {
+            x0 = toFixed(pts[off]); y0 = toFixed(pts[off + 1]);
+            x1 = toFixed(pts[off + 2]); y1 = toFixed(pts[off + 3]);
+            x2 = toFixed(pts[last - 2]); y2 = toFixed(pts[last - 1]);
+            x3 = toFixed(pts[last]); y3 = toFixed(pts[last + 1]);
+        }
+
+        final int firstCrossing = Math.max((int) ((y0 + FIX_CEIL) >> FIX_LG), boundsMinY);
+        final int lastCrossing  = Math.min((int) ((y3 + FIX_CEIL) >> FIX_LG), boundsMaxY);
+
+        if (firstCrossing >= lastCrossing) {
+            return false;
+        }
+        if (firstCrossing < edgeMinY) {
+            edgeMinY = firstCrossing;
+        }
+        if (lastCrossing > edgeMaxY) {
+            edgeMaxY = lastCrossing;
+        }
+
+        // initial AFD variables:
+        final long dx, dy, ddx, ddy, dddx, dddy, decBnd, incBnd;
+        final int count;
+        if (quad) {
+            // same as quadBreakIntoLinesAndAdd (x1 = x2, dt = 1):
+            // P(t) = b t^2 + c t + P0:
+            final long bx = x0 - 2L * x1 + x3;
+            final long by = y0 - 2L * y1 + y3;
+            dx = bx + 2L * (x1 - x0);
+            dy = by + 2L * (y1 - y0);
+            ddx = 2L * bx;
+            ddy = 2L * by;
+            dddx = 0L;
+            dddy = 0L;
+            count = 1;
+            // uniform steps (never doubled):
+            decBnd = quadDecBndFix;
+            incBnd = -1L;
+        } else {
+            // same as curveBreakIntoLinesAndAdd (dt = 1 / 4):
+            // P(t) = a t^3 + b t^2 + c t + P0:
+            final long ax = x3 - x0 + 3L * (x1 - x2);
+            final long ay = y3 - y0 + 3L * (y1 - y2);
+            final long bx = 3L * (x0 - 2L * x1 + x2);
+            final long by = 3L * (y0 - 2L * y1 + y2);
+            final long cx = 3L * (x1 - x0);
+            final long cy = 3L * (y1 - y0);
+
+            dddx = (6L * ax) >> (3 * CUB_COUNT_LG);
+            dddy = (6L * ay) >> (3 * CUB_COUNT_LG);
+            ddx = dddx + ((2L * bx) >> (2 * CUB_COUNT_LG));
+            ddy = dddy + ((2L * by) >> (2 * CUB_COUNT_LG));
+            dx = (ax >> (3 * CUB_COUNT_LG)) + (bx >> (2 * CUB_COUNT_LG))
+                    + (cx >> CUB_COUNT_LG);
+            dy = (ay >> (3 * CUB_COUNT_LG)) + (by >> (2 * CUB_COUNT_LG))
+                    + (cy >> CUB_COUNT_LG);
+            count = CUB_COUNT;
+            decBnd = cubDecBndFix;
+            incBnd = cubIncBndFix;
+        }
+
+        final int _SIZEOF_CURVE_EDGE_BYTES = SIZEOF_CURVE_EDGE_BYTES;
+
+        final OffHeapArray _edges = edges;
+
+        // get free pointer (ie length in bytes)
+        final int edgePtr = _edges.used;
+
+        // use substraction to avoid integer overflow:
+        if (_edges.length - edgePtr < _SIZEOF_CURVE_EDGE_BYTES) {
+            final long edgeNewSize = ArrayCacheConst.getNewLargeSize(
+                                        _edges.length,
+                                        edgePtr + _SIZEOF_CURVE_EDGE_BYTES);
+
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_edges_resizes.add(edgeNewSize);
+            }
+            _edges.resize(edgeNewSize);
+        }
+
+        final Object _base   = _edges.base; // null if off-heap
+        final long addr      = _edges.address + edgePtr;
+
+        // orientation only (see nextCurveSegment):
+        MemoryAccess.putInt(_base, addr, or);
+        MemoryAccess.putInt(_base, addr + OFF_YMAX, CURVE_EDGE_YMAX);
+        // current segment ends at first crossing (no segment yet):
+        MemoryAccess.putInt(_base, addr + OFF_C_SEG_YMAX, firstCrossing);
+
+        MemoryAccess.putLong(_base, addr + OFF_C_X,    x0);
+        MemoryAccess.putLong(_base, addr + OFF_C_Y,    y0);
+        MemoryAccess.putLong(_base, addr + OFF_C_DX,   dx);
+        MemoryAccess.putLong(_base, addr + OFF_C_DY,   dy);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDX,  ddx);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDY,  ddy);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDDX, dddx);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDDY, dddy);
+        MemoryAccess.putLong(_base, addr + OFF_C_X3,   x3);
+        MemoryAccess.putLong(_base, addr + OFF_C_Y3,   y3);
+        MemoryAccess.putLong(_base, addr + OFF_C_DEC_BND, decBnd);
+        MemoryAccess.putLong(_base, addr + OFF_C_INC_BND, incBnd);
+        MemoryAccess.putInt(_base,  addr + OFF_C_COUNT, count);
+        MemoryAccess.putInt(_base,  addr + OFF_C_YMAX,  lastCrossing);
+
+        // update free pointer (ie length in bytes)
+        _edges.used += _SIZEOF_CURVE_EDGE_BYTES;
+        curveEdgeCount++;
+
+        // first segment crossing the first scanline:
+        nextCurveSegment(edgePtr, firstCrossing);
+
+        // link into the bucket of its first crossing:
+        final int bucketIdx = firstCrossing - boundsMinY;
+
+        MemoryAccess.putInt(_base, addr + OFF_NEXT, edgeBuckets[bucketIdx]);
+        edgeBuckets[bucketIdx]       = edgePtr;
+        edgeBucketCounts[bucketIdx] += 2; // 1 << 1
+        return true;
+    }
+
+    /**
+     * Advance the given curve edge to its line segment crossing the given
+     * scanline if its current segment ends at this scanline.
+     * @param ecur curve edge pointer
+     * @param y current scanline
+     * @return false if the curve ends at this scanline (edge to evict)
+     */
+    private boolean nextCurveSegment(final int ecur, final int y) {
+        final Object _base   = edges.base; // null if off-heap
+        final long addr      = edges.address + ecur;
+
+        final int ymaxCurve = MemoryAccess.getInt(_base, addr + OFF_C_YMAX);
+        if (y >= ymaxCurve) {
+            return false;
+        }
+        if (MemoryAccess.getInt(_base, addr + OFF_C_SEG_YMAX) > y) {
+            // current segment continues:
+            return true;
+        }
+
+        long x0   = MemoryAccess.getLong(_base, addr + OFF_C_X);
+        long y0   = MemoryAccess.getLong(_base, addr + OFF_C_Y);
+        long dx   = MemoryAccess.getLong(_base, addr + OFF_C_DX);
+        long dy   = MemoryAccess.getLong(_base, addr + OFF_C_DY);
+        long ddx  = MemoryAccess.getLong(_base, addr + OFF_C_DDX);
+        long ddy  = MemoryAccess.getLong(_base, addr + OFF_C_DDY);
+        long dddx = MemoryAccess.getLong(_base, addr + OFF_C_DDDX);
+        long dddy = MemoryAccess.getLong(_base, addr + OFF_C_DDDY);
+        int count = MemoryAccess.getInt(_base,  addr + OFF_C_COUNT);
+
+        final long _DEC_BND = MemoryAccess.getLong(_base, addr + OFF_C_DEC_BND);
+        final long _INC_BND = MemoryAccess.getLong(_base, addr + OFF_C_INC_BND);
+
+        long xn, yn;
+        int lastCrossing;
+
+        // same AFD loop as curveFixedBreakIntoLinesAndAdd() (ddd = 0 and
+        // no step doubling for quads), except that the step is also halved
+        // if the second difference at its end is too large: each piece
+        // restarts the AFD at a y extremum or at the curve end, where a
+        // nearly straight start may hide the curvature of the first step
+        do {
+            if (count <= 0) {
+                return false;
+            }
+            // divide step by half:
+            while ((Math.abs(ddx) + Math.abs(ddy) >= _DEC_BND)
+                   || (Math.abs(ddx + dddx) + Math.abs(ddy + dddy) >= _DEC_BND))
+            {
+                dddx >>= 3;
+                dddy >>= 3;
+                ddx = (ddx >> 2) - dddx;
+                ddy = (ddy >> 2) - dddy;
+                dx = (dx - ddx) >> 1;
+                dy = (dy - ddy) >> 1;
+                count <<= 1;
+            }
+            // double step:
+            while ((count & 1) == 0
+                   && Math.abs(dx) + Math.abs(dy) <= _INC_BND)
+            {
+                dx = 2L * dx + ddx;
+                dy = 2L * dy + ddy;
+                ddx = 4L * (ddx + dddx);
+                ddy = 4L * (ddy + dddy);
+                dddx <<= 3;
+                dddy <<= 3;
+                count >>= 1;
+            }
+            if (--count > 0) {
+                xn = x0 + dx;
+                dx += ddx;
+                ddx += dddx;
+                yn = y0 + dy;
+                dy += ddy;
+                ddy += dddy;
+            } else {
+                xn = MemoryAccess.getLong(_base, addr + OFF_C_X3);
+                yn = MemoryAccess.getLong(_base, addr + OFF_C_Y3);
+            }
+            lastCrossing = Math.min((int) ((yn + FIX_CEIL) >> FIX_LG), ymaxCurve);
+
+            if (lastCrossing > y) {
+                break;
+            }
+            // segment does not cross any scanline:
+            x0 = xn;
+            y0 = yn;
+        } while (true);
+
+        // store AFD state (next segment starts at (xn, yn)):
+        MemoryAccess.putLong(_base, addr + OFF_C_X,    xn);
+        MemoryAccess.putLong(_base, addr + OFF_C_Y,    yn);
+        MemoryAccess.putLong(_base, addr + OFF_C_DX,   dx);
+        MemoryAccess.putLong(_base, addr + OFF_C_DY,   dy);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDX,  ddx);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDY,  ddy);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDDX, dddx);
+        MemoryAccess.putLong(_base, addr + OFF_C_DDDY, dddy);
+        MemoryAccess.putInt(_base,  addr + OFF_C_COUNT, count);
+
+        // segment (x0, y0) - (xn, yn) crosses the scanline y as y0 <= y < yn:
+        final double slope = ((double) (xn - x0)) / (yn - y0);
+
+        final long x1_fixed_biased
+            = ((x0 + (long) ((((long) y << FIX_LG) - y0) * slope))
+                << FIX_TO_32) + 0x7FFFFFFFL;
+
+        final long slope_fixed = (long) (POWER_2_TO_32 * slope);
+
+        // keep orientation (last bit):
+        MemoryAccess.putInt(_base, addr, (((int) (x1_fixed_biased >> 31L)) & ALL_BUT_LSB)
+                                    | (MemoryAccess.getInt(_base, addr) & 0x1));
+        MemoryAccess.putInt(_base, addr + OFF_ERROR,    ((int) x1_fixed_biased) >>> 1);
+        MemoryAccess.putInt(_base, addr + OFF_BUMP_X,   (((int) (slope_fixed >> 31L)) & ALL_BUT_LSB));
+        MemoryAccess.putInt(_base, addr + OFF_BUMP_ERR, ((int) slope_fixed) >>> 1);
+        MemoryAccess.putInt(_base, addr + OFF_C_SEG_YMAX, lastCrossing);
+
+        // the scanline loop must call nextCurveSegment() again at the end of
+        // this segment:
+        edgeBucketCounts[lastCrossing - boundsMinY] |= 0x1;
+        return true;
+    }
+
+    // Flattens using the parabola integral approximation (R. Levien,
+    // "Flattening quadratic Beziers"): the number of lines is computed
+    // directly from the tolerance and lines are spaced so that every line
+    // has the same error, instead of halving / doubling the AFD step.
+
+    // tolerance = bind length / 16 = half the AFD error threshold:
+    // AFD errors are within [threshold / 4; threshold] (step halving) so
+    // half the threshold gives a comparable accuracy (coverage)
+    private static final double FLAT_TOL_SCALE = 1.0d / 16.0d;
+
+    // maximum number of lines per curve (huge or invalid coordinates):
+    private static final int FLAT_MAX_COUNT = 1 << 16;
+
+    // parameters of the current quad (see getQuadParams):
+    private static final int QP_A0 = 0;
+    private static final int QP_A2 = 1;
+    private static final int QP_U0 = 2;
+    private static final int QP_USCALE = 3;
+    private static final int QP_VAL = 4;
+
+    private final double[] quadParams = new double[5];
+    // control points (x0, y0, x1, y1, x2, y2) of the current quad
+    // approximating a part of the cubic:
+    private final double[] cubQ = new double[6];
+
+    private static double approxParabolaIntegral(final double x) {
+        // D = 0.67 and D^4 = 0.20151121:
+        return x / (0.33d + Math.sqrt(Math.sqrt(0.20151121d + 0.25d * x * x)));
+    }
+
+    private static double approxParabolaInvIntegral(final double x) {
+        // B = 0.39 and B^2 = 0.1521:
+        return x * (0.61d + Math.sqrt(0.1521d + 0.25d * x * x));
+    }
+
+    /**
+     * Maps the given quad on the parabola y = x^2 and stores its integral
+     * parameters into p: a0, a2 (integral at both ends), u0, uscale (to get
+     * the curve parameter) and val (proportional to the number of lines)
+     */
+    private static void getQuadParams(final double x0, final double y0,
+                                      final double x1, final double y1,
+                                      final double x2, final double y2,
+                                      final double sqrtTol,
+                                      final double[] p)
+    {
+        final double ddx = 2.0d * x1 - x0 - x2;
+        final double ddy = 2.0d * y1 - y0 - y2;
+        final double u0 = (x1 - x0) * ddx + (y1 - y0) * ddy;
+        final double u2 = (x2 - x1) * ddx + (y2 - y1) * ddy;
+        final double cross = (x2 - x0) * ddy - (y2 - y0) * ddx;
+        final double px0 = u0 / cross;
+        final double px2 = u2 / cross;
+        final double scale = Math.abs(cross)
+                             / (Math.sqrt(ddx * ddx + ddy * ddy) * Math.abs(px2 - px0));
+
+        final double a0 = approxParabolaIntegral(px0);
+        final double a2 = approxParabolaIntegral(px2);
+
+        double val = 0.0d;
+        // scale is not finite for lines (or invalid coordinates):
+        if (scale < Double.POSITIVE_INFINITY) {
+            final double da = Math.abs(a2 - a0);
+            final double sqrtScale = Math.sqrt(scale);
+
+            if ((px0 < 0.0d) == (px2 < 0.0d)) {
+                val = da * sqrtScale;
+            } else {
+                // cusp: the quad contains the curvature maximum
+                val = sqrtTol * da
+                      / approxParabolaIntegral(sqrtTol / sqrtScale);
+            }
+        }
+        final double iu0 = approxParabolaInvIntegral(a0);
+        final double iu2 = approxParabolaInvIntegral(a2);
+
+        p[QP_A0] = a0;
+        p[QP_A2] = a2;
+        p[QP_U0] = iu0;
+        p[QP_USCALE] = 1.0d / (iu2 - iu0);
+        p[QP_VAL] = val;
+    }
+
+    /**
+     * @return the quad parameter of the point at the given fraction of
+     * the parabola integral (uniform if undefined)
+     */
+    private static double getQuadT(final double[] p, final double frac) {
+        final double t = (approxParabolaInvIntegral(
+                              p[QP_A0] + (p[QP_A2] - p[QP_A0]) * frac)
+                          - p[QP_U0]) * p[QP_USCALE];
+
+        return (t >= 0.0d && t <= 1.0d) ? t : frac;
+    }
+
+    private static int getLineCount(final double val, final double sqrtTol) {
+        final double n = Math.ceil(0.5d * val / sqrtTol);
+        // note: NaN fails both tests:
+        return (n >= 1.0d) ? ((n < FLAT_MAX_COUNT) ? (int) n : FLAT_MAX_COUNT) : 1;
+    }
+
+    private void quadFlattenAndAdd(final double x0, final double y0,
+                                   final double x1, final double y1,
+                                   final double x2, final double y2)
+    {
+        // tolerance = max distance between the curve and lines (subpixels):
+        final double sqrtTol = Math.sqrt(quadDecBnd * FLAT_TOL_SCALE);
+
+        final double[] p = quadParams;
+        getQuadParams(x0, y0, x1, y1, x2, y2, sqrtTol, p);
+
+        final int n = getLineCount(p[QP_VAL], sqrtTol);
+
+        double lx = x0, ly = y0, x, y;
+        double t, mt;
+
+        for (int i = 1; i < n; i++) {
+            t = getQuadT(p, ((double) i) / n);
+            mt = 1.0d - t;
+
+            x = ((x0 * mt + 2.0d * x1 * t) * mt + x2 * t * t);
+            y = ((y0 * mt + 2.0d * y1 * t) * mt + y2 * t * t);
+
+            addLine(lx, ly, x, y);
+            lx = x;
+            ly = y;
+        }
+        addLine(lx, ly, x2, y2);
+
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_quadBreak.add(n);
+        }
+    }
+
+    private void cubicFlattenAndAdd(final double x0, final double y0,
+                                    final double x1, final double y1,
+                                    final double x2, final double y2,
+                                    final double x3, final double y3)
+    {
+        // tolerance = max distance between the curve and lines (subpixels):
+        // 10% for the approximation by quads and 90% for the lines
+        final double tol = cubDecBnd * FLAT_TOL_SCALE;
+        final double sqrtTol = Math.sqrt(0.9d * tol);
+        final double quadTol = 0.1d * tol;
+
+        // cubic coefficients: ((a * t + b) * t + c) * t + x0
+        final double ax = x3 - 3.0d * (x2 - x1) - x0;
+        final double ay = y3 - 3.0d * (y2 - y1) - y0;
+        final double bx = 3.0d * (x2 - 2.0d * x1 + x0);
+        final double by = 3.0d * (y2 - 2.0d * y1 + y0);
+        final double cx = 3.0d * (x1 - x0);
+        final double cy = 3.0d * (y1 - y0);
+
+        // number of quads: error(1 quad) = sqrt(3) / 36 * |a|
+        final double err = Math.sqrt(ax * ax + ay * ay) * (Math.sqrt(3.0d) / 36.0d);
+        final double nq_d = Math.ceil(Math.cbrt(err / quadTol));
+        final int nq = (nq_d >= 1.0d) ?
+                           ((nq_d < FLAT_MAX_COUNT) ? (int) nq_d : FLAT_MAX_COUNT) : 1;
+        final double dt = 1.0d / nq;
+
+        final double[] p = quadParams;
+
+        // first pass: total number of lines
+        double sum = 0.0d;
+        for (int i = 0; i < nq; i++) {
+            setCubicQuadParams(i * dt, dt, x0, y0, ax, ay, bx, by, cx, cy,
+                               sqrtTol, p);
+            sum += p[QP_VAL];
+        }
+        final int n = getLineCount(sum, sqrtTol);
+
+        // second pass: lines with the same error along the whole curve
+        final double step = sum / n;
+        double acc = 0.0d, val, t, mt;
+        double lx = x0, ly = y0, x, y;
+        int k = 1;
+
+        for (int i = 0; (i < nq) && (k < n); i++) {
+            setCubicQuadParams(i * dt, dt, x0, y0, ax, ay, bx, by, cx, cy,
+                               sqrtTol, p);
+            val = p[QP_VAL];
+
+            // lines ending in this quad (control points in cubQ):
+            while ((k < n) && (k * step < acc + val)) {
+                t = getQuadT(p, (k * step - acc) / val);
+                mt = 1.0d - t;
+
+                x = ((cubQ[0] * mt + 2.0d * cubQ[2] * t) * mt + cubQ[4] * t * t);
+                y = ((cubQ[1] * mt + 2.0d * cubQ[3] * t) * mt + cubQ[5] * t * t);
+
+                addLine(lx, ly, x, y);
+                lx = x;
+                ly = y;
+                k++;
+            }
+            acc += val;
+        }
+        addLine(lx, ly, x3, y3);
+
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_curveBreak.add(n);
+        }
+    }
+
+    /**
+     * Approximates the cubic part [t0; t0 + dt] by a quad (stored in cubQ)
+     * and computes its parameters
+     */
+    private void setCubicQuadParams(final double t0, final double dt,
+                                    final double x0, final double y0,
+                                    final double ax, final double ay,
+                                    final double bx, final double by,
+                                    final double cx, final double cy,
+                                    final double sqrtTol,
+                                    final double[] p)
+    {
+        final double t1 = t0 + dt;
+        final double[] q = cubQ;
+
+        // end points:
+        q[0] = ((ax * t0 + bx) * t0 + cx) * t0 + x0;
+        q[1] = ((ay * t0 + by) * t0 + cy) * t0 + y0;
+        q[4] = ((ax * t1 + bx) * t1 + cx) * t1 + x0;
+        q[5] = ((ay * t1 + by) * t1 + cy) * t1 + y0;
+
+        // control point = (p0 + p3) / 2 + 3/4 * (d0 - d1) where d0 and d1
+        // are the tangents (* dt / 3) of the cubic part:
+        final double s = 0.25d * dt;
+        q[2] = 0.5d * (q[0] + q[4])
+               + s * (((3.0d * ax * t0 + 2.0d * bx) * t0 + cx)
+                    - ((3.0d * ax * t1 + 2.0d * bx) * t1 + cx));
+        q[3] = 0.5d * (q[1] + q[5])
+               + s * (((3.0d * ay * t0 + 2.0d * by) * t0 + cy)
+                    - ((3.0d * ay * t1 + 2.0d * by) * t1 + cy));
+
+        getQuadParams(q[0], q[1], q[2], q[3], q[4], q[5], sqrtTol, p);
+    }
+
     private void addLine(double x1, double y1, double x2, double y2) {
         if (DO_MONITORS) {
             rdrCtx.stats.mon_rdr_addLine.start();
@@ -358,18 +1321,130 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
             if (x1 < edgeMinX) {
                 edgeMinX = x1;
             }
-            if (x2 > edgeMaxX) {
-                edgeMaxX = x2;
+            if (x2 > edgeMaxX) {
+                edgeMaxX = x2;
+            }
+        } else {
+            if (x2 < edgeMinX) {
+                edgeMinX = x2;
+            }
+            if (x1 > edgeMaxX) {
+                edgeMaxX = x1;
+            }
+        }
+
+        // The x value must be bumped up to its position at the next HPC we will evaluate.
+        // "firstcrossing" is the (sub)pixel number where the next crossing occurs
+        // thus, the actual coordinate of the next HPC is "firstcrossing + 0.5"
+        // so the Y distance we cover is "firstcrossing + 0.5 - trueY".
+        // Note that since y1 (and y2) are already biased by -0.5 in tosubpixy(), we have
+        // y1 = trueY - 0.5
+        // trueY = y1 + 0.5
+        // firstcrossing + 0.5 - trueY = firstcrossing + 0.5 - (y1 + 0.5)
+        //                             = firstcrossing - y1
+        // The x coordinate at that HPC is then:
+        // x1_intercept = x1 + (firstcrossing - y1) * slope
+        // The next VPC is then given by:
+        // VPC index = ceil(x1_intercept - 0.5), or alternately
+        // VPC index = floor(x1_intercept - 0.5 + 1 - epsilon)
+        // epsilon is hard to pin down in floating point, but easy in fixed point, so if
+        // we convert to fixed point then these operations get easier:
+        // long x1_fixed = x1_intercept * 2^32;  (fixed point 32.32 format)
+        // curx = next VPC = fixed_floor(x1_fixed - 2^31 + 2^32 - 1)
+        //                 = fixed_floor(x1_fixed + 2^31 - 1)
+        //                 = fixed_floor(x1_fixed + 0x7FFFFFFF)
+        // and error       = fixed_fract(x1_fixed + 0x7FFFFFFF)
+        final double x1_intercept = x1 + (firstCrossing - y1) * slope;
+
+        // inlined scalb(x1_intercept, 32):
+        final long x1_fixed_biased = ((long) (POWER_2_TO_32 * x1_intercept))
+                                     + 0x7FFFFFFFL;
+
+        // inlined scalb(slope, 32):
+        final long slope_fixed = (long) (POWER_2_TO_32 * slope);
+
+        addEdge(firstCrossing, lastCrossing, or, x1_fixed_biased, slope_fixed);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_addLine.stop();
+        }
+    }
+
+    // Same as addLine() but for fixed-point coordinates (see FIX_LG) given by
+    // the integer AFD loops: coordinates are finite (no NaN check) and the
+    // caller updates edgeMinX / edgeMaxX from fixEdgeMinX / fixEdgeMaxX.
+    private void addLineFixed(long x1, long y1, long x2, long y2) {
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_addLine.add(1);
+        }
+        int or = 1; // orientation of the line. 1 if y increases, 0 otherwise.
+        if (y2 < y1) {
+            or = 0;
+            long tmp = y2;
+            y2 = y1;
+            y1 = tmp;
+            tmp = x2;
+            x2 = x1;
+            x1 = tmp;
+        }
+
+        // fixed-point ceil:
+        final int firstCrossing = Math.max((int) ((y1 + FIX_CEIL) >> FIX_LG), boundsMinY);
+        final int lastCrossing  = Math.min((int) ((y2 + FIX_CEIL) >> FIX_LG), boundsMaxY);
+
+        /* skip horizontal lines in pixel space and clip edges
+           out of y range [boundsMinY; boundsMaxY] */
+        if (firstCrossing >= lastCrossing) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_addLine_skip.add(1);
+            }
+            return;
+        }
+
+        if (firstCrossing < edgeMinY) {
+            edgeMinY = firstCrossing;
+        }
+        if (lastCrossing > edgeMaxY) {
+            edgeMaxY = lastCrossing;
+        }
+
+        if (x1 < x2) {
+            if (x1 < fixEdgeMinX) {
+                fixEdgeMinX = x1;
+            }
+            if (x2 > fixEdgeMaxX) {
+                fixEdgeMaxX = x2;
             }
         } else {
-            if (x2 < edgeMinX) {
-                edgeMinX = x2;
+            if (x2 < fixEdgeMinX) {
+                fixEdgeMinX = x2;
             }
-            if (x1 > edgeMaxX) {
-                edgeMaxX = x1;
+            if (x1 > fixEdgeMaxX) {
+                fixEdgeMaxX = x1;
             }
         }
 
+        // y2 > y1 as firstCrossing < lastCrossing:
+        final double slope = ((double) (x2 - x1)) / (y2 - y1);
+
+        // see addLine(): x1_intercept = x1 + (firstcrossing - y1) * slope
+        // where (firstcrossing - y1) is exact in fixed-point:
+        final long x1_fixed_biased
+            = ((x1 + (long) ((((long) firstCrossing << FIX_LG) - y1) * slope))
+                << FIX_TO_32) + 0x7FFFFFFFL;
+
+        // inlined scalb(slope, 32):
+        final long slope_fixed = (long) (POWER_2_TO_32 * slope);
+
+        addEdge(firstCrossing, lastCrossing, or, x1_fixed_biased, slope_fixed);
+    }
+
+    // Append a new edge (32.32 fixed-point x intercept and slope) to the edge
+    // list and link it into the bucket of its first crossing:
+    private void addEdge(final int firstCrossing, final int lastCrossing,
+                         final int or, final long x1_fixed_biased,
+                         final long slope_fixed)
+    {
         // local variables for performance:
         final int _SIZEOF_EDGE_BYTES = SIZEOF_EDGE_BYTES;
 
@@ -394,50 +1469,21 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         }
 
 
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+        final Object _base   = _edges.base; // null if off-heap
         final long SIZE_INT = 4L;
         long addr   = _edges.address + edgePtr;
 
-        // The x value must be bumped up to its position at the next HPC we will evaluate.
-        // "firstcrossing" is the (sub)pixel number where the next crossing occurs
-        // thus, the actual coordinate of the next HPC is "firstcrossing + 0.5"
-        // so the Y distance we cover is "firstcrossing + 0.5 - trueY".
-        // Note that since y1 (and y2) are already biased by -0.5 in tosubpixy(), we have
-        // y1 = trueY - 0.5
-        // trueY = y1 + 0.5
-        // firstcrossing + 0.5 - trueY = firstcrossing + 0.5 - (y1 + 0.5)
-        //                             = firstcrossing - y1
-        // The x coordinate at that HPC is then:
-        // x1_intercept = x1 + (firstcrossing - y1) * slope
-        // The next VPC is then given by:
-        // VPC index = ceil(x1_intercept - 0.5), or alternately
-        // VPC index = floor(x1_intercept - 0.5 + 1 - epsilon)
-        // epsilon is hard to pin down in floating point, but easy in fixed point, so if
-        // we convert to fixed point then these operations get easier:
-        // long x1_fixed = x1_intercept * 2^32;  (fixed point 32.32 format)
-        // curx = next VPC = fixed_floor(x1_fixed - 2^31 + 2^32 - 1)
-        //                 = fixed_floor(x1_fixed + 2^31 - 1)
-        //                 = fixed_floor(x1_fixed + 0x7FFFFFFF)
-        // and error       = fixed_fract(x1_fixed + 0x7FFFFFFF)
-        final double x1_intercept = x1 + (firstCrossing - y1) * slope;
-
-        // inlined scalb(x1_intercept, 32):
-        final long x1_fixed_biased = ((long) (POWER_2_TO_32 * x1_intercept))
-                                     + 0x7FFFFFFFL;
         // curx:
         // last bit corresponds to the orientation
-        _unsafe.putInt(addr, (((int) (x1_fixed_biased >> 31L)) & ALL_BUT_LSB) | or);
+        MemoryAccess.putInt(_base, addr, (((int) (x1_fixed_biased >> 31L)) & ALL_BUT_LSB) | or);
         addr += SIZE_INT;
-        _unsafe.putInt(addr,  ((int)  x1_fixed_biased) >>> 1);
+        MemoryAccess.putInt(_base, addr,  ((int)  x1_fixed_biased) >>> 1);
         addr += SIZE_INT;
 
-        // inlined scalb(slope, 32):
-        final long slope_fixed = (long) (POWER_2_TO_32 * slope);
-
         // last bit set to 0 to keep orientation:
-        _unsafe.putInt(addr, (((int) (slope_fixed >> 31L)) & ALL_BUT_LSB));
+        MemoryAccess.putInt(_base, addr, (((int) (slope_fixed >> 31L)) & ALL_BUT_LSB));
         addr += SIZE_INT;
-        _unsafe.putInt(addr,  ((int)  slope_fixed) >>> 1);
+        MemoryAccess.putInt(_base, addr,  ((int)  slope_fixed) >>> 1);
         addr += SIZE_INT;
 
         final int[] _edgeBuckets      = edgeBuckets;
@@ -450,10 +1496,10 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         final int bucketIdx = firstCrossing - _boundsMinY;
 
         // pointer from bucket
-        _unsafe.putInt(addr, _edgeBuckets[bucketIdx]);
+        MemoryAccess.putInt(_base, addr, _edgeBuckets[bucketIdx]);
         addr += SIZE_INT;
         // y max (exclusive)
-        _unsafe.putInt(addr,  lastCrossing);
+        MemoryAccess.putInt(_base, addr,  lastCrossing);
 
         // Update buckets:
         // directly the edge struct "pointer"
@@ -464,10 +1510,6 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
 
         // update free pointer (ie length in bytes)
         _edges.used += _SIZEOF_EDGE_BYTES;
-
-        if (DO_MONITORS) {
-            rdrCtx.stats.mon_rdr_addLine.stop();
-        }
     }
 
 // END EDGE LIST
@@ -541,12 +1583,12 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         this.windingRule = windingRule;
 
         // bounds as half-open intervals: minX <= x < maxX and minY <= y < maxY
-        this.boundsMinX =  pix_boundsX << SUBPIXEL_LG_POSITIONS_X;
+        this.boundsMinX =  pix_boundsX << subpixLgX;
         this.boundsMaxX =
-            (pix_boundsX + pix_boundsWidth) << SUBPIXEL_LG_POSITIONS_X;
-        this.boundsMinY =  pix_boundsY << SUBPIXEL_LG_POSITIONS_Y;
+            (pix_boundsX + pix_boundsWidth) << subpixLgX;
+        this.boundsMinY =  pix_boundsY << subpixLgY;
         this.boundsMaxY =
-            (pix_boundsY + pix_boundsHeight) << SUBPIXEL_LG_POSITIONS_Y;
+            (pix_boundsY + pix_boundsHeight) << subpixLgY;
 
         if (DO_LOG_BOUNDS) {
             MarlinUtils.logInfo("boundsXY = [" + boundsMinX + " ... "
@@ -578,6 +1620,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         edgeCount = 0;
         activeEdgeMaxUsed = 0;
         edges.used = 0;
+        curveEdgeCount = 0;
 
         // reset bbox:
         bboxX0 = 0;
@@ -586,10 +1629,53 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         return this; // fluent API
     }
 
+    /**
+     * Set the subpixel resolution used to rasterize the next shape (until
+     * dispose() is called). It must be called before init().
+     *
+     * @param lgX log2(subpixel count) on x-axis
+     * @param lgY log2(subpixel count) on y-axis
+     */
+    public void setSubpixelLog2(final int lgX, final int lgY) {
+        this.subpixLgX = lgX;
+        this.subpixLgY = lgY;
+        this.subpixMaskX = (1 << lgX) - 1;
+        this.subpixMaskY = (1 << lgY) - 1;
+        this.subpixScaleX = (1 << lgX);
+        this.subpixScaleY = (1 << lgY);
+        this.maxAAAlpha = 1 << (lgX + lgY);
+
+        // curve errors are given in subpixels (see NORM_SUBPIXELS):
+        final double normScale = (Math.sqrt(
+                        ((1 << (2 * lgX)) + (1 << (2 * lgY))) / 2.0d))
+                        / NORM_SUBPIXELS;
+
+        this.cubDecBnd  = CUB_DEC_BND  * normScale;
+        this.cubIncBnd  = CUB_INC_BND  * normScale;
+        this.quadDecBnd = QUAD_DEC_BND * normScale;
+        this.cubDecBndFix = (long) (cubDecBnd * FIX_ONE);
+        this.cubIncBndFix = (long) (cubIncBnd * FIX_ONE);
+        this.quadDecBndFix = (long) (quadDecBnd * FIX_ONE);
+    }
+
+    int getSubpixelLog2X() {
+        return subpixLgX;
+    }
+
+    int getSubpixelLog2Y() {
+        return subpixLgY;
+    }
+
     /**
      * Disposes this renderer and recycle it clean up before reusing this instance
      */
     public void dispose() {
+        if ((subpixLgX != SUBPIXEL_LG_POSITIONS_X)
+            || (subpixLgY != SUBPIXEL_LG_POSITIONS_Y))
+        {
+            // restore default subpixel settings:
+            setSubpixelLog2(SUBPIXEL_LG_POSITIONS_X, SUBPIXEL_LG_POSITIONS_Y);
+        }
         if (DO_STATS) {
             rdrCtx.stats.stat_rdr_activeEdges.add(activeEdgeMaxUsed);
             rdrCtx.stats.stat_rdr_edges.add(edges.used);
@@ -641,13 +1727,13 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         }
     }
 
-    private static double tosubpixx(final double pix_x) {
-        return SUBPIXEL_SCALE_X * pix_x;
+    private double tosubpixx(final double pix_x) {
+        return subpixScaleX * pix_x;
     }
 
-    private static double tosubpixy(final double pix_y) {
+    private double tosubpixy(final double pix_y) {
         // shift y by -0.5 for fast ceil(y - 0.5):
-        return SUBPIXEL_SCALE_Y * pix_y - 0.5d;
+        return subpixScaleY * pix_y - 0.5d;
     }
 
     @Override
@@ -675,11 +1761,25 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                         final double pix_x2, final double pix_y2,
                         final double pix_x3, final double pix_y3)
     {
+        final double xc1 = tosubpixx(pix_x1);
+        final double yc1 = tosubpixy(pix_y1);
+        final double xc2 = tosubpixx(pix_x2);
+        final double yc2 = tosubpixy(pix_y2);
         final double xe = tosubpixx(pix_x3);
         final double ye = tosubpixy(pix_y3);
-        curve.set(x0, y0, tosubpixx(pix_x1), tosubpixy(pix_y1),
-                  tosubpixx(pix_x2), tosubpixy(pix_y2), xe, ye);
-        curveBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        if (useCurveEdges
+            && curveAddCurveEdges(x0, y0, xc1, yc1, xc2, yc2, xe, ye))
+        {
+            // large curve stored as curve edges (not flattened)
+        } else if (useParabolaFlattener) {
+            cubicFlattenAndAdd(x0, y0, xc1, yc1, xc2, yc2, xe, ye);
+        } else if (!useFixedPointCurves
+                   || !curveFixedBreakIntoLinesAndAdd(x0, y0, xc1, yc1,
+                                                      xc2, yc2, xe, ye))
+        {
+            curve.set(x0, y0, xc1, yc1, xc2, yc2, xe, ye);
+            curveBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        }
         x0 = xe;
         y0 = ye;
     }
@@ -688,10 +1788,22 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
     public void quadTo(final double pix_x1, final double pix_y1,
                        final double pix_x2, final double pix_y2)
     {
+        final double xc1 = tosubpixx(pix_x1);
+        final double yc1 = tosubpixy(pix_y1);
         final double xe = tosubpixx(pix_x2);
         final double ye = tosubpixy(pix_y2);
-        curve.set(x0, y0, tosubpixx(pix_x1), tosubpixy(pix_y1), xe, ye);
-        quadBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        if (useCurveEdges
+            && quadAddCurveEdges(x0, y0, xc1, yc1, xe, ye))
+        {
+            // large curve stored as curve edges (not flattened)
+        } else if (useParabolaFlattener) {
+            quadFlattenAndAdd(x0, y0, xc1, yc1, xe, ye);
+        } else if (!useFixedPointCurves
+                   || !quadFixedBreakIntoLinesAndAdd(x0, y0, xc1, yc1, xe, ye))
+        {
+            curve.set(x0, y0, xc1, yc1, xe, ye);
+            quadBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        }
         x0 = xe;
         y0 = ye;
     }
@@ -713,6 +1825,216 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         endRendering();
     }
 
+    /**
+     * Captures the edges of the current path (after pathDone()) as a
+     * CompiledShape that can be rasterized again by initCompiled().
+     *
+     * @return new CompiledShape instance
+     */
+    public CompiledShape compile() {
+        if (edgeMinY == Integer.MAX_VALUE) {
+            // no edge:
+            return new CompiledShape(subpixLgX, subpixLgY, windingRule,
+                                     new int[0], 0, 0, 0, 0, 0);
+        }
+        final int _STRIDE = CompiledShape.EDGE_STRIDE;
+        int[] _cEdges = new int[(edges.used / SIZEOF_EDGE_BYTES) * _STRIDE];
+
+        final int[] _edgeBuckets = edgeBuckets;
+        final int[] _edgeBucketCounts = edgeBucketCounts;
+
+        final Object _base   = edges.base; // null if off-heap
+        final long    addr0  = edges.address;
+        long addr;
+        int n = 0;
+
+        // traverse buckets to get the first scanline of every edge:
+        for (int y = edgeMinY, bucket = y - boundsMinY, count, ecur;
+                y < edgeMaxY; y++, bucket++)
+        {
+            for (count = _edgeBucketCounts[bucket] >> 1,
+                 ecur = _edgeBuckets[bucket]; count > 0; count--)
+            {
+                addr = addr0 + ecur;
+
+                // curve edges give one line edge per segment:
+                final boolean curve
+                    = (MemoryAccess.getInt(_base, addr + OFF_YMAX) == CURVE_EDGE_YMAX);
+
+                for (int ymin = y, ymaxE; ; ymin = ymaxE) {
+                    ymaxE = MemoryAccess.getInt(_base, addr + (curve ? OFF_C_SEG_YMAX : OFF_YMAX));
+
+                    if (n + _STRIDE > _cEdges.length) {
+                        _cEdges = Arrays.copyOf(_cEdges, ArrayCacheConst
+                                     .getNewSize(_cEdges.length, n + _STRIDE));
+                    }
+                    _cEdges[n + CompiledShape.EDGE_CURX_OR ] = MemoryAccess.getInt(_base, addr);
+                    _cEdges[n + CompiledShape.EDGE_ERROR   ] = MemoryAccess.getInt(_base, addr + OFF_ERROR);
+                    _cEdges[n + CompiledShape.EDGE_BUMP_X  ] = MemoryAccess.getInt(_base, addr + OFF_BUMP_X);
+                    _cEdges[n + CompiledShape.EDGE_BUMP_ERR] = MemoryAccess.getInt(_base, addr + OFF_BUMP_ERR);
+                    _cEdges[n + CompiledShape.EDGE_YMIN    ] = ymin;
+                    _cEdges[n + CompiledShape.EDGE_YMAX    ] = ymaxE;
+                    n += _STRIDE;
+
+                    if (!curve || !nextCurveSegment(ecur, ymaxE)) {
+                        break;
+                    }
+                }
+                ecur = MemoryAccess.getInt(_base, addr + OFF_NEXT);
+            }
+        }
+        return new CompiledShape(subpixLgX, subpixLgY, windingRule,
+                                 _cEdges, n / _STRIDE,
+                                 FloatMath.ceil_int(edgeMinX - 0.5d),
+                                 FloatMath.ceil_int(edgeMaxX - 0.5d),
+                                 edgeMinY, edgeMaxY);
+    }
+
+    /**
+     * Initializes this renderer with the edges of the given compiled shape
+     * translated by (tx, ty) rounded to the nearest subpixel: bounds are the
+     * pixel bounds of the translated shape intersected with the given clip
+     * (edges are clipped along y like addLine() does) and endRendering() is
+     * called, so produceAlphas() can be called directly (dispose() must be
+     * called after).
+     *
+     * @param cs compiled shape
+     * @param tx translation along x-axis (pixels)
+     * @param ty translation along y-axis (pixels)
+     * @param clip clip rectangle (pixels) or null if unclipped
+     * @return this renderer
+     */
+    public DRenderer initCompiled(final CompiledShape cs,
+                                  final double tx, final double ty,
+                                  final Rectangle clip)
+    {
+        if ((subpixLgX != cs.subpixLgX) || (subpixLgY != cs.subpixLgY)) {
+            setSubpixelLog2(cs.subpixLgX, cs.subpixLgY);
+        }
+        rdrCtx.stroking = 0;
+
+        if (cs.isEmpty()) {
+            return init(0, 0, 0, 0, cs.windingRule);
+        }
+
+        // translation in subpixels:
+        final int dx = FloatMath.ceil_int(tx * subpixScaleX - 0.5d);
+        final int dy = FloatMath.ceil_int(ty * subpixScaleY - 0.5d);
+
+        final int spminX = cs.spminX + dx;
+        final int spmaxX = cs.spmaxX + dx;
+        final int spminY = cs.spminY + dy;
+        final int spmaxY = cs.spmaxY + dy;
+
+        // pixel bounds covering all edges:
+        int pminX =  spminX                >> subpixLgX;
+        int pmaxX = (spmaxX + subpixMaskX) >> subpixLgX;
+        int pminY =  spminY                >> subpixLgY;
+        int pmaxY = (spmaxY + subpixMaskY) >> subpixLgY;
+
+        if (clip != null) {
+            // intersect with the clip (long to avoid overflows):
+            pminX = Math.max(pminX, clip.x);
+            pmaxX = (int) Math.min(pmaxX, (long) clip.x + clip.width);
+            pminY = Math.max(pminY, clip.y);
+            pmaxY = (int) Math.min(pmaxY, (long) clip.y + clip.height);
+
+            if ((pminX >= pmaxX) || (pminY >= pmaxY)) {
+                return init(0, 0, 0, 0, cs.windingRule);
+            }
+        }
+
+        init(pminX, pminY, pmaxX - pminX, pmaxY - pminY, cs.windingRule);
+
+        // copy edges:
+        final int _STRIDE = CompiledShape.EDGE_STRIDE;
+        final int _SIZEOF_EDGE_BYTES = SIZEOF_EDGE_BYTES;
+        final int numEdges = cs.numEdges;
+
+        final OffHeapArray _edges = edges;
+        final int used = numEdges * _SIZEOF_EDGE_BYTES;
+
+        if (_edges.length < used) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_edges_resizes.add(used);
+            }
+            _edges.resize(ArrayCacheConst.getNewLargeSize(_edges.length, used));
+        }
+
+        final int[] _cEdges = cs.edges;
+        final int[] _edgeBuckets = edgeBuckets;
+        final int[] _edgeBucketCounts = edgeBucketCounts;
+
+        final Object _base   = _edges.base; // null if off-heap
+        final long    addr0  = _edges.address;
+        long addr;
+
+        // curx is given in half subpixels (last bit is the orientation):
+        final int dcurx = dx << 1;
+        final int _boundsMinY = boundsMinY;
+        final int _boundsMaxY = boundsMaxY;
+        int edgePtr = 0;
+
+        for (int i = 0, n = numEdges * _STRIDE, ymin, ymax, skip, curx, err;
+                i < n; i += _STRIDE)
+        {
+            ymin = _cEdges[i + CompiledShape.EDGE_YMIN] + dy;
+            ymax = _cEdges[i + CompiledShape.EDGE_YMAX] + dy;
+
+            // clip edges out of y range [boundsMinY; boundsMaxY[ (see addLine):
+            if (ymax > _boundsMaxY) {
+                ymax = _boundsMaxY;
+            }
+            skip = _boundsMinY - ymin;
+            if (skip > 0) {
+                ymin = _boundsMinY;
+            }
+            if (ymin >= ymax) {
+                continue;
+            }
+            curx = _cEdges[i + CompiledShape.EDGE_CURX_OR] + dcurx;
+            err  = _cEdges[i + CompiledShape.EDGE_ERROR];
+
+            if (skip > 0) {
+                // skip the scanlines above the clip (see band init):
+                final long errl = err + skip * (long) _cEdges[i + CompiledShape.EDGE_BUMP_ERR];
+
+                // keep last bit (orientation):
+                curx = (int) (curx + skip * (long) _cEdges[i + CompiledShape.EDGE_BUMP_X]
+                              + ((errl >> 31L) << 1L));
+                err  = ((int) errl) & ERR_STEP_MAX;
+            }
+
+            addr = addr0 + edgePtr;
+
+            MemoryAccess.putInt(_base, addr,                curx);
+            MemoryAccess.putInt(_base, addr + OFF_ERROR,    err);
+            MemoryAccess.putInt(_base, addr + OFF_BUMP_X,   _cEdges[i + CompiledShape.EDGE_BUMP_X]);
+            MemoryAccess.putInt(_base, addr + OFF_BUMP_ERR, _cEdges[i + CompiledShape.EDGE_BUMP_ERR]);
+            MemoryAccess.putInt(_base, addr + OFF_NEXT,     _edgeBuckets[ymin - _boundsMinY]);
+            MemoryAccess.putInt(_base, addr + OFF_YMAX,     ymax);
+
+            // Update buckets (see addLine):
+            _edgeBuckets[ymin - _boundsMinY]       = edgePtr;
+            _edgeBucketCounts[ymin - _boundsMinY] += 2; // 1 << 1
+            // last bit means edge end
+            _edgeBucketCounts[ymax - _boundsMinY] |= 0x1;
+
+            edgePtr += _SIZEOF_EDGE_BYTES;
+        }
+        _edges.used = edgePtr;
+
+        edgeMinX = spminX;
+        edgeMaxX = spmaxX;
+        edgeMinY = Math.max(spminY, _boundsMinY);
+        edgeMaxY = Math.min(spmaxY, _boundsMaxY);
+
+        // call endRendering() to determine the boundaries:
+        endRendering();
+
+        return this; // fluent API
+    }
+
     private void _endRendering(final int ymin, final int ymax,
                                final MarlinAlphaConsumer ac)
     {
@@ -741,6 +2063,9 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         int[] _aux_crossings = this.aux_crossings;
         int[] _aux_edgePtrs  = this.aux_edgePtrs;
 
+        // radix sort histogram:
+        final int[] _radixCounts = radixCounts;
+
         // copy constants:
         final long _OFF_ERROR    = OFF_ERROR;
         final long _OFF_BUMP_X   = OFF_BUMP_X;
@@ -753,14 +2078,14 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         final int _ERR_STEP_MAX  = ERR_STEP_MAX;
 
         // unsafe I/O:
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+        final Object _base   = _edges.base; // null if off-heap
         final long    addr0  = _edges.address;
         long addr;
-        final int _SUBPIXEL_LG_POSITIONS_X = SUBPIXEL_LG_POSITIONS_X;
-        final int _SUBPIXEL_LG_POSITIONS_Y = SUBPIXEL_LG_POSITIONS_Y;
-        final int _SUBPIXEL_MASK_X = SUBPIXEL_MASK_X;
-        final int _SUBPIXEL_MASK_Y = SUBPIXEL_MASK_Y;
-        final int _SUBPIXEL_POSITIONS_X = SUBPIXEL_POSITIONS_X;
+        final int _SUBPIXEL_LG_POSITIONS_X = subpixLgX;
+        final int _SUBPIXEL_LG_POSITIONS_Y = subpixLgY;
+        final int _SUBPIXEL_MASK_X = subpixMaskX;
+        final int _SUBPIXEL_MASK_Y = subpixMaskY;
+        final int _SUBPIXEL_POSITIONS_X = subpixMaskX + 1;
 
         final int _MIN_VALUE = Integer.MIN_VALUE;
         final int _MAX_VALUE = Integer.MAX_VALUE;
@@ -781,7 +2106,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         int edgePtrsLen = _edgePtrs.length;
         int crossingsLen = _crossings.length;
         int _arrayMaxUsed = activeEdgeMaxUsed;
-        int ptrLen = 0, newCount, ptrEnd;
+        int ptrLen = 0, newCount, ptrEnd, ymaxE;
 
         int bucketcount, i, j, ecur;
         int cross, lastCross;
@@ -791,6 +2116,9 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         int low, high, mid, prevNumCrossings;
         boolean useBinarySearch;
 
+        // unsorted crossings in the previous scanline (radix sort heuristic):
+        int numUnsorted = 0;
+
         final int[] _blkFlags = blkFlags;
         final int _BLK_SIZE_LG = BLOCK_SIZE_LG;
         final int _BLK_SIZE = BLOCK_SIZE;
@@ -830,7 +2158,12 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                         // get the pointer to the edge
                         ecur = _edgePtrs[i];
                         // random access so use unsafe:
-                        if (_unsafe.getInt(addr + ecur) > y) {
+                        ymaxE = MemoryAccess.getInt(_base, addr + ecur);
+                        // curve edges go to their next segment instead:
+                        if ((ymaxE > y)
+                            || ((ymaxE == CURVE_EDGE_YMAX)
+                                && nextCurveSegment(ecur, y)))
+                        {
                             _edgePtrs[newCount++] = ecur;
                         }
                     }
@@ -882,7 +2215,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                         // store the pointer to the edge
                         _edgePtrs[numCrossings] = ecur;
                         // random access so use unsafe:
-                        ecur = _unsafe.getInt(addr + ecur);
+                        ecur = MemoryAccess.getInt(_base, addr + ecur);
                     }
 
                     if (crossingsLen < numCrossings) {
@@ -924,6 +2257,8 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                  * for newly added edges + final merge pass.
                  */
                 if ((ptrLen < 10) || (numCrossings < 40)) {
+                    numUnsorted = 0;
+
                     if (DO_STATS) {
                         rdrCtx.stats.hist_rdr_crossings.add(numCrossings);
                         rdrCtx.stats.hist_rdr_crossings_adds.add(ptrLen);
@@ -951,22 +2286,22 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                         addr = addr0 + ecur; // ecur + OFF_F_CURX
 
                         // get current crossing:
-                        curx = _unsafe.getInt(addr);
+                        curx = MemoryAccess.getInt(_base, addr);
 
                         // update crossing with orientation at last bit:
                         cross = curx;
 
                         // Increment x using DDA (fixed point):
-                        curx += _unsafe.getInt(addr + _OFF_BUMP_X);
+                        curx += MemoryAccess.getInt(_base, addr + _OFF_BUMP_X);
 
                         // Increment error:
-                        err  =  _unsafe.getInt(addr + _OFF_ERROR)
-                              + _unsafe.getInt(addr + _OFF_BUMP_ERR);
+                        err  =  MemoryAccess.getInt(_base, addr + _OFF_ERROR)
+                              + MemoryAccess.getInt(_base, addr + _OFF_BUMP_ERR);
 
                         // Manual carry handling:
                         // keep sign and carry bit only and ignore last bit (preserve orientation):
-                        _unsafe.putInt(addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
-                        _unsafe.putInt(addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
+                        MemoryAccess.putInt(_base, addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
+                        MemoryAccess.putInt(_base, addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
 
                         if (DO_STATS) {
                             rdrCtx.stats.stat_rdr_crossings_updates.add(numCrossings);
@@ -977,6 +2312,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                             if (DO_STATS) {
                                 rdrCtx.stats.stat_rdr_crossings_sorts.add(i);
                             }
+                            numUnsorted++;
 
                             /* use binary search for newly added edges
                                in crossings if arrays are large enough */
@@ -1023,7 +2359,62 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                             _crossings[i] = lastCross = cross;
                         }
                     }
+                } else if (useRadixSort
+                        && (numCrossings >= RadixSort.RADIX_SORT_THRESHOLD)
+                        && ((ptrLen + numUnsorted) * RadixSort.RADIX_SORT_RATIO
+                            >= numCrossings))
+                {
+                    // many new edges or crossings out of order
+                    // (dense hatching): use radix sort (linear time)
+                    if (DO_STATS) {
+                        rdrCtx.stats.stat_rdr_crossings_rsorts.add(numCrossings);
+                    }
+                    numUnsorted = 0;
+                    lastCross = _MIN_VALUE;
+
+                    for (i = 0; i < numCrossings; i++) {
+                        // get the pointer to the edge
+                        ecur = _edgePtrs[i];
+
+                        // random access so use unsafe:
+                        addr = addr0 + ecur; // ecur + OFF_F_CURX
+
+                        // get current crossing:
+                        curx = MemoryAccess.getInt(_base, addr);
+
+                        // update crossing with orientation at last bit:
+                        cross = curx;
+
+                        // Increment x using DDA (fixed point):
+                        curx += MemoryAccess.getInt(_base, addr + _OFF_BUMP_X);
+
+                        // Increment error:
+                        err  =  MemoryAccess.getInt(_base, addr + _OFF_ERROR)
+                              + MemoryAccess.getInt(_base, addr + _OFF_BUMP_ERR);
+
+                        // Manual carry handling:
+                        // keep sign and carry bit only and ignore last bit (preserve orientation):
+                        MemoryAccess.putInt(_base, addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
+                        MemoryAccess.putInt(_base, addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
+
+                        if (DO_STATS) {
+                            rdrCtx.stats.stat_rdr_crossings_updates.add(numCrossings);
+                        }
+
+                        if (cross < lastCross) {
+                            numUnsorted++;
+                        }
+                        // simply store crossing as edgePtrs is in-place:
+                        _crossings[i] = lastCross = cross;
+                    }
+
+                    // sort crossings and edge pointers using auxiliary arrays:
+                    RadixSort.radixSortNoCopy(_crossings,     _edgePtrs,
+                                              _aux_crossings, _aux_edgePtrs,
+                                              _radixCounts,   numCrossings);
                 } else {
+                    numUnsorted = 0;
+
                     if (DO_STATS) {
                         rdrCtx.stats.stat_rdr_crossings_msorts.add(numCrossings);
                         rdrCtx.stats.hist_rdr_crossings_ratio
@@ -1051,22 +2442,22 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                         addr = addr0 + ecur; // ecur + OFF_F_CURX
 
                         // get current crossing:
-                        curx = _unsafe.getInt(addr);
+                        curx = MemoryAccess.getInt(_base, addr);
 
                         // update crossing with orientation at last bit:
                         cross = curx;
 
                         // Increment x using DDA (fixed point):
-                        curx += _unsafe.getInt(addr + _OFF_BUMP_X);
+                        curx += MemoryAccess.getInt(_base, addr + _OFF_BUMP_X);
 
                         // Increment error:
-                        err  =  _unsafe.getInt(addr + _OFF_ERROR)
-                              + _unsafe.getInt(addr + _OFF_BUMP_ERR);
+                        err  =  MemoryAccess.getInt(_base, addr + _OFF_ERROR)
+                              + MemoryAccess.getInt(_base, addr + _OFF_BUMP_ERR);
 
                         // Manual carry handling:
                         // keep sign and carry bit only and ignore last bit (preserve orientation):
-                        _unsafe.putInt(addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
-                        _unsafe.putInt(addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
+                        MemoryAccess.putInt(_base, addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
+                        MemoryAccess.putInt(_base, addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
 
                         if (DO_STATS) {
                             rdrCtx.stats.stat_rdr_crossings_updates.add(numCrossings);
@@ -1081,6 +2472,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
                             if (DO_STATS) {
                                 rdrCtx.stats.stat_rdr_crossings_sorts.add(i);
                             }
+                            numUnsorted++;
 
                             // (straight) insertion sort of crossings:
                             j = i - 1;
@@ -1397,13 +2789,13 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
 
         // half open intervals
         // inclusive:
-        final int pminX =  spminX                    >> SUBPIXEL_LG_POSITIONS_X;
+        final int pminX =  spminX                >> subpixLgX;
         // exclusive:
-        final int pmaxX = (spmaxX + SUBPIXEL_MASK_X) >> SUBPIXEL_LG_POSITIONS_X;
+        final int pmaxX = (spmaxX + subpixMaskX) >> subpixLgX;
         // inclusive:
-        final int pminY =  spminY                    >> SUBPIXEL_LG_POSITIONS_Y;
+        final int pminY =  spminY                >> subpixLgY;
         // exclusive:
-        final int pmaxY = (spmaxY + SUBPIXEL_MASK_Y) >> SUBPIXEL_LG_POSITIONS_Y;
+        final int pmaxY = (spmaxY + subpixMaskY) >> subpixLgY;
 
         // store BBox to answer ptg.getBBox():
         initConsumer(pminX, pminY, pmaxX, pmaxY);
@@ -1427,9 +2819,9 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
         /* note: bbox_spminX and bbox_spmaxX must be pixel boundaries
            to have correct coverage computation */
         // inclusive:
-        bbox_spminX = pminX << SUBPIXEL_LG_POSITIONS_X;
+        bbox_spminX = pminX << subpixLgX;
         // exclusive:
-        bbox_spmaxX = pmaxX << SUBPIXEL_LG_POSITIONS_X;
+        bbox_spmaxX = pmaxX << subpixLgX;
         // inclusive:
         bbox_spminY = spminY;
         // exclusive:
@@ -1482,7 +2874,7 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
     private int bbox_spminX, bbox_spmaxX, bbox_spminY, bbox_spmaxY;
 
     public void produceAlphas(final MarlinAlphaConsumer ac) {
-        ac.setMaxAlpha(MAX_AA_ALPHA);
+        ac.setMaxAlpha(maxAAAlpha);
 
         if (enableBlkFlags && !ac.supportBlockFlags()) {
             // consumer does not support block flag optimization:
@@ -1494,14 +2886,312 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
             rdrCtx.stats.mon_rdr_endRendering_Y.start();
         }
 
-        // Process all scan lines:
-        _endRendering(bbox_spminY, bbox_spmaxY, ac);
+        if (ac.supportParallelRows() && useParallelBands()) {
+            // Process scan lines as horizontal bands in parallel:
+            _endRenderingParallel(ac);
+        } else {
+            // Process all scan lines:
+            _endRendering(bbox_spminY, bbox_spmaxY, ac);
+        }
 
         if (DO_MONITORS) {
             rdrCtx.stats.mon_rdr_endRendering_Y.stop();
         }
     }
 
+    private boolean useParallelBands() {
+        // heuristics: large shapes having many edges only
+        // note: curve edges are updated in place by the scanline loop
+        // so they can not be shared by bands:
+        return (parallelThreads > 1)
+            && (curveEdgeCount == 0)
+            && (edges.used >= PARALLEL_MIN_EDGES * SIZEOF_EDGE_BYTES)
+            && ((bboxY1 - bboxY0) >= (PARALLEL_MIN_BAND_HEIGHT << 1));
+    }
+
+    private void _endRenderingParallel(final MarlinAlphaConsumer ac) {
+        final int height = bboxY1 - bboxY0;
+        final int nBands = FloatMath.min(parallelThreads,
+                                         height / PARALLEL_MIN_BAND_HEIGHT);
+        // band height in pixels (ceil):
+        final int bandHeight = (height + nBands - 1) / nBands;
+
+        // band boundaries are pixel rows (except first & last bands)
+        // so every pixel row is emitted by a single band:
+        final ForkJoinPool pool = MarlinThreadPool.getPool();
+        final BandTask[] tasks = new BandTask[nBands];
+        int nTasks = 0;
+
+        int ymin = bbox_spminY, ymax = bbox_spminY;
+        int firstBandMaxY = bbox_spmaxY;
+
+        for (int i = 1; i <= nBands && ymax < bbox_spmaxY; i++) {
+            ymax = (i == nBands) ? bbox_spmaxY
+                    : FloatMath.min((bboxY0 + i * bandHeight)
+                                    << subpixLgY, bbox_spmaxY);
+            if (i == 1) {
+                // first band is processed by the current thread:
+                firstBandMaxY = ymax;
+            } else if (ymin < ymax) {
+                final BandTask task = new BandTask(this, ymin, ymax, ac);
+                pool.execute(task);
+                tasks[nTasks++] = task;
+            }
+            ymin = ymax;
+        }
+
+        try {
+            // note: edges of this renderer are left unchanged as every band
+            // (even the first one) works on its own copy of the edges
+            // crossing it:
+            rasterizeBand(bbox_spminY, firstBandMaxY, ac);
+        } finally {
+            // wait for other bands:
+            // note: join() rethrows any exception thrown by a band task
+            for (int i = 0; i < nTasks; i++) {
+                tasks[i].join();
+            }
+        }
+    }
+
+    private void rasterizeBand(final int ymin, final int ymax,
+                               final MarlinAlphaConsumer ac)
+    {
+        // use another renderer context (thread-local or child context):
+        final DRendererContext bandCtx = DMarlinRenderingEngine.getRendererContext();
+        DRenderer r = null;
+        try {
+            r = bandCtx.renderer.initBand(this, ymin, ymax);
+            r._endRendering(ymin, ymax, ac);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            // recycle the DRendererContext instance
+            DMarlinRenderingEngine.returnRendererContext(bandCtx);
+        }
+    }
+
+    /**
+     * Initializes this renderer to rasterize the band [ymin; ymax[ of the
+     * given renderer: only the edges crossing the band are copied and the
+     * active edges are advanced to the first scanline of the band.
+     *
+     * @param src renderer holding edges (read-only)
+     * @param ymin first scanline (subpixel, inclusive)
+     * @param ymax last scanline (subpixel, exclusive)
+     * @return this renderer
+     */
+    DRenderer initBand(final DRenderer src, final int ymin, final int ymax) {
+        this.windingRule = src.windingRule;
+
+        if ((subpixLgX != src.subpixLgX) || (subpixLgY != src.subpixLgY)) {
+            setSubpixelLog2(src.subpixLgX, src.subpixLgY);
+        }
+
+        this.boundsMinX = src.boundsMinX;
+        this.boundsMaxX = src.boundsMaxX;
+        this.boundsMinY = src.boundsMinY;
+        this.boundsMaxY = src.boundsMaxY;
+
+        rdrCtx.stroking = src.rdrCtx.stroking;
+
+        final int edgeBucketsLength = (boundsMaxY - boundsMinY) + 1;
+
+        if (edgeBucketsLength > INITIAL_BUCKET_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_edgeBuckets
+                    .add(edgeBucketsLength);
+                rdrCtx.stats.stat_array_renderer_edgeBucketCounts
+                    .add(edgeBucketsLength);
+            }
+            edgeBuckets = edgeBuckets_ref.getArray(edgeBucketsLength);
+            edgeBucketCounts = edgeBucketCounts_ref.getArray(edgeBucketsLength);
+        }
+
+        // copy only the edges crossing the band (off-heap):
+        // note: source edges are never modified as bands run concurrently
+        final OffHeapArray _srcEdges = src.edges;
+        final Object _srcBase = _srcEdges.base; // null if off-heap
+        final long srcAddr0   = _srcEdges.address;
+
+        final OffHeapArray _edges = edges;
+        Object _base = _edges.base; // null if off-heap
+        long addr0   = _edges.address;
+
+        final int _SIZEOF_EDGE_BYTES = SIZEOF_EDGE_BYTES;
+        final int[] _srcEdgeBuckets      = src.edgeBuckets;
+        final int[] _srcEdgeBucketCounts = src.edgeBucketCounts;
+        final int[] _edgeBuckets      = edgeBuckets;
+        final int[] _edgeBucketCounts = edgeBucketCounts;
+        final int _boundsMinY = boundsMinY;
+
+        int[] _edgePtrs = edgePtrs;
+        int numCrossings = 0;
+        int edgePtr = 0;
+
+        // edges starting above the band are only copied if they cross its
+        // first scanline (active edges) and others are linked into the band
+        // buckets in the same order as the source buckets:
+        for (int y = src.edgeMinY, bucket = src.buckets_minY, n, ecur, last,
+                ymaxE, dy; y < ymax; y++, bucket++)
+        {
+            for (n = _srcEdgeBucketCounts[bucket] >> 1,
+                 ecur = _srcEdgeBuckets[bucket], last = -1; n > 0; n--)
+            {
+                final long srcAddr = srcAddr0 + ecur;
+                ecur = MemoryAccess.getInt(_srcBase, srcAddr + OFF_NEXT);
+
+                ymaxE = MemoryAccess.getInt(_srcBase, srcAddr + OFF_YMAX);
+                if (ymaxE <= ymin) {
+                    // edge ends above the band:
+                    continue;
+                }
+
+                // use substraction to avoid integer overflow:
+                if (_edges.length - edgePtr < _SIZEOF_EDGE_BYTES) {
+                    final long edgeNewSize = ArrayCacheConst.getNewLargeSize(
+                                                _edges.length,
+                                                edgePtr + _SIZEOF_EDGE_BYTES);
+                    if (DO_STATS) {
+                        rdrCtx.stats.stat_rdr_edges_resizes.add(edgeNewSize);
+                    }
+                    _edges.resize(edgeNewSize);
+                    _base = _edges.base;
+                    addr0 = _edges.address;
+                }
+                final long addr = addr0 + edgePtr;
+
+                MemoryAccess.copyMemory(_srcBase, srcAddr, _base, addr,
+                                        _SIZEOF_EDGE_BYTES);
+
+                if (y < ymin) {
+                    // skip the scanlines above the band:
+                    dy = ymin - y;
+
+                    // Increment error (31 bits) and carry:
+                    final long err = MemoryAccess.getInt(_base, addr + OFF_ERROR)
+                                     + dy * (long) MemoryAccess.getInt(_base, addr + OFF_BUMP_ERR);
+
+                    // keep last bit (orientation):
+                    MemoryAccess.putInt(_base, addr, (int) (MemoryAccess.getInt(_base, addr)
+                                     + dy * (long) MemoryAccess.getInt(_base, addr + OFF_BUMP_X)
+                                     + ((err >> 31L) << 1L)));
+                    MemoryAccess.putInt(_base, addr + OFF_ERROR, ((int) err) & ERR_STEP_MAX);
+
+                    if (_edgePtrs.length <= numCrossings) {
+                        if (DO_STATS) {
+                            rdrCtx.stats.stat_array_renderer_edgePtrs
+                                .add(numCrossings + 1);
+                        }
+                        _edgePtrs = edgePtrs_ref.widenArray(_edgePtrs,
+                                        numCrossings, numCrossings + 1);
+                    }
+                    _edgePtrs[numCrossings++] = edgePtr;
+                } else {
+                    // link the edge into the band bucket (see addEdge):
+                    if (last == -1) {
+                        _edgeBuckets[bucket] = edgePtr;
+                    } else {
+                        MemoryAccess.putInt(_base, addr0 + last + OFF_NEXT, edgePtr);
+                    }
+                    last = edgePtr;
+                    _edgeBucketCounts[bucket] += 2; // 1 << 1
+                }
+                if (ymaxE < ymax) {
+                    // last bit means edge end:
+                    _edgeBucketCounts[ymaxE - _boundsMinY] |= 0x1;
+                }
+                edgePtr += _SIZEOF_EDGE_BYTES;
+            }
+        }
+        _edges.used = edgePtr;
+        this.edgePtrs = _edgePtrs;
+
+        edgeMinX = src.edgeMinX;
+        edgeMaxX = src.edgeMaxX;
+        edgeMinY = ymin;
+        edgeMaxY = ymax;
+
+        buckets_minY = ymin - _boundsMinY;
+        buckets_maxY = ymax - _boundsMinY;
+
+        // ensure auxiliary storage is large enough:
+        if (aux_edgePtrs.length < numCrossings) {
+            aux_edgePtrs_ref.putArray(aux_edgePtrs);
+            aux_edgePtrs = aux_edgePtrs_ref.getArray(_edgePtrs.length);
+        }
+        if (crossings.length < numCrossings) {
+            crossings_ref.putArray(crossings);
+            crossings = crossings_ref.getArray(numCrossings);
+
+            aux_crossings_ref.putArray(aux_crossings);
+            aux_crossings = aux_crossings_ref.getArray(numCrossings);
+        }
+
+        // active edges (not sorted):
+        edgeCount = numCrossings;
+        activeEdgeMaxUsed = numCrossings;
+
+        // copy rendering bounds & settings:
+        bboxX0 = src.bboxX0;
+        bboxX1 = src.bboxX1;
+        bboxY0 = src.bboxY0;
+        bboxY1 = src.bboxY1;
+
+        bbox_spminX = src.bbox_spminX;
+        bbox_spmaxX = src.bbox_spmaxX;
+        bbox_spminY = ymin;
+        bbox_spmaxY = ymax;
+
+        useRLE = src.useRLE;
+        enableBlkFlags  = src.enableBlkFlags;
+        prevUseBlkFlags = src.prevUseBlkFlags;
+
+        if (enableBlkFlags) {
+            // ensure blockFlags array is large enough:
+            // note: +2 to ensure enough space left at end
+            final int blkLen = ((bboxX1 - bboxX0) >> BLOCK_SIZE_LG) + 2;
+            if (blkLen > INITIAL_ARRAY) {
+                blkFlags = blkFlags_ref.getArray(blkLen);
+            }
+        }
+
+        // Prepare alpha line:
+        // add 2 to better deal with the last pixel in a pixel row.
+        final int width = (bboxX1 - bboxX0) + 2;
+
+        if (width > INITIAL_AA_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_alphaline.add(width);
+            }
+            alphaLine = alphaLine_ref.getArray(width);
+        }
+        return this; // fluent API
+    }
+
+    static final class BandTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final transient DRenderer src;
+        private final transient MarlinAlphaConsumer ac;
+        private final int ymin, ymax;
+
+        BandTask(final DRenderer src, final int ymin, final int ymax,
+                 final MarlinAlphaConsumer ac)
+        {
+            this.src  = src;
+            this.ymin = ymin;
+            this.ymax = ymax;
+            this.ac   = ac;
+        }
+
+        @Override
+        protected void compute() {
+            src.rasterizeBand(ymin, ymax, ac);
+        }
+    }
+
     void copyAARow(final int[] alphaRow,
                    final int pix_y, final int pix_from, final int pix_to,
                    final boolean useBlockFlags,
@@ -1555,11 +3245,11 @@ public final class DRenderer implements DMarlinRenderer, MarlinConst {
 
     @Override
     public double getOffsetX() {
-        return RDR_OFFSET_X;
+        return 0.5d / subpixScaleX;
     }
 
     @Override
     public double getOffsetY() {
-        return RDR_OFFSET_Y;
+        return 0.5d / subpixScaleY;
     }
 }
@@ -56,6 +56,8 @@ public final class DRendererContext extends ReentrantContext implements MarlinCo
     public boolean dirty = false;
     // shared data
     public final float[] float6 = new float[6];
+    // decoded coordinates of CompactPath2D chunks (128 cubics)
+    public final float[] float768 = new float[768];
     // shared curve (dirty) (Renderer / Stroker)
     final DCurve curve = new DCurve();
     // MarlinRenderingEngine.TransformingPathConsumer2D
@@ -66,9 +68,22 @@ public final class DRendererContext extends ReentrantContext implements MarlinCo
     final DRendererSharedMemory rdrMem;
     public final DRenderer renderer;
     private DRendererNoAA rendererNoAA = null;
+    private DRendererExactAA rendererExactAA = null;
+    private DRendererConvex rendererConvex = null;
+    private DRendererThinLine rendererThinLine = null;
     public final DStroker stroker;
     // Simplifies out collinear lines
     public final DCollinearSimplifier simplifier = new DCollinearSimplifier();
+    // Simplifies dense polylines (device space tolerance)
+    public final DPathSimplifier pathSimplifier = new DPathSimplifier();
+    // path simplifier, read once per context (prism.marlin.usePathSimplifier)
+    // so simplified and exact paths can be compared:
+    public final boolean usePathSimplifier = MarlinProperties.isUsePathSimplifier();
+    // Decimates x-monotone polylines per 1/8 pixel column
+    public final DColumnDecimator decimator = new DColumnDecimator();
+    // column decimator, read once per context (prism.marlin.useColumnDecimator)
+    // so decimated and exact strokes can be compared:
+    public final boolean useColumnDecimator = MarlinProperties.isUseColumnDecimator();
     public final DDasher dasher;
     // flag indicating the shape is stroked (1) or filled (0)
     int stroking = 0;
@@ -84,16 +99,20 @@ public final class DRendererContext extends ReentrantContext implements MarlinCo
     public final Rectangle clip = new Rectangle();
     // dirty MaskMarlinAlphaConsumer
     public MaskMarlinAlphaConsumer consumer = null;
+    // dirty RLEMarlinAlphaConsumer
+    public RLEMarlinAlphaConsumer rleConsumer = null;
+    // dirty MaskMarlinAlphaConsumer (fill coverage of inner / outer strokes)
+    public MaskMarlinAlphaConsumer fillConsumer = null;
 
     // Array caches:
     /* clean int[] cache (zero-filled) = 5 refs */
     private final IntArrayCache cleanIntCache = new IntArrayCache(true, 5);
-    /* dirty int[] cache = 5 refs */
-    private final IntArrayCache dirtyIntCache = new IntArrayCache(false, 5);
-    /* dirty double[] cache = 4 refs (2 polystack) */
-    private final DoubleArrayCache dirtyDoubleCache = new DoubleArrayCache(false, 4);
-    /* dirty byte[] cache = 2 ref (2 polystack) */
-    private final ByteArrayCache dirtyByteCache = new ByteArrayCache(false, 2);
+    /* dirty int[] cache = 7 refs (1 exact AA, 1 thin line) */
+    private final IntArrayCache dirtyIntCache = new IntArrayCache(false, 7);
+    /* dirty double[] cache = 10 refs (2 polystack, 2 exact AA, 2 thin line) */
+    private final DoubleArrayCache dirtyDoubleCache = new DoubleArrayCache(false, 10);
+    /* dirty byte[] cache = 3 refs (2 polystack, 1 convex) */
+    private final ByteArrayCache dirtyByteCache = new ByteArrayCache(false, 3);
 
     // RendererContext statistics
     final RendererStats stats;
@@ -186,6 +205,27 @@ public final class DRendererContext extends ReentrantContext implements MarlinCo
         return rendererNoAA;
     }
 
+    public DRendererExactAA getRendererExactAA() {
+        if (rendererExactAA == null) {
+            rendererExactAA = new DRendererExactAA(this);
+        }
+        return rendererExactAA;
+    }
+
+    public DRendererConvex getRendererConvex() {
+        if (rendererConvex == null) {
+            rendererConvex = new DRendererConvex(this);
+        }
+        return rendererConvex;
+    }
+
+    public DRendererThinLine getRendererThinLine() {
+        if (rendererThinLine == null) {
+            rendererThinLine = new DRendererThinLine(this);
+        }
+        return rendererThinLine;
+    }
+
     OffHeapArray newOffHeapArray(final long initialSize) {
         if (DO_STATS) {
             stats.totalOffHeapInitial += initialSize;
@@ -0,0 +1,1185 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+/**
+ * Anti-aliasing renderer specialized for convex shapes: every scanline has
+ * exactly one left and one right crossing, so edges are walked as two
+ * y-monotone chains (no edge buckets, no active edge list, no crossing sort).
+ *
+ * Convexity is checked while the path is fed (flattened curves included):
+ * as soon as the path is not convex (reflex vertex, several subpaths or more
+ * than 2 changes of the vertical direction), the recorded path commands are
+ * replayed into the general Renderer that processes the rest of the path.
+ *
+ * Subpixel sampling and crossings (fixed-point DDA) are computed as in
+ * Renderer so both renderers produce the same coverage.
+ */
+public final class DRendererConvex implements DMarlinRenderer, MarlinConst {
+
+    static final boolean DISABLE_RENDER = false;
+
+    private static final int ALL_BUT_LSB = 0xFFFFFFFE;
+    private static final int ERR_STEP_MAX = 0x7FFFFFFF; // = 2^31 - 1
+
+    private static final double POWER_2_TO_32 = 0x1.0p32d;
+
+    // use double to make tosubpix methods faster (no int to double conversion)
+    static final double SUBPIXEL_SCALE_X = SUBPIXEL_POSITIONS_X;
+    static final double SUBPIXEL_SCALE_Y = SUBPIXEL_POSITIONS_Y;
+    static final int SUBPIXEL_MASK_X = SUBPIXEL_POSITIONS_X - 1;
+    static final int SUBPIXEL_MASK_Y = SUBPIXEL_POSITIONS_Y - 1;
+
+    // recorded path commands (replayed by fallback()):
+    private static final byte CMD_MOVETO  = 0;
+    private static final byte CMD_LINETO  = 1;
+    private static final byte CMD_QUADTO  = 2;
+    private static final byte CMD_CUBICTO = 3;
+    private static final byte CMD_CLOSE   = 4;
+
+    // curve break into lines (see Renderer)
+    // cubic error in subpixels to decrement step
+    private static final double CUB_DEC_ERR_SUBPIX
+        = MarlinProperties.getCubicDecD2() * (NORM_SUBPIXELS / 8.0d); // 1 pixel
+    // cubic error in subpixels to increment step
+    private static final double CUB_INC_ERR_SUBPIX
+        = MarlinProperties.getCubicIncD1() * (NORM_SUBPIXELS / 8.0d); // 0.4 pixel
+
+    // cubic bind length to decrement step
+    public static final double CUB_DEC_BND
+        = 8.0d * CUB_DEC_ERR_SUBPIX;
+    // cubic bind length to increment step
+    public static final double CUB_INC_BND
+        = 8.0d * CUB_INC_ERR_SUBPIX;
+
+    // cubic countlg
+    public static final int CUB_COUNT_LG = 2;
+    // cubic count = 2^countlg
+    private static final int CUB_COUNT = 1 << CUB_COUNT_LG;
+    // cubic count^2 = 4^countlg
+    private static final int CUB_COUNT_2 = 1 << (2 * CUB_COUNT_LG);
+    // cubic count^3 = 8^countlg
+    private static final int CUB_COUNT_3 = 1 << (3 * CUB_COUNT_LG);
+    // cubic dt = 1 / count
+    private static final double CUB_INV_COUNT = 1.0d / CUB_COUNT;
+    // cubic dt^2 = 1 / count^2 = 1 / 4^countlg
+    private static final double CUB_INV_COUNT_2 = 1.0d / CUB_COUNT_2;
+    // cubic dt^3 = 1 / count^3 = 1 / 8^countlg
+    private static final double CUB_INV_COUNT_3 = 1.0d / CUB_COUNT_3;
+
+    // quad break into lines
+    // quadratic error in subpixels
+    private static final double QUAD_DEC_ERR_SUBPIX
+        = MarlinProperties.getQuadDecD2() * (NORM_SUBPIXELS / 8.0d); // 0.5 pixel
+
+    // quadratic bind length to decrement step
+    public static final double QUAD_DEC_BND
+        = 8.0d * QUAD_DEC_ERR_SUBPIX;
+
+    // subpixel settings of the current shape (same as the general renderer)
+    // defaults are given by SUBPIXEL_LG_POSITIONS_X/Y:
+    private int subpixLgX = SUBPIXEL_LG_POSITIONS_X;
+    private int subpixLgY = SUBPIXEL_LG_POSITIONS_Y;
+    private int subpixMaskX = SUBPIXEL_MASK_X;
+    private int subpixMaskY = SUBPIXEL_MASK_Y;
+    private double subpixScaleX = SUBPIXEL_SCALE_X;
+    private double subpixScaleY = SUBPIXEL_SCALE_Y;
+    // max coverage = subpixel count per pixel:
+    private int maxAAAlpha = MAX_AA_ALPHA;
+    // curve break bind lengths in subpixels:
+    private double cubDecBnd = CUB_DEC_BND;
+    private double cubIncBnd = CUB_INC_BND;
+    private double quadDecBnd = QUAD_DEC_BND;
+
+//////////////////////////////////////////////////////////////////////////////
+//  CONVEX POLYGON
+//////////////////////////////////////////////////////////////////////////////
+    // polygon vertices (x, y) in subpixel coordinates (dirty)
+    private double[] pts;
+    // number of used coordinates (2 per vertex)
+    private int numPts;
+
+    // vertex offsets of the top and bottom vertices
+    private int topIdx, botIdx;
+
+    // true if the polygon was closed
+    private boolean closed;
+    // sign of the turns (0 if unknown)
+    private int turn;
+    // sign of the vertical direction of the last / first non horizontal edges
+    private int dySign, firstDySign;
+    // number of changes of the vertical direction
+    private int yChanges;
+    // last and first edge vectors
+    private double lastDx, lastDy, firstDx, firstDy;
+
+    private int edgeMinY = Integer.MAX_VALUE;
+    private int edgeMaxY = Integer.MIN_VALUE;
+    private double edgeMinX = Double.POSITIVE_INFINITY;
+    private double edgeMaxX = Double.NEGATIVE_INFINITY;
+
+    // pts ref (dirty)
+    private final DoubleArrayCache.Reference pts_ref;
+
+//////////////////////////////////////////////////////////////////////////////
+//  RECORDED PATH (FALLBACK)
+//////////////////////////////////////////////////////////////////////////////
+    // general renderer processing the path if not convex (null if convex)
+    private DMarlinRenderer delegate;
+
+    // recorded command types (dirty)
+    private byte[] cmdTypes;
+    private int numCmds;
+    // recorded command coordinates in pixels (dirty)
+    private double[] cmdCoords;
+    private int numCoords;
+
+    // cmdTypes ref (dirty)
+    private final ByteArrayCache.Reference cmdTypes_ref;
+    // cmdCoords ref (dirty)
+    private final DoubleArrayCache.Reference cmdCoords_ref;
+
+    // Flattens using adaptive forward differencing. This only carries out
+    // one iteration of the AFD loop. All it does is update AFD variables (i.e.
+    // X0, Y0, D*[X|Y], COUNT; not variables used for computing scanline crossings).
+    private boolean quadBreakIntoLinesAndAdd(double x0, double y0,
+                                             final DCurve c,
+                                             final double x2, final double y2)
+    {
+        int count = 1; // dt = 1 / count
+
+        // maximum(ddX|Y) = norm(dbx, dby) * dt^2 (= 1)
+        double maxDD = Math.abs(c.dbx) + Math.abs(c.dby);
+
+        final double _DEC_BND = quadDecBnd;
+
+        while (maxDD >= _DEC_BND) {
+            // divide step by half:
+            maxDD /= 4.0d; // error divided by 2^2 = 4
+
+            count <<= 1;
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_quadBreak_dec.add(count);
+            }
+        }
+
+        if (count > 1) {
+            final double icount = 1.0d / count; // dt
+            final double icount2 = icount * icount; // dt^2
+
+            final double ddx = c.dbx * icount2;
+            final double ddy = c.dby * icount2;
+            double dx = c.bx * icount2 + c.cx * icount;
+            double dy = c.by * icount2 + c.cy * icount;
+
+            while (--count > 0) {
+                x0 += dx;
+                dx += ddx;
+                y0 += dy;
+                dy += ddy;
+
+                if (!addVertex(x0, y0)) {
+                    return false;
+                }
+            }
+        }
+        return addVertex(x2, y2);
+    }
+
+    // x0, y0 and x3,y3 are the endpoints of the curve. We could compute these
+    // using c.xat(0),c.yat(0) and c.xat(1),c.yat(1), but this might introduce
+    // numerical errors, and our callers already have the exact values.
+    private boolean curveBreakIntoLinesAndAdd(final double x0, final double y0,
+                                              final DCurve c,
+                                              final double x3, final double y3)
+    {
+        int count           = CUB_COUNT;
+        final double icount  = CUB_INV_COUNT;   // dt
+        final double icount2 = CUB_INV_COUNT_2; // dt^2
+        final double icount3 = CUB_INV_COUNT_3; // dt^3
+
+        // the dx and dy refer to forward differencing variables, not the last
+        // coefficients of the "points" polynomial
+        double dddx, dddy, ddx, ddy, dx, dy;
+        dddx = 2.0d * c.dax * icount3;
+        dddy = 2.0d * c.day * icount3;
+        ddx = dddx + c.dbx * icount2;
+        ddy = dddy + c.dby * icount2;
+        dx = c.ax * icount3 + c.bx * icount2 + c.cx * icount;
+        dy = c.ay * icount3 + c.by * icount2 + c.cy * icount;
+
+        // we use x1, y1 to walk the line
+        double x1 = x0, y1 = y0;
+
+        final double _DEC_BND = cubDecBnd;
+        final double _INC_BND = cubIncBnd;
+
+        while (count > 0) {
+            // divide step by half:
+            while (Math.abs(ddx) + Math.abs(ddy) >= _DEC_BND) {
+                dddx /= 8.0d;
+                dddy /= 8.0d;
+                ddx = ddx / 4.0d - dddx;
+                ddy = ddy / 4.0d - dddy;
+                dx = (dx - ddx) / 2.0d;
+                dy = (dy - ddy) / 2.0d;
+
+                count <<= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_dec.add(count);
+                }
+            }
+
+            // double step:
+            // can only do this on even "count" values, because we must divide count by 2
+            while (count % 2 == 0
+                   && Math.abs(dx) + Math.abs(dy) <= _INC_BND)
+            {
+                dx = 2.0d * dx + ddx;
+                dy = 2.0d * dy + ddy;
+                ddx = 4.0d * (ddx + dddx);
+                ddy = 4.0d * (ddy + dddy);
+                dddx *= 8.0d;
+                dddy *= 8.0d;
+
+                count >>= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_inc.add(count);
+                }
+            }
+            if (--count > 0) {
+                x1 += dx;
+                dx += ddx;
+                ddx += dddx;
+                y1 += dy;
+                dy += ddy;
+                ddy += dddy;
+            } else {
+                x1 = x3;
+                y1 = y3;
+            }
+
+            if (!addVertex(x1, y1)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Add a vertex to the polygon and check that the polygon remains convex
+     * @return false if the polygon is not convex
+     */
+    private boolean addVertex(final double x, final double y) {
+        final int n = numPts;
+
+        if (n != 0) {
+            final double dx = x - pts[n - 2];
+            final double dy = y - pts[n - 1];
+
+            if ((dx == 0.0d) && (dy == 0.0d)) {
+                // skip duplicated vertex
+                return true;
+            }
+            if (!checkEdge(dx, dy, n > 2)) {
+                return false;
+            }
+        }
+        if (pts.length < n + 2) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_edges_resizes.add(n + 2);
+            }
+            pts = pts_ref.widenArray(pts, n, n + 2);
+        }
+        pts[n    ] = x;
+        pts[n + 1] = y;
+        numPts = n + 2;
+        return true;
+    }
+
+    /**
+     * Check the turn between the last edge and the given edge and the
+     * changes of the vertical direction
+     * @return false if the polygon is not convex
+     */
+    private boolean checkEdge(final double dx, final double dy,
+                              final boolean hasLastEdge)
+    {
+        if (hasLastEdge) {
+            final double cross = lastDx * dy - lastDy * dx;
+
+            if (cross != 0.0d) {
+                final int s = (cross > 0.0d) ? 1 : -1;
+                if (turn == 0) {
+                    turn = s;
+                } else if (turn != s) {
+                    // reflex vertex:
+                    return false;
+                }
+            }
+        } else {
+            firstDx = dx;
+            firstDy = dy;
+        }
+        if (dy != 0.0d) {
+            final int s = (dy > 0.0d) ? 1 : -1;
+            if (dySign == 0) {
+                firstDySign = s;
+            } else if ((dySign != s) && (++yChanges > 2)) {
+                // several top or bottom vertices (self-intersecting polygon):
+                return false;
+            }
+            dySign = s;
+        }
+        lastDx = dx;
+        lastDy = dy;
+        return true;
+    }
+
+    /**
+     * Close the polygon and check its convexity (closing edge and the turn at
+     * the first vertex)
+     * @return false if the polygon is not convex
+     */
+    private boolean closePolygon() {
+        if (closed) {
+            return true;
+        }
+        closed = true;
+
+        final int n = numPts;
+        if (n < 6) {
+            // less than 3 vertices: empty
+            return true;
+        }
+        final double dx = pts[0] - pts[n - 2];
+        final double dy = pts[1] - pts[n - 1];
+
+        if (((dx != 0.0d) || (dy != 0.0d)) && !checkEdge(dx, dy, true)) {
+            return false;
+        }
+        // check the turn at the first vertex and the vertical direction:
+        if (!checkEdge(firstDx, firstDy, true)) {
+            return false;
+        }
+        return (yChanges <= 2);
+    }
+
+// END CONVEX POLYGON
+//////////////////////////////////////////////////////////////////////////////
+
+    // Bounds of the drawing region, at subpixel precision.
+    private int boundsMinX, boundsMinY, boundsMaxX, boundsMaxY;
+
+    // init() arguments (to initialize the general renderer):
+    private int pixBoundsX, pixBoundsY, pixBoundsWidth, pixBoundsHeight;
+
+    // Current winding rule
+    private int windingRule;
+
+    // Current drawing position, i.e., final point of last segment
+    private double x0, y0;
+
+    // Position of most recent 'moveTo' command
+    private double sx0, sy0;
+
+    // per-thread renderer context
+    final DRendererContext rdrCtx;
+    // dirty curve
+    private final DCurve curve;
+
+    // clean alpha array (zero filled)
+    private int[] alphaLine;
+
+    // alphaLine ref (clean)
+    private final IntArrayCache.Reference alphaLine_ref;
+
+    DRendererConvex(final DRendererContext rdrCtx) {
+        this.rdrCtx = rdrCtx;
+        this.curve = rdrCtx.curve;
+
+        alphaLine_ref = rdrCtx.rdrMem.alphaLine_ref;
+        alphaLine     = alphaLine_ref.initial;
+
+        pts_ref = rdrCtx.newDirtyDoubleArrayRef(INITIAL_ARRAY);
+        pts     = pts_ref.initial;
+
+        cmdTypes_ref  = rdrCtx.newDirtyByteArrayRef(INITIAL_ARRAY);
+        cmdTypes      = cmdTypes_ref.initial;
+        cmdCoords_ref = rdrCtx.newDirtyDoubleArrayRef(INITIAL_ARRAY);
+        cmdCoords     = cmdCoords_ref.initial;
+    }
+
+    public DRendererConvex init(final int pix_boundsX, final int pix_boundsY,
+                  final int pix_boundsWidth, final int pix_boundsHeight,
+                  final int windingRule)
+    {
+        // use the subpixel settings of the general renderer (adaptive):
+        final int lgX = rdrCtx.renderer.getSubpixelLog2X();
+        final int lgY = rdrCtx.renderer.getSubpixelLog2Y();
+
+        if ((lgX != subpixLgX) || (lgY != subpixLgY)) {
+            setSubpixelLog2(lgX, lgY);
+        }
+
+        this.windingRule = windingRule;
+
+        this.pixBoundsX = pix_boundsX;
+        this.pixBoundsY = pix_boundsY;
+        this.pixBoundsWidth = pix_boundsWidth;
+        this.pixBoundsHeight = pix_boundsHeight;
+
+        // bounds as half-open intervals: minX <= x < maxX and minY <= y < maxY
+        this.boundsMinX =  pix_boundsX << subpixLgX;
+        this.boundsMaxX =
+            (pix_boundsX + pix_boundsWidth) << subpixLgX;
+        this.boundsMinY =  pix_boundsY << subpixLgY;
+        this.boundsMaxY =
+            (pix_boundsY + pix_boundsHeight) << subpixLgY;
+
+        if (DO_LOG_BOUNDS) {
+            MarlinUtils.logInfo("boundsXY = [" + boundsMinX + " ... "
+                                + boundsMaxX + "[ [" + boundsMinY + " ... "
+                                + boundsMaxY + "[");
+        }
+
+        edgeMinY = Integer.MAX_VALUE;
+        edgeMaxY = Integer.MIN_VALUE;
+        edgeMinX = Double.POSITIVE_INFINITY;
+        edgeMaxX = Double.NEGATIVE_INFINITY;
+
+        // reset polygon and recorded path:
+        delegate = null;
+        numPts = 0;
+        numCmds = 0;
+        numCoords = 0;
+        resetPolygon();
+
+        // reset bbox:
+        bboxX0 = 0;
+        bboxX1 = 0;
+        bboxY0 = 0;
+        bboxY1 = 0;
+
+        return this; // fluent API
+    }
+
+    private void resetPolygon() {
+        closed = false;
+        turn = 0;
+        dySign = 0;
+        firstDySign = 0;
+        yChanges = 0;
+    }
+
+    private void setSubpixelLog2(final int lgX, final int lgY) {
+        this.subpixLgX = lgX;
+        this.subpixLgY = lgY;
+        this.subpixMaskX = (1 << lgX) - 1;
+        this.subpixMaskY = (1 << lgY) - 1;
+        this.subpixScaleX = (1 << lgX);
+        this.subpixScaleY = (1 << lgY);
+        this.maxAAAlpha = 1 << (lgX + lgY);
+
+        // curve errors are given in subpixels (see NORM_SUBPIXELS):
+        final double normScale = (Math.sqrt(
+                        ((1 << (2 * lgX)) + (1 << (2 * lgY))) / 2.0d))
+                        / NORM_SUBPIXELS;
+
+        this.cubDecBnd  = CUB_DEC_BND  * normScale;
+        this.cubIncBnd  = CUB_INC_BND  * normScale;
+        this.quadDecBnd = QUAD_DEC_BND * normScale;
+    }
+
+    /**
+     * Disposes this renderer and recycle it clean up before reusing this instance
+     */
+    public void dispose() {
+        if (delegate != null) {
+            // the general renderer restores its subpixel settings:
+            delegate.dispose();
+            delegate = null;
+        } else if ((subpixLgX != SUBPIXEL_LG_POSITIONS_X)
+                   || (subpixLgY != SUBPIXEL_LG_POSITIONS_Y))
+        {
+            // restore default subpixel settings of the general renderer:
+            rdrCtx.renderer.setSubpixelLog2(SUBPIXEL_LG_POSITIONS_X,
+                                            SUBPIXEL_LG_POSITIONS_Y);
+        }
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_edges_count.add(numPts >> 1);
+            rdrCtx.stats.hist_rdr_edges_count.add(numPts >> 1);
+        }
+        // Return arrays:
+        pts       = pts_ref.putArray(pts);
+        cmdTypes  = cmdTypes_ref.putArray(cmdTypes);
+        cmdCoords = cmdCoords_ref.putArray(cmdCoords);
+
+        alphaLine = alphaLine_ref.putArray(alphaLine, 0, 0); // already zero filled
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering.stop();
+        }
+    }
+
+    private void record(final byte type, final int nCoords) {
+        if (cmdTypes.length <= numCmds) {
+            cmdTypes = cmdTypes_ref.widenArray(cmdTypes, numCmds, numCmds + 1);
+        }
+        cmdTypes[numCmds++] = type;
+
+        if (cmdCoords.length < numCoords + nCoords) {
+            cmdCoords = cmdCoords_ref.widenArray(cmdCoords, numCoords,
+                                                 numCoords + nCoords);
+        }
+    }
+
+    /**
+     * The path is not convex: initialize the general renderer and replay
+     * the recorded path commands into it
+     */
+    private void fallback() {
+        final DMarlinRenderer r = rdrCtx.renderer;
+
+        r.init(pixBoundsX, pixBoundsY, pixBoundsWidth, pixBoundsHeight,
+               windingRule);
+
+        final byte[] _cmdTypes = cmdTypes;
+        final double[] _coords = cmdCoords;
+
+        for (int i = 0, n = numCmds, j = 0; i < n; i++) {
+            switch (_cmdTypes[i]) {
+                case CMD_MOVETO:
+                    r.moveTo(_coords[j], _coords[j + 1]);
+                    j += 2;
+                    break;
+                case CMD_LINETO:
+                    r.lineTo(_coords[j], _coords[j + 1]);
+                    j += 2;
+                    break;
+                case CMD_QUADTO:
+                    r.quadTo(_coords[j],     _coords[j + 1],
+                             _coords[j + 2], _coords[j + 3]);
+                    j += 4;
+                    break;
+                case CMD_CUBICTO:
+                    r.curveTo(_coords[j],     _coords[j + 1],
+                              _coords[j + 2], _coords[j + 3],
+                              _coords[j + 4], _coords[j + 5]);
+                    j += 6;
+                    break;
+                case CMD_CLOSE:
+                    r.closePath();
+                    break;
+                default:
+            }
+        }
+        delegate = r;
+    }
+
+    private double tosubpixx(final double pix_x) {
+        return subpixScaleX * pix_x;
+    }
+
+    private double tosubpixy(final double pix_y) {
+        // shift y by -0.5 for fast ceil(y - 0.5):
+        return subpixScaleY * pix_y - 0.5d;
+    }
+
+    @Override
+    public void moveTo(final double pix_x0, final double pix_y0) {
+        if (delegate != null) {
+            delegate.moveTo(pix_x0, pix_y0);
+            return;
+        }
+        record(CMD_MOVETO, 2);
+        cmdCoords[numCoords++] = pix_x0;
+        cmdCoords[numCoords++] = pix_y0;
+
+        if (numPts > 2) {
+            // second subpath:
+            fallback();
+            return;
+        }
+        final double sx = tosubpixx(pix_x0);
+        final double sy = tosubpixy(pix_y0);
+        this.sx0 = sx;
+        this.sy0 = sy;
+        this.x0 = sx;
+        this.y0 = sy;
+
+        // start a new polygon:
+        numPts = 0;
+        resetPolygon();
+        addVertex(sx, sy);
+    }
+
+    @Override
+    public void lineTo(final double pix_x1, final double pix_y1) {
+        if (delegate != null) {
+            delegate.lineTo(pix_x1, pix_y1);
+            return;
+        }
+        record(CMD_LINETO, 2);
+        cmdCoords[numCoords++] = pix_x1;
+        cmdCoords[numCoords++] = pix_y1;
+
+        final double x1 = tosubpixx(pix_x1);
+        final double y1 = tosubpixy(pix_y1);
+
+        if (closed || (numPts == 0) || !addVertex(x1, y1)) {
+            fallback();
+            return;
+        }
+        x0 = x1;
+        y0 = y1;
+    }
+
+    @Override
+    public void curveTo(final double pix_x1, final double pix_y1,
+                        final double pix_x2, final double pix_y2,
+                        final double pix_x3, final double pix_y3)
+    {
+        if (delegate != null) {
+            delegate.curveTo(pix_x1, pix_y1, pix_x2, pix_y2, pix_x3, pix_y3);
+            return;
+        }
+        record(CMD_CUBICTO, 6);
+        final double[] _coords = cmdCoords;
+        int j = numCoords;
+        _coords[j++] = pix_x1;
+        _coords[j++] = pix_y1;
+        _coords[j++] = pix_x2;
+        _coords[j++] = pix_y2;
+        _coords[j++] = pix_x3;
+        _coords[j++] = pix_y3;
+        numCoords = j;
+
+        if (closed || (numPts == 0)) {
+            fallback();
+            return;
+        }
+        final double xe = tosubpixx(pix_x3);
+        final double ye = tosubpixy(pix_y3);
+        curve.set(x0, y0, tosubpixx(pix_x1), tosubpixy(pix_y1),
+                  tosubpixx(pix_x2), tosubpixy(pix_y2), xe, ye);
+
+        if (!curveBreakIntoLinesAndAdd(x0, y0, curve, xe, ye)) {
+            fallback();
+            return;
+        }
+        x0 = xe;
+        y0 = ye;
+    }
+
+    @Override
+    public void quadTo(final double pix_x1, final double pix_y1,
+                       final double pix_x2, final double pix_y2)
+    {
+        if (delegate != null) {
+            delegate.quadTo(pix_x1, pix_y1, pix_x2, pix_y2);
+            return;
+        }
+        record(CMD_QUADTO, 4);
+        final double[] _coords = cmdCoords;
+        int j = numCoords;
+        _coords[j++] = pix_x1;
+        _coords[j++] = pix_y1;
+        _coords[j++] = pix_x2;
+        _coords[j++] = pix_y2;
+        numCoords = j;
+
+        if (closed || (numPts == 0)) {
+            fallback();
+            return;
+        }
+        final double xe = tosubpixx(pix_x2);
+        final double ye = tosubpixy(pix_y2);
+        curve.set(x0, y0, tosubpixx(pix_x1), tosubpixy(pix_y1), xe, ye);
+
+        if (!quadBreakIntoLinesAndAdd(x0, y0, curve, xe, ye)) {
+            fallback();
+            return;
+        }
+        x0 = xe;
+        y0 = ye;
+    }
+
+    @Override
+    public void closePath() {
+        if (delegate != null) {
+            delegate.closePath();
+            return;
+        }
+        record(CMD_CLOSE, 0);
+
+        if (!closePolygon()) {
+            fallback();
+            return;
+        }
+        x0 = sx0;
+        y0 = sy0;
+    }
+
+    @Override
+    public void pathDone() {
+        if (delegate == null) {
+            if (closePolygon()) {
+                // call endRendering() to determine the boundaries:
+                endRendering();
+                return;
+            }
+            fallback();
+        }
+        delegate.pathDone();
+    }
+
+    private void _endRendering(final MarlinAlphaConsumer ac) {
+        if (DISABLE_RENDER) {
+            return;
+        }
+
+        // Get X bounds as true pixel boundaries to compute correct pixel coverage:
+        final int bboxx0 = bbox_spminX;
+        final int bboxx1 = bbox_spmaxX;
+
+        // Useful when processing tile line by tile line
+        final int[] _alpha = alphaLine;
+
+        // local vars (performance):
+        final double[] _pts = pts;
+        final int _numPts = numPts;
+        final int _botIdx = botIdx;
+
+        final int _boundsMinY = boundsMinY;
+        final int _boundsMaxY = boundsMaxY;
+
+        final int _ALL_BUT_LSB   = ALL_BUT_LSB;
+        final int _ERR_STEP_MAX  = ERR_STEP_MAX;
+
+        final int _SUBPIXEL_LG_POSITIONS_X = subpixLgX;
+        final int _SUBPIXEL_LG_POSITIONS_Y = subpixLgY;
+        final int _SUBPIXEL_MASK_X = subpixMaskX;
+        final int _SUBPIXEL_MASK_Y = subpixMaskY;
+        final int _SUBPIXEL_POSITIONS_X = subpixMaskX + 1;
+
+        final int _MIN_VALUE = Integer.MIN_VALUE;
+        final int _MAX_VALUE = Integer.MAX_VALUE;
+
+        int minX = _MAX_VALUE;
+        int maxX = _MIN_VALUE;
+
+        int y = bbox_spminY;
+        final int ymax = bbox_spmaxY;
+
+        // left chain (increasing vertex indices from the top vertex):
+        int lIdx = topIdx;
+        int lEnd = _MIN_VALUE, lCurx = 0, lErr = 0, lBumpX = 0, lBumpErr = 0;
+        // right chain (decreasing vertex indices from the top vertex):
+        int rIdx = topIdx;
+        int rEnd = _MIN_VALUE, rCurx = 0, rErr = 0, rBumpX = 0, rBumpErr = 0;
+
+        int next, firstCrossing, lastCrossing;
+        int cross, err, x0, x1, tmp, pix_x, pix_xmaxm1, pix_xmax;
+        double xa, ya, xb, yb;
+        double slope, x1_intercept;
+        long x1_fixed_biased, slope_fixed;
+
+        int lastY = -1; // last emited row
+
+        // Iteration on scanlines
+        for (; y < ymax; y++) {
+            // find the left edge crossing this scanline:
+            while ((y >= lEnd) && (lIdx != _botIdx)) {
+                next = lIdx + 2;
+                if (next == _numPts) {
+                    next = 0;
+                }
+                xa = _pts[lIdx    ];
+                ya = _pts[lIdx + 1];
+                xb = _pts[next    ];
+                yb = _pts[next + 1];
+                lIdx = next;
+
+                // see Renderer.addLine():
+                firstCrossing = FloatMath.max(FloatMath.ceil_int(ya), _boundsMinY);
+                lastCrossing  = FloatMath.min(FloatMath.ceil_int(yb), _boundsMaxY);
+
+                if (firstCrossing < lastCrossing) {
+                    lEnd = lastCrossing;
+
+                    // Use double-precision for improved accuracy:
+                    slope = ((double) xa - xb) / ((double) ya - yb);
+                    x1_intercept = xa + (firstCrossing - (double) ya) * slope;
+
+                    x1_fixed_biased = ((long) (POWER_2_TO_32 * x1_intercept))
+                                      + 0x7FFFFFFFL;
+                    lCurx = (((int) (x1_fixed_biased >> 31L)) & _ALL_BUT_LSB);
+                    lErr  = ((int)  x1_fixed_biased) >>> 1;
+
+                    slope_fixed = (long) (POWER_2_TO_32 * slope);
+                    lBumpX   = (((int) (slope_fixed >> 31L)) & _ALL_BUT_LSB);
+                    lBumpErr = ((int)  slope_fixed) >>> 1;
+                }
+            }
+            // find the right edge crossing this scanline:
+            while ((y >= rEnd) && (rIdx != _botIdx)) {
+                next = rIdx - 2;
+                if (next < 0) {
+                    next = _numPts - 2;
+                }
+                xa = _pts[rIdx    ];
+                ya = _pts[rIdx + 1];
+                xb = _pts[next    ];
+                yb = _pts[next + 1];
+                rIdx = next;
+
+                // see Renderer.addLine():
+                firstCrossing = FloatMath.max(FloatMath.ceil_int(ya), _boundsMinY);
+                lastCrossing  = FloatMath.min(FloatMath.ceil_int(yb), _boundsMaxY);
+
+                if (firstCrossing < lastCrossing) {
+                    rEnd = lastCrossing;
+
+                    // Use double-precision for improved accuracy:
+                    slope = ((double) xa - xb) / ((double) ya - yb);
+                    x1_intercept = xa + (firstCrossing - (double) ya) * slope;
+
+                    x1_fixed_biased = ((long) (POWER_2_TO_32 * x1_intercept))
+                                      + 0x7FFFFFFFL;
+                    rCurx = (((int) (x1_fixed_biased >> 31L)) & _ALL_BUT_LSB);
+                    rErr  = ((int)  x1_fixed_biased) >>> 1;
+
+                    slope_fixed = (long) (POWER_2_TO_32 * slope);
+                    rBumpX   = (((int) (slope_fixed >> 31L)) & _ALL_BUT_LSB);
+                    rBumpErr = ((int)  slope_fixed) >>> 1;
+                }
+            }
+
+            // get current crossings and increment x using DDA (fixed point):
+            x0 = lCurx >> 1;
+            lCurx += lBumpX;
+            err = lErr + lBumpErr;
+            // Manual carry handling:
+            lCurx -= ((err >> 30) & _ALL_BUT_LSB);
+            lErr = (err & _ERR_STEP_MAX);
+
+            x1 = rCurx >> 1;
+            rCurx += rBumpX;
+            err = rErr + rBumpErr;
+            rCurx -= ((err >> 30) & _ALL_BUT_LSB);
+            rErr = (err & _ERR_STEP_MAX);
+
+            if (x0 > x1) {
+                tmp = x0;
+                x0 = x1;
+                x1 = tmp;
+            }
+            if (x0 < minX) {
+                minX = x0; // subpixel coordinate
+            }
+            if (x1 > maxX) {
+                maxX = x1; // subpixel coordinate
+            }
+
+            // compute pixel coverages of the span [x0; x1[
+            if (x0 < bboxx0) {
+                x0 = bboxx0;
+            }
+            if (x1 > bboxx1) {
+                x1 = bboxx1;
+            }
+
+            if (x0 < x1) {
+                x0 -= bboxx0; // turn x0, x1 from coords to indices
+                x1 -= bboxx0; // in the alpha array.
+
+                pix_x      =  x0      >> _SUBPIXEL_LG_POSITIONS_X;
+                pix_xmaxm1 = (x1 - 1) >> _SUBPIXEL_LG_POSITIONS_X;
+
+                if (pix_x == pix_xmaxm1) {
+                    // Start and end in same pixel
+                    tmp = (x1 - x0); // number of subpixels
+                    _alpha[pix_x    ] += tmp;
+                    _alpha[pix_x + 1] -= tmp;
+                } else {
+                    tmp = (x0 & _SUBPIXEL_MASK_X);
+                    _alpha[pix_x    ]
+                        += (_SUBPIXEL_POSITIONS_X - tmp);
+                    _alpha[pix_x + 1]
+                        += tmp;
+
+                    pix_xmax = x1 >> _SUBPIXEL_LG_POSITIONS_X;
+
+                    tmp = (x1 & _SUBPIXEL_MASK_X);
+                    _alpha[pix_xmax    ]
+                        -= (_SUBPIXEL_POSITIONS_X - tmp);
+                    _alpha[pix_xmax + 1]
+                        -= tmp;
+                }
+            }
+
+            if ((y & _SUBPIXEL_MASK_Y) == _SUBPIXEL_MASK_Y) {
+                lastY = y >> _SUBPIXEL_LG_POSITIONS_Y;
+
+                // convert subpixel to pixel coordinate within boundaries:
+                minX = FloatMath.max(minX, bboxx0) >> _SUBPIXEL_LG_POSITIONS_X;
+                maxX = FloatMath.min(maxX, bboxx1) >> _SUBPIXEL_LG_POSITIONS_X;
+
+                if (maxX >= minX) {
+                    // note: alpha array will be zeroed by copyAARow()
+                    // +1 because alpha [pix_minX; pix_maxX[
+                    copyAARow(_alpha, lastY, minX, maxX + 1, ac);
+                } else {
+                    ac.clearAlphas(lastY);
+                }
+                minX = _MAX_VALUE;
+                maxX = _MIN_VALUE;
+            }
+        } // scan line iterator
+
+        // Emit final row
+        y--;
+        y >>= _SUBPIXEL_LG_POSITIONS_Y;
+
+        // convert subpixel to pixel coordinate within boundaries:
+        minX = FloatMath.max(minX, bboxx0) >> _SUBPIXEL_LG_POSITIONS_X;
+        maxX = FloatMath.min(maxX, bboxx1) >> _SUBPIXEL_LG_POSITIONS_X;
+
+        if (maxX >= minX) {
+            copyAARow(_alpha, y, minX, maxX + 1, ac);
+        } else if (y != lastY) {
+            ac.clearAlphas(y);
+        }
+    }
+
+    void endRendering() {
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering.start();
+        }
+        final double[] _pts = pts;
+        final int n = numPts;
+
+        if (n < 4) {
+            return; // no edge
+        }
+
+        // edge bounds (see Renderer.addLine()) and top / bottom vertices:
+        int top = 0, bot = 0;
+        double xa, ya, xb, yb, tmp;
+        int firstCrossing, lastCrossing;
+
+        for (int i = 0, next; i < n; i += 2) {
+            xa = _pts[i    ];
+            ya = _pts[i + 1];
+
+            if (ya < _pts[top + 1]) {
+                top = i;
+            } else if (ya > _pts[bot + 1]) {
+                bot = i;
+            }
+
+            next = (i + 2 == n) ? 0 : i + 2;
+            xb = _pts[next    ];
+            yb = _pts[next + 1];
+
+            if (yb < ya) {
+                tmp = ya;
+                ya = yb;
+                yb = tmp;
+                tmp = xa;
+                xa = xb;
+                xb = tmp;
+            }
+            firstCrossing = FloatMath.max(FloatMath.ceil_int(ya), boundsMinY);
+            lastCrossing  = FloatMath.min(FloatMath.ceil_int(yb), boundsMaxY);
+
+            // skip horizontal lines in pixel space and clip edges
+            // out of y range [boundsMinY; boundsMaxY]
+            if (firstCrossing >= lastCrossing) {
+                continue;
+            }
+            if (firstCrossing < edgeMinY) {
+                edgeMinY = firstCrossing;
+            }
+            if (lastCrossing > edgeMaxY) {
+                edgeMaxY = lastCrossing;
+            }
+            if (xa < xb) {
+                if (xa < edgeMinX) {
+                    edgeMinX = xa;
+                }
+                if (xb > edgeMaxX) {
+                    edgeMaxX = xb;
+                }
+            } else {
+                if (xb < edgeMinX) {
+                    edgeMinX = xb;
+                }
+                if (xa > edgeMaxX) {
+                    edgeMaxX = xa;
+                }
+            }
+        }
+        topIdx = top;
+        botIdx = bot;
+
+        if (edgeMinY == Integer.MAX_VALUE) {
+            return; // undefined edges bounds
+        }
+
+        // bounds as half-open intervals
+        final int spminX = FloatMath.max(FloatMath.ceil_int(edgeMinX - 0.5d), boundsMinX);
+        final int spmaxX = FloatMath.min(FloatMath.ceil_int(edgeMaxX - 0.5d), boundsMaxX);
+
+        // edge Min/Max Y are already rounded to subpixels within bounds:
+        final int spminY = edgeMinY;
+        final int spmaxY = edgeMaxY;
+
+        if (DO_LOG_BOUNDS) {
+            MarlinUtils.logInfo("edgesXY = [" + edgeMinX + " ... " + edgeMaxX
+                                + "[ [" + edgeMinY + " ... " + edgeMaxY + "[");
+            MarlinUtils.logInfo("spXY    = [" + spminX + " ... " + spmaxX
+                                + "[ [" + spminY + " ... " + spmaxY + "[");
+        }
+
+        // test clipping for shapes out of bounds
+        if ((spminX >= spmaxX) || (spminY >= spmaxY)) {
+            return;
+        }
+
+        // half open intervals
+        // inclusive:
+        final int pminX =  spminX                >> subpixLgX;
+        // exclusive:
+        final int pmaxX = (spmaxX + subpixMaskX) >> subpixLgX;
+        // inclusive:
+        final int pminY =  spminY                >> subpixLgY;
+        // exclusive:
+        final int pmaxY = (spmaxY + subpixMaskY) >> subpixLgY;
+
+        // store BBox to answer ptg.getBBox():
+        bboxX0 = pminX;
+        bboxX1 = pmaxX;
+        bboxY0 = pminY;
+        bboxY1 = pmaxY;
+
+        // memorize the rendering bounding box:
+        /* note: bbox_spminX and bbox_spmaxX must be pixel boundaries
+           to have correct coverage computation */
+        // inclusive:
+        bbox_spminX = pminX << subpixLgX;
+        // exclusive:
+        bbox_spmaxX = pmaxX << subpixLgX;
+        // inclusive:
+        bbox_spminY = spminY;
+        // exclusive:
+        bbox_spmaxY = spmaxY;
+
+        // Prepare alpha line:
+        // add 2 to better deal with the last pixel in a pixel row.
+        final int width = (pmaxX - pminX) + 2;
+
+        // Useful when processing tile line by tile line
+        if (width > INITIAL_AA_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_alphaline.add(width);
+            }
+            alphaLine = alphaLine_ref.getArray(width);
+        }
+    }
+
+    private int bbox_spminX, bbox_spmaxX, bbox_spminY, bbox_spmaxY;
+
+    public void produceAlphas(final MarlinAlphaConsumer ac) {
+        if (delegate != null) {
+            delegate.produceAlphas(ac);
+            return;
+        }
+        ac.setMaxAlpha(maxAAAlpha);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering_Y.start();
+        }
+
+        // Process all scan lines:
+        _endRendering(ac);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering_Y.stop();
+        }
+    }
+
+    void copyAARow(final int[] alphaRow,
+                   final int pix_y, final int pix_from, final int pix_to,
+                   final MarlinAlphaConsumer ac)
+    {
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_copyAARow.start();
+        }
+        if (DO_STATS) {
+            rdrCtx.stats.stat_cache_rowAA.add(pix_to - pix_from);
+        }
+        ac.setAndClearRelativeAlphas(alphaRow, pix_y, pix_from, pix_to);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_copyAARow.stop();
+        }
+    }
+
+    // output pixel bounding box:
+    int bboxX0, bboxX1, bboxY0, bboxY1;
+
+    @Override
+    public int getOutpixMinX() {
+        return (delegate != null) ? delegate.getOutpixMinX() : bboxX0;
+    }
+
+    @Override
+    public int getOutpixMaxX() {
+        return (delegate != null) ? delegate.getOutpixMaxX() : bboxX1;
+    }
+
+    @Override
+    public int getOutpixMinY() {
+        return (delegate != null) ? delegate.getOutpixMinY() : bboxY0;
+    }
+
+    @Override
+    public int getOutpixMaxY() {
+        return (delegate != null) ? delegate.getOutpixMaxY() : bboxY1;
+    }
+
+    @Override
+    public double getOffsetX() {
+        return 0.5d / subpixScaleX;
+    }
+
+    @Override
+    public double getOffsetY() {
+        return 0.5d / subpixScaleY;
+    }
+}
@@ -26,7 +26,6 @@
 package com.sun.marlin;
 
 import static com.sun.marlin.OffHeapArray.SIZE_INT;
-import sun.misc.Unsafe;
 
 public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
 
@@ -126,6 +125,11 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
     private final IntArrayCache.Reference aux_crossings_ref;
     // aux_edgePtrs ref (dirty)
     private final IntArrayCache.Reference aux_edgePtrs_ref;
+    // radix sort histogram
+    private final int[] radixCounts = new int[RadixSort.RADIX_SIZE];
+    // radix sort, read once per renderer (prism.marlin.useRadixSort) so
+    // merge and radix sorts can be compared:
+    private final boolean useRadixSort = MarlinProperties.isUseRadixSort();
 
 //////////////////////////////////////////////////////////////////////////////
 //  EDGE LIST
@@ -388,7 +392,7 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
         }
 
 
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+        final Object _base   = _edges.base; // null if off-heap
         final long SIZE_INT = 4L;
         long addr   = _edges.address + edgePtr;
 
@@ -420,18 +424,18 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                                      + 0x7FFFFFFFL;
         // curx:
         // last bit corresponds to the orientation
-        _unsafe.putInt(addr, (((int) (x1_fixed_biased >> 31L)) & ALL_BUT_LSB) | or);
+        MemoryAccess.putInt(_base, addr, (((int) (x1_fixed_biased >> 31L)) & ALL_BUT_LSB) | or);
         addr += SIZE_INT;
-        _unsafe.putInt(addr,  ((int)  x1_fixed_biased) >>> 1);
+        MemoryAccess.putInt(_base, addr,  ((int)  x1_fixed_biased) >>> 1);
         addr += SIZE_INT;
 
         // inlined scalb(slope, 32):
         final long slope_fixed = (long) (POWER_2_TO_32 * slope);
 
         // last bit set to 0 to keep orientation:
-        _unsafe.putInt(addr, (((int) (slope_fixed >> 31L)) & ALL_BUT_LSB));
+        MemoryAccess.putInt(_base, addr, (((int) (slope_fixed >> 31L)) & ALL_BUT_LSB));
         addr += SIZE_INT;
-        _unsafe.putInt(addr,  ((int)  slope_fixed) >>> 1);
+        MemoryAccess.putInt(_base, addr,  ((int)  slope_fixed) >>> 1);
         addr += SIZE_INT;
 
         final int[] _edgeBuckets      = edgeBuckets;
@@ -444,10 +448,10 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
         final int bucketIdx = firstCrossing - _boundsMinY;
 
         // pointer from bucket
-        _unsafe.putInt(addr, _edgeBuckets[bucketIdx]);
+        MemoryAccess.putInt(_base, addr, _edgeBuckets[bucketIdx]);
         addr += SIZE_INT;
         // y max (exclusive)
-        _unsafe.putInt(addr,  lastCrossing);
+        MemoryAccess.putInt(_base, addr,  lastCrossing);
 
         // Update buckets:
         // directly the edge struct "pointer"
@@ -733,6 +737,9 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
         int[] _aux_crossings = this.aux_crossings;
         int[] _aux_edgePtrs  = this.aux_edgePtrs;
 
+        // radix sort histogram:
+        final int[] _radixCounts = radixCounts;
+
         // copy constants:
         final long _OFF_ERROR    = OFF_ERROR;
         final long _OFF_BUMP_X   = OFF_BUMP_X;
@@ -745,7 +752,7 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
         final int _ERR_STEP_MAX  = ERR_STEP_MAX;
 
         // unsafe I/O:
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+        final Object _base   = _edges.base; // null if off-heap
         final long    addr0  = _edges.address;
         long addr;
 
@@ -777,6 +784,9 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
         int low, high, mid, prevNumCrossings;
         boolean useBinarySearch;
 
+        // unsorted crossings in the previous scanline (radix sort heuristic):
+        int numUnsorted = 0;
+
         final int[] _blkFlags = blkFlags;
         final int _BLK_SIZE_LG = BLOCK_SIZE_LG;
         final int _BLK_SIZE = BLOCK_SIZE;
@@ -816,7 +826,7 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                         // get the pointer to the edge
                         ecur = _edgePtrs[i];
                         // random access so use unsafe:
-                        if (_unsafe.getInt(addr + ecur) > y) {
+                        if (MemoryAccess.getInt(_base, addr + ecur) > y) {
                             _edgePtrs[newCount++] = ecur;
                         }
                     }
@@ -868,7 +878,7 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                         // store the pointer to the edge
                         _edgePtrs[numCrossings] = ecur;
                         // random access so use unsafe:
-                        ecur = _unsafe.getInt(addr + ecur);
+                        ecur = MemoryAccess.getInt(_base, addr + ecur);
                     }
 
                     if (crossingsLen < numCrossings) {
@@ -910,6 +920,8 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                  * for newly added edges + final merge pass.
                  */
                 if ((ptrLen < 10) || (numCrossings < 40)) {
+                    numUnsorted = 0;
+
                     if (DO_STATS) {
                         rdrCtx.stats.hist_rdr_crossings.add(numCrossings);
                         rdrCtx.stats.hist_rdr_crossings_adds.add(ptrLen);
@@ -937,22 +949,22 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                         addr = addr0 + ecur; // ecur + OFF_F_CURX
 
                         // get current crossing:
-                        curx = _unsafe.getInt(addr);
+                        curx = MemoryAccess.getInt(_base, addr);
 
                         // update crossing with orientation at last bit:
                         cross = curx;
 
                         // Increment x using DDA (fixed point):
-                        curx += _unsafe.getInt(addr + _OFF_BUMP_X);
+                        curx += MemoryAccess.getInt(_base, addr + _OFF_BUMP_X);
 
                         // Increment error:
-                        err  =  _unsafe.getInt(addr + _OFF_ERROR)
-                              + _unsafe.getInt(addr + _OFF_BUMP_ERR);
+                        err  =  MemoryAccess.getInt(_base, addr + _OFF_ERROR)
+                              + MemoryAccess.getInt(_base, addr + _OFF_BUMP_ERR);
 
                         // Manual carry handling:
                         // keep sign and carry bit only and ignore last bit (preserve orientation):
-                        _unsafe.putInt(addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
-                        _unsafe.putInt(addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
+                        MemoryAccess.putInt(_base, addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
+                        MemoryAccess.putInt(_base, addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
 
                         if (DO_STATS) {
                             rdrCtx.stats.stat_rdr_crossings_updates.add(numCrossings);
@@ -963,6 +975,7 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                             if (DO_STATS) {
                                 rdrCtx.stats.stat_rdr_crossings_sorts.add(i);
                             }
+                            numUnsorted++;
 
                             /* use binary search for newly added edges
                                in crossings if arrays are large enough */
@@ -1009,7 +1022,62 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                             _crossings[i] = lastCross = cross;
                         }
                     }
+                } else if (useRadixSort
+                        && (numCrossings >= RadixSort.RADIX_SORT_THRESHOLD)
+                        && ((ptrLen + numUnsorted) * RadixSort.RADIX_SORT_RATIO
+                            >= numCrossings))
+                {
+                    // many new edges or crossings out of order
+                    // (dense hatching): use radix sort (linear time)
+                    if (DO_STATS) {
+                        rdrCtx.stats.stat_rdr_crossings_rsorts.add(numCrossings);
+                    }
+                    numUnsorted = 0;
+                    lastCross = _MIN_VALUE;
+
+                    for (i = 0; i < numCrossings; i++) {
+                        // get the pointer to the edge
+                        ecur = _edgePtrs[i];
+
+                        // random access so use unsafe:
+                        addr = addr0 + ecur; // ecur + OFF_F_CURX
+
+                        // get current crossing:
+                        curx = MemoryAccess.getInt(_base, addr);
+
+                        // update crossing with orientation at last bit:
+                        cross = curx;
+
+                        // Increment x using DDA (fixed point):
+                        curx += MemoryAccess.getInt(_base, addr + _OFF_BUMP_X);
+
+                        // Increment error:
+                        err  =  MemoryAccess.getInt(_base, addr + _OFF_ERROR)
+                              + MemoryAccess.getInt(_base, addr + _OFF_BUMP_ERR);
+
+                        // Manual carry handling:
+                        // keep sign and carry bit only and ignore last bit (preserve orientation):
+                        MemoryAccess.putInt(_base, addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
+                        MemoryAccess.putInt(_base, addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
+
+                        if (DO_STATS) {
+                            rdrCtx.stats.stat_rdr_crossings_updates.add(numCrossings);
+                        }
+
+                        if (cross < lastCross) {
+                            numUnsorted++;
+                        }
+                        // simply store crossing as edgePtrs is in-place:
+                        _crossings[i] = lastCross = cross;
+                    }
+
+                    // sort crossings and edge pointers using auxiliary arrays:
+                    RadixSort.radixSortNoCopy(_crossings,     _edgePtrs,
+                                              _aux_crossings, _aux_edgePtrs,
+                                              _radixCounts,   numCrossings);
                 } else {
+                    numUnsorted = 0;
+
                     if (DO_STATS) {
                         rdrCtx.stats.stat_rdr_crossings_msorts.add(numCrossings);
                         rdrCtx.stats.hist_rdr_crossings_ratio
@@ -1037,22 +1105,22 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                         addr = addr0 + ecur; // ecur + OFF_F_CURX
 
                         // get current crossing:
-                        curx = _unsafe.getInt(addr);
+                        curx = MemoryAccess.getInt(_base, addr);
 
                         // update crossing with orientation at last bit:
                         cross = curx;
 
                         // Increment x using DDA (fixed point):
-                        curx += _unsafe.getInt(addr + _OFF_BUMP_X);
+                        curx += MemoryAccess.getInt(_base, addr + _OFF_BUMP_X);
 
                         // Increment error:
-                        err  =  _unsafe.getInt(addr + _OFF_ERROR)
-                              + _unsafe.getInt(addr + _OFF_BUMP_ERR);
+                        err  =  MemoryAccess.getInt(_base, addr + _OFF_ERROR)
+                              + MemoryAccess.getInt(_base, addr + _OFF_BUMP_ERR);
 
                         // Manual carry handling:
                         // keep sign and carry bit only and ignore last bit (preserve orientation):
-                        _unsafe.putInt(addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
-                        _unsafe.putInt(addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
+                        MemoryAccess.putInt(_base, addr,               curx - ((err >> 30) & _ALL_BUT_LSB));
+                        MemoryAccess.putInt(_base, addr + _OFF_ERROR, (err & _ERR_STEP_MAX));
 
                         if (DO_STATS) {
                             rdrCtx.stats.stat_rdr_crossings_updates.add(numCrossings);
@@ -1067,6 +1135,7 @@ public final class DRendererNoAA implements DMarlinRenderer, MarlinConst {
                             if (DO_STATS) {
                                 rdrCtx.stats.stat_rdr_crossings_sorts.add(i);
                             }
+                            numUnsorted++;
 
                             // (straight) insertion sort of crossings:
                             j = i - 1;
@@ -0,0 +1,1061 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.util.Arrays;
+
+/**
+ * Anti-aliasing renderer specialized for thin strokes (hairlines): the
+ * flattened path segments are rasterized directly as thin bands of the line
+ * width (1 device pixel or less) instead of generating the stroke outline
+ * with the Stroker and filling it.
+ *
+ * Every segment is a band (parallelogram) centered on the segment and cut
+ * along its major axis: the coverage of each pixel is the exact area of its
+ * intersection with the band (analytic coverage), so no subpixel sampling is
+ * needed. Bands are extended by half the line width at joins and at the open
+ * ends of subpaths having square or round caps; overlapping bands are
+ * combined using the maximum coverage (joins do not accumulate coverage).
+ */
+public final class DRendererThinLine implements DMarlinRenderer, MarlinConst {
+
+    static final boolean DISABLE_RENDER = false;
+
+    // maximum line width in device pixels:
+    public static final double MAX_LINE_WIDTH = 1.0d;
+
+    private static final double SQRT_2 = Math.sqrt(2.0d);
+
+    // no sampling offset (pixel area):
+    private static final double RDR_OFFSET_X = 0.0d;
+    private static final double RDR_OFFSET_Y = 0.0d;
+
+    // edge record (double values):
+    // start and end points ordered along the major axis, slope (minor / major),
+    // half thickness along the minor axis, bottom y and major axis (1 if y)
+    private static final int OFF_X0    = 0;
+    private static final int OFF_Y0    = 1;
+    private static final int OFF_X1    = 2;
+    private static final int OFF_Y1    = 3;
+    private static final int OFF_SLOPE = 4;
+    private static final int OFF_HALF  = 5;
+    private static final int OFF_YMAX  = 6;
+    private static final int OFF_MAJOR = 7;
+
+    // size of one edge in doubles
+    private static final int SIZEOF_EDGE = 8;
+
+    // coverage scale:
+    private static final double ALPHA_SCALE = MAX_EXACT_ALPHA;
+
+    // clip margin (pixels) around the bounds:
+    private static final double CLIP_MARGIN = 2.0d;
+
+    // curve break into lines
+    // cubic error in subpixels to decrement step
+    private static final double CUB_DEC_ERR_SUBPIX
+        = MarlinProperties.getCubicDecD2() * (1.0d / 8.0d); // 1 pixel
+    // cubic error in subpixels to increment step
+    private static final double CUB_INC_ERR_SUBPIX
+        = MarlinProperties.getCubicIncD1() * (1.0d / 8.0d); // 0.4 pixel
+
+    // cubic bind length to decrement step
+    public static final double CUB_DEC_BND
+        = 8.0d * CUB_DEC_ERR_SUBPIX;
+    // cubic bind length to increment step
+    public static final double CUB_INC_BND
+        = 8.0d * CUB_INC_ERR_SUBPIX;
+
+    // cubic countlg
+    public static final int CUB_COUNT_LG = 2;
+    // cubic count = 2^countlg
+    private static final int CUB_COUNT = 1 << CUB_COUNT_LG;
+    // cubic count^2 = 4^countlg
+    private static final int CUB_COUNT_2 = 1 << (2 * CUB_COUNT_LG);
+    // cubic count^3 = 8^countlg
+    private static final int CUB_COUNT_3 = 1 << (3 * CUB_COUNT_LG);
+    // cubic dt = 1 / count
+    private static final double CUB_INV_COUNT = 1.0d / CUB_COUNT;
+    // cubic dt^2 = 1 / count^2 = 1 / 4^countlg
+    private static final double CUB_INV_COUNT_2 = 1.0d / CUB_COUNT_2;
+    // cubic dt^3 = 1 / count^3 = 1 / 8^countlg
+    private static final double CUB_INV_COUNT_3 = 1.0d / CUB_COUNT_3;
+
+    // quad break into lines
+    // quadratic error in subpixels
+    private static final double QUAD_DEC_ERR_SUBPIX
+        = MarlinProperties.getQuadDecD2() * (1.0d / 8.0d); // 0.5 pixel
+
+    // quadratic bind length to decrement step
+    public static final double QUAD_DEC_BND
+        = 8.0d * QUAD_DEC_ERR_SUBPIX;
+
+//////////////////////////////////////////////////////////////////////////////
+//  EDGE LIST
+//////////////////////////////////////////////////////////////////////////////
+    private int edgeMinY = Integer.MAX_VALUE;
+    private int edgeMaxY = Integer.MIN_VALUE;
+    private double edgeMinX = Double.POSITIVE_INFINITY;
+    private double edgeMaxX = Double.NEGATIVE_INFINITY;
+
+    // number of edges
+    private int edgeCount;
+    // edge records (dirty)
+    private double[] edges;
+    // next edge index + 1 in the same bucket (dirty)
+    private int[] edgeNext;
+
+    // first edge index + 1 per pixel row (clean)
+    private int[] edgeBuckets;
+    // used range for edgeBuckets
+    private int buckets_minY;
+    private int buckets_maxY;
+
+    // active edge indices (dirty)
+    private int[] edgePtrs;
+
+    // edges ref (dirty)
+    private final DoubleArrayCache.Reference edges_ref;
+    // edgeNext ref (dirty)
+    private final IntArrayCache.Reference edgeNext_ref;
+    // edgeBuckets ref (clean)
+    private final IntArrayCache.Reference edgeBuckets_ref;
+    // edgePtrs ref (dirty)
+    private final IntArrayCache.Reference edgePtrs_ref;
+
+    // Flattens using adaptive forward differencing. This only carries out
+    // one iteration of the AFD loop. All it does is update AFD variables (i.e.
+    // X0, Y0, D*[X|Y], COUNT; not variables used for computing scanline crossings).
+    private void quadBreakIntoLinesAndAdd(double x0, double y0,
+                                          final DCurve c,
+                                          final double x2, final double y2)
+    {
+        int count = 1; // dt = 1 / count
+
+        // maximum(ddX|Y) = norm(dbx, dby) * dt^2 (= 1)
+        double maxDD = Math.abs(c.dbx) + Math.abs(c.dby);
+
+        final double _DEC_BND = QUAD_DEC_BND;
+
+        while (maxDD >= _DEC_BND) {
+            // divide step by half:
+            maxDD /= 4.0d; // error divided by 2^2 = 4
+
+            count <<= 1;
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_quadBreak_dec.add(count);
+            }
+        }
+
+        int nL = 0; // line count
+        if (count > 1) {
+            final double icount = 1.0d / count; // dt
+            final double icount2 = icount * icount; // dt^2
+
+            final double ddx = c.dbx * icount2;
+            final double ddy = c.dby * icount2;
+            double dx = c.bx * icount2 + c.cx * icount;
+            double dy = c.by * icount2 + c.cy * icount;
+
+            while (--count > 0) {
+                x0 += dx;
+                dx += ddx;
+                y0 += dy;
+                dy += ddy;
+
+                addVertex(x0, y0);
+
+                if (DO_STATS) { nL++; }
+            }
+        }
+        addVertex(x2, y2);
+
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_quadBreak.add(nL + 1);
+        }
+    }
+
+    // x0, y0 and x3,y3 are the endpoints of the curve. We could compute these
+    // using c.xat(0),c.yat(0) and c.xat(1),c.yat(1), but this might introduce
+    // numerical errors, and our callers already have the exact values.
+    private void curveBreakIntoLinesAndAdd(final double x0, final double y0,
+                                           final DCurve c,
+                                           final double x3, final double y3)
+    {
+        int count           = CUB_COUNT;
+        final double icount  = CUB_INV_COUNT;   // dt
+        final double icount2 = CUB_INV_COUNT_2; // dt^2
+        final double icount3 = CUB_INV_COUNT_3; // dt^3
+
+        // the dx and dy refer to forward differencing variables, not the last
+        // coefficients of the "points" polynomial
+        double dddx, dddy, ddx, ddy, dx, dy;
+        dddx = 2.0d * c.dax * icount3;
+        dddy = 2.0d * c.day * icount3;
+        ddx = dddx + c.dbx * icount2;
+        ddy = dddy + c.dby * icount2;
+        dx = c.ax * icount3 + c.bx * icount2 + c.cx * icount;
+        dy = c.ay * icount3 + c.by * icount2 + c.cy * icount;
+
+        // we use x1, y1 to walk the line
+        double x1 = x0, y1 = y0;
+        int nL = 0; // line count
+
+        final double _DEC_BND = CUB_DEC_BND;
+        final double _INC_BND = CUB_INC_BND;
+
+        while (count > 0) {
+            // divide step by half:
+            while (Math.abs(ddx) + Math.abs(ddy) >= _DEC_BND) {
+                dddx /= 8.0d;
+                dddy /= 8.0d;
+                ddx = ddx / 4.0d - dddx;
+                ddy = ddy / 4.0d - dddy;
+                dx = (dx - ddx) / 2.0d;
+                dy = (dy - ddy) / 2.0d;
+
+                count <<= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_dec.add(count);
+                }
+            }
+
+            // double step:
+            // can only do this on even "count" values, because we must divide count by 2
+            while (count % 2 == 0
+                   && Math.abs(dx) + Math.abs(dy) <= _INC_BND)
+            {
+                dx = 2.0d * dx + ddx;
+                dy = 2.0d * dy + ddy;
+                ddx = 4.0d * (ddx + dddx);
+                ddy = 4.0d * (ddy + dddy);
+                dddx *= 8.0d;
+                dddy *= 8.0d;
+
+                count >>= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_inc.add(count);
+                }
+            }
+            if (--count > 0) {
+                x1 += dx;
+                dx += ddx;
+                ddx += dddx;
+                y1 += dy;
+                dy += ddy;
+                ddy += dddy;
+            } else {
+                x1 = x3;
+                y1 = y3;
+            }
+
+            addVertex(x1, y1);
+
+            if (DO_STATS) { nL++; }
+        }
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_curveBreak.add(nL);
+        }
+    }
+
+    /**
+     * Add the next vertex of the current subpath: segments are kept pending
+     * until the following vertex (or the end of the subpath) is known to
+     * extend their ends at joins or caps
+     */
+    private void addVertex(final double x1, final double y1) {
+        final double xp = x0;
+        final double yp = y0;
+
+        if ((x1 == xp) && (y1 == yp)) {
+            // skip zero-length segment (may draw a dot):
+            subpathDrawn = true;
+            return;
+        }
+        switch (segCount) {
+            case 0:
+                // first segment (start extended by closePath or caps):
+                fx0 = xp;
+                fy0 = yp;
+                fx1 = x1;
+                fy1 = y1;
+                break;
+            case 1:
+                break;
+            default:
+                // flush the previous segment (joins at both ends):
+                addSegment(lx0, ly0, lx1, ly1, true, true);
+        }
+        if (segCount != 0) {
+            lx0 = xp;
+            ly0 = yp;
+            lx1 = x1;
+            ly1 = y1;
+        }
+        segCount++;
+        x0 = x1;
+        y0 = y1;
+    }
+
+    /**
+     * Flush the pending segments of the current subpath
+     * @param closed true if the subpath was closed (join at its start point)
+     */
+    private void endSubpath(final boolean closed) {
+        final boolean ext = closed || capExtend;
+
+        switch (segCount) {
+            case 0:
+                if (subpathDrawn && capExtend) {
+                    // zero-length subpath: draw a dot (square)
+                    addSegment(x0 - halfWidth, y0, x0 + halfWidth, y0,
+                               false, false);
+                }
+                break;
+            case 1:
+                addSegment(fx0, fy0, fx1, fy1, ext, ext);
+                break;
+            default:
+                addSegment(fx0, fy0, fx1, fy1, ext, true);
+                addSegment(lx0, ly0, lx1, ly1, true, ext);
+        }
+        segCount = 0;
+        subpathDrawn = false;
+    }
+
+    private void addSegment(double xa, double ya, double xb, double yb,
+                            final boolean extStart, final boolean extEnd)
+    {
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_addLine.add(1);
+        }
+        double dx = xb - xa;
+        double dy = yb - ya;
+
+        if (extStart || extEnd) {
+            // extend ends by half the line width along the segment:
+            final double len = Math.sqrt(dx * dx + dy * dy);
+            final double ex = dx * halfWidth / len;
+            final double ey = dy * halfWidth / len;
+
+            if (extStart) {
+                xa -= ex;
+                ya -= ey;
+            }
+            if (extEnd) {
+                xb += ex;
+                yb += ey;
+            }
+            dx = xb - xa;
+            dy = yb - ya;
+        }
+
+        // clip the segment to the bounds (with margin) as coordinates may be
+        // very large (Liang-Barsky):
+        double t0 = 0.0d, t1 = 1.0d, ta, tb, tmp;
+
+        if (dx != 0.0d) {
+            ta = (clipMinX - xa) / dx;
+            tb = (clipMaxX - xa) / dx;
+            if (dx < 0.0d) {
+                tmp = ta;
+                ta = tb;
+                tb = tmp;
+            }
+            if (ta > t0) {
+                t0 = ta;
+            }
+            if (tb < t1) {
+                t1 = tb;
+            }
+        } else if (!(xa >= clipMinX && xa <= clipMaxX)) {
+            // out of bounds (and NaN):
+            return;
+        }
+        if (dy != 0.0d) {
+            ta = (clipMinY - ya) / dy;
+            tb = (clipMaxY - ya) / dy;
+            if (dy < 0.0d) {
+                tmp = ta;
+                ta = tb;
+                tb = tmp;
+            }
+            if (ta > t0) {
+                t0 = ta;
+            }
+            if (tb < t1) {
+                t1 = tb;
+            }
+        } else if (!(ya >= clipMinY && ya <= clipMaxY)) {
+            // out of bounds (and NaN):
+            return;
+        }
+        if (!(t0 < t1)) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_addLine_skip.add(1);
+            }
+            return;
+        }
+        if (t1 < 1.0d) {
+            xb = xa + t1 * dx;
+            yb = ya + t1 * dy;
+        }
+        if (t0 > 0.0d) {
+            xa += t0 * dx;
+            ya += t0 * dy;
+        }
+        dx = xb - xa;
+        dy = yb - ya;
+
+        // band extent (pixels):
+        final boolean majorY = (Math.abs(dy) > Math.abs(dx));
+        final double slope, half, bminX, bmaxX, bminY, bmaxY;
+
+        if (majorY) {
+            if (dy < 0.0d) {
+                tmp = xa; xa = xb; xb = tmp;
+                tmp = ya; ya = yb; yb = tmp;
+            }
+            slope = (xb - xa) / (yb - ya);
+            half  = halfWidth * Math.sqrt(1.0d + slope * slope);
+
+            bminX = ((xa < xb) ? xa : xb) - half;
+            bmaxX = ((xa < xb) ? xb : xa) + half;
+            bminY = ya;
+            bmaxY = yb;
+        } else {
+            if (dx < 0.0d) {
+                tmp = xa; xa = xb; xb = tmp;
+                tmp = ya; ya = yb; yb = tmp;
+            }
+            slope = (yb - ya) / (xb - xa);
+            half  = halfWidth * Math.sqrt(1.0d + slope * slope);
+
+            bminX = xa;
+            bmaxX = xb;
+            bminY = ((ya < yb) ? ya : yb) - half;
+            bmaxY = ((ya < yb) ? yb : ya) + half;
+        }
+
+        // pixel rows covered by the band within boundaries (half-open):
+        final int firstRow = FloatMath.max(FloatMath.floor_int(bminY), boundsMinY);
+        final int lastRow  = FloatMath.min(FloatMath.ceil_int(bmaxY),  boundsMaxY);
+
+        if (firstRow >= lastRow) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_addLine_skip.add(1);
+            }
+            return;
+        }
+
+        if (firstRow < edgeMinY) {
+            edgeMinY = firstRow;
+        }
+        if (lastRow > edgeMaxY) {
+            edgeMaxY = lastRow;
+        }
+        if (bminX < edgeMinX) {
+            edgeMinX = bminX;
+        }
+        if (bmaxX > edgeMaxX) {
+            edgeMaxX = bmaxX;
+        }
+
+        final int n = edgeCount;
+        final int off = n * SIZEOF_EDGE;
+
+        if (edges.length < off + SIZEOF_EDGE) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_edges_resizes.add(off + SIZEOF_EDGE);
+            }
+            edges = edges_ref.widenArray(edges, off, off + SIZEOF_EDGE);
+        }
+        if (edgeNext.length <= n) {
+            edgeNext = edgeNext_ref.widenArray(edgeNext, n, n + 1);
+        }
+
+        final double[] _edges = edges;
+        _edges[off + OFF_X0   ] = xa;
+        _edges[off + OFF_Y0   ] = ya;
+        _edges[off + OFF_X1   ] = xb;
+        _edges[off + OFF_Y1   ] = yb;
+        _edges[off + OFF_SLOPE] = slope;
+        _edges[off + OFF_HALF ] = half;
+        _edges[off + OFF_YMAX ] = bmaxY;
+        _edges[off + OFF_MAJOR] = (majorY) ? 1.0d : 0.0d;
+
+        // each bucket is a linked list of edges starting in the same row:
+        final int bucketIdx = firstRow - boundsMinY;
+
+        edgeNext[n] = edgeBuckets[bucketIdx];
+        edgeBuckets[bucketIdx] = n + 1;
+
+        edgeCount = n + 1;
+    }
+
+// END EDGE LIST
+//////////////////////////////////////////////////////////////////////////////
+
+    // Bounds of the drawing region, at pixel precision.
+    private int boundsMinX, boundsMinY, boundsMaxX, boundsMaxY;
+    // Clip rectangle (bounds and margin)
+    private double clipMinX, clipMinY, clipMaxX, clipMaxY;
+
+    // Half line width (pixels)
+    private double halfWidth = 0.5d * MAX_LINE_WIDTH;
+    // true if open subpath ends are extended (square or round caps)
+    private boolean capExtend = false;
+
+    // Current drawing position, i.e., final point of last segment
+    private double x0, y0;
+
+    // Position of most recent 'moveTo' command
+    private double sx0, sy0;
+
+    // pending segments of the current subpath (first and last)
+    private int segCount;
+    private double fx0, fy0, fx1, fy1;
+    private double lx0, ly0, lx1, ly1;
+    // true if the current subpath has a zero-length segment
+    private boolean subpathDrawn;
+
+    // per-thread renderer context
+    final DRendererContext rdrCtx;
+    // dirty curve
+    private final DCurve curve;
+
+    // clean alpha array (zero filled)
+    private int[] alphaLine;
+
+    // alphaLine ref (clean)
+    private final IntArrayCache.Reference alphaLine_ref;
+
+    // coverage row (kept zero filled between rows)
+    private double[] coverage;
+
+    // coverage ref (dirty)
+    private final DoubleArrayCache.Reference coverage_ref;
+
+    // touched range in the current row:
+    private int covMinX, covMaxX;
+
+    DRendererThinLine(final DRendererContext rdrCtx) {
+        this.rdrCtx = rdrCtx;
+        this.curve = rdrCtx.curve;
+
+        edgeBuckets_ref = rdrCtx.rdrMem.edgeBuckets_ref;
+        edgeBuckets     = edgeBuckets_ref.initial;
+
+        edgePtrs_ref = rdrCtx.rdrMem.edgePtrs_ref;
+        edgePtrs     = edgePtrs_ref.initial;
+
+        alphaLine_ref = rdrCtx.rdrMem.alphaLine_ref;
+        alphaLine     = alphaLine_ref.initial;
+
+        edges_ref    = rdrCtx.newDirtyDoubleArrayRef(INITIAL_EDGES_COUNT * SIZEOF_EDGE);
+        edges        = edges_ref.initial;
+        edgeNext_ref = rdrCtx.newDirtyIntArrayRef(INITIAL_EDGES_COUNT);
+        edgeNext     = edgeNext_ref.initial;
+
+        coverage_ref = rdrCtx.newDirtyDoubleArrayRef(INITIAL_AA_ARRAY);
+        coverage     = coverage_ref.initial;
+    }
+
+    public DRendererThinLine init(final int pix_boundsX, final int pix_boundsY,
+                  final int pix_boundsWidth, final int pix_boundsHeight,
+                  final int windingRule)
+    {
+        // the winding rule does not matter (bands are combined by maximum)
+
+        // bounds as half-open intervals: minX <= x < maxX and minY <= y < maxY
+        this.boundsMinX = pix_boundsX;
+        this.boundsMaxX = pix_boundsX + pix_boundsWidth;
+        this.boundsMinY = pix_boundsY;
+        this.boundsMaxY = pix_boundsY + pix_boundsHeight;
+
+        this.clipMinX = boundsMinX - CLIP_MARGIN;
+        this.clipMaxX = boundsMaxX + CLIP_MARGIN;
+        this.clipMinY = boundsMinY - CLIP_MARGIN;
+        this.clipMaxY = boundsMaxY + CLIP_MARGIN;
+
+        if (DO_LOG_BOUNDS) {
+            MarlinUtils.logInfo("boundsXY = [" + boundsMinX + " ... "
+                                + boundsMaxX + "[ [" + boundsMinY + " ... "
+                                + boundsMaxY + "[");
+        }
+
+        // +1 for last row (exclusive)
+        final int edgeBucketsLength = (boundsMaxY - boundsMinY) + 1;
+
+        if (edgeBucketsLength > INITIAL_BUCKET_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_edgeBuckets
+                    .add(edgeBucketsLength);
+            }
+            edgeBuckets = edgeBuckets_ref.getArray(edgeBucketsLength);
+        }
+
+        edgeMinY = Integer.MAX_VALUE;
+        edgeMaxY = Integer.MIN_VALUE;
+        edgeMinX = Double.POSITIVE_INFINITY;
+        edgeMaxX = Double.NEGATIVE_INFINITY;
+
+        // reset used mark:
+        edgeCount = 0;
+
+        // reset subpath:
+        segCount = 0;
+        subpathDrawn = false;
+
+        // reset stroke:
+        halfWidth = 0.5d * MAX_LINE_WIDTH;
+        capExtend = false;
+
+        // reset bbox:
+        bboxX0 = 0;
+        bboxX1 = 0;
+
+        return this; // fluent API
+    }
+
+    /**
+     * Set the stroke attributes (device space)
+     * @param lineWidth line width in pixels (up to MAX_LINE_WIDTH)
+     * @param cap end cap (CAP_BUTT, CAP_ROUND or CAP_SQUARE)
+     * @return this instance (path consumer)
+     */
+    public DRendererThinLine initStroke(final double lineWidth, final int cap) {
+        this.halfWidth = 0.5d * lineWidth;
+        this.capExtend = (cap != CAP_BUTT);
+
+        if (rdrCtx.doClip) {
+            // Adjust the clipping rectangle (used by the Dasher) as the
+            // Stroker does: bands are extended by half the line width at
+            // joins and caps, so their corners lie within halfWidth * sqrt(2):
+            final double margin = halfWidth * SQRT_2 + 1e-3d;
+
+            // adjust clip rectangle (ymin, ymax, xmin, xmax):
+            final double[] _clipRect = rdrCtx.clipRect;
+            _clipRect[0] -= margin;
+            _clipRect[1] += margin;
+            _clipRect[2] -= margin;
+            _clipRect[3] += margin;
+        }
+        return this; // fluent API
+    }
+
+    /**
+     * Disposes this renderer and recycle it clean up before reusing this instance
+     */
+    public void dispose() {
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_edges_count.add(edgeCount);
+            rdrCtx.stats.hist_rdr_edges_count.add(edgeCount);
+        }
+        // Return arrays:
+        edges    = edges_ref.putArray(edges);
+        edgeNext = edgeNext_ref.putArray(edgeNext);
+        edgePtrs = edgePtrs_ref.putArray(edgePtrs);
+        coverage = coverage_ref.putArray(coverage);
+
+        alphaLine = alphaLine_ref.putArray(alphaLine, 0, 0); // already zero filled
+
+        if (edgeMinY != Integer.MAX_VALUE) {
+            // if context is maked as DIRTY:
+            if (rdrCtx.dirty) {
+                // may happen if an exception if thrown in the pipeline processing:
+                // clear completely buckets arrays:
+                buckets_minY = 0;
+                buckets_maxY = boundsMaxY - boundsMinY;
+            }
+            // clear only used part
+            edgeBuckets = edgeBuckets_ref.putArray(edgeBuckets, buckets_minY,
+                                                                buckets_maxY);
+        } else {
+            // unused arrays
+            edgeBuckets = edgeBuckets_ref.putArray(edgeBuckets, 0, 0);
+        }
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering.stop();
+        }
+    }
+
+    @Override
+    public void moveTo(final double pix_x0, final double pix_y0) {
+        endSubpath(false);
+        this.sx0 = pix_x0;
+        this.sy0 = pix_y0;
+        this.x0 = pix_x0;
+        this.y0 = pix_y0;
+    }
+
+    @Override
+    public void lineTo(final double pix_x1, final double pix_y1) {
+        addVertex(pix_x1, pix_y1);
+    }
+
+    @Override
+    public void curveTo(final double pix_x1, final double pix_y1,
+                        final double pix_x2, final double pix_y2,
+                        final double pix_x3, final double pix_y3)
+    {
+        curve.set(x0, y0, pix_x1, pix_y1, pix_x2, pix_y2, pix_x3, pix_y3);
+        curveBreakIntoLinesAndAdd(x0, y0, curve, pix_x3, pix_y3);
+    }
+
+    @Override
+    public void quadTo(final double pix_x1, final double pix_y1,
+                       final double pix_x2, final double pix_y2)
+    {
+        curve.set(x0, y0, pix_x1, pix_y1, pix_x2, pix_y2);
+        quadBreakIntoLinesAndAdd(x0, y0, curve, pix_x2, pix_y2);
+    }
+
+    @Override
+    public void closePath() {
+        addVertex(sx0, sy0);
+        endSubpath(true);
+    }
+
+    @Override
+    public void pathDone() {
+        endSubpath(false);
+
+        // call endRendering() to determine the boundaries:
+        endRendering();
+    }
+
+    /**
+     * Return the mean value of clamp(v, 0, 1) for v varying linearly from a
+     * to b
+     */
+    private static double meanClamp(final double a, final double b) {
+        final double d = b - a;
+        if (Math.abs(d) < 1e-3d) {
+            final double m = 0.5d * (a + b);
+            return (m <= 0.0d) ? 0.0d : ((m >= 1.0d) ? 1.0d : m);
+        }
+        return (integralClamp(b) - integralClamp(a)) / d;
+    }
+
+    /**
+     * Return the integral of clamp(v, 0, 1) from 0 to v
+     */
+    private static double integralClamp(final double v) {
+        if (v <= 0.0d) {
+            return 0.0d;
+        }
+        if (v >= 1.0d) {
+            return v - 0.5d;
+        }
+        return 0.5d * v * v;
+    }
+
+    /**
+     * Set the coverage of the given edge (band) into the pixels of the given
+     * row (maximum). x coordinates are relative to the bounding box.
+     */
+    private void coverRow(final double[] _cov, final double[] _edges,
+                          final int off, final int y, final int bboxx0,
+                          final int width)
+    {
+        final double xa    = _edges[off + OFF_X0] - bboxx0;
+        final double ya    = _edges[off + OFF_Y0];
+        final double xb    = _edges[off + OFF_X1] - bboxx0;
+        final double yb    = _edges[off + OFF_Y1];
+        final double slope = _edges[off + OFF_SLOPE];
+        final double half  = _edges[off + OFF_HALF];
+
+        int px, pxMin, pxMax;
+        double c, cl, cr, ul, ur;
+
+        if (_edges[off + OFF_MAJOR] != 0.0d) {
+            // y-major: horizontal band within the row part covered by the edge
+            cl = (ya > y) ? ya : y;
+            cr = (yb < y + 1) ? yb : y + 1;
+            if (!(cl < cr)) {
+                return;
+            }
+            ul = xa + slope * (cl - ya);
+            ur = xa + slope * (cr - ya);
+
+            pxMin = FloatMath.max(FloatMath.floor_int(((ul < ur) ? ul : ur) - half), 0);
+            pxMax = FloatMath.min(FloatMath.ceil_int(((ul < ur) ? ur : ul) + half), width) - 1;
+
+            for (px = pxMin; px <= pxMax; px++) {
+                c = (cr - cl) * (meanClamp(ul + half - px, ur + half - px)
+                               - meanClamp(ul - half - px, ur - half - px));
+                if (c > _cov[px]) {
+                    _cov[px] = c;
+                }
+            }
+        } else {
+            // x-major: vertical band within the columns covered by the edge
+            cl = xa;
+            cr = xb;
+            if (slope != 0.0d) {
+                // columns where the band intersects the row:
+                ul = xa + (y - half - ya) / slope;
+                ur = xa + (y + 1 + half - ya) / slope;
+                if (ul > ur) {
+                    c = ul;
+                    ul = ur;
+                    ur = c;
+                }
+                if (ul > cl) {
+                    cl = ul;
+                }
+                if (ur < cr) {
+                    cr = ur;
+                }
+            }
+            pxMin = FloatMath.max(FloatMath.floor_int(cl), 0);
+            pxMax = FloatMath.min(FloatMath.ceil_int(cr), width) - 1;
+
+            for (px = pxMin; px <= pxMax; px++) {
+                cl = (px > xa) ? px : xa;
+                cr = (px + 1 < xb) ? px + 1 : xb;
+                if (!(cl < cr)) {
+                    continue;
+                }
+                ul = ya + slope * (cl - xa) - y;
+                ur = ya + slope * (cr - xa) - y;
+
+                c = (cr - cl) * (meanClamp(ul + half, ur + half)
+                               - meanClamp(ul - half, ur - half));
+                if (c > _cov[px]) {
+                    _cov[px] = c;
+                }
+            }
+        }
+        if (pxMin <= pxMax) {
+            if (pxMin < covMinX) {
+                covMinX = pxMin;
+            }
+            if (pxMax > covMaxX) {
+                covMaxX = pxMax;
+            }
+        }
+    }
+
+    private void _endRendering(final int ymin, final int ymax,
+                               final MarlinAlphaConsumer ac)
+    {
+        if (DISABLE_RENDER) {
+            return;
+        }
+
+        final int bboxx0 = bboxX0;
+        final int width  = bboxX1 - bboxx0;
+
+        // local vars (performance):
+        final int[] _alpha = alphaLine;
+        final double[] _cov = coverage;
+        final double[] _edges = edges;
+        final int[] _edgeNext = edgeNext;
+        final int[] _edgeBuckets = edgeBuckets;
+        int[] _edgePtrs = edgePtrs;
+
+        final double _ALPHA_SCALE = ALPHA_SCALE;
+        final int _MAX_VALUE = Integer.MAX_VALUE;
+        final int _MIN_VALUE = Integer.MIN_VALUE;
+
+        int numActive = 0;
+        int i, n, e, off, a, prevA;
+        double cov;
+
+        for (int y = ymin, bucket = ymin - boundsMinY; y < ymax; y++, bucket++) {
+            // add new edges to the active edge list:
+            for (e = _edgeBuckets[bucket]; e != 0; e = _edgeNext[e - 1]) {
+                if (numActive >= _edgePtrs.length) {
+                    if (DO_STATS) {
+                        rdrCtx.stats.stat_array_renderer_edgePtrs.add(numActive + 1);
+                    }
+                    this.edgePtrs = _edgePtrs
+                        = edgePtrs_ref.widenArray(_edgePtrs, numActive,
+                                                  numActive + 1);
+                }
+                _edgePtrs[numActive++] = e - 1;
+            }
+
+            covMinX = _MAX_VALUE;
+            covMaxX = _MIN_VALUE;
+
+            // cover the pixels of this row by every active edge:
+            for (i = 0, n = 0; i < numActive; i++) {
+                e = _edgePtrs[i];
+                off = e * SIZEOF_EDGE;
+
+                coverRow(_cov, _edges, off, y, bboxx0, width);
+
+                // keep edges ending below this row:
+                if (_edges[off + OFF_YMAX] > y + 1) {
+                    _edgePtrs[n++] = e;
+                }
+            }
+            numActive = n;
+
+            if (covMaxX >= covMinX) {
+                // convert coverage into alpha deltas:
+                prevA = 0;
+
+                for (i = covMinX; i <= covMaxX; i++) {
+                    cov = _cov[i];
+                    _cov[i] = 0.0d;
+
+                    if (cov > 1.0d) {
+                        cov = 1.0d;
+                    }
+                    a = (int) (cov * _ALPHA_SCALE + 0.5d);
+
+                    _alpha[i] = a - prevA;
+                    prevA = a;
+                }
+                copyAARow(_alpha, y, bboxx0 + covMinX, bboxx0 + covMaxX + 1, ac);
+            } else {
+                ac.clearAlphas(y);
+            }
+        }
+    }
+
+    void endRendering() {
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering.start();
+        }
+        if (edgeMinY == Integer.MAX_VALUE) {
+            return; // undefined edges bounds
+        }
+
+        // bounds as half-open intervals
+        final int pminX = FloatMath.max(FloatMath.floor_int(edgeMinX), boundsMinX);
+        final int pmaxX = FloatMath.min(FloatMath.ceil_int(edgeMaxX),  boundsMaxX);
+
+        // edge Min/Max Y are already rounded to pixels within bounds:
+        final int pminY = edgeMinY;
+        final int pmaxY = edgeMaxY;
+
+        buckets_minY = pminY - boundsMinY;
+        buckets_maxY = pmaxY - boundsMinY;
+
+        if (DO_LOG_BOUNDS) {
+            MarlinUtils.logInfo("edgesXY = [" + edgeMinX + " ... " + edgeMaxX
+                                + "[ [" + edgeMinY + " ... " + edgeMaxY + "[");
+            MarlinUtils.logInfo("pXY     = [" + pminX + " ... " + pmaxX
+                                + "[ [" + pminY + " ... " + pmaxY + "[");
+        }
+
+        // test clipping for shapes out of bounds
+        if ((pminX >= pmaxX) || (pminY >= pmaxY)) {
+            return;
+        }
+
+        // store BBox to answer ptg.getBBox():
+        bboxX0 = pminX;
+        bboxX1 = pmaxX;
+        bboxY0 = pminY;
+        bboxY1 = pmaxY;
+
+        // Prepare alpha line and coverage row:
+        // add 2 to better deal with the last pixel in a pixel row.
+        final int width = (pmaxX - pminX) + 2;
+
+        if (width > INITIAL_AA_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_alphaline.add(width);
+            }
+            alphaLine = alphaLine_ref.getArray(width);
+            coverage_ref.putArray(coverage, 0, 0);
+            coverage = coverage_ref.getArray(width);
+        }
+        // dirty array:
+        Arrays.fill(coverage, 0, width, 0.0d);
+    }
+
+    public void produceAlphas(final MarlinAlphaConsumer ac) {
+        ac.setMaxAlpha(MAX_EXACT_ALPHA);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering_Y.start();
+        }
+
+        // Process all pixel rows:
+        _endRendering(bboxY0, bboxY1, ac);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering_Y.stop();
+        }
+    }
+
+    void copyAARow(final int[] alphaRow,
+                   final int pix_y, final int pix_from, final int pix_to,
+                   final MarlinAlphaConsumer ac)
+    {
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_copyAARow.start();
+        }
+        if (DO_STATS) {
+            rdrCtx.stats.stat_cache_rowAA.add(pix_to - pix_from);
+        }
+        ac.setAndClearRelativeAlphas(alphaRow, pix_y, pix_from, pix_to);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_copyAARow.stop();
+        }
+    }
+
+    // output pixel bounding box:
+    int bboxX0, bboxX1, bboxY0, bboxY1;
+
+    @Override
+    public int getOutpixMinX() {
+        return bboxX0;
+    }
+
+    @Override
+    public int getOutpixMaxX() {
+        return bboxX1;
+    }
+
+    @Override
+    public int getOutpixMinY() {
+        return bboxY0;
+    }
+
+    @Override
+    public int getOutpixMaxY() {
+        return bboxY1;
+    }
+
+    @Override
+    public double getOffsetX() {
+        return RDR_OFFSET_X;
+    }
+
+    @Override
+    public double getOffsetY() {
+        return RDR_OFFSET_Y;
+    }
+}
@@ -31,6 +31,11 @@ public interface MarlinAlphaConsumer extends AlphaConsumer {
 
     public boolean supportBlockFlags();
 
+    /**
+     * @return true if distinct pixel rows may be set concurrently
+     */
+    public boolean supportParallelRows();
+
     public void clearAlphas(final int pix_y);
 
     public void setAndClearRelativeAlphas(int[] blkFlags, int alphaDeltas[], int pix_y,
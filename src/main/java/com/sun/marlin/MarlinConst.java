@@ -77,6 +77,56 @@ public interface MarlinConst {
     // flag to use line simplifier
     static final boolean USE_SIMPLIFIER = MarlinProperties.isUseSimplifier();
 
+    // flag to simplify dense polylines (device space) within a tolerance
+    static final boolean USE_PATH_SIMPLIFIER = MarlinProperties.isUsePathSimplifier();
+
+    // path simplifier tolerance (pixels)
+    static final float PATH_SIMPLIFIER_TOLERANCE = MarlinProperties.getPathSimplifierTolerance();
+
+    // flag to decimate x-monotone polylines (strokes) per pixel column
+    static final boolean USE_COLUMN_DECIMATOR = MarlinProperties.isUseColumnDecimator();
+
+    // flag to sort large crossing arrays using radix sort
+    static final boolean USE_RADIX_SORT = MarlinProperties.isUseRadixSort();
+
+    // flag to rasterize axis-aligned rectangles directly (no edges)
+    static final boolean USE_RECT_FAST_PATH = MarlinProperties.isUseRectFastPath();
+
+    // flag to rasterize convex shapes using two edge chains (no edge sorting)
+    static final boolean USE_CONVEX_RENDERER = MarlinProperties.isUseConvexRenderer();
+
+    // flag to flatten curves using the parabola integral approximation
+    static final boolean USE_PARABOLA_FLATTENER = MarlinProperties.isUseParabolaFlattener();
+
+    // flag to flatten curves using integer (fixed-point) forward differencing
+    static final boolean USE_FIXED_POINT_CURVES = MarlinProperties.isUseFixedPointCurves();
+
+    // flag to store large curves as native curve edges (not flattened)
+    static final boolean USE_CURVE_EDGES = MarlinProperties.isUseCurveEdges();
+
+    // flag to rasterize thin strokes (1 pixel wide or less) without the Stroker
+    static final boolean USE_THIN_LINE_RENDERER = MarlinProperties.isUseThinLineRenderer();
+
+    // flag to cache the arc-length tables of dashed curves in the Dasher
+    static final boolean USE_DASH_CACHE = MarlinProperties.isUseDashCache();
+
+    // flag to rasterize inner / outer strokes as a centered stroke masked by
+    // the fill coverage instead of a CAG intersection / subtraction
+    static final boolean USE_DIFFERENTIAL_STROKE = MarlinProperties.isUseDifferentialStroke();
+
+    // flag to store edges in java arrays instead of off-heap memory
+    static final boolean USE_HEAP_STORAGE = MarlinProperties.isUseHeapStorage();
+
+    // flag to rasterize large shapes using horizontal bands in parallel
+    static final boolean USE_PARALLEL = MarlinProperties.isUseParallel();
+    // number of threads in the band rasterizer pool
+    static final int PARALLEL_THREADS = MarlinProperties.getParallelThreads();
+    // minimum band height (pixels)
+    static final int PARALLEL_MIN_BAND_HEIGHT
+        = MarlinProperties.getParallelMinBandHeight();
+    // minimum edge count to use parallel bands
+    static final int PARALLEL_MIN_EDGES = MarlinProperties.getParallelMinEdges();
+
     // flag to enable logs related bounds checks
     static final boolean DO_LOG_BOUNDS = ENABLE_LOGS && false;
 
@@ -127,6 +177,18 @@ public interface MarlinConst {
     public static final int MAX_AA_ALPHA
         = SUBPIXEL_POSITIONS_X * SUBPIXEL_POSITIONS_Y;
 
+    // flag to choose the subpixel resolution per shape
+    public static final boolean USE_ADAPTIVE_SUBPIXELS
+        = MarlinProperties.isUseAdaptiveSubpixels();
+    // minimum size (pixels) of large flat shapes using less subpixels
+    public static final int ADAPTIVE_SUBPIXELS_LARGE_SIZE
+        = MarlinProperties.getAdaptiveSubpixelsLargeSize();
+
+    // flag to use the exact area coverage renderer (analytic AA)
+    public static final boolean USE_EXACT_AA = MarlinProperties.isUseExactAA();
+    // coverage levels produced by the exact area renderer
+    public static final int MAX_EXACT_ALPHA = 255;
+
     public static final int BLOCK_SIZE_LG = MarlinProperties.getBlockSize_Log2();
     public static final int BLOCK_SIZE    = 1 << BLOCK_SIZE_LG;
 
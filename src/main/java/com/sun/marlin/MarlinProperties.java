@@ -93,6 +93,37 @@ public final class MarlinProperties {
         return getInteger("prism.marlin.subPixel_log2_Y", 3, 0, 8);
     }
 
+    /**
+     * Return true to choose the subpixel resolution per shape (fills only)
+     * from its device bounds and edge density
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseAdaptiveSubpixels() {
+        return getBoolean("prism.marlin.subPixel.adaptive", "false");
+    }
+
+    /**
+     * Return the minimum size (pixels) of large flat shapes rendered with
+     * fewer subpixels (4x4) when the adaptive subpixel resolution is enabled
+     *
+     * @return 64 < size < 32768 (512 by default)
+     */
+    public static int getAdaptiveSubpixelsLargeSize() {
+        return getInteger("prism.marlin.subPixel.adaptive.largeSize", 512, 64,
+                          32 * 1024);
+    }
+
+    /**
+     * Return true to compute the exact area coverage per pixel (analytic
+     * anti-aliasing) instead of sampling subpixel scanlines
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseExactAA() {
+        return getBoolean("prism.marlin.exactAA", "false");
+    }
+
     /**
      * Return the log(2) corresponding to the block size in pixels
      *
@@ -132,6 +163,130 @@ public final class MarlinProperties {
         return getBoolean("prism.marlin.useSimplifier", "false");
     }
 
+    public static boolean isUseRadixSort() {
+        return getBoolean("prism.marlin.useRadixSort", "true");
+    }
+
+    public static boolean isUseRectFastPath() {
+        return getBoolean("prism.marlin.useRectFastPath", "true");
+    }
+
+    public static boolean isUseConvexRenderer() {
+        return getBoolean("prism.marlin.useConvexRenderer", "false");
+    }
+
+    /**
+     * Return true to flatten curves using the parabola integral
+     * approximation (minimal line count) instead of adaptive forward
+     * differencing
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseParabolaFlattener() {
+        return getBoolean("prism.marlin.useParabolaFlattener", "false");
+    }
+
+    /**
+     * Return true to flatten curves using integer (fixed-point) adaptive
+     * forward differencing that writes edges directly
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseFixedPointCurves() {
+        return getBoolean("prism.marlin.useFixedPointCurves", "false");
+    }
+
+    /**
+     * Return true to store large curves as native curve edges advanced by
+     * the scanline loop instead of flattening them into many line edges
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseCurveEdges() {
+        return getBoolean("prism.marlin.useCurveEdges", "false");
+    }
+
+    /**
+     * Return true to rasterize thin strokes (device line width up to 1 pixel)
+     * directly as analytic coverage bands instead of filling the outline
+     * generated by the Stroker
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseThinLineRenderer() {
+        return getBoolean("prism.marlin.useThinLineRenderer", "false");
+    }
+
+    /**
+     * Return true if the Dasher caches the arc-length tables of the curves
+     * it dashes so that the same curves dashed again (same path and transform
+     * but another dash phase) need no new subdivision: the cache takes about
+     * 90 KB per renderer context (180 KB for the double precision pipeline),
+     * allocated when its first curve is dashed
+     *
+     * @return true if enabled (true by default)
+     */
+    public static boolean isUseDashCache() {
+        return getBoolean("prism.marlin.useDashCache", "true");
+    }
+
+    /**
+     * Return true to rasterize inner and outer strokes natively: the
+     * centered stroke (twice as wide) coverage is multiplied by the fill
+     * coverage (inner) or its complement (outer) instead of computing the
+     * stroked shape by an area intersection or subtraction
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseDifferentialStroke() {
+        return getBoolean("prism.marlin.useDifferentialStroke", "false");
+    }
+
+    /**
+     * Return true to cache the centered stroked outlines of paths used to
+     * compute the bounds of stroked shapes or to pick them
+     *
+     * @return true if enabled (true by default)
+     */
+    public static boolean isUseStrokeCache() {
+        return getBoolean("prism.marlin.strokeCache", "true");
+    }
+
+    /**
+     * Return the max number of coordinates (paths and stroked outlines) in
+     * the stroked outline cache
+     *
+     * @return 1024 < size < 64M (256K by default)
+     */
+    public static int getStrokeCacheSize() {
+        return getInteger("prism.marlin.strokeCache.size", 256 * 1024, 1024,
+                          64 * 1024 * 1024);
+    }
+
+    /**
+     * Return true to store edges and alpha maps in java arrays (GC managed)
+     * instead of off-heap memory (malloc / free); on Java 16+ these arrays are
+     * accessed with VarHandles instead of Unsafe
+     *
+     * @return true to use heap storage; false otherwise (default)
+     */
+    public static boolean isUseHeapStorage() {
+        return getBoolean("prism.marlin.heapStorage", "false");
+    }
+
+    /**
+     * Return true to use the Vector API (Java 16+ multi-release classes)
+     * if available (requires --add-modules jdk.incubator.vector) to fill the
+     * chunks of 8 pixels without coverage change in mask rows of 64 pixels
+     * or more (with or without block flags); other chunks and RLE masks are
+     * not vectorized
+     *
+     * @return true if enabled (true by default)
+     */
+    public static boolean isUseVectorAPI() {
+        return getBoolean("prism.marlin.vector", "true");
+    }
+
     public static boolean isDoClip() {
         return getBoolean("prism.marlin.clip", "true");
     }
@@ -144,6 +299,41 @@ public final class MarlinProperties {
         return getBoolean("prism.marlin.clip.runtime", "true");
     }
 
+    // parallel rendering settings
+
+    public static boolean isUseParallel() {
+        return getBoolean("prism.marlin.parallel", "false");
+    }
+
+    /**
+     * Return the number of threads used to rasterize horizontal bands
+     *
+     * @return 1 < threads < 256 (number of available processors by default)
+     */
+    public static int getParallelThreads() {
+        return getInteger("prism.marlin.parallel.threads",
+                          Runtime.getRuntime().availableProcessors(), 1, 256);
+    }
+
+    /**
+     * Return the minimum band height in pixels
+     *
+     * @return 8 < band height < 32768 (64 by default)
+     */
+    public static int getParallelMinBandHeight() {
+        return getInteger("prism.marlin.parallel.bandHeight", 64, 8, 32 * 1024);
+    }
+
+    /**
+     * Return the minimum edge count to rasterize a shape in parallel
+     *
+     * @return 0 < edge count (8192 by default)
+     */
+    public static int getParallelMinEdges() {
+        return getInteger("prism.marlin.parallel.minEdges", 8192, 0,
+                          Integer.MAX_VALUE);
+    }
+
     // debugging parameters
 
     public static boolean isDoStats() {
@@ -190,6 +380,38 @@ public final class MarlinProperties {
         return getFloat("prism.marlin.quad_dec_d2", 0.5f, 0.01f, 4.0f);
     }
 
+    /**
+     * Return true to simplify dense polylines in device space (fills and
+     * undashed strokes with round joins and caps, except thin lines): line
+     * segments are merged while the dropped points remain within the tolerance
+     * of the merged segment
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUsePathSimplifier() {
+        return getBoolean("prism.marlin.usePathSimplifier", "false");
+    }
+
+    /**
+     * Return true to decimate the strokes of large x-monotone polylines
+     * (chart line series) with round joins and caps: only the entry, min, max
+     * and exit points of every 1/8 pixel column are kept
+     *
+     * @return true if enabled (false by default)
+     */
+    public static boolean isUseColumnDecimator() {
+        return getBoolean("prism.marlin.useColumnDecimator", "false");
+    }
+
+    /**
+     * Return the path simplifier tolerance in pixels
+     *
+     * @return 0.01 < tolerance < 1.0 (0.125 by default ie 1 subpixel)
+     */
+    public static float getPathSimplifierTolerance() {
+        return getFloat("prism.marlin.pathSimplifier.tolerance", 0.125f, 0.01f, 1.0f);
+    }
+
     // system property utilities
     static boolean getBoolean(final String key, final String def) {
         return Boolean.valueOf(AccessController.doPrivileged(
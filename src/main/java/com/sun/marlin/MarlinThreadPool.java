@@ -0,0 +1,72 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.security.AccessController;
+import java.security.PrivilegedAction;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinWorkerThread;
+
+/**
+ * Shared pool of worker threads used to rasterize horizontal bands
+ * of large shapes in parallel (see prism.marlin.parallel)
+ */
+final class MarlinThreadPool {
+
+    /**
+     * Private constructor to prevent instantiation.
+     */
+    private MarlinThreadPool() {
+    }
+
+    // lazy initialization (holder idiom):
+    private static final class Holder {
+        static final ForkJoinPool POOL = createPool();
+    }
+
+    static ForkJoinPool getPool() {
+        return Holder.POOL;
+    }
+
+    private static ForkJoinPool createPool() {
+        if (MarlinConst.ENABLE_LOGS) {
+            MarlinUtils.logInfo("new MarlinThreadPool: threads = "
+                                + MarlinConst.PARALLEL_THREADS);
+        }
+        return AccessController.doPrivileged(
+            (PrivilegedAction<ForkJoinPool>) () -> new ForkJoinPool(
+                MarlinConst.PARALLEL_THREADS,
+                (ForkJoinPool pool) -> {
+                    final ForkJoinWorkerThread t = ForkJoinPool
+                        .defaultForkJoinWorkerThreadFactory.newThread(pool);
+                    t.setName("MarlinRenderer Band-" + t.getPoolIndex());
+                    t.setDaemon(true);
+                    return t;
+                },
+                null, false)
+        );
+    }
+}
@@ -28,7 +28,6 @@ package com.sun.marlin;
 import com.sun.prism.impl.shape.MaskData;
 import java.nio.ByteBuffer;
 import java.util.Arrays;
-import sun.misc.Unsafe;
 
 public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
     int x, y, width, height;
@@ -85,11 +84,200 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
         return maskdata;
     }
 
+    /**
+     * Fill the mask (within its bounds) with the coverage of the given
+     * axis-aligned rectangle in device coordinates, without any edge
+     * processing: pixels get the same coverage as the renderer gives, ie
+     * the count of their subpixel samples (pixel center if not antialiased)
+     * inside the rectangle.
+     *
+     * @param x0 rectangle left
+     * @param y0 rectangle top
+     * @param x1 rectangle right
+     * @param y1 rectangle bottom
+     * @param antialias true to use the default subpixel resolution
+     */
+    public void fillRect(final float x0, final float y0,
+                         final float x1, final float y1,
+                         final boolean antialias)
+    {
+        final int lgX = (antialias) ? MarlinConst.SUBPIXEL_LG_POSITIONS_X : 0;
+        final int lgY = (antialias) ? MarlinConst.SUBPIXEL_LG_POSITIONS_Y : 0;
+
+        // half-open ranges of the covered subpixel samples (see Renderer):
+        final int sx0 = subpixelX(x0, lgX);
+        final int sx1 = subpixelX(x1, lgX);
+        final int sy0 = subpixelY(y0, lgY);
+        final int sy1 = subpixelY(y1, lgY);
+
+        final byte[] alMap = getAlphaMap(1 << (lgX + lgY));
+
+        final byte[] out = this.alphas;
+        final int w = width;
+        final int h = height;
+
+        // offset of the first fully covered row (if any):
+        int fullRow = -1;
+
+        for (int j = 0, off = 0; j < h; j++, off += w) {
+            final int ny = samples(sy0, sy1, y + j, lgY);
+
+            if (ny == (1 << lgY)) {
+                if (fullRow != -1) {
+                    // copy the fully covered row:
+                    System.arraycopy(out, fullRow, out, off, w);
+                    continue;
+                }
+                fullRow = off;
+            }
+            if (ny == 0) {
+                Arrays.fill(out, off, off + w, (byte)0);
+                continue;
+            }
+            for (int i = 0; i < w; i++) {
+                out[off + i] = alMap[ny * samples(sx0, sx1, x + i, lgX)];
+            }
+        }
+    }
+
+    /**
+     * Multiply the alphas of this mask by the coverage of the given mask
+     * (or by its complement if invert is true): pixels out of the bounds of
+     * the given mask have no coverage.
+     *
+     * @param mask coverage mask
+     * @param invert true to multiply by (1 - coverage)
+     */
+    public void multiplyAlphas(final MaskMarlinAlphaConsumer mask,
+                               final boolean invert)
+    {
+        final byte[] out = this.alphas;
+        final byte[] in = mask.alphas;
+        final int w = width;
+        final int h = height;
+
+        // mask bounds relative to this mask:
+        final int mx0 = mask.x - x;
+        final int my0 = mask.y - y;
+        final int mw  = mask.width;
+        final int mx1 = mx0 + mw;
+        final int my1 = my0 + mask.height;
+
+        for (int j = 0, off = 0; j < h; j++, off += w) {
+            if ((j < my0) || (j >= my1)) {
+                if (!invert) {
+                    Arrays.fill(out, off, off + w, (byte)0);
+                }
+                continue;
+            }
+            final int moff = (j - my0) * mw - mx0;
+
+            for (int i = 0; i < w; i++) {
+                final int a = out[off + i] & 0xFF;
+                if (a != 0) {
+                    int c = ((i >= mx0) && (i < mx1)) ? (in[moff + i] & 0xFF) : 0;
+                    if (invert) {
+                        c = 255 - c;
+                    }
+                    out[off + i] = (byte) ((a * c + 127) / 255);
+                }
+            }
+        }
+    }
+
+    /*
+     * Return the number of subpixel samples of the pixel p within the
+     * half-open range [s0; s1[
+     */
+    private static int samples(final int s0, final int s1, final int p,
+                               final int lg)
+    {
+        final int n = Math.min(s1, (p + 1) << lg) - Math.max(s0, p << lg);
+        return (n > 0) ? n : 0;
+    }
+
+    /*
+     * Return the first subpixel column whose sample is at or after x:
+     * same rounding as the renderer edges (32.32 fixed-point ceil(x - 0.5))
+     */
+    private static int subpixelX(final float x, final int lg) {
+        final float sx = ((float) (1 << lg)) * x;
+        return (int) ((((long) (0x1.0p32d * sx)) + 0x7FFFFFFFL) >> 32L);
+    }
+
+    /*
+     * Return the first subpixel row whose sample is at or after y:
+     * same rounding as the renderer edges (ceil(y - 0.5))
+     */
+    private static int subpixelY(final float y, final int lg) {
+        return FloatMath.ceil_int(((float) (1 << lg)) * y - 0.5f);
+    }
+
     OffHeapArray ALPHA_MAP_USED = null;
+    // same alpha map as byte array (AlphaRowMapper):
+    byte[] ALPHA_MAP_USED_ARRAY = null;
+
+    // max alpha of the alpha maps in use (maps are only looked up when the
+    // subpixel resolution changes):
+    int maxAlphaUsed = 0;
 
     @Override
     public void setMaxAlpha(int maxalpha) {
-        ALPHA_MAP_USED = (maxalpha == 1) ? ALPHA_MAP_UNSAFE_NO_AA : ALPHA_MAP_UNSAFE;
+        if (maxalpha != maxAlphaUsed) {
+            ALPHA_MAP_USED = getAlphaMapUnsafe(maxalpha);
+            ALPHA_MAP_USED_ARRAY = getAlphaMap(maxalpha);
+            maxAlphaUsed = maxalpha;
+        }
+    }
+
+    static OffHeapArray getAlphaMapUnsafe(final int maxalpha) {
+        if (maxalpha == MarlinConst.MAX_AA_ALPHA) {
+            return ALPHA_MAP_UNSAFE;
+        }
+        if (maxalpha == 1) {
+            return ALPHA_MAP_UNSAFE_NO_AA;
+        }
+        if (maxalpha == MarlinConst.MAX_EXACT_ALPHA) {
+            return ALPHA_MAP_UNSAFE_EXACT;
+        }
+        return ALPHA_MAPS_UNSAFE[ensureAlphaMap(maxalpha)];
+    }
+
+    static byte[] getAlphaMap(final int maxalpha) {
+        if (maxalpha == MarlinConst.MAX_AA_ALPHA) {
+            return ALPHA_MAP;
+        }
+        if (maxalpha == 1) {
+            return ALPHA_MAP_NO_AA;
+        }
+        if (maxalpha == MarlinConst.MAX_EXACT_ALPHA) {
+            return ALPHA_MAP_EXACT;
+        }
+        return ALPHA_MAPS[ensureAlphaMap(maxalpha)];
+    }
+
+    // alpha maps for other subpixel counts (adaptive subpixel resolution)
+    // indexed by log2(maxalpha) and created lazily:
+    private static final int MAX_ALPHA_MAP_LG = 16;
+    private static final byte[][] ALPHA_MAPS = new byte[MAX_ALPHA_MAP_LG + 1][];
+    private static final OffHeapArray[] ALPHA_MAPS_UNSAFE
+        = new OffHeapArray[MAX_ALPHA_MAP_LG + 1];
+
+    private static synchronized int ensureAlphaMap(final int maxalpha) {
+        // maxalpha = subpixel count = 2^(lgX + lgY):
+        final int lg = Integer.numberOfTrailingZeros(maxalpha);
+
+        if ((maxalpha != (1 << lg)) || (lg > MAX_ALPHA_MAP_LG)) {
+            throw new IllegalArgumentException("Unsupported max alpha: "
+                                               + maxalpha);
+        }
+        if (ALPHA_MAPS[lg] == null) {
+            final byte[] alMap = buildAlphaMap(maxalpha);
+            // Keep alive the OffHeapArray
+            ALPHA_MAPS_UNSAFE[lg] = newAlphaMapUnsafe(alMap);
+            ALPHA_MAPS[lg] = alMap;
+        }
+        return lg;
     }
 
     // The alpha map used by this object (taken out of our map cache) to convert
@@ -101,30 +289,34 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
     static final byte[] ALPHA_MAP_NO_AA;
     static final OffHeapArray ALPHA_MAP_UNSAFE_NO_AA;
 
-    static {
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+    static final byte[] ALPHA_MAP_EXACT;
+    static final OffHeapArray ALPHA_MAP_UNSAFE_EXACT;
 
+    static {
         // AA:
-        byte[] _ALPHA_MAP = buildAlphaMap(MarlinConst.MAX_AA_ALPHA);
-        ALPHA_MAP = _ALPHA_MAP; // Keep alive the OffHeapArray
-        ALPHA_MAP_UNSAFE = new OffHeapArray(ALPHA_MAP, ALPHA_MAP.length); // 1K
+        ALPHA_MAP = buildAlphaMap(MarlinConst.MAX_AA_ALPHA);
+        // Keep alive the OffHeapArray
+        ALPHA_MAP_UNSAFE = newAlphaMapUnsafe(ALPHA_MAP); // 1K
 
-        long addr = ALPHA_MAP_UNSAFE.address;
+        // NoAA:
+        ALPHA_MAP_NO_AA = buildAlphaMap(1);
+        ALPHA_MAP_UNSAFE_NO_AA = newAlphaMapUnsafe(ALPHA_MAP_NO_AA);
 
-        for (int i = 0; i < _ALPHA_MAP.length; i++) {
-            _unsafe.putByte(addr + i, _ALPHA_MAP[i]);
-        }
+        // Exact area coverage (identity):
+        ALPHA_MAP_EXACT = buildAlphaMap(MarlinConst.MAX_EXACT_ALPHA);
+        ALPHA_MAP_UNSAFE_EXACT = newAlphaMapUnsafe(ALPHA_MAP_EXACT);
+    }
 
-        // NoAA:
-        byte[] _ALPHA_MAP_NO_AA = buildAlphaMap(1);
-        ALPHA_MAP_NO_AA = _ALPHA_MAP_NO_AA; // Keep alive the OffHeapArray
-        ALPHA_MAP_UNSAFE_NO_AA = new OffHeapArray(ALPHA_MAP_NO_AA, ALPHA_MAP_NO_AA.length);
+    private static OffHeapArray newAlphaMapUnsafe(final byte[] alMap) {
+        final OffHeapArray alMapUnsafe = new OffHeapArray(alMap, alMap.length);
 
-        addr = ALPHA_MAP_UNSAFE_NO_AA.address;
+        final Object base = alMapUnsafe.base;
+        final long addr = alMapUnsafe.address;
 
-        for (int i = 0; i < _ALPHA_MAP_NO_AA.length; i++) {
-            _unsafe.putByte(addr + i, _ALPHA_MAP_NO_AA[i]);
+        for (int i = 0; i < alMap.length; i++) {
+            MemoryAccess.putByte(base, addr + i, alMap[i]);
         }
+        return alMapUnsafe;
     }
 
     private static byte[] buildAlphaMap(final int maxalpha) {
@@ -143,6 +335,12 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
         return true;
     }
 
+    @Override
+    public boolean supportParallelRows() {
+        // rows are written in distinct parts of the alphas array:
+        return true;
+    }
+
     @Override
     public void clearAlphas(final int pix_y) {
         final int w = width;
@@ -163,7 +361,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
         final int w = width;
         final int off = (pix_y - y) * w;
 
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+        final Object base_alpha = ALPHA_MAP_USED.base;
         final long addr_alpha = ALPHA_MAP_USED.address;
 
         final int from = pix_from - x;
@@ -172,6 +370,24 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
         final int to = pix_to - x;
         final int ato = Math.min(to, width);
 
+        if (AlphaRowMapper.VECTORIZED
+            && ((ato - from) >= AlphaRowMapper.VECTOR_MIN_LENGTH))
+        {
+            // Zero-fill row outside [from; ato[:
+            Arrays.fill(out, off, off + from, (byte) 0);
+
+            // running sum + alpha map + clear deltas (vector fast path on
+            // chunks without crossings):
+            AlphaRowMapper.mapAndClearRow(alphaDeltas, from, ato,
+                                          ALPHA_MAP_USED_ARRAY, out, off);
+
+            Arrays.fill(out, off + ato, off + w, (byte) 0);
+
+            // Clear remaining alpha deltas for reuse:
+            IntArrayCache.fill(alphaDeltas, ato, to + 1, 0);
+            return;
+        }
+
         // fast fill ?
         final boolean fast = useFastFill && ((ato - from) < fastFillThreshold);
 
@@ -185,7 +401,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
             while (i < ato) {
                 curAlpha += alphaDeltas[i];
 
-                out[off + i] = _unsafe.getByte(addr_alpha + curAlpha); // [0..255]
+                out[off + i] = MemoryAccess.getByte(base_alpha, addr_alpha + curAlpha); // [0..255]
                 i++;
             }
 
@@ -202,7 +418,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
             while (i < ato) {
                 curAlpha += alphaDeltas[i];
 
-                out[off + i] = _unsafe.getByte(addr_alpha + curAlpha); // [0..255]
+                out[off + i] = MemoryAccess.getByte(base_alpha, addr_alpha + curAlpha); // [0..255]
                 i++;
             }
 
@@ -227,7 +443,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
         final int w = width;
         final int off = (pix_y - y) * w;
 
-        final Unsafe _unsafe = OffHeapArray.UNSAFE;
+        final Object base_alpha = ALPHA_MAP_USED.base;
         final long addr_alpha = ALPHA_MAP_USED.address;
 
         final int from = pix_from - x;
@@ -236,14 +452,37 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
         final int to = pix_to - x;
         final int ato = Math.min(to, width);
 
-        // fast fill ?
-        final boolean fast = useFastFill && ((ato - from) < fastFillThreshold);
-
         final int _BLK_SIZE_LG  = MarlinConst.BLOCK_SIZE_LG;
 
         // traverse flagged blocks:
         final int blkW = (from >> _BLK_SIZE_LG);
         final int blkE = (ato   >> _BLK_SIZE_LG) + 1;
+
+        if (AlphaRowMapper.VECTORIZED
+            && ((ato - from) >= AlphaRowMapper.VECTOR_MIN_LENGTH))
+        {
+            // the vectorized mapping skips zero deltas 8 pixels at a time
+            // so block flags are only cleared:
+            Arrays.fill(blkFlags, blkW, blkE + 1, 0);
+
+            // Zero-fill row outside [from; ato[:
+            Arrays.fill(out, off, off + from, (byte) 0);
+
+            // running sum + alpha map + clear deltas (vector fast path on
+            // chunks without crossings):
+            AlphaRowMapper.mapAndClearRow(alphaDeltas, from, ato,
+                                          ALPHA_MAP_USED_ARRAY, out, off);
+
+            Arrays.fill(out, off + ato, off + w, (byte) 0);
+
+            // Clear remaining alpha deltas for reuse:
+            IntArrayCache.fill(alphaDeltas, ato, to + 1, 0);
+            return;
+        }
+
+        // fast fill ?
+        final boolean fast = useFastFill && ((ato - from) < fastFillThreshold);
+
         // ensure last block flag = 0 to process final block:
         blkFlags[blkE] = 0;
 
@@ -287,7 +526,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
                                 if (curAlpha == 0) {
                                     i = cx;
                                 } else {
-                                    val = _unsafe.getByte(addr_alpha + curAlpha);
+                                    val = MemoryAccess.getByte(base_alpha, addr_alpha + curAlpha);
                                     do {
                                         out[off + i] = val;
                                         i++;
@@ -304,7 +543,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
 
             // Process remaining span:
             if (curAlpha != 0) {
-                val = _unsafe.getByte(addr_alpha + curAlpha);
+                val = MemoryAccess.getByte(base_alpha, addr_alpha + curAlpha);
                 while (i < ato) {
                     out[off + i] = val;
                     i++;
@@ -342,7 +581,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
 
                             // fill span:
                             if (cx != i) {
-                                val = _unsafe.getByte(addr_alpha + curAlpha);
+                                val = MemoryAccess.getByte(base_alpha, addr_alpha + curAlpha);
                                 do {
                                     out[off + i] = val;
                                     i++;
@@ -358,7 +597,7 @@ public final class MaskMarlinAlphaConsumer implements MarlinAlphaConsumer {
 
             // Process remaining span:
             if (curAlpha != 0) {
-                val = _unsafe.getByte(addr_alpha + curAlpha);
+                val = MemoryAccess.getByte(base_alpha, addr_alpha + curAlpha);
                 while (i < ato) {
                     out[off + i] = val;
                     i++;
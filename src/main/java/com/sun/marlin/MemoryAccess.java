@@ -0,0 +1,93 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.util.Arrays;
+import static com.sun.marlin.MarlinConst.USE_HEAP_STORAGE;
+import sun.misc.Unsafe;
+
+/**
+ * Accessors of the OffHeapArray memory blocks using (base, address + offset):
+ * base is null for off-heap memory and the byte[] array for heap storage.
+ *
+ * This is the Java 8 implementation using Unsafe for both storages: a Java 16+
+ * implementation using VarHandles for heap storage (no Unsafe access) is
+ * provided as a multi-release class in META-INF/versions/16.
+ */
+final class MemoryAccess {
+
+    // unsafe reference
+    private static final Unsafe UNSAFE = OffHeapArray.UNSAFE;
+
+    // address of the first byte of heap storage arrays (byte[]):
+    static final long HEAP_BASE_OFFSET = Unsafe.ARRAY_BYTE_BASE_OFFSET;
+
+    private MemoryAccess() {
+        // no instance
+    }
+
+    static int getInt(final Object base, final long addr) {
+        return UNSAFE.getInt(base, addr);
+    }
+
+    static void putInt(final Object base, final long addr, final int val) {
+        UNSAFE.putInt(base, addr, val);
+    }
+
+    static long getLong(final Object base, final long addr) {
+        return UNSAFE.getLong(base, addr);
+    }
+
+    static void putLong(final Object base, final long addr, final long val) {
+        UNSAFE.putLong(base, addr, val);
+    }
+
+    static byte getByte(final Object base, final long addr) {
+        return UNSAFE.getByte(base, addr);
+    }
+
+    static void putByte(final Object base, final long addr, final byte val) {
+        UNSAFE.putByte(base, addr, val);
+    }
+
+    static void copyMemory(final Object srcBase, final long srcAddr,
+                           final Object dstBase, final long dstAddr,
+                           final long len)
+    {
+        UNSAFE.copyMemory(srcBase, srcAddr, dstBase, dstAddr, len);
+    }
+
+    static void setMemory(final Object base, final long addr, final long len,
+                          final byte val)
+    {
+        if (USE_HEAP_STORAGE) {
+            final int off = (int) (addr - HEAP_BASE_OFFSET);
+            Arrays.fill((byte[]) base, off, off + (int) len, val);
+            return;
+        }
+        UNSAFE.setMemory(base, addr, len, val);
+    }
+}
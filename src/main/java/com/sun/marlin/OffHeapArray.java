@@ -30,11 +30,19 @@ import java.lang.ref.ReferenceQueue;
 import java.lang.reflect.Field;
 import java.security.AccessController;
 import java.security.PrivilegedAction;
+import java.util.Arrays;
 import java.util.Vector;
 import static com.sun.marlin.MarlinConst.LOG_UNSAFE_MALLOC;
+import static com.sun.marlin.MarlinConst.USE_HEAP_STORAGE;
 import sun.misc.Unsafe;
 
 /**
+ * Raw memory block accessed with MemoryAccess using (base, address + offset):
+ * - off-heap storage (default): base is null and address is the native
+ * address (malloc / realloc / free), freed by the disposer thread
+ * - heap storage (prism.marlin.heapStorage=true): base is a byte[] array and
+ * address is MemoryAccess.HEAP_BASE_OFFSET, so the memory is reclaimed by the
+ * GC (no native allocation nor disposer thread)
  *
  * @author bourgesl
  */
@@ -44,6 +52,8 @@ final class OffHeapArray  {
     static final Unsafe UNSAFE;
     // size of int / float
     static final int SIZE_INT;
+    // size of long
+    static final int SIZE_LONG;
 
     static {
         Unsafe ref = null;
@@ -58,7 +68,14 @@ final class OffHeapArray  {
         }
         UNSAFE   = ref;
         SIZE_INT = Unsafe.ARRAY_INT_INDEX_SCALE;
+        SIZE_LONG = Unsafe.ARRAY_LONG_INDEX_SCALE;
 
+        if (!USE_HEAP_STORAGE) {
+            startDisposer();
+        }
+    }
+
+    private static void startDisposer() {
         // Mimics Java2D Disposer:
         AccessController.doPrivileged(
             (PrivilegedAction<Void>) () -> {
@@ -81,15 +98,24 @@ final class OffHeapArray  {
     }
 
     /* members */
+    // base object (byte[] if heap storage or null if off-heap):
+    byte[] base;
     long address;
     long length;
     int  used;
 
     OffHeapArray(final Object parent, final long len) {
-        // note: may throw OOME:
-        this.address = UNSAFE.allocateMemory(len);
         this.length  = len;
         this.used    = 0;
+
+        if (USE_HEAP_STORAGE) {
+            // note: may throw OOME:
+            this.base    = new byte[toInt(len)];
+            this.address = MemoryAccess.HEAP_BASE_OFFSET;
+            return;
+        }
+        // note: may throw OOME:
+        this.address = UNSAFE.allocateMemory(len);
         if (LOG_UNSAFE_MALLOC) {
             MarlinUtils.logInfo(System.currentTimeMillis()
                                 + ": OffHeapArray.allocateMemory =   "
@@ -100,12 +126,25 @@ final class OffHeapArray  {
         REF_LIST.add(new OffHeapReference(parent, this));
     }
 
+    private static int toInt(final long len) {
+        if (len > Integer.MAX_VALUE) {
+            throw new OutOfMemoryError("heap storage exceeds 2G: " + len);
+        }
+        return (int) len;
+    }
+
     /*
      * As realloc may change the address, updating address is MANDATORY
      * @param len new array length
      * @throws OutOfMemoryError if the allocation is refused by the system
      */
     void resize(final long len) {
+        if (base != null) {
+            // note: may throw OOME:
+            this.base = Arrays.copyOf(base, toInt(len));
+            this.length = len;
+            return;
+        }
         // note: may throw OOME:
         this.address = UNSAFE.reallocateMemory(address, len);
         this.length  = len;
@@ -117,6 +156,10 @@ final class OffHeapArray  {
     }
 
     void free() {
+        if (base != null) {
+            this.base = null;
+            return;
+        }
         UNSAFE.freeMemory(this.address);
         if (LOG_UNSAFE_MALLOC) {
             MarlinUtils.logInfo(System.currentTimeMillis()
@@ -128,7 +171,7 @@ final class OffHeapArray  {
     }
 
     void fill(final byte val) {
-        UNSAFE.setMemory(this.address, this.length, val);
+        MemoryAccess.setMemory(this.base, this.address, this.length, val);
     }
 
     // Custom disposer (replaced by jdk9 Cleaner)
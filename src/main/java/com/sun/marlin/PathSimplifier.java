@@ -0,0 +1,236 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import com.sun.javafx.geom.PathConsumer2D;
+
+/**
+ * Streaming polyline simplifier (device space): consecutive line segments
+ * are merged as long as every dropped point remains within the given
+ * tolerance of the merged segment (Douglas-Peucker criterion evaluated on the
+ * fly).
+ *
+ * Instead of checking every dropped point against the next candidate segment,
+ * the simplifier keeps the cone of the segment directions (from the anchor
+ * point) passing within tol / sqrt(2) of all dropped points (sleeve-fitting)
+ * and their max distance to the anchor point (the segment may end up to
+ * tol / sqrt(2) before), so the cost per point is constant and long runs are
+ * merged entirely.
+ *
+ * Curves, moveTo and closePath pass through unchanged (pending segment
+ * emitted first) so only dense polylines are simplified.
+ */
+public final class PathSimplifier implements PathConsumer2D {
+
+    PathConsumer2D delegate;
+    // cone tolerance (tol / sqrt(2)) and squared tolerance
+    float ctol, tol2;
+    // start point of the current sub path
+    float sx, sy;
+    // anchor point (last emitted point)
+    float ax, ay;
+    // pending point (last point, not emitted yet)
+    float cx, cy;
+    boolean pending;
+    // true if the cone of directions is constrained by dropped points
+    boolean constrained;
+    // cone of directions (relative to the anchor): right and left bounds
+    float rx, ry, lx, ly;
+    // max distance of dropped points to the anchor
+    float maxDist;
+
+    PathSimplifier() {
+    }
+
+    public PathSimplifier init(PathConsumer2D delegate, float tolerance) {
+        this.delegate = delegate;
+        this.ctol = tolerance * (float) (1.0 / Math.sqrt(2.0));
+        this.tol2 = tolerance * tolerance;
+        this.pending = false;
+        this.sx = this.sy = 0.0f;
+        this.ax = this.ay = 0.0f;
+
+        return this; // fluent API
+    }
+
+    @Override
+    public void pathDone() {
+        emitPending();
+        delegate.pathDone();
+    }
+
+    @Override
+    public void closePath() {
+        emitPending();
+        delegate.closePath();
+        // back to the start point:
+        ax = sx;
+        ay = sy;
+    }
+
+    @Override
+    public void quadTo(float x1, float y1, float x2, float y2) {
+        emitPending();
+        delegate.quadTo(x1, y1, x2, y2);
+        ax = x2;
+        ay = y2;
+    }
+
+    @Override
+    public void curveTo(float x1, float y1, float x2, float y2,
+                        float x3, float y3) {
+        emitPending();
+        delegate.curveTo(x1, y1, x2, y2, x3, y3);
+        ax = x3;
+        ay = y3;
+    }
+
+    @Override
+    public void moveTo(float x, float y) {
+        emitPending();
+        delegate.moveTo(x, y);
+        sx = ax = x;
+        sy = ay = y;
+    }
+
+    @Override
+    public void lineTo(final float x, final float y) {
+        if (!pending) {
+            cx = x;
+            cy = y;
+            pending = true;
+            constrained = false;
+            maxDist = 0.0f;
+            return;
+        }
+        if (!dropPending(x - ax, y - ay)) {
+            // emit the pending point as the new anchor
+            delegate.lineTo(cx, cy);
+            ax = cx;
+            ay = cy;
+            constrained = false;
+            maxDist = 0.0f;
+        }
+        cx = x;
+        cy = y;
+    }
+
+    /*
+     * Return true if the pending point can be dropped ie the segment from the
+     * anchor to the new point (px, py) (relative to the anchor) passes within
+     * the tolerance of the pending point and all dropped points. If so, the
+     * cone of directions is narrowed by the pending point.
+     */
+    private boolean dropPending(final float px, final float py) {
+        final float qx = cx - ax;
+        final float qy = cy - ay;
+        final float d2 = qx * qx + qy * qy;
+
+        boolean _constrained = constrained;
+        float _rx = rx, _ry = ry, _lx = lx, _ly = ly;
+        float _maxDist = maxDist;
+
+        // points closer than the tolerance to the anchor are always within
+        // the tolerance of the segment:
+        if (d2 > tol2) {
+            final float d = (float) Math.sqrt(d2);
+            if (d > _maxDist) {
+                _maxDist = d;
+            }
+            // directions within the cone tolerance of the pending point:
+            // rotate q by +/- theta where sin(theta) = ctol / |q|
+            final float s = ctol / d;
+            final float c = (float) Math.sqrt(1.0f - s * s);
+
+            final float r2x = qx * c + qy * s;
+            final float r2y = qy * c - qx * s;
+            final float l2x = qx * c - qy * s;
+            final float l2y = qy * c + qx * s;
+
+            if (_constrained) {
+                // intersect cones (both narrower than 180 degrees):
+                if (inCone(r2x, r2y, _rx, _ry, _lx, _ly)) {
+                    _rx = r2x;
+                    _ry = r2y;
+                } else if (!inCone(_rx, _ry, r2x, r2y, l2x, l2y)) {
+                    return false;
+                }
+                if (inCone(l2x, l2y, _rx, _ry, _lx, _ly)) {
+                    _lx = l2x;
+                    _ly = l2y;
+                } else if (!inCone(_lx, _ly, r2x, r2y, l2x, l2y)) {
+                    return false;
+                }
+            } else {
+                _constrained = true;
+                _rx = r2x;
+                _ry = r2y;
+                _lx = l2x;
+                _ly = l2y;
+            }
+        }
+        if (_constrained) {
+            if (!inCone(px, py, _rx, _ry, _lx, _ly)) {
+                return false;
+            }
+            // the new end point must not be closer than any dropped point
+            // (minus the cone tolerance):
+            final float minDist = _maxDist - ctol;
+            if ((minDist > 0.0f) && ((px * px + py * py) < minDist * minDist)) {
+                return false;
+            }
+        }
+        // merge segments: drop the pending point
+        constrained = _constrained;
+        rx = _rx;
+        ry = _ry;
+        lx = _lx;
+        ly = _ly;
+        maxDist = _maxDist;
+        return true;
+    }
+
+    /*
+     * Return true if the direction (vx, vy) is within the cone going
+     * counter-clockwise from (rx, ry) to (lx, ly) (narrower than 180 degrees)
+     */
+    private static boolean inCone(final float vx, final float vy,
+                                  final float rx, final float ry,
+                                  final float lx, final float ly)
+    {
+        return ((rx * vy - ry * vx) >= 0.0f)
+            && ((vx * ly - vy * lx) >= 0.0f);
+    }
+
+    private void emitPending() {
+        if (pending) {
+            delegate.lineTo(cx, cy);
+            ax = cx;
+            ay = cy;
+            pending = false;
+        }
+    }
+}
@@ -0,0 +1,345 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.util.Arrays;
+
+/**
+ * Run-length encoded alpha consumer: instead of filling a dense w x h byte
+ * mask, each row is stored as a list of spans (x0, x1, alpha) where x0 is
+ * inclusive, x1 exclusive (absolute pixel coordinates) and alpha in [1..255].
+ * Fully transparent pixels are never stored.
+ *
+ * Large shapes with few coverage changes per row (solid fills, big rectangles,
+ * thick strokes) produce only a handful of runs per row so consumers able to
+ * blit spans can skip the dense mask copy entirely.
+ *
+ * Runs are stored as int triplets in runs[] and row r (relative to originY)
+ * spans the run indices [rowRuns[2 * r], rowRuns[2 * r + 1]).
+ */
+public final class RLEMarlinAlphaConsumer implements MarlinAlphaConsumer {
+    // number of ints per run (x0, x1, alpha):
+    public static final int RUN_STRIDE = 3;
+
+    private static final int INITIAL_RUNS = 1024; // 12K
+
+    int x, y, width, height;
+
+    // run triplets (x0, x1, alpha):
+    int[] runs = new int[INITIAL_RUNS * RUN_STRIDE];
+    // number of used ints in runs:
+    int runsUsed = 0;
+
+    // per row: [start, end[ run indices:
+    int[] rowRuns = new int[INITIAL_RUNS << 1];
+
+    byte[] ALPHA_MAP_USED = null;
+    // max alpha of the alpha map in use:
+    int maxAlphaUsed = 0;
+
+    public RLEMarlinAlphaConsumer() {
+        // nothing to do
+    }
+
+    public void setBoundsNoClone(int x, int y, int w, int h) {
+        this.x = x;
+        this.y = y;
+        this.width = w;
+        this.height = h;
+
+        runsUsed = 0;
+
+        final int rlen = h << 1;
+        if (rowRuns.length < rlen) {
+            rowRuns = new int[ArrayCacheConst.getNewSize(rowRuns.length, rlen)];
+        } else {
+            // empty rows by default:
+            Arrays.fill(rowRuns, 0, rlen, 0);
+        }
+    }
+
+    @Override
+    public int getOriginX() {
+        return x;
+    }
+
+    @Override
+    public int getOriginY() {
+        return y;
+    }
+
+    @Override
+    public int getWidth() {
+        return width;
+    }
+
+    @Override
+    public int getHeight() {
+        return height;
+    }
+
+    /**
+     * @return total number of runs in all rows
+     */
+    public int getRunCount() {
+        return runsUsed / RUN_STRIDE;
+    }
+
+    /**
+     * @return run triplets (x0, x1, alpha) not cloned, valid up to
+     * getRunCount() * RUN_STRIDE
+     */
+    public int[] getRunsNoClone() {
+        return runs;
+    }
+
+    /**
+     * @param row row index relative to getOriginY()
+     * @return index of the first run in the given row
+     */
+    public int getRowStart(final int row) {
+        return rowRuns[row << 1];
+    }
+
+    /**
+     * @param row row index relative to getOriginY()
+     * @return index of the last run (exclusive) in the given row
+     */
+    public int getRowEnd(final int row) {
+        return rowRuns[(row << 1) + 1];
+    }
+
+    /**
+     * Expand runs into the given dense mask (zero-filled by the caller)
+     * @param mask byte array (at least width x height)
+     * @param offset offset of the first pixel
+     * @param scan scanline stride
+     */
+    public void fillMask(final byte[] mask, final int offset, final int scan) {
+        final int[] _runs = runs;
+        final int _x = x;
+
+        for (int r = 0, off = offset, i, end, s; r < height; r++, off += scan) {
+            end = getRowEnd(r) * RUN_STRIDE;
+
+            for (i = getRowStart(r) * RUN_STRIDE; i < end; i += RUN_STRIDE) {
+                s = off - _x;
+                Arrays.fill(mask, s + _runs[i], s + _runs[i + 1],
+                            (byte) _runs[i + 2]);
+            }
+        }
+    }
+
+    @Override
+    public void setMaxAlpha(int maxalpha) {
+        // the map is only looked up when the subpixel resolution changes:
+        if (maxalpha != maxAlphaUsed) {
+            ALPHA_MAP_USED = MaskMarlinAlphaConsumer.getAlphaMap(maxalpha);
+            maxAlphaUsed = maxalpha;
+        }
+    }
+
+    @Override
+    public boolean supportBlockFlags() {
+        return true;
+    }
+
+    @Override
+    public boolean supportParallelRows() {
+        // runs are appended in a shared array:
+        return false;
+    }
+
+    @Override
+    public void clearAlphas(final int pix_y) {
+        // empty row:
+        final int r = (pix_y - y) << 1;
+        final int start = runsUsed / RUN_STRIDE;
+        rowRuns[r    ] = start;
+        rowRuns[r + 1] = start;
+    }
+
+    private int[] ensureRuns(final int needed) {
+        int[] _runs = runs;
+        if (_runs.length < needed) {
+            runs = _runs = Arrays.copyOf(_runs,
+                                ArrayCacheConst.getNewSize(_runs.length, needed));
+        }
+        return _runs;
+    }
+
+    @Override
+    public void setAndClearRelativeAlphas(final int[] alphaDeltas, final int pix_y,
+                                          final int pix_from, final int pix_to)
+    {
+        final byte[] _map = ALPHA_MAP_USED;
+
+        final int from = pix_from - x;
+
+        // skip useless pixels above boundary
+        final int to = pix_to - x;
+        final int ato = Math.min(to, width);
+
+        // worst case: 1 run per pixel:
+        final int[] _runs = ensureRuns(runsUsed + (ato - from) * RUN_STRIDE);
+        int n = runsUsed;
+
+        final int r = (pix_y - y) << 1;
+        rowRuns[r] = n / RUN_STRIDE;
+
+        final int _x = x;
+        int curAlpha = 0;
+        int runAlpha = 0;
+        int runStart = from;
+        int a;
+
+        for (int i = from; i < ato; i++) {
+            curAlpha += alphaDeltas[i];
+
+            a = _map[curAlpha] & 0xFF; // [0..255]
+
+            if (a != runAlpha) {
+                if (runAlpha != 0) {
+                    // emit run:
+                    _runs[n    ] = _x + runStart;
+                    _runs[n + 1] = _x + i;
+                    _runs[n + 2] = runAlpha;
+                    n += RUN_STRIDE;
+                }
+                runStart = i;
+                runAlpha = a;
+            }
+        }
+        if (runAlpha != 0) {
+            _runs[n    ] = _x + runStart;
+            _runs[n + 1] = _x + ato;
+            _runs[n + 2] = runAlpha;
+            n += RUN_STRIDE;
+        }
+        runsUsed = n;
+        rowRuns[r + 1] = n / RUN_STRIDE;
+
+        // Clear alpha row for reuse:
+        IntArrayCache.fill(alphaDeltas, from, to + 1, 0);
+    }
+
+    @Override
+    public void setAndClearRelativeAlphas(final int[] blkFlags, final int[] alphaDeltas, final int pix_y,
+                                          final int pix_from, final int pix_to)
+    {
+        final byte[] _map = ALPHA_MAP_USED;
+
+        final int from = pix_from - x;
+
+        // skip useless pixels above boundary
+        final int to = pix_to - x;
+        final int ato = Math.min(to, width);
+
+        // worst case: 1 run per pixel:
+        final int[] _runs = ensureRuns(runsUsed + (ato - from) * RUN_STRIDE);
+        int n = runsUsed;
+
+        final int r = (pix_y - y) << 1;
+        rowRuns[r] = n / RUN_STRIDE;
+
+        final int _BLK_SIZE_LG  = MarlinConst.BLOCK_SIZE_LG;
+
+        // traverse flagged blocks:
+        final int blkW = (from >> _BLK_SIZE_LG);
+        final int blkE = (ato   >> _BLK_SIZE_LG) + 1;
+        // ensure last block flag = 0 to process final block:
+        blkFlags[blkE] = 0;
+
+        final int _x = x;
+        int curAlpha = 0;
+        int runAlpha = 0;
+        int runStart = from;
+        int a;
+
+        final int _MAX_VALUE = Integer.MAX_VALUE;
+        int last_t0 = _MAX_VALUE;
+
+        for (int t = blkW, blk_x0, blk_x1, cx, delta; t <= blkE; t++) {
+            if (blkFlags[t] != 0) {
+                blkFlags[t] = 0;
+
+                if (last_t0 == _MAX_VALUE) {
+                    last_t0 = t;
+                }
+                continue;
+            }
+            if (last_t0 != _MAX_VALUE) {
+                // emit blocks:
+                blk_x0 = FloatMath.max(last_t0 << _BLK_SIZE_LG, from);
+                last_t0 = _MAX_VALUE;
+
+                // (last block pixel+1) inclusive => +1
+                blk_x1 = FloatMath.min((t << _BLK_SIZE_LG) + 1, ato);
+
+                for (cx = blk_x0; cx < blk_x1; cx++) {
+                    if ((delta = alphaDeltas[cx]) != 0) {
+                        alphaDeltas[cx] = 0;
+
+                        // alpha value = running sum of coverage delta:
+                        curAlpha += delta;
+
+                        a = _map[curAlpha] & 0xFF; // [0..255]
+
+                        if (a != runAlpha) {
+                            if (runAlpha != 0) {
+                                // emit run:
+                                _runs[n    ] = _x + runStart;
+                                _runs[n + 1] = _x + cx;
+                                _runs[n + 2] = runAlpha;
+                                n += RUN_STRIDE;
+                            }
+                            runStart = cx;
+                            runAlpha = a;
+                        }
+                    }
+                }
+            }
+        }
+
+        // Process remaining span:
+        if (runAlpha != 0) {
+            _runs[n    ] = _x + runStart;
+            _runs[n + 1] = _x + ato;
+            _runs[n + 2] = runAlpha;
+            n += RUN_STRIDE;
+        }
+        runsUsed = n;
+        rowRuns[r + 1] = n / RUN_STRIDE;
+
+        // Clear alpha row for reuse:
+        alphaDeltas[ato] = 0;
+
+        if (MarlinConst.DO_CHECKS) {
+            IntArrayCache.check(blkFlags, blkW, blkE, 0);
+            IntArrayCache.check(alphaDeltas, from, to + 1, 0);
+        }
+    }
+}
@@ -0,0 +1,129 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.util.Arrays;
+
+/**
+ * LSD radix sort (8 bits per pass) to sort crossings (x) and edge pointers (y)
+ * at the same time using external auxiliary storage.
+ * It is stable so equal crossings (same value and orientation bit) keep their
+ * order as with MergeSort.
+ */
+final class RadixSort {
+
+    // minimum number of crossings to use radix sort:
+    static final int RADIX_SORT_THRESHOLD = 256;
+
+    // radix sort is used if (new edges + unsorted crossings) * RATIO
+    // is larger than the number of crossings:
+    static final int RADIX_SORT_RATIO = 4;
+
+    // radix (8 bits):
+    static final int RADIX_LG = 8;
+    static final int RADIX_SIZE = 1 << RADIX_LG;
+    static final int RADIX_MASK = RADIX_SIZE - 1;
+
+    /**
+     * Radix sort:
+     * Input arrays are x/y (unsorted: 0 to toIndex)
+     * Outputs are stored in x/y arrays
+     * auxX/auxY are temporary arrays (length >= toIndex)
+     * counts is the temporary histogram array (length >= RADIX_SIZE)
+     */
+    static void radixSortNoCopy(final int[] x, final int[] y,
+                                final int[] auxX, final int[] auxY,
+                                final int[] counts,
+                                final int toIndex)
+    {
+        if ((toIndex > x.length) || (toIndex > y.length)
+                || (toIndex > auxX.length) || (toIndex > auxY.length)
+                || (counts.length < RADIX_SIZE)) {
+            // explicit check to avoid bound checks within hot loops (below):
+            throw new ArrayIndexOutOfBoundsException("bad arguments: toIndex="
+                                                     + toIndex);
+        }
+        if (toIndex <= 1) {
+            return;
+        }
+
+        // find the value range to skip useless passes:
+        int min = x[0];
+        int max = min;
+
+        for (int i = 1, v; i < toIndex; i++) {
+            v = x[i];
+            if (v < min) {
+                min = v;
+            } else if (v > max) {
+                max = v;
+            }
+        }
+        // keys = (x - min) as unsigned integers:
+        final int range = max - min;
+
+        int[] srcX = x, srcY = y, dstX = auxX, dstY = auxY, tmp;
+
+        for (int shift = 0; (shift < 32) && ((range >>> shift) != 0);
+             shift += RADIX_LG)
+        {
+            Arrays.fill(counts, 0, RADIX_SIZE, 0);
+
+            // histogram:
+            for (int i = 0; i < toIndex; i++) {
+                counts[((srcX[i] - min) >>> shift) & RADIX_MASK]++;
+            }
+
+            // exclusive prefix sum = first position of each digit:
+            for (int d = 0, sum = 0, c; d < RADIX_SIZE; d++) {
+                c = counts[d];
+                counts[d] = sum;
+                sum += c;
+            }
+
+            // stable scatter:
+            for (int i = 0, v, p; i < toIndex; i++) {
+                v = srcX[i];
+                p = counts[((v - min) >>> shift) & RADIX_MASK]++;
+                dstX[p] = v;
+                dstY[p] = srcY[i];
+            }
+
+            // swap src and dst:
+            tmp = srcX; srcX = dstX; dstX = tmp;
+            tmp = srcY; srcY = dstY; dstY = tmp;
+        }
+
+        if (srcX != x) {
+            // odd number of passes: copy back data into (x, y):
+            System.arraycopy(srcX, 0, x, 0, toIndex);
+            System.arraycopy(srcY, 0, y, 0, toIndex);
+        }
+    }
+
+    private RadixSort() {
+    }
+}
@@ -56,6 +56,8 @@ public final class RendererContext extends ReentrantContext implements MarlinCon
     public boolean dirty = false;
     // shared data
     public final float[] float6 = new float[6];
+    // decoded coordinates of CompactPath2D chunks (128 cubics)
+    public final float[] float768 = new float[768];
     // shared curve (dirty) (Renderer / Stroker)
     final Curve curve = new Curve();
     // MarlinRenderingEngine.TransformingPathConsumer2D
@@ -66,9 +68,22 @@ public final class RendererContext extends ReentrantContext implements MarlinCon
     final RendererSharedMemory rdrMem;
     public final Renderer renderer;
     private RendererNoAA rendererNoAA = null;
+    private RendererExactAA rendererExactAA = null;
+    private RendererConvex rendererConvex = null;
+    private RendererThinLine rendererThinLine = null;
     public final Stroker stroker;
     // Simplifies out collinear lines
     public final CollinearSimplifier simplifier = new CollinearSimplifier();
+    // Simplifies dense polylines (device space tolerance)
+    public final PathSimplifier pathSimplifier = new PathSimplifier();
+    // path simplifier, read once per context (prism.marlin.usePathSimplifier)
+    // so simplified and exact paths can be compared:
+    public final boolean usePathSimplifier = MarlinProperties.isUsePathSimplifier();
+    // Decimates x-monotone polylines per 1/8 pixel column
+    public final ColumnDecimator decimator = new ColumnDecimator();
+    // column decimator, read once per context (prism.marlin.useColumnDecimator)
+    // so decimated and exact strokes can be compared:
+    public final boolean useColumnDecimator = MarlinProperties.isUseColumnDecimator();
     public final Dasher dasher;
     // flag indicating the shape is stroked (1) or filled (0)
     int stroking = 0;
@@ -84,16 +99,20 @@ public final class RendererContext extends ReentrantContext implements MarlinCon
     public final Rectangle clip = new Rectangle();
     // dirty MaskMarlinAlphaConsumer
     public MaskMarlinAlphaConsumer consumer = null;
+    // dirty RLEMarlinAlphaConsumer
+    public RLEMarlinAlphaConsumer rleConsumer = null;
+    // dirty MaskMarlinAlphaConsumer (fill coverage of inner / outer strokes)
+    public MaskMarlinAlphaConsumer fillConsumer = null;
 
     // Array caches:
     /* clean int[] cache (zero-filled) = 5 refs */
     private final IntArrayCache cleanIntCache = new IntArrayCache(true, 5);
-    /* dirty int[] cache = 5 refs */
-    private final IntArrayCache dirtyIntCache = new IntArrayCache(false, 5);
-    /* dirty float[] cache = 4 refs (2 polystack) */
-    private final FloatArrayCache dirtyFloatCache = new FloatArrayCache(false, 4);
-    /* dirty byte[] cache = 2 ref (2 polystack) */
-    private final ByteArrayCache dirtyByteCache = new ByteArrayCache(false, 2);
+    /* dirty int[] cache = 7 refs (1 exact AA, 1 thin line) */
+    private final IntArrayCache dirtyIntCache = new IntArrayCache(false, 7);
+    /* dirty float[] cache = 10 refs (2 polystack, 2 exact AA, 2 thin line) */
+    private final FloatArrayCache dirtyFloatCache = new FloatArrayCache(false, 10);
+    /* dirty byte[] cache = 3 refs (2 polystack, 1 convex) */
+    private final ByteArrayCache dirtyByteCache = new ByteArrayCache(false, 3);
 
     // RendererContext statistics
     final RendererStats stats;
@@ -186,6 +205,27 @@ public final class RendererContext extends ReentrantContext implements MarlinCon
         return rendererNoAA;
     }
 
+    public RendererExactAA getRendererExactAA() {
+        if (rendererExactAA == null) {
+            rendererExactAA = new RendererExactAA(this);
+        }
+        return rendererExactAA;
+    }
+
+    public RendererConvex getRendererConvex() {
+        if (rendererConvex == null) {
+            rendererConvex = new RendererConvex(this);
+        }
+        return rendererConvex;
+    }
+
+    public RendererThinLine getRendererThinLine() {
+        if (rendererThinLine == null) {
+            rendererThinLine = new RendererThinLine(this);
+        }
+        return rendererThinLine;
+    }
+
     OffHeapArray newOffHeapArray(final long initialSize) {
         if (DO_STATS) {
             stats.totalOffHeapInitial += initialSize;
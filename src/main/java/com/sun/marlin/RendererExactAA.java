@@ -0,0 +1,924 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.util.Arrays;
+
+/**
+ * Anti-aliasing renderer computing the exact signed area covered by the path
+ * in every pixel (analytic coverage) instead of sampling subpixel scanlines.
+ *
+ * Lines are accumulated per pixel row (like font rasterizers): each segment
+ * adds its signed area and cover contributions to an accumulation row, then
+ * the running sum of that row gives the pixel coverage. Edges are processed
+ * once per pixel row (not per subpixel row) and crossings do not need to be
+ * sorted.
+ *
+ * Coverage is exact for non-overlapping contours; overlapping parts are
+ * approximated by clamping (non-zero) or folding (even-odd) the accumulated
+ * coverage, as font rasterizers do.
+ */
+public final class RendererExactAA implements MarlinRenderer, MarlinConst {
+
+    static final boolean DISABLE_RENDER = false;
+
+    // no sampling offset (pixel area):
+    private static final float RDR_OFFSET_X = 0.0f;
+    private static final float RDR_OFFSET_Y = 0.0f;
+
+    // edge record (float values):
+    // x at top, top y, bottom y, dx/dy, orientation (+1 if y increases)
+    private static final int OFF_X0    = 0;
+    private static final int OFF_Y0    = 1;
+    private static final int OFF_Y1    = 2;
+    private static final int OFF_SLOPE = 3;
+    private static final int OFF_DIR   = 4;
+
+    // size of one edge in floats
+    private static final int SIZEOF_EDGE = 5;
+
+    // coverage scale:
+    private static final float ALPHA_SCALE = (float) MAX_EXACT_ALPHA;
+
+    // curve break into lines
+    // cubic error in subpixels to decrement step
+    private static final float CUB_DEC_ERR_SUBPIX
+        = MarlinProperties.getCubicDecD2() * (1.0f / 8.0f); // 1 pixel
+    // cubic error in subpixels to increment step
+    private static final float CUB_INC_ERR_SUBPIX
+        = MarlinProperties.getCubicIncD1() * (1.0f / 8.0f); // 0.4 pixel
+
+    // cubic bind length to decrement step
+    public static final float CUB_DEC_BND
+        = 8.0f * CUB_DEC_ERR_SUBPIX;
+    // cubic bind length to increment step
+    public static final float CUB_INC_BND
+        = 8.0f * CUB_INC_ERR_SUBPIX;
+
+    // cubic countlg
+    public static final int CUB_COUNT_LG = 2;
+    // cubic count = 2^countlg
+    private static final int CUB_COUNT = 1 << CUB_COUNT_LG;
+    // cubic count^2 = 4^countlg
+    private static final int CUB_COUNT_2 = 1 << (2 * CUB_COUNT_LG);
+    // cubic count^3 = 8^countlg
+    private static final int CUB_COUNT_3 = 1 << (3 * CUB_COUNT_LG);
+    // cubic dt = 1 / count
+    private static final float CUB_INV_COUNT = 1.0f / CUB_COUNT;
+    // cubic dt^2 = 1 / count^2 = 1 / 4^countlg
+    private static final float CUB_INV_COUNT_2 = 1.0f / CUB_COUNT_2;
+    // cubic dt^3 = 1 / count^3 = 1 / 8^countlg
+    private static final float CUB_INV_COUNT_3 = 1.0f / CUB_COUNT_3;
+
+    // quad break into lines
+    // quadratic error in subpixels
+    private static final float QUAD_DEC_ERR_SUBPIX
+        = MarlinProperties.getQuadDecD2() * (1.0f / 8.0f); // 0.5 pixel
+
+    // quadratic bind length to decrement step
+    public static final float QUAD_DEC_BND
+        = 8.0f * QUAD_DEC_ERR_SUBPIX;
+
+//////////////////////////////////////////////////////////////////////////////
+//  EDGE LIST
+//////////////////////////////////////////////////////////////////////////////
+    private int edgeMinY = Integer.MAX_VALUE;
+    private int edgeMaxY = Integer.MIN_VALUE;
+    private float edgeMinX = Float.POSITIVE_INFINITY;
+    private float edgeMaxX = Float.NEGATIVE_INFINITY;
+
+    // number of edges
+    private int edgeCount;
+    // edge records (dirty)
+    private float[] edges;
+    // next edge index + 1 in the same bucket (dirty)
+    private int[] edgeNext;
+
+    // first edge index + 1 per pixel row (clean)
+    private int[] edgeBuckets;
+    // used range for edgeBuckets
+    private int buckets_minY;
+    private int buckets_maxY;
+
+    // active edge indices (dirty)
+    private int[] edgePtrs;
+
+    // edges ref (dirty)
+    private final FloatArrayCache.Reference edges_ref;
+    // edgeNext ref (dirty)
+    private final IntArrayCache.Reference edgeNext_ref;
+    // edgeBuckets ref (clean)
+    private final IntArrayCache.Reference edgeBuckets_ref;
+    // edgePtrs ref (dirty)
+    private final IntArrayCache.Reference edgePtrs_ref;
+
+    // Flattens using adaptive forward differencing. This only carries out
+    // one iteration of the AFD loop. All it does is update AFD variables (i.e.
+    // X0, Y0, D*[X|Y], COUNT; not variables used for computing scanline crossings).
+    private void quadBreakIntoLinesAndAdd(float x0, float y0,
+                                          final Curve c,
+                                          final float x2, final float y2)
+    {
+        int count = 1; // dt = 1 / count
+
+        // maximum(ddX|Y) = norm(dbx, dby) * dt^2 (= 1)
+        float maxDD = Math.abs(c.dbx) + Math.abs(c.dby);
+
+        final float _DEC_BND = QUAD_DEC_BND;
+
+        while (maxDD >= _DEC_BND) {
+            // divide step by half:
+            maxDD /= 4.0f; // error divided by 2^2 = 4
+
+            count <<= 1;
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_quadBreak_dec.add(count);
+            }
+        }
+
+        int nL = 0; // line count
+        if (count > 1) {
+            final float icount = 1.0f / count; // dt
+            final float icount2 = icount * icount; // dt^2
+
+            final float ddx = c.dbx * icount2;
+            final float ddy = c.dby * icount2;
+            float dx = c.bx * icount2 + c.cx * icount;
+            float dy = c.by * icount2 + c.cy * icount;
+
+            float x1, y1;
+
+            while (--count > 0) {
+                x1 = x0 + dx;
+                dx += ddx;
+                y1 = y0 + dy;
+                dy += ddy;
+
+                addLine(x0, y0, x1, y1);
+
+                if (DO_STATS) { nL++; }
+                x0 = x1;
+                y0 = y1;
+            }
+        }
+        addLine(x0, y0, x2, y2);
+
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_quadBreak.add(nL + 1);
+        }
+    }
+
+    // x0, y0 and x3,y3 are the endpoints of the curve. We could compute these
+    // using c.xat(0),c.yat(0) and c.xat(1),c.yat(1), but this might introduce
+    // numerical errors, and our callers already have the exact values.
+    // Another alternative would be to pass all the control points, and call
+    // c.set here, but then too many numbers are passed around.
+    private void curveBreakIntoLinesAndAdd(float x0, float y0,
+                                           final Curve c,
+                                           final float x3, final float y3)
+    {
+        int count           = CUB_COUNT;
+        final float icount  = CUB_INV_COUNT;   // dt
+        final float icount2 = CUB_INV_COUNT_2; // dt^2
+        final float icount3 = CUB_INV_COUNT_3; // dt^3
+
+        // the dx and dy refer to forward differencing variables, not the last
+        // coefficients of the "points" polynomial
+        float dddx, dddy, ddx, ddy, dx, dy;
+        dddx = 2.0f * c.dax * icount3;
+        dddy = 2.0f * c.day * icount3;
+        ddx = dddx + c.dbx * icount2;
+        ddy = dddy + c.dby * icount2;
+        dx = c.ax * icount3 + c.bx * icount2 + c.cx * icount;
+        dy = c.ay * icount3 + c.by * icount2 + c.cy * icount;
+
+        // we use x0, y0 to walk the line
+        float x1 = x0, y1 = y0;
+        int nL = 0; // line count
+
+        final float _DEC_BND = CUB_DEC_BND;
+        final float _INC_BND = CUB_INC_BND;
+
+        while (count > 0) {
+            // divide step by half:
+            while (Math.abs(ddx) + Math.abs(ddy) >= _DEC_BND) {
+                dddx /= 8.0f;
+                dddy /= 8.0f;
+                ddx = ddx / 4.0f - dddx;
+                ddy = ddy / 4.0f - dddy;
+                dx = (dx - ddx) / 2.0f;
+                dy = (dy - ddy) / 2.0f;
+
+                count <<= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_dec.add(count);
+                }
+            }
+
+            // double step:
+            // can only do this on even "count" values, because we must divide count by 2
+            while (count % 2 == 0
+                   && Math.abs(dx) + Math.abs(dy) <= _INC_BND)
+            {
+                dx = 2.0f * dx + ddx;
+                dy = 2.0f * dy + ddy;
+                ddx = 4.0f * (ddx + dddx);
+                ddy = 4.0f * (ddy + dddy);
+                dddx *= 8.0f;
+                dddy *= 8.0f;
+
+                count >>= 1;
+                if (DO_STATS) {
+                    rdrCtx.stats.stat_rdr_curveBreak_inc.add(count);
+                }
+            }
+            if (--count > 0) {
+                x1 += dx;
+                dx += ddx;
+                ddx += dddx;
+                y1 += dy;
+                dy += ddy;
+                ddy += dddy;
+            } else {
+                x1 = x3;
+                y1 = y3;
+            }
+
+            addLine(x0, y0, x1, y1);
+
+            if (DO_STATS) { nL++; }
+            x0 = x1;
+            y0 = y1;
+        }
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_curveBreak.add(nL);
+        }
+    }
+
+    private void addLine(float x1, float y1, float x2, float y2) {
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_addLine.add(1);
+        }
+        float dir = 1.0f; // orientation of the line. 1 if y increases, -1 otherwise.
+        if (y2 < y1) {
+            dir = -1.0f;
+            float tmp = y2;
+            y2 = y1;
+            y1 = tmp;
+            tmp = x2;
+            x2 = x1;
+            x1 = tmp;
+        }
+
+        // skip horizontal lines (and NaN):
+        if (!(y1 < y2)) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_addLine_skip.add(1);
+            }
+            return;
+        }
+
+        // pixel rows covered by the edge within boundaries (half-open):
+        final int firstRow = FloatMath.max(FloatMath.floor_int(y1), boundsMinY);
+        final int lastRow  = FloatMath.min(FloatMath.ceil_int(y2),  boundsMaxY);
+
+        // clip edges out of y range [boundsMinY; boundsMaxY]
+        if (firstRow >= lastRow) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_addLine_skip.add(1);
+            }
+            return;
+        }
+
+        if (firstRow < edgeMinY) {
+            edgeMinY = firstRow;
+        }
+        if (lastRow > edgeMaxY) {
+            edgeMaxY = lastRow;
+        }
+        if (x1 < x2) {
+            if (x1 < edgeMinX) {
+                edgeMinX = x1;
+            }
+            if (x2 > edgeMaxX) {
+                edgeMaxX = x2;
+            }
+        } else {
+            if (x2 < edgeMinX) {
+                edgeMinX = x2;
+            }
+            if (x1 > edgeMaxX) {
+                edgeMaxX = x1;
+            }
+        }
+
+        final int n = edgeCount;
+        final int off = n * SIZEOF_EDGE;
+
+        if (edges.length < off + SIZEOF_EDGE) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_rdr_edges_resizes.add(off + SIZEOF_EDGE);
+            }
+            edges = edges_ref.widenArray(edges, off, off + SIZEOF_EDGE);
+        }
+        if (edgeNext.length <= n) {
+            edgeNext = edgeNext_ref.widenArray(edgeNext, n, n + 1);
+        }
+
+        final float[] _edges = edges;
+        _edges[off + OFF_X0   ] = x1;
+        _edges[off + OFF_Y0   ] = y1;
+        _edges[off + OFF_Y1   ] = y2;
+        _edges[off + OFF_SLOPE] = (x2 - x1) / (y2 - y1);
+        _edges[off + OFF_DIR  ] = dir;
+
+        // each bucket is a linked list of edges starting in the same row:
+        final int bucketIdx = firstRow - boundsMinY;
+
+        edgeNext[n] = edgeBuckets[bucketIdx];
+        edgeBuckets[bucketIdx] = n + 1;
+
+        edgeCount = n + 1;
+    }
+
+// END EDGE LIST
+//////////////////////////////////////////////////////////////////////////////
+
+    // Bounds of the drawing region, at pixel precision.
+    private int boundsMinX, boundsMinY, boundsMaxX, boundsMaxY;
+
+    // Current winding rule
+    private int windingRule;
+
+    // Current drawing position, i.e., final point of last segment
+    private float x0, y0;
+
+    // Position of most recent 'moveTo' command
+    private float sx0, sy0;
+
+    // per-thread renderer context
+    final RendererContext rdrCtx;
+    // dirty curve
+    private final Curve curve;
+
+    // clean alpha array (zero filled)
+    private int[] alphaLine;
+
+    // alphaLine ref (clean)
+    private final IntArrayCache.Reference alphaLine_ref;
+
+    // accumulation row (kept zero filled between rows)
+    private float[] accum;
+
+    // accum ref (dirty)
+    private final FloatArrayCache.Reference accum_ref;
+
+    // accumulated width (pixels) and touched range in the current row:
+    private float accWidth;
+    private int accMinX, accMaxX;
+
+    RendererExactAA(final RendererContext rdrCtx) {
+        this.rdrCtx = rdrCtx;
+        this.curve = rdrCtx.curve;
+
+        edgeBuckets_ref = rdrCtx.rdrMem.edgeBuckets_ref;
+        edgeBuckets     = edgeBuckets_ref.initial;
+
+        edgePtrs_ref = rdrCtx.rdrMem.edgePtrs_ref;
+        edgePtrs     = edgePtrs_ref.initial;
+
+        alphaLine_ref = rdrCtx.rdrMem.alphaLine_ref;
+        alphaLine     = alphaLine_ref.initial;
+
+        edges_ref    = rdrCtx.newDirtyFloatArrayRef(INITIAL_EDGES_COUNT * SIZEOF_EDGE);
+        edges        = edges_ref.initial;
+        edgeNext_ref = rdrCtx.newDirtyIntArrayRef(INITIAL_EDGES_COUNT);
+        edgeNext     = edgeNext_ref.initial;
+
+        accum_ref = rdrCtx.newDirtyFloatArrayRef(INITIAL_AA_ARRAY);
+        accum     = accum_ref.initial;
+    }
+
+    public RendererExactAA init(final int pix_boundsX, final int pix_boundsY,
+                  final int pix_boundsWidth, final int pix_boundsHeight,
+                  final int windingRule)
+    {
+        this.windingRule = windingRule;
+
+        // bounds as half-open intervals: minX <= x < maxX and minY <= y < maxY
+        this.boundsMinX = pix_boundsX;
+        this.boundsMaxX = pix_boundsX + pix_boundsWidth;
+        this.boundsMinY = pix_boundsY;
+        this.boundsMaxY = pix_boundsY + pix_boundsHeight;
+
+        if (DO_LOG_BOUNDS) {
+            MarlinUtils.logInfo("boundsXY = [" + boundsMinX + " ... "
+                                + boundsMaxX + "[ [" + boundsMinY + " ... "
+                                + boundsMaxY + "[");
+        }
+
+        // +1 for last row (exclusive)
+        final int edgeBucketsLength = (boundsMaxY - boundsMinY) + 1;
+
+        if (edgeBucketsLength > INITIAL_BUCKET_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_edgeBuckets
+                    .add(edgeBucketsLength);
+            }
+            edgeBuckets = edgeBuckets_ref.getArray(edgeBucketsLength);
+        }
+
+        edgeMinY = Integer.MAX_VALUE;
+        edgeMaxY = Integer.MIN_VALUE;
+        edgeMinX = Float.POSITIVE_INFINITY;
+        edgeMaxX = Float.NEGATIVE_INFINITY;
+
+        // reset used mark:
+        edgeCount = 0;
+
+        // reset bbox:
+        bboxX0 = 0;
+        bboxX1 = 0;
+
+        return this; // fluent API
+    }
+
+    /**
+     * Disposes this renderer and recycle it clean up before reusing this instance
+     */
+    public void dispose() {
+        if (DO_STATS) {
+            rdrCtx.stats.stat_rdr_edges_count.add(edgeCount);
+            rdrCtx.stats.hist_rdr_edges_count.add(edgeCount);
+        }
+        // Return arrays:
+        edges    = edges_ref.putArray(edges);
+        edgeNext = edgeNext_ref.putArray(edgeNext);
+        edgePtrs = edgePtrs_ref.putArray(edgePtrs);
+        accum    = accum_ref.putArray(accum);
+
+        alphaLine = alphaLine_ref.putArray(alphaLine, 0, 0); // already zero filled
+
+        if (edgeMinY != Integer.MAX_VALUE) {
+            // if context is maked as DIRTY:
+            if (rdrCtx.dirty) {
+                // may happen if an exception if thrown in the pipeline processing:
+                // clear completely buckets arrays:
+                buckets_minY = 0;
+                buckets_maxY = boundsMaxY - boundsMinY;
+            }
+            // clear only used part
+            edgeBuckets = edgeBuckets_ref.putArray(edgeBuckets, buckets_minY,
+                                                                buckets_maxY);
+        } else {
+            // unused arrays
+            edgeBuckets = edgeBuckets_ref.putArray(edgeBuckets, 0, 0);
+        }
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering.stop();
+        }
+    }
+
+    private static float tosubpixx(final float pix_x) {
+        return pix_x;
+    }
+
+    private static float tosubpixy(final float pix_y) {
+        return pix_y;
+    }
+
+    @Override
+    public void moveTo(final float pix_x0, final float pix_y0) {
+        closePath();
+        final float sx = tosubpixx(pix_x0);
+        final float sy = tosubpixy(pix_y0);
+        this.sx0 = sx;
+        this.sy0 = sy;
+        this.x0 = sx;
+        this.y0 = sy;
+    }
+
+    @Override
+    public void lineTo(final float pix_x1, final float pix_y1) {
+        final float x1 = tosubpixx(pix_x1);
+        final float y1 = tosubpixy(pix_y1);
+        addLine(x0, y0, x1, y1);
+        x0 = x1;
+        y0 = y1;
+    }
+
+    @Override
+    public void curveTo(final float pix_x1, final float pix_y1,
+                        final float pix_x2, final float pix_y2,
+                        final float pix_x3, final float pix_y3)
+    {
+        final float xe = tosubpixx(pix_x3);
+        final float ye = tosubpixy(pix_y3);
+        curve.set(x0, y0, tosubpixx(pix_x1), tosubpixy(pix_y1),
+                  tosubpixx(pix_x2), tosubpixy(pix_y2), xe, ye);
+        curveBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        x0 = xe;
+        y0 = ye;
+    }
+
+    @Override
+    public void quadTo(final float pix_x1, final float pix_y1,
+                       final float pix_x2, final float pix_y2)
+    {
+        final float xe = tosubpixx(pix_x2);
+        final float ye = tosubpixy(pix_y2);
+        curve.set(x0, y0, tosubpixx(pix_x1), tosubpixy(pix_y1), xe, ye);
+        quadBreakIntoLinesAndAdd(x0, y0, curve, xe, ye);
+        x0 = xe;
+        y0 = ye;
+    }
+
+    @Override
+    public void closePath() {
+        if (x0 != sx0 || y0 != sy0) {
+            addLine(x0, y0, sx0, sy0);
+            x0 = sx0;
+            y0 = sy0;
+        }
+    }
+
+    @Override
+    public void pathDone() {
+        closePath();
+
+        // call endRendering() to determine the boundaries:
+        endRendering();
+    }
+
+    /**
+     * Accumulate the signed area and cover of the given segment (within one
+     * pixel row) into the accumulation row. x coordinates are relative to
+     * the bounding box, y coordinates only matter by their difference.
+     */
+    private void accumulate(final float[] _acc,
+                            float xa, float ya, float xb, float yb,
+                            final float dir)
+    {
+        // left side: the cover of the clipped part goes into the first pixel
+        if (xa < 0.0f || xb < 0.0f) {
+            if (xa <= 0.0f && xb <= 0.0f) {
+                _acc[0] += dir * (yb - ya);
+                accMinX = 0;
+                if (accMaxX < 0) {
+                    accMaxX = 0;
+                }
+                return;
+            }
+            // split at x = 0:
+            final float yc = ya + (yb - ya) * (0.0f - xa) / (xb - xa);
+            if (xa < 0.0f) {
+                _acc[0] += dir * (yc - ya);
+                xa = 0.0f;
+                ya = yc;
+            } else {
+                _acc[0] += dir * (yb - yc);
+                xb = 0.0f;
+                yb = yc;
+            }
+            accMinX = 0;
+            if (accMaxX < 0) {
+                accMaxX = 0;
+            }
+        }
+        // right side: pixels beyond the bounding box are never emitted but
+        // the coverage run must extend up to the bounding box edge
+        final float w = accWidth;
+        if (xa > w || xb > w) {
+            final int wlast = (int) w - 1;
+            if (accMaxX < wlast) {
+                accMaxX = wlast;
+            }
+            if (xa >= w && xb >= w) {
+                return;
+            }
+            // split at x = w:
+            final float yc = ya + (yb - ya) * (w - xa) / (xb - xa);
+            if (xa > w) {
+                xa = w;
+                ya = yc;
+            } else {
+                xb = w;
+                yb = yc;
+            }
+        }
+
+        final float d = dir * (yb - ya);
+
+        final float xl, xr;
+        if (xa < xb) {
+            xl = xa;
+            xr = xb;
+        } else {
+            xl = xb;
+            xr = xa;
+        }
+        final int xli = FloatMath.floor_int(xl);
+        final int xri = FloatMath.ceil_int(xr);
+        final int last;
+
+        if (xri <= xli + 1) {
+            // segment within one pixel column:
+            final float xmf = 0.5f * (xa + xb) - xli;
+            _acc[xli    ] += d - d * xmf;
+            _acc[xli + 1] += d * xmf;
+            last = xli + 1;
+        } else {
+            // segment crossing several pixel columns:
+            final float s = 1.0f / (xr - xl);
+            final float xlf = xl - xli;
+            final float a0 = 0.5f * s * (1.0f - xlf) * (1.0f - xlf);
+            final float xrf = xr - xri + 1.0f;
+            final float am = 0.5f * s * xrf * xrf;
+
+            _acc[xli] += d * a0;
+
+            if (xri == xli + 2) {
+                _acc[xli + 1] += d * (1.0f - a0 - am);
+            } else {
+                final float a1 = s * (1.5f - xlf);
+                _acc[xli + 1] += d * (a1 - a0);
+
+                final float ds = d * s;
+                for (int xi = xli + 2, end = xri - 1; xi < end; xi++) {
+                    _acc[xi] += ds;
+                }
+                final float a2 = a1 + (xri - xli - 3) * s;
+                _acc[xri - 1] += d * (1.0f - a2 - am);
+            }
+            _acc[xri] += d * am;
+            last = xri;
+        }
+        if (xli < accMinX) {
+            accMinX = xli;
+        }
+        if (last > accMaxX) {
+            accMaxX = last;
+        }
+    }
+
+    private void _endRendering(final int ymin, final int ymax,
+                               final MarlinAlphaConsumer ac)
+    {
+        if (DISABLE_RENDER) {
+            return;
+        }
+
+        final int bboxx0 = bboxX0;
+        final int width  = bboxX1 - bboxx0;
+
+        final boolean windingRuleEvenOdd = (windingRule == WIND_EVEN_ODD);
+
+        // local vars (performance):
+        final int[] _alpha = alphaLine;
+        final float[] _acc = accum;
+        final float[] _edges = edges;
+        final int[] _edgeNext = edgeNext;
+        final int[] _edgeBuckets = edgeBuckets;
+        int[] _edgePtrs = edgePtrs;
+
+        final float _ALPHA_SCALE = ALPHA_SCALE;
+        final int _MAX_VALUE = Integer.MAX_VALUE;
+        final int _MIN_VALUE = Integer.MIN_VALUE;
+
+        int numActive = 0;
+        int i, n, e, off, last, a, prevA;
+        float y0, y1, x0, slope, ya, yb, yf, yn, sum, cov;
+
+        for (int y = ymin, bucket = ymin - boundsMinY; y < ymax; y++, bucket++) {
+            // add new edges to the active edge list:
+            for (e = _edgeBuckets[bucket]; e != 0; e = _edgeNext[e - 1]) {
+                if (numActive >= _edgePtrs.length) {
+                    if (DO_STATS) {
+                        rdrCtx.stats.stat_array_renderer_edgePtrs.add(numActive + 1);
+                    }
+                    this.edgePtrs = _edgePtrs
+                        = edgePtrs_ref.widenArray(_edgePtrs, numActive,
+                                                  numActive + 1);
+                }
+                _edgePtrs[numActive++] = e - 1;
+            }
+
+            accMinX = _MAX_VALUE;
+            accMaxX = _MIN_VALUE;
+
+            yf = y;
+            yn = y + 1;
+
+            // accumulate the part of every active edge within this row:
+            for (i = 0, n = 0; i < numActive; i++) {
+                e = _edgePtrs[i];
+                off = e * SIZEOF_EDGE;
+
+                y0 = _edges[off + OFF_Y0];
+                y1 = _edges[off + OFF_Y1];
+
+                ya = (y0 > yf) ? y0 : yf;
+                yb = (y1 < yn) ? y1 : yn;
+
+                if (ya < yb) {
+                    x0 = _edges[off + OFF_X0] - bboxx0;
+                    slope = _edges[off + OFF_SLOPE];
+
+                    accumulate(_acc, x0 + (ya - y0) * slope, ya,
+                                     x0 + (yb - y0) * slope, yb,
+                                     _edges[off + OFF_DIR]);
+                }
+                // keep edges ending below this row:
+                if (y1 > yn) {
+                    _edgePtrs[n++] = e;
+                }
+            }
+            numActive = n;
+
+            if (accMaxX >= accMinX) {
+                // convert coverage running sum into alpha deltas:
+                last = FloatMath.min(accMaxX, width - 1);
+                sum = 0.0f;
+                prevA = 0;
+
+                for (i = accMinX; i <= last; i++) {
+                    sum += _acc[i];
+                    _acc[i] = 0.0f;
+
+                    cov = Math.abs(sum);
+                    if (windingRuleEvenOdd) {
+                        // fold coverage into [0; 1]:
+                        cov -= 2.0f * ((int) (0.5f * cov));
+                        if (cov > 1.0f) {
+                            cov = 2.0f - cov;
+                        }
+                    } else if (cov > 1.0f) {
+                        cov = 1.0f;
+                    }
+                    a = (int) (cov * _ALPHA_SCALE + 0.5f);
+
+                    _alpha[i] = a - prevA;
+                    prevA = a;
+                }
+                // coverage left open (edges beyond the bounding box):
+                // emit the run up to the bounding box edge
+                if ((prevA != 0) && (last < width - 1)) {
+                    for (; i < width; i++) {
+                        _alpha[i] = 0;
+                    }
+                    last = width - 1;
+                }
+                // clear the accumulation row beyond the bounding box:
+                for (; i <= accMaxX; i++) {
+                    _acc[i] = 0.0f;
+                }
+                copyAARow(_alpha, y, bboxx0 + accMinX, bboxx0 + last + 1, ac);
+            } else {
+                ac.clearAlphas(y);
+            }
+        }
+    }
+
+    void endRendering() {
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering.start();
+        }
+        if (edgeMinY == Integer.MAX_VALUE) {
+            return; // undefined edges bounds
+        }
+
+        // bounds as half-open intervals
+        final int pminX = FloatMath.max(FloatMath.floor_int(edgeMinX), boundsMinX);
+        final int pmaxX = FloatMath.min(FloatMath.ceil_int(edgeMaxX),  boundsMaxX);
+
+        // edge Min/Max Y are already rounded to pixels within bounds:
+        final int pminY = edgeMinY;
+        final int pmaxY = edgeMaxY;
+
+        buckets_minY = pminY - boundsMinY;
+        buckets_maxY = pmaxY - boundsMinY;
+
+        if (DO_LOG_BOUNDS) {
+            MarlinUtils.logInfo("edgesXY = [" + edgeMinX + " ... " + edgeMaxX
+                                + "[ [" + edgeMinY + " ... " + edgeMaxY + "[");
+            MarlinUtils.logInfo("pXY     = [" + pminX + " ... " + pmaxX
+                                + "[ [" + pminY + " ... " + pmaxY + "[");
+        }
+
+        // test clipping for shapes out of bounds
+        if ((pminX >= pmaxX) || (pminY >= pmaxY)) {
+            return;
+        }
+
+        // store BBox to answer ptg.getBBox():
+        bboxX0 = pminX;
+        bboxX1 = pmaxX;
+        bboxY0 = pminY;
+        bboxY1 = pmaxY;
+
+        accWidth = (pmaxX - pminX);
+
+        // Prepare alpha line and accumulation row:
+        // add 2 to better deal with the last pixel in a pixel row.
+        final int width = (pmaxX - pminX) + 2;
+
+        if (width > INITIAL_AA_ARRAY) {
+            if (DO_STATS) {
+                rdrCtx.stats.stat_array_renderer_alphaline.add(width);
+            }
+            alphaLine = alphaLine_ref.getArray(width);
+            accum_ref.putArray(accum, 0, 0);
+            accum = accum_ref.getArray(width);
+        }
+        // dirty array:
+        Arrays.fill(accum, 0, width, 0.0f);
+    }
+
+    public void produceAlphas(final MarlinAlphaConsumer ac) {
+        ac.setMaxAlpha(MAX_EXACT_ALPHA);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering_Y.start();
+        }
+
+        // Process all pixel rows:
+        _endRendering(bboxY0, bboxY1, ac);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_endRendering_Y.stop();
+        }
+    }
+
+    void copyAARow(final int[] alphaRow,
+                   final int pix_y, final int pix_from, final int pix_to,
+                   final MarlinAlphaConsumer ac)
+    {
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_copyAARow.start();
+        }
+        if (DO_STATS) {
+            rdrCtx.stats.stat_cache_rowAA.add(pix_to - pix_from);
+        }
+        ac.setAndClearRelativeAlphas(alphaRow, pix_y, pix_from, pix_to);
+
+        if (DO_MONITORS) {
+            rdrCtx.stats.mon_rdr_copyAARow.stop();
+        }
+    }
+
+    // output pixel bounding box:
+    int bboxX0, bboxX1, bboxY0, bboxY1;
+
+    @Override
+    public int getOutpixMinX() {
+        return bboxX0;
+    }
+
+    @Override
+    public int getOutpixMaxX() {
+        return bboxX1;
+    }
+
+    @Override
+    public int getOutpixMinY() {
+        return bboxY0;
+    }
+
+    @Override
+    public int getOutpixMaxY() {
+        return bboxY1;
+    }
+
+    @Override
+    public float getOffsetX() {
+        return RDR_OFFSET_X;
+    }
+
+    @Override
+    public float getOffsetY() {
+        return RDR_OFFSET_Y;
+    }
+}
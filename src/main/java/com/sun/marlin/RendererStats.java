@@ -103,6 +103,8 @@ public final class RendererStats implements MarlinConst {
         = new StatLong("renderer.crossings.bsearch");
     final StatLong stat_rdr_crossings_msorts
         = new StatLong("renderer.crossings.msorts");
+    final StatLong stat_rdr_crossings_rsorts
+        = new StatLong("renderer.crossings.rsorts");
     final StatLong stat_str_polystack_curves
         = new StatLong("stroker.polystack.curves");
     final StatLong stat_str_polystack_types
@@ -198,6 +200,7 @@ public final class RendererStats implements MarlinConst {
         stat_rdr_crossings_sorts,
         stat_rdr_crossings_bsearch,
         stat_rdr_crossings_msorts,
+        stat_rdr_crossings_rsorts,
         stat_str_polystack_types,
         stat_str_polystack_curves,
         stat_cpd_polystack_curves,
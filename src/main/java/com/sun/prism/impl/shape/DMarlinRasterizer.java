@@ -28,12 +28,17 @@ package com.sun.prism.impl.shape;
 import com.sun.javafx.geom.Path2D;
 import com.sun.javafx.geom.RectBounds;
 import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.RoundRectangle2D;
 import com.sun.javafx.geom.Shape;
 import com.sun.javafx.geom.transform.BaseTransform;
 import com.sun.javafx.sg.prism.NGCanvasPath;
+import com.sun.marlin.CompiledShape;
+import com.sun.marlin.MarlinAlphaConsumer;
+import com.sun.marlin.MarlinConst;
 import com.sun.marlin.DMarlinRenderer;
 import com.sun.marlin.DMarlinRenderingEngine;
 import com.sun.marlin.MaskMarlinAlphaConsumer;
+import com.sun.marlin.RLEMarlinAlphaConsumer;
 import com.sun.marlin.DRendererContext;
 import com.sun.prism.BasicStroke;
 import com.sun.prism.impl.PrismSettings;
@@ -51,7 +56,132 @@ public final class DMarlinRasterizer implements ShapeRasterizer {
                                 BaseTransform xform,
                                 boolean close, boolean antialiasedShape)
     {
-        if (stroke != null && stroke.getType() != BasicStroke.TYPE_CENTERED) {
+        final MarlinAlphaConsumer ac = rasterize(shape, stroke, xformBounds,
+                                                 xform, antialiasedShape, false);
+
+        return (ac != null) ? ((MaskMarlinAlphaConsumer)ac).getMaskData()
+                            : EMPTY_MASK;
+    }
+
+    /**
+     * Rasterize the given shape as run-length encoded spans (x0, x1, alpha)
+     * instead of a dense mask.
+     *
+     * The returned consumer belongs to the current DRendererContext so it is
+     * only valid until the next rasterization in this thread.
+     *
+     * @return RLEMarlinAlphaConsumer or null if the shape is empty
+     */
+    public RLEMarlinAlphaConsumer getRLEMaskData(Shape shape,
+                                                 BasicStroke stroke,
+                                                 RectBounds xformBounds,
+                                                 BaseTransform xform,
+                                                 boolean close, boolean antialiasedShape)
+    {
+        return (RLEMarlinAlphaConsumer) rasterize(shape, stroke, xformBounds,
+                                                  xform, antialiasedShape, true);
+    }
+
+    /**
+     * Flatten the given shape into a retained edge list (CompiledShape) that
+     * can be rasterized many times at any translation by
+     * getMaskData(CompiledShape, float, float), skipping path iteration,
+     * curve decimation and clipping for every repeated draw.
+     *
+     * Only antialiased rendering is supported; strokes are compiled as
+     * their filled outline.
+     *
+     * @return CompiledShape or null if the shape is empty
+     */
+    public CompiledShape compileShape(Shape shape,
+                                      BasicStroke stroke,
+                                      BaseTransform xform)
+    {
+        if (stroke != null) {
+            shape = stroke.createStrokedShape(shape);
+        }
+        final DRendererContext rdrCtx = DMarlinRenderingEngine.getRendererContext();
+        try {
+            if (shape instanceof NGCanvasPath) {
+                final NGCanvasPath path = (NGCanvasPath)shape;
+                shape = path.getGeometry(); // use internal Path2D
+                // adjust xform:
+                xform = path.getCombinedTransform(xform);
+            }
+            RectBounds xformBounds = new RectBounds();
+            //TODO: Need to verify that this is a safe cast ... (RT-27427)
+            xformBounds = (RectBounds) xform.transform(shape.getBounds(), xformBounds);
+            if (xformBounds.isEmpty()) {
+                return null;
+            }
+            // clip to the shape bounds (edges are not clipped):
+            final Rectangle rclip = rdrCtx.clip;
+            rclip.setBounds(xformBounds);
+
+            return DMarlinPrismUtils.compileShape(rdrCtx, shape, xform, rclip);
+        } finally {
+            // recycle the RendererContext instance
+            DMarlinRenderingEngine.returnRendererContext(rdrCtx);
+        }
+    }
+
+    /**
+     * Rasterize the given compiled shape translated by (tx, ty) in device
+     * space (rounded to the nearest subpixel) within the given clip
+     * rectangle (device space, null if unclipped).
+     */
+    public MaskData getMaskData(CompiledShape cs, float tx, float ty,
+                                Rectangle clip)
+    {
+        if ((cs == null) || cs.isEmpty()) {
+            return EMPTY_MASK;
+        }
+        final DRendererContext rdrCtx = DMarlinRenderingEngine.getRendererContext();
+        DMarlinRenderer renderer = null;
+        try {
+            renderer = rdrCtx.renderer.initCompiled(cs, tx, ty, clip);
+
+            final int outpix_xmin = renderer.getOutpixMinX();
+            final int outpix_xmax = renderer.getOutpixMaxX();
+            final int outpix_ymin = renderer.getOutpixMinY();
+            final int outpix_ymax = renderer.getOutpixMaxY();
+            final int w = outpix_xmax - outpix_xmin;
+            final int h = outpix_ymax - outpix_ymin;
+            if ((w <= 0) || (h <= 0)) {
+                return EMPTY_MASK;
+            }
+
+            final MaskMarlinAlphaConsumer consumer = getMaskConsumer(rdrCtx, w, h);
+            consumer.setBoundsNoClone(outpix_xmin, outpix_ymin, w, h);
+            renderer.produceAlphas(consumer);
+
+            return consumer.getMaskData();
+        } finally {
+            if (renderer != null) {
+                renderer.dispose();
+            }
+            // recycle the RendererContext instance
+            DMarlinRenderingEngine.returnRendererContext(rdrCtx);
+        }
+    }
+
+    private static MarlinAlphaConsumer rasterize(Shape shape,
+                                                 BasicStroke stroke,
+                                                 RectBounds xformBounds,
+                                                 BaseTransform xform,
+                                                 boolean antialiasedShape,
+                                                 final boolean useRLE)
+    {
+        // inner / outer strokes of shapes having no simple stroked outline
+        // are rasterized as a differential fill:
+        final boolean diffStroke = MarlinConst.USE_DIFFERENTIAL_STROKE
+            && !useRLE && (xformBounds != null)
+            && (stroke != null) && (stroke.getType() != BasicStroke.TYPE_CENTERED)
+            && !(shape instanceof RoundRectangle2D);
+
+        if (!diffStroke
+            && stroke != null && stroke.getType() != BasicStroke.TYPE_CENTERED)
+        {
             // RT-27427
             // TODO: Optimize the combinatorial strokes for simple
             // shapes and/or teach the rasterizer to be able to
@@ -75,7 +205,7 @@ public final class DMarlinRasterizer implements ShapeRasterizer {
             xformBounds = (RectBounds) xform.transform(shape.getBounds(), xformBounds);
         }
         if (xformBounds.isEmpty()) {
-            return EMPTY_MASK;
+            return null;
         }
 
         final DRendererContext rdrCtx = DMarlinRenderingEngine.getRendererContext();
@@ -90,6 +220,18 @@ public final class DMarlinRasterizer implements ShapeRasterizer {
                 // adjust xform:
                 xform = path.getCombinedTransform(xform);
             }
+            // the rectangle coverage matches the renderer at the default
+            // subpixel resolution only (not exact nor adaptive antialiasing):
+            if (!useRLE && (stroke == null) && MarlinConst.USE_RECT_FAST_PATH
+                && !MarlinConst.USE_EXACT_AA
+                && !MarlinConst.USE_ADAPTIVE_SUBPIXELS)
+            {
+                final float[] rect = rdrCtx.float6;
+                if (getDeviceRect(shape, xform, rect)) {
+                    // fast path: no edges, no sorting
+                    return rasterizeRect(rdrCtx, rect, rclip, antialiasedShape);
+                }
+            }
             renderer = DMarlinPrismUtils.setupRenderer(rdrCtx, shape, stroke, xform, rclip,
                     antialiasedShape);
 
@@ -100,21 +242,39 @@ public final class DMarlinRasterizer implements ShapeRasterizer {
             final int w = outpix_xmax - outpix_xmin;
             final int h = outpix_ymax - outpix_ymin;
             if ((w <= 0) || (h <= 0)) {
-                return EMPTY_MASK;
+                return null;
             }
 
-            MaskMarlinAlphaConsumer consumer = rdrCtx.consumer;
-            if (consumer == null || (w * h) > consumer.getAlphaLength()) {
-                final int csize = (w * h + 0xfff) & (~0xfff);
-                rdrCtx.consumer = consumer = new MaskMarlinAlphaConsumer(csize);
-                if (PrismSettings.verbose) {
-                    System.out.println("new alphas with length = " + csize);
+            if (useRLE) {
+                RLEMarlinAlphaConsumer rleConsumer = rdrCtx.rleConsumer;
+                if (rleConsumer == null) {
+                    rdrCtx.rleConsumer = rleConsumer = new RLEMarlinAlphaConsumer();
                 }
+                rleConsumer.setBoundsNoClone(outpix_xmin, outpix_ymin, w, h);
+                renderer.produceAlphas(rleConsumer);
+
+                return rleConsumer;
             }
+
+            final MaskMarlinAlphaConsumer consumer = getMaskConsumer(rdrCtx, w, h);
             consumer.setBoundsNoClone(outpix_xmin, outpix_ymin, w, h);
             renderer.produceAlphas(consumer);
 
-            return consumer.getMaskData();
+            if (diffStroke) {
+                renderer.dispose();
+                renderer = null;
+
+                // restrict the fill to the stroke mask:
+                rclip.setBounds(outpix_xmin, outpix_ymin, w, h);
+
+                if (!DMarlinPrismUtils.maskStroke(rdrCtx, consumer, shape, xform,
+                        rclip, antialiasedShape,
+                        stroke.getType() == BasicStroke.TYPE_INNER))
+                {
+                    return null;
+                }
+            }
+            return consumer;
         } finally {
             if (renderer != null) {
                 renderer.dispose();
@@ -124,25 +284,149 @@ public final class DMarlinRasterizer implements ShapeRasterizer {
         }
     }
 
+    private static MaskMarlinAlphaConsumer getMaskConsumer(final DRendererContext rdrCtx,
+                                                           final int w, final int h)
+    {
+        MaskMarlinAlphaConsumer consumer = rdrCtx.consumer;
+        if (consumer == null || (w * h) > consumer.getAlphaLength()) {
+            final int csize = (w * h + 0xfff) & (~0xfff);
+            rdrCtx.consumer = consumer = new MaskMarlinAlphaConsumer(csize);
+            if (PrismSettings.verbose) {
+                System.out.println("new alphas with length = " + csize);
+            }
+        }
+        return consumer;
+    }
+
+    /**
+     * Return true if the given shape is an axis-aligned rectangle in device
+     * space and store its device bounds (xmin, ymin, xmax, ymax) into rect
+     */
+    private static boolean getDeviceRect(final Shape shape,
+                                         final BaseTransform xform,
+                                         final float[] rect)
+    {
+        if ((xform != null)
+            && ((xform.getMxy() != 0.0) || (xform.getMyx() != 0.0)))
+        {
+            // rotation or shear
+            return false;
+        }
+        if (shape instanceof RoundRectangle2D) {
+            final RoundRectangle2D rr = (RoundRectangle2D)shape;
+            if (((rr.arcWidth != 0.0f) && (rr.arcHeight != 0.0f))
+                || (rr.width < 0.0f) || (rr.height < 0.0f))
+            {
+                return false;
+            }
+            rect[0] = rr.x;
+            rect[1] = rr.y;
+            rect[2] = rr.x + rr.width;
+            rect[3] = rr.y + rr.height;
+        } else if (shape instanceof Path2D) {
+            if (!((Path2D)shape).checkAndGetRect(rect)) {
+                return false;
+            }
+        } else {
+            return false;
+        }
+        if ((xform != null) && !xform.isIdentity()) {
+            final double mxx = xform.getMxx();
+            final double myy = xform.getMyy();
+            final double mxt = xform.getMxt();
+            final double myt = xform.getMyt();
+
+            final float x0 = (float) (mxx * rect[0] + mxt);
+            final float y0 = (float) (myy * rect[1] + myt);
+            final float x1 = (float) (mxx * rect[2] + mxt);
+            final float y1 = (float) (myy * rect[3] + myt);
+
+            // handle flips:
+            rect[0] = Math.min(x0, x1);
+            rect[1] = Math.min(y0, y1);
+            rect[2] = Math.max(x0, x1);
+            rect[3] = Math.max(y0, y1);
+        }
+        // reject NaN values:
+        return (rect[0] <= rect[2]) && (rect[1] <= rect[3]);
+    }
+
+    private static MarlinAlphaConsumer rasterizeRect(final DRendererContext rdrCtx,
+                                                     final float[] rect,
+                                                     final Rectangle rclip,
+                                                     final boolean antialias)
+    {
+        final float x0 = rect[0];
+        final float y0 = rect[1];
+        final float x1 = rect[2];
+        final float y1 = rect[3];
+
+        // covered pixels (partially if antialiased, else by their center):
+        final double pxmin, pymin, pxmax, pymax;
+        if (antialias) {
+            pxmin = Math.floor(x0);
+            pymin = Math.floor(y0);
+            pxmax = Math.ceil(x1);
+            pymax = Math.ceil(y1);
+        } else {
+            pxmin = Math.ceil(x0 - 0.5f);
+            pymin = Math.ceil(y0 - 0.5f);
+            pxmax = Math.ceil(x1 - 0.5f);
+            pymax = Math.ceil(y1 - 0.5f);
+        }
+
+        // clip to the device bounds:
+        final int outpix_xmin = (int) Math.max(pxmin, rclip.x);
+        final int outpix_ymin = (int) Math.max(pymin, rclip.y);
+        final int outpix_xmax = (int) Math.min(pxmax, (double) rclip.x + rclip.width);
+        final int outpix_ymax = (int) Math.min(pymax, (double) rclip.y + rclip.height);
+        final int w = outpix_xmax - outpix_xmin;
+        final int h = outpix_ymax - outpix_ymin;
+        if ((w <= 0) || (h <= 0)) {
+            return null;
+        }
+
+        final MaskMarlinAlphaConsumer consumer = getMaskConsumer(rdrCtx, w, h);
+        consumer.setBoundsNoClone(outpix_xmin, outpix_ymin, w, h);
+        consumer.fillRect(x0, y0, x1, y1, antialias);
+
+        return consumer;
+    }
+
     static Shape createCenteredStrokedShape(Shape s, BasicStroke stroke)
     {
         final float lw = (stroke.getType() == BasicStroke.TYPE_CENTERED) ?
                              stroke.getLineWidth() : stroke.getLineWidth() * 2.0f;
 
+        if (s instanceof NGCanvasPath) {
+            s = ((NGCanvasPath)s).getGeometry(); // use internal Path2D
+        }
+        // static paths are stroked again and again (bounds, picking):
+        final boolean useCache = StrokedShapeCache.ENABLED
+                                 && (s instanceof Path2D);
+        if (useCache) {
+            final Path2D outline = StrokedShapeCache.get((Path2D)s, stroke, lw);
+            if (outline != null) {
+                return outline;
+            }
+        }
+
         final DRendererContext rdrCtx = DMarlinRenderingEngine.getRendererContext();
         try {
             // initialize a large copyable Path2D to avoid a lot of array growing:
             final Path2D p2d = rdrCtx.getPath2D();
 
-            if (s instanceof NGCanvasPath) {
-                s = ((NGCanvasPath)s).getGeometry(); // use internal Path2D
-            }
             DMarlinPrismUtils.strokeTo(rdrCtx, s, stroke, lw,
                      rdrCtx.transformerPC2D.wrapPath2D(p2d)
             );
 
             // Use Path2D copy constructor (trim)
-            return new Path2D(p2d);
+            final Path2D outline = new Path2D(p2d);
+
+            if (useCache) {
+                StrokedShapeCache.put((Path2D)s, stroke, lw, outline);
+            }
+            return outline;
 
         } finally {
             // recycle the DRendererContext instance
@@ -26,16 +26,23 @@
 package com.sun.prism.impl.shape;
 
 
+import com.sun.javafx.geom.ChunkedPath2D;
+import com.sun.javafx.geom.CompactPath2D;
 import com.sun.javafx.geom.PathConsumer2D;
 import com.sun.javafx.geom.PathIterator;
 import com.sun.javafx.geom.Path2D;
 import com.sun.javafx.geom.Rectangle;
 import com.sun.javafx.geom.Shape;
 import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.marlin.ColumnDecimator;
+import com.sun.marlin.CompiledShape;
 import com.sun.marlin.MarlinConst;
 import com.sun.marlin.MarlinProperties;
+import com.sun.marlin.MaskMarlinAlphaConsumer;
 import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.Renderer;
 import com.sun.marlin.RendererContext;
+import com.sun.marlin.RendererThinLine;
 import com.sun.marlin.Stroker;
 import com.sun.marlin.TransformingPathConsumer2D;
 import com.sun.prism.BasicStroke;
@@ -54,6 +61,14 @@ public final class MarlinPrismUtils {
 
     static final boolean DO_CLIP_RUNTIME_ENABLE = MarlinProperties.isDoClipRuntimeFlag();
 
+    // adaptive subpixel resolution:
+    // log2(subpixels) for large flat shapes (4x4)
+    static final int ADAPTIVE_LG_LOW = 2;
+    // log2(subpixels) for small detailed shapes (16x16)
+    static final int ADAPTIVE_LG_HIGH = 4;
+    // maximum size (pixels) of small shapes
+    static final int ADAPTIVE_SMALL_SIZE = 64;
+
     /**
      * Private constructor to prevent instantiation.
      */
@@ -154,6 +169,27 @@ public final class MarlinPrismUtils {
 
         final TransformingPathConsumer2D transformerPC2D = rdrCtx.transformerPC2D;
 
+        if (out instanceof RendererThinLine) {
+            // thin strokes (uniform transform) are rasterized directly by
+            // the thin line renderer (no stroke outline) that adjusts the
+            // clip rectangle (width) for the dasher (no path simplifier as
+            // its bands are extended at every join, even at the vertices the
+            // simplifier would remove):
+            pc = ((RendererThinLine) out).initStroke(width, stroke.getEndCap());
+
+            if (dashes != null) {
+                if (!recycleDashes) {
+                    dashLen = dashes.length;
+                }
+                pc = rdrCtx.dasher.init(pc, dashes, dashLen, dashphase, recycleDashes);
+            }
+            if (DO_TRACE_PATH) {
+                // trace Input:
+                pc = transformerPC2D.traceInput(pc);
+            }
+            return pc;
+        }
+
         if (DO_TRACE_PATH) {
             // trace Stroker:
             pc = transformerPC2D.traceStroker(pc);
@@ -189,6 +225,19 @@ public final class MarlinPrismUtils {
         }
         pc = transformerPC2D.inverseDeltaTransformConsumer(pc, strokerTx);
 
+        if ((dashes == null) && rdrCtx.usePathSimplifier
+                && (stroke.getLineJoin() == BasicStroke.JOIN_ROUND)
+                && (stroke.getEndCap() == BasicStroke.CAP_ROUND))
+        {
+            // simplify dense polylines (device space) before stroking
+            // (not dashed paths to preserve their length). Only round joins
+            // and caps keep the outline within the tolerance (disk swept
+            // along the path): miter, bevel, butt or square ends follow the
+            // directions of the removed segments and may move by up to
+            // miterLimit * width / 2:
+            pc = rdrCtx.pathSimplifier.init(pc, MarlinConst.PATH_SIMPLIFIER_TOLERANCE);
+        }
+
         if (DO_TRACE_PATH) {
             // trace Input:
             pc = transformerPC2D.traceInput(pc);
@@ -196,6 +245,7 @@ public final class MarlinPrismUtils {
         /*
          * Pipeline seems to be:
          * shape.getPathIterator(tx)
+         * -> (PathSimplifier) to merge segments within the tolerance
          * -> (inverseDeltaTransformConsumer)
          * -> (Dasher)
          * -> Stroker
@@ -233,7 +283,7 @@ public final class MarlinPrismUtils {
             renderer.init(clip.x, clip.y, clip.width, clip.height,
                           MarlinConst.WIND_NON_ZERO);
 
-            return initStroker(rdrCtx, stroke, stroke.getLineWidth(), tx, renderer);
+            return initStroker(rdrCtx, stroke, getCenteredLineWidth(stroke), tx, renderer);
         } else {
             // Filler:
             final int oprule = (piRule == PathIterator.WIND_EVEN_ODD) ?
@@ -256,6 +306,11 @@ public final class MarlinPrismUtils {
                 pc = rdrCtx.transformerPC2D.pathClipper(pc, rdrOffX, rdrOffY);
             }
 
+            if (rdrCtx.usePathSimplifier) {
+                // simplify dense polylines (device space):
+                pc = rdrCtx.pathSimplifier.init(pc, MarlinConst.PATH_SIMPLIFIER_TOLERANCE);
+            }
+
             if (DO_TRACE_PATH) {
                 // trace Input:
                 pc = transformerPC2D.traceInput(pc);
@@ -264,6 +319,45 @@ public final class MarlinPrismUtils {
         }
     }
 
+    /**
+     * Return the width of the centered stroke to rasterize: inner and outer
+     * strokes are rasterized as centered strokes twice as wide then masked
+     * by the fill coverage (see MarlinRasterizer)
+     */
+    private static float getCenteredLineWidth(final BasicStroke stroke) {
+        return (stroke.getType() == BasicStroke.TYPE_CENTERED) ?
+                   stroke.getLineWidth() : stroke.getLineWidth() * 2.0f;
+    }
+
+    /**
+     * Return true if the given stroke is 1 device pixel wide or less
+     * (uniform transform only) so it can be rasterized by the thin line
+     * renderer
+     */
+    private static boolean isThinStroke(final BasicStroke stroke,
+                                        final BaseTransform tx)
+    {
+        if (stroke == null) {
+            return false;
+        }
+        float width = getCenteredLineWidth(stroke);
+
+        if (tx != null) {
+            final double a = tx.getMxx();
+            final double b = tx.getMxy();
+            final double c = tx.getMyx();
+            final double d = tx.getMyy();
+
+            // same test as initStroker(): constant multiple of an orthogonal
+            // transformation:
+            if (!(nearZero(a*b + c*d) && nearZero(a*a + c*c - (b*b + d*d)))) {
+                return false;
+            }
+            width *= (float) Math.sqrt(a*a + c*c);
+        }
+        return (width <= RendererThinLine.MAX_LINE_WIDTH);
+    }
+
     public static MarlinRenderer setupRenderer(
             final RendererContext rdrCtx,
             final Shape shape,
@@ -275,19 +369,240 @@ public final class MarlinPrismUtils {
         // Test if transform is identity:
         final BaseTransform tf = ((xform != null) && !xform.isIdentity()) ? xform : null;
 
-        final MarlinRenderer r =  (!FORCE_NO_AA && antialiasedShape) ?
-                rdrCtx.renderer : rdrCtx.getRendererNoAA();
+        final MarlinRenderer r;
+        if (!FORCE_NO_AA && antialiasedShape) {
+            if (MarlinConst.USE_EXACT_AA) {
+                r = rdrCtx.getRendererExactAA();
+            } else {
+                if (MarlinConst.USE_THIN_LINE_RENDERER && isThinStroke(stroke, tf)) {
+                    // thin strokes do not need the Stroker nor the general renderer:
+                    r = rdrCtx.getRendererThinLine();
+                } else {
+                    if (MarlinConst.USE_ADAPTIVE_SUBPIXELS) {
+                        setAdaptiveSubpixels(rdrCtx.renderer, shape, stroke, rclip);
+                    }
+                    // convex fills do not need the general renderer:
+                    r = (MarlinConst.USE_CONVEX_RENDERER && (stroke == null))
+                        ? rdrCtx.getRendererConvex() : rdrCtx.renderer;
+                }
+            }
+        } else {
+            r = rdrCtx.getRendererNoAA();
+        }
 
+        feedRenderer(rdrCtx, shape, stroke, tf, rclip, r);
+        return r;
+    }
+
+    /**
+     * Multiply the given centered stroke mask by the fill coverage of the
+     * given shape (inner stroke) or by its complement (outer stroke) so the
+     * stroke is kept only inside or outside the shape. The shape is filled
+     * within the given clip (the stroke mask bounds) after the stroking state
+     * of the given context is reset.
+     *
+     * @return false if the resulting mask is empty
+     */
+    public static boolean maskStroke(final RendererContext rdrCtx,
+                                     final MaskMarlinAlphaConsumer consumer,
+                                     final Shape shape,
+                                     final BaseTransform xform,
+                                     final Rectangle rclip,
+                                     final boolean antialiasedShape,
+                                     final boolean inner)
+    {
+        // reset the stroking state:
+        rdrCtx.dispose();
+
+        final MarlinRenderer renderer = setupRenderer(rdrCtx,
+                shape, null, xform, rclip, antialiasedShape);
+        try {
+            final int outpix_xmin = renderer.getOutpixMinX();
+            final int outpix_ymin = renderer.getOutpixMinY();
+            final int w = renderer.getOutpixMaxX() - outpix_xmin;
+            final int h = renderer.getOutpixMaxY() - outpix_ymin;
+            if ((w <= 0) || (h <= 0)) {
+                // empty fill: no inner stroke, full outer stroke
+                return !inner;
+            }
+
+            MaskMarlinAlphaConsumer fillConsumer = rdrCtx.fillConsumer;
+            if (fillConsumer == null || (w * h) > fillConsumer.getAlphaLength()) {
+                final int csize = (w * h + 0xfff) & (~0xfff);
+                rdrCtx.fillConsumer = fillConsumer = new MaskMarlinAlphaConsumer(csize);
+            }
+            fillConsumer.setBoundsNoClone(outpix_xmin, outpix_ymin, w, h);
+            renderer.produceAlphas(fillConsumer);
+
+            consumer.multiplyAlphas(fillConsumer, !inner);
+            return true;
+        } finally {
+            renderer.dispose();
+        }
+    }
+
+    /**
+     * Flattens the given shape (antialiased fill) into the general renderer
+     * and captures its edges as a CompiledShape: it can then be rasterized
+     * many times at any translation without feeding the path again.
+     *
+     * @return new CompiledShape instance
+     */
+    public static CompiledShape compileShape(
+            final RendererContext rdrCtx,
+            final Shape shape,
+            final BaseTransform xform,
+            final Rectangle rclip)
+    {
+        // Test if transform is identity:
+        final BaseTransform tf = ((xform != null) && !xform.isIdentity()) ? xform : null;
+
+        final Renderer r = rdrCtx.renderer;
+        if (MarlinConst.USE_ADAPTIVE_SUBPIXELS) {
+            setAdaptiveSubpixels(r, shape, null, rclip);
+        }
+        try {
+            feedRenderer(rdrCtx, shape, null, tf, rclip, r);
+
+            return r.compile();
+        } finally {
+            r.dispose();
+        }
+    }
+
+    private static void feedRenderer(
+            final RendererContext rdrCtx,
+            final Shape shape,
+            final BasicStroke stroke,
+            final BaseTransform tf,
+            final Rectangle rclip,
+            final MarlinRenderer r)
+    {
         if (shape instanceof Path2D) {
             final Path2D p2d = (Path2D)shape;
-            final PathConsumer2D pc2d = initRenderer(rdrCtx, stroke, tf, rclip, p2d.getWindingRule(), r);
+            PathConsumer2D pc2d = initRenderer(rdrCtx, stroke, tf, rclip, p2d.getWindingRule(), r);
+
+            if (rdrCtx.useColumnDecimator && (stroke != null)
+                && !stroke.isDashed()
+                && (stroke.getLineJoin() == BasicStroke.JOIN_ROUND)
+                && (stroke.getEndCap() == BasicStroke.CAP_ROUND)
+                && !(r instanceof RendererThinLine)
+                && isMonotonicPolyline(p2d, tf, rclip))
+            {
+                // chart line series: keep only the entry, min, max and exit
+                // points per 1/8 pixel column (device space). Only round
+                // joins and caps keep the outline within 1/8 pixel (other
+                // ends follow the directions of the dropped segments, as the
+                // thin line renderer extends its bands at every join):
+                pc2d = rdrCtx.decimator.init(pc2d);
+            }
             feedConsumer(rdrCtx, p2d, tf, pc2d);
+        } else if (shape instanceof ChunkedPath2D) {
+            final ChunkedPath2D cp2d = (ChunkedPath2D)shape;
+            final PathConsumer2D pc2d = initRenderer(rdrCtx, stroke, tf, rclip, cp2d.getWindingRule(), r);
+            feedConsumer(rdrCtx, cp2d, tf, pc2d);
+        } else if (shape instanceof CompactPath2D) {
+            final CompactPath2D cp2d = (CompactPath2D)shape;
+            final PathConsumer2D pc2d = initRenderer(rdrCtx, stroke, tf, rclip, cp2d.getWindingRule(), r);
+            feedConsumer(rdrCtx, cp2d, tf, pc2d);
         } else {
             final PathIterator pi = shape.getPathIterator(tf);
             final PathConsumer2D pc2d = initRenderer(rdrCtx, stroke, tf, rclip, pi.getWindingRule(), r);
             feedConsumer(rdrCtx, pi, pc2d);
         }
-        return r;
+    }
+
+    /**
+     * Return true if the given path is a single polyline having more than 4
+     * points per decimator column on average whose device x coordinates are
+     * monotonic (chart line series) so its stroke can be decimated per column
+     */
+    private static boolean isMonotonicPolyline(final Path2D p2d,
+                                               final BaseTransform tf,
+                                               final Rectangle rclip)
+    {
+        final int nsegs = p2d.getNumCommands();
+        if (nsegs <= (rclip.width * ColumnDecimator.COLUMNS_PER_PIXEL) << 2) {
+            return false;
+        }
+        final byte[] pTypes = p2d.getCommandsNoClone();
+        if (pTypes[0] != PathIterator.SEG_MOVETO) {
+            return false;
+        }
+        for (int i = 1; i < nsegs; i++) {
+            if (pTypes[i] != PathIterator.SEG_LINETO) {
+                return false;
+            }
+        }
+        final float[] pCoords = p2d.getFloatCoordsNoClone();
+
+        // device x = mxx * x + mxy * y (+ translation):
+        final double mxx = (tf != null) ? tf.getMxx() : 1.0;
+        final double mxy = (tf != null) ? tf.getMxy() : 0.0;
+
+        int dir = 0;
+        double px = mxx * pCoords[0] + mxy * pCoords[1];
+
+        for (int i = 1, coff = 2; i < nsegs; i++, coff += 2) {
+            final double x = mxx * pCoords[coff] + mxy * pCoords[coff + 1];
+            if (x > px) {
+                if (dir < 0) {
+                    return false;
+                }
+                dir = 1;
+            } else if (x < px) {
+                if (dir > 0) {
+                    return false;
+                }
+                dir = -1;
+            } else if (x != px) {
+                // NaN
+                return false;
+            }
+            px = x;
+        }
+        return true;
+    }
+
+    /**
+     * Choose the subpixel resolution of the given renderer from the shape
+     * device bounds and its edge density: large flat fills use 4x4 subpixels
+     * whereas small detailed shapes use more subpixels than the default.
+     */
+    private static void setAdaptiveSubpixels(final Renderer renderer,
+                                             final Shape shape,
+                                             final BasicStroke stroke,
+                                             final Rectangle rclip)
+    {
+        final int lgX = MarlinConst.SUBPIXEL_LG_POSITIONS_X;
+        final int lgY = MarlinConst.SUBPIXEL_LG_POSITIONS_Y;
+
+        // device bounds (pixels):
+        final int size = Math.max(rclip.width, rclip.height);
+        // path segments (unknown for simple shapes having few segments):
+        final int nSegs = (shape instanceof Path2D) ?
+                              ((Path2D)shape).getNumCommands() :
+                          (shape instanceof ChunkedPath2D) ?
+                              ((ChunkedPath2D)shape).getNumCommands() :
+                          (shape instanceof CompactPath2D) ?
+                              ((CompactPath2D)shape).getNumCommands() : 0;
+
+        if (size >= MarlinConst.ADAPTIVE_SUBPIXELS_LARGE_SIZE) {
+            // keep full resolution for strokes (thin edges) or
+            // shapes having more than 1 segment per 8 pixels along the bounds:
+            if ((stroke == null)
+                && (nSegs << 3) < (rclip.width + rclip.height))
+            {
+                renderer.setSubpixelLog2(Math.min(lgX, ADAPTIVE_LG_LOW),
+                                         Math.min(lgY, ADAPTIVE_LG_LOW));
+            }
+        } else if (size <= ADAPTIVE_SMALL_SIZE) {
+            // small shapes having more than 1 segment per pixel:
+            if (nSegs >= size) {
+                renderer.setSubpixelLog2(Math.max(lgX, ADAPTIVE_LG_HIGH),
+                                         Math.max(lgY, ADAPTIVE_LG_HIGH));
+            }
+        }
     }
 
     public static void strokeTo(
@@ -301,6 +616,10 @@ public final class MarlinPrismUtils {
 
         if (shape instanceof Path2D) {
             feedConsumer(rdrCtx, (Path2D)shape, null, pc2d);
+        } else if (shape instanceof ChunkedPath2D) {
+            feedConsumer(rdrCtx, (ChunkedPath2D)shape, null, pc2d);
+        } else if (shape instanceof CompactPath2D) {
+            feedConsumer(rdrCtx, (CompactPath2D)shape, null, pc2d);
         } else {
             feedConsumer(rdrCtx, shape.getPathIterator(null), pc2d);
         }
@@ -433,18 +752,116 @@ public final class MarlinPrismUtils {
         // mark context as DIRTY:
         rdrCtx.dirty = true;
 
+        feedSegments(rdrCtx.float6, p2d.getCommandsNoClone(),
+                     0, p2d.getNumCommands(), p2d.getFloatCoordsNoClone(),
+                     xform, pc2d, false);
+
+        pc2d.pathDone();
+
+        // mark context as CLEAN:
+        rdrCtx.dirty = false;
+    }
+
+    private static void feedConsumer(final RendererContext rdrCtx,
+                                     final ChunkedPath2D cp2d,
+                                     final BaseTransform xform,
+                                     final PathConsumer2D pc2d)
+    {
+        // mark context as DIRTY:
+        rdrCtx.dirty = true;
+
         final float[] coords = rdrCtx.float6;
+        boolean subpathStarted = false;
 
-        // ported from DuctusRenderingEngine.feedConsumer() but simplified:
-        // - removed skip flag = !subpathStarted
-        // - removed pathClosed (ie subpathStarted not set to false)
+        // segments never span blocks:
+        for (ChunkedPath2D.Block b = cp2d.getFirstBlock(); b != null;
+             b = b.getNext())
+        {
+            subpathStarted = feedSegments(coords, b.getCommandsNoClone(),
+                                          0, b.getNumCommands(),
+                                          b.getFloatCoordsNoClone(),
+                                          xform, pc2d, subpathStarted);
+        }
+        pc2d.pathDone();
+
+        // mark context as CLEAN:
+        rdrCtx.dirty = false;
+    }
+
+    private static void feedConsumer(final RendererContext rdrCtx,
+                                     final CompactPath2D cp2d,
+                                     final BaseTransform xform,
+                                     final PathConsumer2D pc2d)
+    {
+        // mark context as DIRTY:
+        rdrCtx.dirty = true;
+
+        final float[] coords = rdrCtx.float6;
         boolean subpathStarted = false;
 
-        final float[] pCoords = p2d.getFloatCoordsNoClone();
-        final byte[] pTypes = p2d.getCommandsNoClone();
-        final int nsegs = p2d.getNumCommands();
+        // decode coordinates by chunks of whole segments:
+        final float[] decoded = rdrCtx.float768;
+        final int maxCoords = decoded.length;
 
-        for (int i = 0, coff = 0; i < nsegs; i++) {
+        final byte[] pTypes = cp2d.getCommandsNoClone();
+        final int nsegs = cp2d.getNumCommands();
+
+        for (int i = 0, coff = 0; i < nsegs; ) {
+            int end = i;
+            int len = 0;
+            for (; end < nsegs; end++) {
+                final int n = numCoords(pTypes[end]);
+                if (len + n > maxCoords) {
+                    break;
+                }
+                len += n;
+            }
+            cp2d.decodeCoords(coff, len, decoded, 0);
+
+            subpathStarted = feedSegments(coords, pTypes, i, end, decoded,
+                                          xform, pc2d, subpathStarted);
+            i = end;
+            coff += len;
+        }
+        pc2d.pathDone();
+
+        // mark context as CLEAN:
+        rdrCtx.dirty = false;
+    }
+
+    // return the number of coordinates of the given segment type
+    private static int numCoords(final int type) {
+        switch (type) {
+        case PathIterator.SEG_MOVETO:
+        case PathIterator.SEG_LINETO:
+            return 2;
+        case PathIterator.SEG_QUADTO:
+            return 4;
+        case PathIterator.SEG_CUBICTO:
+            return 6;
+        default:
+            return 0;
+        }
+    }
+
+    /**
+     * Feed the path segments [from, to[ (Path2D arrays, ChunkedPath2D block
+     * or decoded CompactPath2D chunk) whose coordinates start at pCoords[0]
+     * to the consumer and return the new subpathStarted flag
+     */
+    private static boolean feedSegments(final float[] coords,
+                                        final byte[] pTypes,
+                                        final int from,
+                                        final int to,
+                                        final float[] pCoords,
+                                        final BaseTransform xform,
+                                        final PathConsumer2D pc2d,
+                                        boolean subpathStarted)
+    {
+        // ported from DuctusRenderingEngine.feedConsumer() but simplified:
+        // - removed skip flag = !subpathStarted
+        // - removed pathClosed (ie subpathStarted not set to false)
+        for (int i = from, coff = 0; i < to; i++) {
             switch (pTypes[i]) {
             case PathIterator.SEG_MOVETO:
                 if (xform == null) {
@@ -467,29 +884,38 @@ public final class MarlinPrismUtils {
                 }
                 break;
             case PathIterator.SEG_LINETO:
-                if (xform == null) {
-                    coords[0] = pCoords[coff];
-                    coords[1] = pCoords[coff+1];
-                } else {
-                    xform.transform(pCoords, coff, coords, 0, 1);
+                // process the whole run of lineTo (polyline) in a tight loop:
+                int end = i + 1;
+                while ((end < to) && (pTypes[end] == PathIterator.SEG_LINETO)) {
+                    end++;
                 }
-                coff += 2;
-                /* Checking SEG_LINETO coordinates if they are out of the
-                 * [LOWER_BND, UPPER_BND] range. This check also handles NaN
-                 * and Infinity values. Ignoring current path segment in case
-                 * of invalid data. If segment is skipped its endpoint
-                 * (if valid) is used to begin new subpath.
-                 */
-                if (coords[0] < UPPER_BND && coords[0] > LOWER_BND &&
-                    coords[1] < UPPER_BND && coords[1] > LOWER_BND)
-                {
-                    if (subpathStarted) {
-                        pc2d.lineTo(coords[0], coords[1]);
+                for (; i < end; i++) {
+                    if (xform == null) {
+                        coords[0] = pCoords[coff];
+                        coords[1] = pCoords[coff+1];
                     } else {
-                        pc2d.moveTo(coords[0], coords[1]);
-                        subpathStarted = true;
+                        xform.transform(pCoords, coff, coords, 0, 1);
+                    }
+                    coff += 2;
+                    /* Checking SEG_LINETO coordinates if they are out of the
+                     * [LOWER_BND, UPPER_BND] range. This check also handles NaN
+                     * and Infinity values. Ignoring current path segment in case
+                     * of invalid data. If segment is skipped its endpoint
+                     * (if valid) is used to begin new subpath.
+                     */
+                    if (coords[0] < UPPER_BND && coords[0] > LOWER_BND &&
+                        coords[1] < UPPER_BND && coords[1] > LOWER_BND)
+                    {
+                        if (subpathStarted) {
+                            pc2d.lineTo(coords[0], coords[1]);
+                        } else {
+                            pc2d.moveTo(coords[0], coords[1]);
+                            subpathStarted = true;
+                        }
                     }
                 }
+                // the last lineTo of the run is at (end - 1):
+                i--;
                 break;
             case PathIterator.SEG_QUADTO:
                 if (xform == null) {
@@ -578,9 +1004,6 @@ public final class MarlinPrismUtils {
             default:
             }
         }
-        pc2d.pathDone();
-
-        // mark context as CLEAN:
-        rdrCtx.dirty = false;
+        return subpathStarted;
     }
 }
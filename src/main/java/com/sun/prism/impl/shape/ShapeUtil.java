@@ -67,6 +67,33 @@ public class ShapeUtil {
         return shapeRasterizer.getMaskData(shape, stroke, xformBounds, xform, close, antialiasedShape);
     }
 
+    /**
+     * Rasterize the given shape as run-length encoded spans if Marlin is
+     * enabled (see RLEMarlinAlphaConsumer), allowing span-capable consumers
+     * to skip the dense mask.
+     *
+     * @return RLE spans (only valid until the next rasterization in the
+     * current thread) or null if the shape is empty or Marlin is disabled:
+     * callers must then fall back to rasterizeShape()
+     */
+    public static com.sun.marlin.RLEMarlinAlphaConsumer rasterizeShapeRLE(
+                                          Shape shape,
+                                          BasicStroke stroke,
+                                          RectBounds xformBounds,
+                                          BaseTransform xform,
+                                          boolean close, boolean antialiasedShape)
+    {
+        if (MARLIN_ENABLED) {
+            if (USE_MARLIN_DP) {
+                return ((DMarlinRasterizer)shapeRasterizer).getRLEMaskData(
+                    shape, stroke, xformBounds, xform, close, antialiasedShape);
+            }
+            return ((MarlinRasterizer)shapeRasterizer).getRLEMaskData(
+                shape, stroke, xformBounds, xform, close, antialiasedShape);
+        }
+        return null;
+    }
+
     public static Shape createCenteredStrokedShape(Shape s, BasicStroke stroke)
     {
         if (MARLIN_ENABLED) {
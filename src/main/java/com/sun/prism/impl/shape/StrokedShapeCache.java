@@ -0,0 +1,199 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.prism.impl.shape;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.MarlinProperties;
+import com.sun.prism.BasicStroke;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Bounded cache of centered stroked outlines (Path2D only) keyed by the path
+ * content, the stroke attributes and the line width: prism strokes the same
+ * static shapes again and again to get their bounds or to pick them.
+ *
+ * The cache is size-aware (total coordinates of the cached paths and
+ * outlines) and evicts the least recently used entries. Cached outlines are
+ * never modified: their arrays are shared with the outlines given to put()
+ * and returned by get() until these are modified (copy on write, see
+ * {@link Path2D#sharedCopy()}), so a hit does not copy the outline.
+ *
+ * Thread-safe (synchronized) as prism may stroke shapes on several threads.
+ */
+final class StrokedShapeCache {
+
+    // true to enable the stroked outline cache
+    static final boolean ENABLED = MarlinProperties.isUseStrokeCache();
+
+    // max number of coordinates (paths and outlines) in the cache:
+    static final int MAX_COORDS = MarlinProperties.getStrokeCacheSize();
+
+    // max number of coordinates of a single entry:
+    static final int MAX_ENTRY_COORDS = MAX_COORDS >> 2;
+
+    private static final LinkedHashMap<Key, Path2D> CACHE
+        = new LinkedHashMap<>(64, 0.75f, true);
+
+    // total number of coordinates in the cache:
+    private static int usedCoords = 0;
+
+    // statistics:
+    private static long hits = 0L;
+    private static long misses = 0L;
+
+    private StrokedShapeCache() {
+        // no instance
+    }
+
+    /**
+     * Return the cached outline (shared copy) of the given path stroked with
+     * the given stroke and line width or null if not cached.
+     */
+    static Path2D get(final Path2D path, final BasicStroke stroke,
+                      final float lineWidth)
+    {
+        final Key key = new Key(path, stroke, lineWidth);
+        synchronized (CACHE) {
+            final Path2D outline = CACHE.get(key);
+            if (outline == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+            return outline.sharedCopy();
+        }
+    }
+
+    /**
+     * Store the given (trimmed) outline of the given path stroked with the
+     * given stroke and line width if it is not too large: the outline
+     * shares its arrays with the cache (copy on write).
+     */
+    static void put(final Path2D path, final BasicStroke stroke,
+                    final float lineWidth, final Path2D outline)
+    {
+        // size of the trimmed copies, checked before copying:
+        final int coords = path.getNumCoords() + outline.getNumCoords();
+        if (coords > MAX_ENTRY_COORDS) {
+            return;
+        }
+        // copy the mutable inputs (trimmed), share the outline:
+        final Path2D keyPath = new Path2D(path);
+        final Path2D value = outline.sharedCopy();
+
+        final Key key = new Key(keyPath, copy(stroke), lineWidth);
+        key.coords = coords;
+
+        synchronized (CACHE) {
+            final Path2D old = CACHE.put(key, value);
+            if (old != null) {
+                // already cached by another thread (same size):
+                return;
+            }
+            usedCoords += coords;
+
+            // evict least recently used entries:
+            for (final Iterator<Map.Entry<Key, Path2D>> it
+                    = CACHE.entrySet().iterator();
+                 (usedCoords > MAX_COORDS) && it.hasNext(); )
+            {
+                usedCoords -= it.next().getKey().coords;
+                it.remove();
+            }
+        }
+    }
+
+    /**
+     * Return the number of cache hits since startup.
+     */
+    static long getHits() {
+        synchronized (CACHE) {
+            return hits;
+        }
+    }
+
+    /**
+     * Return the number of cache misses since startup.
+     */
+    static long getMisses() {
+        synchronized (CACHE) {
+            return misses;
+        }
+    }
+
+    private static BasicStroke copy(final BasicStroke stroke) {
+        final float[] dash = stroke.getDashArray();
+
+        return new BasicStroke(stroke.getType(), stroke.getLineWidth(),
+                               stroke.getEndCap(), stroke.getLineJoin(),
+                               stroke.getMiterLimit(),
+                               (dash != null) ? Arrays.copyOf(dash, dash.length)
+                                              : null,
+                               stroke.getDashPhase());
+    }
+
+    private static final class Key {
+        final Path2D path;
+        final BasicStroke stroke;
+        final float lineWidth;
+        final int hash;
+        // coordinates of the path and its outline:
+        int coords;
+
+        Key(final Path2D path, final BasicStroke stroke, final float lineWidth) {
+            this.path = path;
+            this.stroke = stroke;
+            this.lineWidth = lineWidth;
+            this.hash = (path.hashCode() * 31 + stroke.hashCode()) * 31
+                        + Float.floatToIntBits(lineWidth);
+        }
+
+        @Override
+        public int hashCode() {
+            return hash;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (obj == this) {
+                return true;
+            }
+            if (obj instanceof Key) {
+                final Key k = (Key) obj;
+                // the line width depends on the stroke type, not compared by
+                // BasicStroke.equals():
+                return (hash == k.hash)
+                    && (lineWidth == k.lineWidth)
+                    && stroke.equals(k.stroke)
+                    && path.equals(k.path);
+            }
+            return false;
+        }
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * Converts a row of coverage deltas into alpha values (running sum then alpha
+ * map lookup) and clears the deltas.
+ *
+ * This is the Java 16+ implementation (multi-release class) using the Vector
+ * API (incubator) as a fast path for chunks of 8 pixels without any coverage
+ * change (zero deltas): their current alpha is broadcast. Chunks having edge
+ * crossings still use the scalar running sum and alpha map lookup as both
+ * are sequential or byte gathers. It requires the jdk.incubator.vector
+ * module at runtime (--add-modules jdk.incubator.vector) and 256-bit vectors
+ * (AVX2), otherwise the scalar loop is used.
+ */
+final class AlphaRowMapper {
+
+    // true if the vectorized implementation is available:
+    static final boolean VECTORIZED;
+
+    // minimum row length to use the vectorized implementation:
+    static final int VECTOR_MIN_LENGTH = 64;
+
+    static {
+        boolean vectorized = false;
+        if (MarlinProperties.isUseVectorAPI()) {
+            try {
+                vectorized = Vectorized.isSupported();
+            } catch (Throwable th) {
+                // jdk.incubator.vector module not available:
+                if (MarlinConst.ENABLE_LOGS) {
+                    MarlinUtils.logInfo("Vector API not available: " + th);
+                }
+            }
+        }
+        VECTORIZED = vectorized;
+    }
+
+    private AlphaRowMapper() {
+        // no instance
+    }
+
+    /**
+     * Convert alpha deltas in [from; to[ into alpha values stored in
+     * out[off + from; off + to[ and clear these deltas.
+     *
+     * @param alphaDeltas coverage deltas (cleared)
+     * @param from first index (inclusive)
+     * @param to last index (exclusive)
+     * @param alphaMap alpha map (coverage to alpha [0..255])
+     * @param out output alphas
+     * @param off offset in output alphas
+     */
+    static void mapAndClearRow(final int[] alphaDeltas, final int from,
+                               final int to, final byte[] alphaMap,
+                               final byte[] out, final int off)
+    {
+        if (VECTORIZED) {
+            Vectorized.mapAndClearRow(alphaDeltas, from, to, alphaMap, out, off);
+            return;
+        }
+        int curAlpha = 0;
+
+        for (int i = from; i < to; i++) {
+            curAlpha += alphaDeltas[i];
+            alphaDeltas[i] = 0;
+
+            out[off + i] = alphaMap[curAlpha]; // [0..255]
+        }
+    }
+
+    // isolate Vector API classes (loaded only if available):
+    private static final class Vectorized {
+
+        // 8 int lanes and 8 byte lanes:
+        static final VectorSpecies<Integer> SPECIES_INT = IntVector.SPECIES_256;
+        static final VectorSpecies<Byte> SPECIES_BYTE = ByteVector.SPECIES_64;
+        static final int LANES = SPECIES_INT.length();
+
+        static boolean isSupported() {
+            // avoid slow emulation on hardware without 256-bit vectors:
+            return IntVector.SPECIES_PREFERRED.vectorBitSize()
+                       >= SPECIES_INT.vectorBitSize();
+        }
+
+        static void mapAndClearRow(final int[] alphaDeltas, final int from,
+                                   final int to, final byte[] alphaMap,
+                                   final byte[] out, final int off)
+        {
+            final VectorSpecies<Integer> _SPECIES_INT = SPECIES_INT;
+            final VectorSpecies<Byte> _SPECIES_BYTE = SPECIES_BYTE;
+            final int _LANES = LANES;
+            final IntVector zero = IntVector.zero(_SPECIES_INT);
+
+            int curAlpha = 0;
+            int i = from;
+
+            for (final int bound = from + _SPECIES_INT.loopBound(to - from);
+                 i < bound; i += _LANES)
+            {
+                final IntVector v = IntVector.fromArray(_SPECIES_INT, alphaDeltas, i);
+
+                // coverage spans are mostly constant (inside or outside the
+                // shape): store the current alpha for 8 pixels at once:
+                if (v.eq(0).allTrue()) {
+                    ByteVector.broadcast(_SPECIES_BYTE, alphaMap[curAlpha])
+                              .intoArray(out, off + i);
+                } else {
+                    // edge crossings: scalar running sum
+                    for (int j = i, end = i + _LANES; j < end; j++) {
+                        curAlpha += alphaDeltas[j];
+                        out[off + j] = alphaMap[curAlpha];
+                    }
+                    zero.intoArray(alphaDeltas, i);
+                }
+            }
+
+            // remaining pixels:
+            for (; i < to; i++) {
+                curAlpha += alphaDeltas[i];
+                alphaDeltas[i] = 0;
+
+                out[off + i] = alphaMap[curAlpha]; // [0..255]
+            }
+        }
+    }
+}
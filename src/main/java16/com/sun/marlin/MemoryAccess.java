@@ -0,0 +1,131 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package com.sun.marlin;
+
+import java.lang.invoke.MethodHandles;
+import java.lang.invoke.VarHandle;
+import java.nio.ByteOrder;
+import java.util.Arrays;
+import static com.sun.marlin.MarlinConst.USE_HEAP_STORAGE;
+import sun.misc.Unsafe;
+
+/**
+ * Accessors of the OffHeapArray memory blocks using (base, address + offset):
+ * base is null for off-heap memory and the byte[] array for heap storage.
+ *
+ * This is the Java 16+ implementation (multi-release class): heap storage is
+ * accessed with byte array view VarHandles (address = array index) so the
+ * heap mode does no Unsafe access; off-heap memory still uses Unsafe.
+ */
+final class MemoryAccess {
+
+    // unsafe reference (off-heap storage only)
+    private static final Unsafe UNSAFE = OffHeapArray.UNSAFE;
+
+    // int / long views of heap storage arrays (byte[]) in native byte order
+    // (unaligned plain accesses are supported):
+    private static final VarHandle INTS
+        = MethodHandles.byteArrayViewVarHandle(int[].class,
+                                               ByteOrder.nativeOrder());
+    private static final VarHandle LONGS
+        = MethodHandles.byteArrayViewVarHandle(long[].class,
+                                               ByteOrder.nativeOrder());
+
+    // address of the first byte of heap storage arrays (byte[]):
+    static final long HEAP_BASE_OFFSET = 0L;
+
+    private MemoryAccess() {
+        // no instance
+    }
+
+    static int getInt(final Object base, final long addr) {
+        if (USE_HEAP_STORAGE) {
+            return (int) INTS.get((byte[]) base, (int) addr);
+        }
+        return UNSAFE.getInt(addr);
+    }
+
+    static void putInt(final Object base, final long addr, final int val) {
+        if (USE_HEAP_STORAGE) {
+            INTS.set((byte[]) base, (int) addr, val);
+            return;
+        }
+        UNSAFE.putInt(addr, val);
+    }
+
+    static long getLong(final Object base, final long addr) {
+        if (USE_HEAP_STORAGE) {
+            return (long) LONGS.get((byte[]) base, (int) addr);
+        }
+        return UNSAFE.getLong(addr);
+    }
+
+    static void putLong(final Object base, final long addr, final long val) {
+        if (USE_HEAP_STORAGE) {
+            LONGS.set((byte[]) base, (int) addr, val);
+            return;
+        }
+        UNSAFE.putLong(addr, val);
+    }
+
+    static byte getByte(final Object base, final long addr) {
+        if (USE_HEAP_STORAGE) {
+            return ((byte[]) base)[(int) addr];
+        }
+        return UNSAFE.getByte(addr);
+    }
+
+    static void putByte(final Object base, final long addr, final byte val) {
+        if (USE_HEAP_STORAGE) {
+            ((byte[]) base)[(int) addr] = val;
+            return;
+        }
+        UNSAFE.putByte(addr, val);
+    }
+
+    static void copyMemory(final Object srcBase, final long srcAddr,
+                           final Object dstBase, final long dstAddr,
+                           final long len)
+    {
+        if (USE_HEAP_STORAGE) {
+            System.arraycopy((byte[]) srcBase, (int) srcAddr,
+                             (byte[]) dstBase, (int) dstAddr, (int) len);
+            return;
+        }
+        UNSAFE.copyMemory(srcAddr, dstAddr, len);
+    }
+
+    static void setMemory(final Object base, final long addr, final long len,
+                          final byte val)
+    {
+        if (USE_HEAP_STORAGE) {
+            final int off = (int) addr;
+            Arrays.fill((byte[]) base, off, off + (int) len, val);
+            return;
+        }
+        UNSAFE.setMemory(addr, len, val);
+    }
+}
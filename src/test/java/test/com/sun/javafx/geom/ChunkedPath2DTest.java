@@ -0,0 +1,161 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.ChunkedPath2D;
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.PathIterator;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that ChunkedPath2D stores the same segments as Path2D and
+ * sizes its blocks from the initial capacity up to 4096 segments
+ */
+public class ChunkedPath2DTest {
+
+    private static final int MAX_BLOCK_TYPES = 4096;
+
+    static void addSegments(Random rnd, Path2D p2d, ChunkedPath2D cp2d, int n) {
+        for (int i = 0; i < n; i++) {
+            final float x = 100f * rnd.nextFloat(), y = 100f * rnd.nextFloat();
+            switch (rnd.nextInt(10)) {
+                case 0:
+                    p2d.moveTo(x, y);
+                    cp2d.moveTo(x, y);
+                    break;
+                case 1:
+                    p2d.closePath();
+                    cp2d.closePath();
+                    break;
+                case 2:
+                    p2d.quadTo(y, x, x, y);
+                    cp2d.quadTo(y, x, x, y);
+                    break;
+                case 3:
+                    p2d.curveTo(y, x, x, x, x, y);
+                    cp2d.curveTo(y, x, x, x, x, y);
+                    break;
+                default:
+                    p2d.lineTo(x, y);
+                    cp2d.lineTo(x, y);
+            }
+        }
+    }
+
+    static void assertSameSegments(Path2D p2d, ChunkedPath2D cp2d) {
+        final float[] expected = new float[6];
+        final float[] actual = new float[6];
+        final PathIterator pi = p2d.getPathIterator(null);
+        final PathIterator cpi = cp2d.getPathIterator(null);
+
+        for (; !pi.isDone(); pi.next(), cpi.next()) {
+            assertEquals(false, cpi.isDone());
+            Arrays.fill(actual, 0f);
+            Arrays.fill(expected, 0f);
+            assertEquals(pi.currentSegment(expected), cpi.currentSegment(actual));
+            assertArrayEquals(expected, actual, 0f);
+        }
+        assertEquals(true, cpi.isDone());
+        assertEquals(p2d.getNumCommands(), cp2d.getNumCommands());
+    }
+
+    static int[] getBlockSizes(ChunkedPath2D cp2d) {
+        final int[] sizes = new int[cp2d.getNumBlocks()];
+        int n = 0;
+        for (ChunkedPath2D.Block b = cp2d.getFirstBlock(); b != null; b = b.getNext()) {
+            sizes[n++] = b.getCommandsNoClone().length;
+        }
+        assertEquals(sizes.length, n);
+        return sizes;
+    }
+
+    private static void test(ChunkedPath2D cp2d, int n) {
+        final Random rnd = new Random(n);
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(0f, 0f);
+        cp2d.moveTo(0f, 0f);
+        addSegments(rnd, p2d, cp2d, n);
+        assertSameSegments(p2d, cp2d);
+
+        // copy then append:
+        final ChunkedPath2D copy = cp2d.copy();
+        assertSameSegments(p2d, copy);
+        final Path2D p2dCopy = new Path2D(p2d);
+        addSegments(rnd, p2dCopy, copy, n);
+        assertSameSegments(p2dCopy, copy);
+        // unchanged:
+        assertSameSegments(p2d, cp2d);
+    }
+
+    @Test
+    public void testSegments() {
+        for (int n : new int[] {1, 10, 1000, 100000}) {
+            test(new ChunkedPath2D(), n);
+            test(new ChunkedPath2D(Path2D.WIND_EVEN_ODD, n), n);
+        }
+    }
+
+    @Test
+    public void testSmallPath() {
+        final ChunkedPath2D cp2d = new ChunkedPath2D();
+        cp2d.moveTo(0f, 0f);
+        cp2d.lineTo(1f, 0f);
+        cp2d.lineTo(1f, 1f);
+        cp2d.closePath();
+
+        assertEquals(1, cp2d.getNumBlocks());
+        assertTrue(getBlockSizes(cp2d)[0] < MAX_BLOCK_TYPES);
+    }
+
+    @Test
+    public void testBlockGrowth() {
+        final ChunkedPath2D cp2d = new ChunkedPath2D(Path2D.WIND_NON_ZERO, 100);
+        cp2d.moveTo(0f, 0f);
+        for (int i = 0; i < 100000; i++) {
+            cp2d.lineTo(i, i & 1);
+        }
+        final int[] sizes = getBlockSizes(cp2d);
+
+        // first block sized to the initial capacity:
+        assertEquals(100, sizes[0]);
+        for (int i = 1; i < sizes.length; i++) {
+            assertEquals(Math.min(2 * sizes[i - 1], MAX_BLOCK_TYPES), sizes[i]);
+        }
+        assertEquals(MAX_BLOCK_TYPES, sizes[sizes.length - 1]);
+
+        // capacity larger than the max block size:
+        final ChunkedPath2D large = new ChunkedPath2D(Path2D.WIND_NON_ZERO,
+                                                      1000000);
+        large.moveTo(0f, 0f);
+        assertEquals(MAX_BLOCK_TYPES, getBlockSizes(large)[0]);
+    }
+}
@@ -0,0 +1,100 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.CompactPath2D;
+import com.sun.javafx.geom.Path2D;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check the CompactPath2D quantization error and the rejection of
+ * non-finite coordinates
+ */
+public class CompactPath2DTest {
+
+    static void assertRejected(Path2D p2d) {
+        try {
+            new CompactPath2D(p2d);
+            fail("non-finite path accepted");
+        } catch (IllegalArgumentException iae) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testNonFiniteCoords() {
+        final float[] values = {
+            Float.NaN, Float.POSITIVE_INFINITY, Float.NEGATIVE_INFINITY
+        };
+        for (float v : values) {
+            for (int k = 0; k < 6; k++) {
+                final float[] c = {1f, 2f, 30f, 40f, 50f, 6f};
+                c[k] = v;
+                final Path2D p2d = new Path2D();
+                p2d.moveTo(c[0], c[1]);
+                p2d.quadTo(c[2], c[3], c[4], c[5]);
+                p2d.closePath();
+
+                assertRejected(p2d);
+            }
+        }
+    }
+
+    @Test
+    public void testOverflowingBounds() {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(-Float.MAX_VALUE, 0f);
+        p2d.lineTo(Float.MAX_VALUE, 1f);
+
+        assertRejected(p2d);
+    }
+
+    @Test
+    public void testQuantizationError() {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(-500f, 10f);
+        for (int i = 0; i < 1000; i++) {
+            p2d.lineTo(-500f + 0.997f * i, 10f + 300f * (float) Math.sin(i));
+        }
+        p2d.closePath();
+
+        final CompactPath2D cp2d = new CompactPath2D(p2d);
+        final float[] decoded = new float[cp2d.getNumCoords()];
+        cp2d.decodeCoords(0, decoded.length, decoded, 0);
+
+        final float[] coords = p2d.getFloatCoordsNoClone();
+        // (max - min) / 131070 plus float rounding:
+        final float tolX = 1000f / 131070f + 1e-4f;
+        final float tolY = 600f / 131070f + 1e-4f;
+        for (int i = 0; i < decoded.length; i += 2) {
+            assertEquals(coords[i], decoded[i], tolX);
+            assertEquals(coords[i + 1], decoded[i + 1], tolY);
+        }
+    }
+}
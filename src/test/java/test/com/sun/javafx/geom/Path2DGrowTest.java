@@ -132,6 +132,12 @@ public class Path2DGrowTest {
             end = System.nanoTime();
             log("testAddMoveAndCloses[" + n + "] duration= "
                 + (1e-6 * (end - start)) + " ms.");
+
+            start = System.nanoTime();
+            testAddPolylines(pf.makePath(), n);
+            end = System.nanoTime();
+            log("testAddPolylines[" + n + "] duration= "
+                + (1e-6 * (end - start)) + " ms.");
         }
     }
 
@@ -188,4 +194,16 @@ public class Path2DGrowTest {
             addClose(pathA);
         }
     }
+
+    static void testAddPolylines(Path2D pathA, int n) {
+        // bulk appends of growing polylines (10 points max):
+        final float[] xy = new float[20];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = 1.1f * i;
+        }
+        for (int i = 0, len = 1; i < n; i += len) {
+            len = Math.min(1 + (i % 10), n - i);
+            pathA.appendPolyline(xy, 0, len, (i & 1) != 0);
+        }
+    }
 }
@@ -0,0 +1,156 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.PathIterator;
+import java.util.Arrays;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the hit tests of large Path2D instances (using the
+ * segment index) give the same results as the full loop over the segments
+ */
+public class Path2DIndexTest {
+
+    // enough segments to use the segment index:
+    private static final int SEGMENTS = 2000;
+
+    private static final int QUERIES = 2000;
+
+    static Path2D makePath(Random rnd, int rule, boolean mixed, boolean close) {
+        final Path2D p2d = new Path2D(rule);
+        p2d.moveTo(100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+
+        for (int i = 0; i < SEGMENTS; i++) {
+            final int type = (mixed) ? rnd.nextInt(10) : 0;
+            if (type < 5) {
+                p2d.lineTo(100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+            } else if (type < 7) {
+                p2d.quadTo(100f * rnd.nextFloat(), 100f * rnd.nextFloat(),
+                           100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+            } else if (type < 9) {
+                p2d.curveTo(100f * rnd.nextFloat(), 100f * rnd.nextFloat(),
+                            100f * rnd.nextFloat(), 100f * rnd.nextFloat(),
+                            100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+            } else {
+                // new subpath (open or closed):
+                if (close) {
+                    p2d.closePath();
+                }
+                p2d.moveTo(100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+            }
+        }
+        if (close) {
+            p2d.closePath();
+        }
+        return p2d;
+    }
+
+    static float coord(Random rnd, float[] points, int axis) {
+        // exact vertex coordinates hit band and segment boundaries:
+        if (rnd.nextInt(4) == 0) {
+            return points[2 * rnd.nextInt(points.length / 2) + axis];
+        }
+        return 120f * rnd.nextFloat() - 10f;
+    }
+
+    static void check(Random rnd, Path2D p2d) {
+        final float[] points = getPoints(p2d);
+
+        for (int n = 0; n < QUERIES; n++) {
+            final float x = coord(rnd, points, 0);
+            final float y = coord(rnd, points, 1);
+            assertEquals("contains(" + x + ", " + y + ")",
+                         Path2D.contains(p2d.getPathIterator(null), x, y),
+                         p2d.contains(x, y));
+
+            final float w = 10f * rnd.nextFloat() * rnd.nextFloat();
+            final float h = 10f * rnd.nextFloat() * rnd.nextFloat();
+            assertEquals("intersects(" + x + ", " + y + ", " + w + ", " + h + ")",
+                         Path2D.intersects(p2d.getPathIterator(null), x, y, w, h),
+                         p2d.intersects(x, y, w, h));
+            assertEquals("contains(" + x + ", " + y + ", " + w + ", " + h + ")",
+                         Path2D.contains(p2d.getPathIterator(null), x, y, w, h),
+                         p2d.contains(x, y, w, h));
+        }
+    }
+
+    static float[] getPoints(Path2D p2d) {
+        final float[] coords = new float[6];
+        float[] points = new float[64];
+        int n = 0;
+        for (PathIterator pi = p2d.getPathIterator(null); !pi.isDone(); pi.next()) {
+            final int type = pi.currentSegment(coords);
+            final int len = (type == PathIterator.SEG_QUADTO) ? 4
+                          : (type == PathIterator.SEG_CUBICTO) ? 6
+                          : (type == PathIterator.SEG_CLOSE) ? 0 : 2;
+            if (n + len > points.length) {
+                points = Arrays.copyOf(points, 2 * points.length);
+            }
+            System.arraycopy(coords, 0, points, n, len);
+            n += len;
+        }
+        return Arrays.copyOf(points, n);
+    }
+
+    private static void test(long seed, boolean mixed, boolean close) {
+        final Random rnd = new Random(seed);
+
+        for (int rule = Path2D.WIND_EVEN_ODD; rule <= Path2D.WIND_NON_ZERO; rule++) {
+            final Path2D p2d = makePath(rnd, rule, mixed, close);
+            check(rnd, p2d);
+
+            // the index must be rebuilt after any change:
+            p2d.lineTo(50f, 50f);
+            p2d.quadTo(0f, 100f, 100f, 0f);
+            check(rnd, p2d);
+        }
+    }
+
+    @Test
+    public void testPolygons() {
+        test(1L, false, true);
+    }
+
+    @Test
+    public void testPolylines() {
+        test(2L, false, false);
+    }
+
+    @Test
+    public void testClosedMixedPaths() {
+        test(3L, true, true);
+    }
+
+    @Test
+    public void testOpenMixedPaths() {
+        test(4L, true, false);
+    }
+}
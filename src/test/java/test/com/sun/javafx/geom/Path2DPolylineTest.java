@@ -0,0 +1,163 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.Path2D;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that Path2D.appendPolyline gives the same path as moveTo
+ * followed by lineTo calls, and that invalid ranges leave the path unchanged
+ */
+public class Path2DPolylineTest {
+
+    private static final int N = 1000;
+
+    static Path2D makeReference(Path2D p2d, float[] xy, int off, int count,
+                                boolean close)
+    {
+        if (count > 0) {
+            p2d.moveTo(xy[off], xy[off + 1]);
+            for (int i = 1; i < count; i++) {
+                p2d.lineTo(xy[off + 2 * i], xy[off + 2 * i + 1]);
+            }
+            if (close) {
+                p2d.closePath();
+            }
+        }
+        return p2d;
+    }
+
+    static Path2D makeStartedPath() {
+        final Path2D p2d = new Path2D(Path2D.WIND_NON_ZERO, 0);
+        p2d.moveTo(-1f, -2f);
+        p2d.quadTo(3f, 4f, 5f, 6f);
+        return p2d;
+    }
+
+    static void assertSamePath(String msg, Path2D expected, Path2D actual) {
+        assertEquals(msg, expected, actual);
+        assertEquals(msg, expected.getCurrentPoint().x,
+                     actual.getCurrentPoint().x, 0f);
+        assertEquals(msg, expected.getCurrentPoint().y,
+                     actual.getCurrentPoint().y, 0f);
+
+        // the path state must allow appending more segments:
+        expected.lineTo(7f, 8f);
+        actual.lineTo(7f, 8f);
+        assertEquals(msg, expected, actual);
+    }
+
+    @Test
+    public void testFloatPolylines() {
+        final Random rnd = new Random(1234L);
+
+        for (int n = 0; n < 200; n++) {
+            final int count = (n < 10) ? n : rnd.nextInt(N);
+            final int off = 2 * rnd.nextInt(5);
+            final float[] xy = new float[off + 2 * count + 2 * rnd.nextInt(3)];
+            for (int i = 0; i < xy.length; i++) {
+                xy[i] = 1000f * rnd.nextFloat() - 500f;
+            }
+            final boolean close = rnd.nextBoolean();
+
+            final Path2D expected = makeReference(makeStartedPath(), xy, off,
+                                                  count, close);
+            final Path2D actual = makeStartedPath();
+            actual.appendPolyline(xy, off, count, close);
+
+            assertSamePath("float polyline[" + count + "]", expected, actual);
+        }
+    }
+
+    @Test
+    public void testDoublePolylines() {
+        final Random rnd = new Random(5678L);
+
+        for (int n = 0; n < 200; n++) {
+            final int count = (n < 10) ? n : rnd.nextInt(N);
+            final int off = 2 * rnd.nextInt(5);
+            final double[] dxy = new double[off + 2 * count];
+            final float[] xy = new float[dxy.length];
+            for (int i = 0; i < dxy.length; i++) {
+                dxy[i] = 1000.0 * rnd.nextDouble() - 500.0;
+                xy[i] = (float) dxy[i];
+            }
+            final boolean close = rnd.nextBoolean();
+
+            final Path2D expected = makeReference(makeStartedPath(), xy, off,
+                                                  count, close);
+            final Path2D actual = makeStartedPath();
+            actual.appendPolyline(dxy, off, count, close);
+
+            assertSamePath("double polyline[" + count + "]", expected, actual);
+        }
+    }
+
+    @Test
+    public void testLargePolyline() {
+        final int count = 100 * N;
+        final float[] xy = new float[2 * count];
+        for (int i = 0; i < xy.length; i++) {
+            xy[i] = 0.5f * i;
+        }
+        final Path2D expected = makeReference(new Path2D(), xy, 0, count, true);
+        final Path2D actual = new Path2D();
+        actual.appendPolyline(xy, 0, count, true);
+
+        assertSamePath("large polyline", expected, actual);
+    }
+
+    @Test
+    public void testInvalidRanges() {
+        final float[] xy = new float[10];
+        final double[] dxy = new double[10];
+        final int[][] ranges = {
+            {-2, 1}, {0, 6}, {4, 4}, {10, 1}, {12, 0}, {2, Integer.MAX_VALUE}
+        };
+        for (int[] r : ranges) {
+            final Path2D expected = makeStartedPath();
+            final Path2D p2d = makeStartedPath();
+            try {
+                p2d.appendPolyline(xy, r[0], r[1], true);
+                fail("float range [" + r[0] + ", " + r[1] + "] accepted");
+            } catch (ArrayIndexOutOfBoundsException aioobe) {
+                // expected
+            }
+            try {
+                p2d.appendPolyline(dxy, r[0], r[1], true);
+                fail("double range [" + r[0] + ", " + r[1] + "] accepted");
+            } catch (ArrayIndexOutOfBoundsException aioobe) {
+                // expected
+            }
+            assertSamePath("invalid range", expected, p2d);
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.javafx.geom;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.transform.BaseTransform;
+import java.math.BigDecimal;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the numbers of SVG paths are parsed exactly like
+ * Float.parseFloat() and that paths sharing their arrays with the SVG path
+ * cache copy them before any change
+ */
+public class Path2DSVGTest {
+
+    // numbers per SVG path:
+    private static final int NUMBERS = 200;
+
+    private static String randomDigits(Random rnd, int n) {
+        final StringBuilder sb = new StringBuilder(n);
+        for (int i = 0; i < n; i++) {
+            sb.append((char) ('0' + rnd.nextInt(10)));
+        }
+        return sb.toString();
+    }
+
+    private static String randomNumber(Random rnd) {
+        float f;
+        switch (rnd.nextInt(7)) {
+            case 0:
+                // any finite float (Float.toString):
+                do {
+                    f = Float.intBitsToFloat(rnd.nextInt());
+                } while (Float.isNaN(f) || Float.isInfinite(f));
+                return Float.toString(f);
+            case 1:
+                // double digits (17 significant digits):
+                return Double.toString((rnd.nextDouble() - 0.5)
+                                       * Math.pow(10.0, rnd.nextInt(80) - 40));
+            case 2:
+                // denormals:
+                f = Float.intBitsToFloat(rnd.nextInt(0x00800000));
+                return (rnd.nextBoolean()) ? Float.toString(f)
+                                           : new BigDecimal(f).toString();
+            case 3: {
+                // exactly halfway between two floats (round to even):
+                final float g = Float.intBitsToFloat(rnd.nextInt(0x7F000000));
+                return new BigDecimal(g).add(new BigDecimal(Math.nextUp(g)))
+                                        .divide(BigDecimal.valueOf(2L))
+                                        .toString();
+            }
+            case 4: {
+                // halfway integers between 2^24 and 2^26:
+                final long l = (1L << 24) + rnd.nextInt(3 << 24);
+                return Long.toString(l | 1L);
+            }
+            default: {
+                // long mantissas and exponents:
+                final StringBuilder sb = new StringBuilder();
+                if (rnd.nextBoolean()) {
+                    sb.append('-');
+                }
+                final int ni = rnd.nextInt(26);
+                final int nf = rnd.nextInt(26);
+                sb.append(randomDigits(rnd, ni));
+                if ((nf != 0) || (ni == 0)) {
+                    sb.append('.').append(randomDigits(rnd, Math.max(nf, 1)));
+                }
+                if (rnd.nextBoolean()) {
+                    sb.append((rnd.nextBoolean()) ? 'e' : 'E');
+                    sb.append((rnd.nextBoolean()) ? '-' : '+');
+                    sb.append(rnd.nextInt(60));
+                }
+                return sb.toString();
+            }
+        }
+    }
+
+    private static void check(List<String> numbers) {
+        final StringBuilder sb = new StringBuilder("M0 0");
+        for (int i = 0; i < numbers.size(); i += 2) {
+            sb.append(" L").append(numbers.get(i))
+              .append(' ').append(numbers.get(i + 1));
+        }
+        final Path2D p2d = new Path2D();
+        p2d.appendSVGPath(sb.toString());
+
+        final float[] coords = p2d.getFloatCoordsNoClone();
+        for (int i = 0; i < numbers.size(); i++) {
+            final String s = numbers.get(i);
+            assertEquals(s, Float.floatToIntBits(Float.parseFloat(s)),
+                         Float.floatToIntBits(coords[i + 2]));
+        }
+    }
+
+    @Test
+    public void testRandomNumbers() {
+        final Random rnd = new Random(1L);
+        final List<String> numbers = new ArrayList<>(NUMBERS);
+
+        for (int n = 0; n < 1000; n++) {
+            numbers.clear();
+            for (int i = 0; i < NUMBERS; i++) {
+                numbers.add(randomNumber(rnd));
+            }
+            check(numbers);
+        }
+    }
+
+    @Test
+    public void testEdgeCases() {
+        final List<String> numbers = new ArrayList<>();
+        for (String s : new String[] {
+            "0", "-0", "+0", "0.0e10", "-0.0E-10", ".5", "5.", "-.5e1",
+            "1e22", "1e23", "9007199254740993", "9007199254740992e3",
+            "16777217", "16777219", "33554434", "0.1", "0.30000001192092896",
+            "3.4028235e38", "3.4028236e38", "3.40282356779733661637539395458142568448e38",
+            "1e39", "-1e39", "1e-38", "1.17549435E-38", "1.4e-45", "7e-46",
+            "7.006492321624085e-46", "7.0064923216240862e-46", "1e-46",
+            "123456789012345678901234567890", "0.000000000000000000000000000001234567",
+            "1e100000", "1e-100000", "00000000000000000000000001.5"
+        }) {
+            numbers.add(s);
+        }
+        if ((numbers.size() & 1) != 0) {
+            numbers.add("1");
+        }
+        check(numbers);
+    }
+
+    private static Path2D parse(String svg) {
+        final Path2D p2d = new Path2D();
+        p2d.appendSVGPath(svg);
+        return p2d;
+    }
+
+    private static void checkCopyOnWrite(String svg) {
+        final Path2D expected = parse(svg);
+        // shares the arrays of the cached path:
+        final Path2D shared = parse(svg);
+        assertEquals(expected, shared);
+
+        final List<Path2D> changed = new ArrayList<>();
+        Path2D p2d;
+
+        p2d = parse(svg);
+        p2d.lineTo(1f, 2f);
+        changed.add(p2d);
+
+        p2d = parse(svg);
+        p2d.moveTo(3f, 4f);
+        p2d.moveTo(5f, 6f);
+        changed.add(p2d);
+
+        p2d = parse(svg);
+        p2d.moveToRel(3f, 4f);
+        p2d.moveToRel(5f, 6f);
+        changed.add(p2d);
+
+        p2d = parse(svg);
+        p2d.appendPolyline(new float[] {7f, 8f, 9f, 10f}, 0, 2, true);
+        changed.add(p2d);
+
+        p2d = parse(svg);
+        p2d.transform(BaseTransform.getTranslateInstance(100.0, -100.0));
+        changed.add(p2d);
+
+        p2d = parse(svg);
+        p2d.setTo(parse("M1 1 L2 2 L3 3 L4 4 L5 5 L6 6 Z"));
+        p2d.lineTo(11f, 12f);
+        changed.add(p2d);
+
+        p2d = parse(svg);
+        p2d.reset();
+        p2d.moveTo(13f, 14f);
+        p2d.lineTo(15f, 16f);
+        changed.add(p2d);
+
+        for (Path2D c : changed) {
+            assertEquals(false, expected.equals(c));
+        }
+        // neither the shared path nor the cached one changed:
+        assertEquals(expected, shared);
+        assertEquals(expected, parse(svg));
+    }
+
+    @Test
+    public void testCopyOnWrite() {
+        checkCopyOnWrite("M10 20 L30 40 Q50 60 70 80 C1 2 3 4 5 6 Z");
+        // ends with a moveTo (replaced in place):
+        checkCopyOnWrite("M10 20 L30 40 Z M50 60");
+    }
+}
@@ -0,0 +1,146 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.util.Random;
+import static org.junit.Assert.assertNotNull;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the Java 16+ build (java16 profile) loads the
+ * multi-release AlphaRowMapper class and that wide mask rows (Vector API fast
+ * path if available) give the same alphas as narrow tiles (scalar loop)
+ */
+public class AlphaRowMapperTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 320;
+    private static final int CH = 240;
+
+    // tiles narrower than AlphaRowMapper.VECTOR_MIN_LENGTH (64 pixels):
+    private static final int TILE_WIDTH = 40;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private static int getJavaVersion() {
+        // "1.8" or "16":
+        final String version = System.getProperty("java.specification.version");
+        return Integer.parseInt(version.startsWith("1.") ? version.substring(2)
+                                                         : version);
+    }
+
+    @Test
+    public void testMultiReleaseClass() throws ClassNotFoundException {
+        if (getJavaVersion() < 16) {
+            // Java 8 build: scalar class only
+            return;
+        }
+        // the Vector API implementation is only defined by the Java 16+ class
+        // (not initialized so jdk.incubator.vector is not needed to load it):
+        final Class<?> vectorized = Class.forName(
+            "com.sun.marlin.AlphaRowMapper$Vectorized", false,
+            RendererContext.class.getClassLoader());
+        assertNotNull(vectorized);
+    }
+
+    private byte[] fill(final Path2D p2d, final Rectangle clip) {
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            r = MarlinPrismUtils.setupRenderer(rdrCtx, p2d, null, null, clip, true);
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            rdrCtx.dispose();
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d) {
+        final byte[] expected = new byte[CW * CH];
+        for (int tx = 0; tx < CW; tx += TILE_WIDTH) {
+            final int tw = Math.min(TILE_WIDTH, CW - tx);
+            final byte[] tile = fill(p2d, new Rectangle(CX + tx, CY, tw, CH));
+            for (int j = 0; j < CH; j++) {
+                System.arraycopy(tile, j * CW + tx, expected, j * CW + tx, tw);
+            }
+        }
+        final byte[] actual = fill(p2d, new Rectangle(CX, CY, CW, CH));
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, 0);
+    }
+
+    private static Path2D randomPath(final Random rnd, final int n) {
+        final Path2D p2d = new Path2D((rnd.nextBoolean()) ? Path2D.WIND_NON_ZERO
+                                                          : Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(CW * rnd.nextFloat(), CH * rnd.nextFloat());
+        for (int i = 0; i < n; i++) {
+            if (rnd.nextBoolean()) {
+                p2d.lineTo(CW * rnd.nextFloat(), CH * rnd.nextFloat());
+            } else {
+                p2d.quadTo(CW * rnd.nextFloat(), CH * rnd.nextFloat(),
+                           CW * rnd.nextFloat(), CH * rnd.nextFloat());
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    @Test
+    public void testWideRows() {
+        final Random rnd = new Random(1L);
+
+        // few crossings (mostly constant chunks) to many crossings:
+        for (int n = 0; n < 100; n++) {
+            check("path " + n, randomPath(rnd, 3 + (n % 10) * 5));
+        }
+    }
+
+    @Test
+    public void testThinStripes() {
+        // many crossings close to each other (few constant chunks):
+        final Path2D p2d = new Path2D();
+        for (int i = 0; i < CW; i += 3) {
+            final float x = i + 0.37f * (i % 5);
+            p2d.moveTo(x, 0f);
+            p2d.lineTo(x + 1.25f, 0f);
+            p2d.lineTo(x + 31.25f, CH - 20f);
+            p2d.lineTo(x + 30f, CH - 20f);
+            p2d.closePath();
+        }
+        check("stripes", p2d);
+    }
+}
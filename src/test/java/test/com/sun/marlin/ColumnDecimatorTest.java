@@ -0,0 +1,256 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.marlin.ColumnDecimator;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the column decimator reduces dense x-monotone polyline
+ * strokes (chart line series) to a few points per pixel column and gives
+ * nearly the same masks as the exact strokes, and the same masks for the
+ * shapes it does not apply to
+ */
+public class ColumnDecimatorTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 420;
+    private static final int CH = 220;
+
+    // the decimated outline lies within 1/8 pixel of the exact one, so
+    // alphas may differ by 1/8 on both sides of thin strokes:
+    private static final int MAX_DIFF = 64;
+
+    // max relative difference of the total coverage:
+    private static final double MAX_REL_DIFF = 0.02;
+
+    // the decimator setting is read when the context is created:
+    private static final String DECIMATOR_KEY = "prism.marlin.useColumnDecimator";
+
+    private final RendererContext rdrCtx = createContext(false);
+    private final RendererContext decimatorCtx = createContext(true);
+
+    // sums of the alphas and of the absolute alpha differences:
+    private long sumAlpha;
+    private long sumDiff;
+
+    private static RendererContext createContext(final boolean decimate) {
+        final String old = System.setProperty(DECIMATOR_KEY,
+                                              Boolean.toString(decimate));
+        try {
+            return RendererContext.createContext();
+        } finally {
+            if (old == null) {
+                System.clearProperty(DECIMATOR_KEY);
+            } else {
+                System.setProperty(DECIMATOR_KEY, old);
+            }
+        }
+    }
+
+    private static byte[] rasterize(final RendererContext ctx, final Path2D p2d,
+                                    final BasicStroke stroke,
+                                    final BaseTransform tx)
+    {
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            r = MarlinPrismUtils.setupRenderer(ctx, p2d, stroke, tx,
+                                               new Rectangle(CX, CY, CW, CH),
+                                               true);
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            ctx.dispose();
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d,
+                       final BasicStroke stroke, final BaseTransform tx,
+                       final int maxDiff)
+    {
+        final byte[] expected = rasterize(rdrCtx, p2d, stroke, tx);
+        final byte[] actual = rasterize(decimatorCtx, p2d, stroke, tx);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, maxDiff);
+
+        for (int i = 0; i < expected.length; i++) {
+            final int e = expected[i] & 0xFF;
+            sumAlpha += e;
+            sumDiff += Math.abs(e - (actual[i] & 0xFF));
+        }
+    }
+
+    private void checkTotal() {
+        // the decimated strokes are not exact:
+        assertTrue("no difference", sumDiff != 0L);
+
+        final double rel = ((double) sumDiff) / sumAlpha;
+        assertTrue("relative coverage difference: " + rel,
+                   rel <= MAX_REL_DIFF);
+    }
+
+    // chart line series: n points from x0 to x1 (increasing or decreasing)
+    // around a slow sine wave plus noise:
+    private static Path2D series(final Random rnd, final int n,
+                                 final float x0, final float x1,
+                                 final float noise)
+    {
+        final Path2D p2d = new Path2D();
+        final float phase = 6.28f * rnd.nextFloat();
+        final float dx = (x1 - x0) / (n - 1);
+        for (int i = 0; i < n; i++) {
+            final float x = x0 + i * dx;
+            final float y = 100f + 60f * (float) Math.sin(phase + 0.02f * x)
+                            + noise * (rnd.nextFloat() - 0.5f);
+            if (i == 0) {
+                p2d.moveTo(x, y);
+            } else {
+                p2d.lineTo(x, y);
+            }
+        }
+        return p2d;
+    }
+
+    private static BasicStroke round(final float width) {
+        return new BasicStroke(width, BasicStroke.CAP_ROUND,
+                               BasicStroke.JOIN_ROUND, 10f);
+    }
+
+    private static int countPoints(final Path2D p2d) {
+        return p2d.getNumCoords() / 2;
+    }
+
+    @Test
+    public void testReduction() {
+        final Random rnd = new Random(1L);
+        final RendererContext ctx = decimatorCtx;
+
+        for (int n = 0; n < 4; n++) {
+            final Path2D p2d = (n % 2 == 0) ? series(rnd, 100000, 0f, 400f, 20f)
+                                            : series(rnd, 100000, 400f, 0f, 20f);
+            final Path2D out = new Path2D();
+            MaskUtils.feed(p2d, ctx.decimator.init(out));
+
+            // entry, min, max and exit points per column at most:
+            final int ncols = 400 * ColumnDecimator.COLUMNS_PER_PIXEL + 1;
+            assertTrue("series " + n + ": " + countPoints(out) + " points",
+                       countPoints(out) <= 4 * ncols);
+            assertTrue("series " + n + ": " + countPoints(out) + " points",
+                       countPoints(out) >= 2 * ncols - 2);
+            // same end points:
+            final float[] in = p2d.getFloatCoordsNoClone();
+            final float[] res = out.getFloatCoordsNoClone();
+            assertEquals(in[0], res[0], 0f);
+            assertEquals(in[1], res[1], 0f);
+            assertEquals(in[p2d.getNumCoords() - 2], res[out.getNumCoords() - 2], 0f);
+            assertEquals(in[p2d.getNumCoords() - 1], res[out.getNumCoords() - 1], 0f);
+        }
+    }
+
+    @Test
+    public void testSeries() {
+        final Random rnd = new Random(2L);
+        final float[] widths = {1f, 1.5f, 3f};
+        final float[] noises = {0.5f, 5f, 40f};
+
+        for (int n = 0; n < 18; n++) {
+            final float width = widths[n % widths.length];
+            final float noise = noises[(n / widths.length) % noises.length];
+            final Path2D p2d = (n % 2 == 0) ? series(rnd, 20000, 0f, 400f, noise)
+                                            : series(rnd, 20000, 400f, 0f, noise);
+            check("series " + n + " (width = " + width + ", noise = " + noise
+                  + ")", p2d, round(width), null, MAX_DIFF);
+        }
+
+        // x-monotone in device space (transform-aware):
+        final BaseTransform scale
+            = BaseTransform.getInstance(4.0, 0.0, 0.0, 1.0, 0.0, 0.0);
+        final BaseTransform flip
+            = BaseTransform.getInstance(-1.0, 0.0, 0.0, 1.0, 400.0, 0.0);
+        check("scaled series", series(rnd, 20000, 0f, 100f, 5f), round(1f),
+              scale, MAX_DIFF);
+        check("flipped series", series(rnd, 20000, 0f, 400f, 5f), round(1f),
+              flip, MAX_DIFF);
+        checkTotal();
+    }
+
+    @Test
+    public void testNotDecimated() {
+        final Random rnd = new Random(3L);
+
+        // other joins or caps, dashes and fills:
+        check("miter", series(rnd, 20000, 0f, 400f, 5f),
+              new BasicStroke(1f, BasicStroke.CAP_ROUND,
+                              BasicStroke.JOIN_MITER, 10f), null, 0);
+        check("bevel", series(rnd, 20000, 0f, 400f, 5f),
+              new BasicStroke(1.5f, BasicStroke.CAP_ROUND,
+                              BasicStroke.JOIN_BEVEL, 10f), null, 0);
+        check("butt", series(rnd, 20000, 0f, 400f, 5f),
+              new BasicStroke(2f, BasicStroke.CAP_BUTT,
+                              BasicStroke.JOIN_ROUND, 10f), null, 0);
+        check("dashes", series(rnd, 20000, 0f, 400f, 5f),
+              new BasicStroke(1f, BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND,
+                              10f, new float[] {4f, 2f}, 0f), null, 0);
+        check("fill", series(rnd, 20000, 0f, 400f, 5f), null, null, 0);
+
+        // too few points per column:
+        check("sparse", series(rnd, 2000, 0f, 400f, 5f), round(1f), null, 0);
+
+        // not x-monotone (in device space):
+        final Path2D back = series(rnd, 20000, 0f, 400f, 5f);
+        back.lineTo(200f, 100f);
+        check("back", back, round(1f), null, 0);
+        // rotated by 90 degrees around (100, 100):
+        check("rotated", series(rnd, 20000, 0f, 200f, 5f), round(1f),
+              BaseTransform.getInstance(0.0, 1.0, -1.0, 0.0, 200.0, 0.0), 0);
+
+        // several subpaths or curves:
+        final Path2D subpaths = series(rnd, 20000, 0f, 400f, 5f);
+        subpaths.moveTo(400f, 10f);
+        subpaths.lineTo(410f, 20f);
+        check("subpaths", subpaths, round(1f), null, 0);
+        final Path2D curve = series(rnd, 20000, 0f, 390f, 5f);
+        curve.quadTo(395f, 0f, 400f, 100f);
+        check("curve", curve, round(1f), null, 0);
+    }
+}
@@ -0,0 +1,168 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.CompiledShape;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that compiled shapes rasterized within a clip rectangle
+ * give the same masks as the unclipped compiled shapes (cropped) and as
+ * the translated paths rendered within the same clip
+ */
+public class CompiledShapeClipTest {
+
+    // area covering all translated shapes:
+    private static final int AX = -50;
+    private static final int AY = -50;
+    private static final int AW = 300;
+    private static final int AH = 300;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private CompiledShape compile(final Path2D p2d) {
+        final Renderer r = rdrCtx.renderer;
+        try {
+            r.init(AX, AY, AW, AH, p2d.getWindingRule());
+            MaskUtils.feed(p2d, r);
+            return r.compile();
+        } finally {
+            r.dispose();
+        }
+    }
+
+    private byte[] rasterize(final CompiledShape cs, final int tx, final int ty,
+                             final Rectangle clip, final int cx, final int cy,
+                             final int cw, final int ch)
+    {
+        final byte[] mask = new byte[cw * ch];
+        final Renderer r = rdrCtx.renderer;
+        try {
+            r.initCompiled(cs, tx, ty, clip);
+            MaskUtils.copyMask(r, mask, cx, cy, cw);
+        } finally {
+            r.dispose();
+        }
+        return mask;
+    }
+
+    private static byte[] crop(final byte[] mask, final Rectangle clip) {
+        final byte[] crop = new byte[clip.width * clip.height];
+        for (int j = 0; j < clip.height; j++) {
+            System.arraycopy(mask, (clip.y - AY + j) * AW + (clip.x - AX),
+                             crop, j * clip.width, clip.width);
+        }
+        return crop;
+    }
+
+    // random closed path translated by (ox, oy):
+    private static Path2D makePath(final long seed, final int rule,
+                                   final float ox, final float oy)
+    {
+        final Random rnd = new Random(seed);
+        final float[] c = new float[6];
+
+        final Path2D p2d = new Path2D(rule);
+        p2d.moveTo(ox + 100f * rnd.nextFloat(), oy + 100f * rnd.nextFloat());
+        for (int i = 0; i < 10; i++) {
+            for (int k = 0; k < c.length; k += 2) {
+                c[k    ] = ox + 100f * rnd.nextFloat();
+                c[k + 1] = oy + 100f * rnd.nextFloat();
+            }
+            switch (rnd.nextInt(3)) {
+                case 0:
+                    p2d.lineTo(c[0], c[1]);
+                    break;
+                case 1:
+                    p2d.quadTo(c[0], c[1], c[2], c[3]);
+                    break;
+                default:
+                    p2d.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    @Test
+    public void testClip() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 300; n++) {
+            final CompiledShape cs = compile(makePath(n, n & 1, 0f, 0f));
+
+            final int tx = rnd.nextInt(100);
+            final int ty = rnd.nextInt(100);
+            final Rectangle clip = new Rectangle(AX + rnd.nextInt(AW / 2),
+                                                 AY + rnd.nextInt(AH / 2),
+                                                 1 + rnd.nextInt(AW / 2),
+                                                 1 + rnd.nextInt(AH / 2));
+            final String msg = "shape " + n + " at (" + tx + ", " + ty
+                               + ") clip " + clip;
+
+            final byte[] clipped = rasterize(cs, tx, ty, clip, clip.x, clip.y,
+                                             clip.width, clip.height);
+
+            // unclipped then cropped (exact as edges are stepped exactly):
+            final byte[] full = rasterize(cs, tx, ty, null, AX, AY, AW, AH);
+            MaskUtils.assertMaskEquals(msg, crop(full, clip), clipped,
+                                       clip.width, 0);
+
+            // translated path rendered within the clip (edges clipped by
+            // addLine); one subpixel coverage (4) as the translated float
+            // coordinates are rounded:
+            final Path2D moved = makePath(n, n & 1, tx, ty);
+            final byte[] expected = MaskUtils.rasterize(rdrCtx.renderer, moved,
+                                                        clip.x, clip.y,
+                                                        clip.width, clip.height);
+            MaskUtils.assertMaskEquals(msg, expected, clipped, clip.width, 4);
+        }
+    }
+
+    @Test
+    public void testDisjointClip() {
+        final CompiledShape cs = compile(makePath(1000L, Path2D.WIND_NON_ZERO,
+                                                  0f, 0f));
+
+        final Rectangle clip = new Rectangle(150, 150, 50, 50);
+        final byte[] mask = rasterize(cs, 0, 0, clip, 150, 150, 50, 50);
+        assertEquals(0, MaskUtils.maxDiff(mask, new byte[mask.length]));
+
+        // overflowing clip extent:
+        final Rectangle huge = new Rectangle(-10, -10, Integer.MAX_VALUE,
+                                             Integer.MAX_VALUE);
+        final byte[] full = rasterize(cs, 0, 0, null, AX, AY, AW, AH);
+        assertEquals(0, MaskUtils.maxDiff(full,
+                            rasterize(cs, 0, 0, huge, AX, AY, AW, AH)));
+    }
+}
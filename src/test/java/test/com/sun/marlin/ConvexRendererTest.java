@@ -0,0 +1,180 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the convex renderer (RendererConvex) produces the same
+ * masks as Renderer for convex shapes and falls back to Renderer for concave
+ * shapes
+ */
+public class ConvexRendererTest {
+
+    // clip rectangle:
+    private static final int CX = -5;
+    private static final int CY = -5;
+    private static final int CW = 110;
+    private static final int CH = 110;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private void check(final String msg, final Path2D p2d) {
+        final byte[] expected = MaskUtils.rasterize(rdrCtx.renderer, p2d,
+                                                    CX, CY, CW, CH);
+        final byte[] actual = MaskUtils.rasterize(rdrCtx.getRendererConvex(),
+                                                  p2d, CX, CY, CW, CH);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, 0);
+    }
+
+    private static Path2D polygon(final int rule, final float... xy) {
+        final Path2D p2d = new Path2D(rule);
+        p2d.appendPolyline(xy, 0, xy.length / 2, true);
+        return p2d;
+    }
+
+    private static Path2D polygon(final float... xy) {
+        return polygon(Path2D.WIND_NON_ZERO, xy);
+    }
+
+    @Test
+    public void testTriangles() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 500; n++) {
+            final float[] xy = new float[6];
+            for (int i = 0; i < xy.length; i++) {
+                xy[i] = 100f * rnd.nextFloat();
+            }
+            check("triangle " + n, polygon((n & 1), xy));
+        }
+    }
+
+    @Test
+    public void testRotatedRects() {
+        for (int n = 0; n < 360; n += 3) {
+            final double a = Math.toRadians(n + 0.25);
+            final float cx = 50.3f, cy = 49.7f, hw = 35.5f, hh = 12.25f;
+            final float c = (float) Math.cos(a), s = (float) Math.sin(a);
+
+            // clockwise and counter-clockwise:
+            check("rotated rect " + n, polygon(
+                cx + c * hw - s * hh, cy + s * hw + c * hh,
+                cx - c * hw - s * hh, cy - s * hw + c * hh,
+                cx - c * hw + s * hh, cy - s * hw - c * hh,
+                cx + c * hw + s * hh, cy + s * hw - c * hh));
+            check("rotated rect (ccw) " + n, polygon(
+                cx + c * hw + s * hh, cy + s * hw - c * hh,
+                cx - c * hw + s * hh, cy - s * hw - c * hh,
+                cx - c * hw - s * hh, cy - s * hw + c * hh,
+                cx + c * hw - s * hh, cy + s * hw + c * hh));
+        }
+    }
+
+    @Test
+    public void testConvexCurves() {
+        // circle (4 cubics) and ellipse (quads):
+        final float k = 0.5522848f * 40f;
+        final Path2D circle = new Path2D();
+        circle.moveTo(90.5f, 50.5f);
+        circle.curveTo(90.5f, 50.5f + k, 50.5f + k, 90.5f, 50.5f, 90.5f);
+        circle.curveTo(50.5f - k, 90.5f, 10.5f, 50.5f + k, 10.5f, 50.5f);
+        circle.curveTo(10.5f, 50.5f - k, 50.5f - k, 10.5f, 50.5f, 10.5f);
+        circle.curveTo(50.5f + k, 10.5f, 90.5f, 50.5f - k, 90.5f, 50.5f);
+        circle.closePath();
+        check("circle", circle);
+
+        final Path2D ellipse = new Path2D();
+        ellipse.moveTo(95f, 50f);
+        ellipse.quadTo(95f, 80f, 50f, 80f);
+        ellipse.quadTo(5f, 80f, 5f, 50f);
+        ellipse.quadTo(5f, 20f, 50f, 20f);
+        ellipse.quadTo(95f, 20f, 95f, 50f);
+        ellipse.closePath();
+        check("ellipse", ellipse);
+    }
+
+    @Test
+    public void testNearDegenerate() {
+        // thin slivers:
+        check("sliver", polygon(10f, 10f, 90f, 90.001f, 90f, 90f));
+        check("horizontal sliver", polygon(5f, 50f, 95f, 50.01f, 95f, 50f));
+        check("vertical sliver", polygon(50f, 5f, 50.01f, 95f, 50f, 95f));
+        // zero area (collinear points):
+        check("collinear", polygon(10f, 10f, 50f, 50f, 90f, 90f));
+        check("flat", polygon(10f, 30f, 90f, 30f, 50f, 30f));
+        // duplicated and collinear vertices:
+        check("duplicates", polygon(10f, 10f, 10f, 10f, 90f, 10f,
+                                    90f, 10f, 90f, 90f, 50f, 90f,
+                                    10f, 90f, 10f, 10f));
+        // within a single pixel or subpixel row:
+        check("tiny", polygon(40.1f, 40.1f, 40.9f, 40.3f, 40.5f, 40.8f));
+        check("subpixel row", polygon(10f, 40.01f, 90f, 40.02f, 50f, 40.05f));
+        // partially or fully out of the clip:
+        check("clipped", polygon(-50f, -20f, 150f, 10f, 60f, 200f));
+        check("out", polygon(200f, 200f, 300f, 210f, 250f, 300f));
+    }
+
+    @Test
+    public void testConcaveFallback() {
+        // reflex vertex:
+        check("arrow", polygon(10f, 10f, 50f, 40f, 90f, 10f, 50f, 90f));
+        check("L-shape", polygon(10f, 10f, 40f, 10f, 40f, 60f, 90f, 60f,
+                                 90f, 90f, 10f, 90f));
+        // more than 2 changes of the vertical direction:
+        check("zigzag", polygon(10f, 90f, 30f, 10f, 50f, 90f, 70f, 10f,
+                                90f, 90f));
+        // self-intersection:
+        check("bowtie", polygon(10f, 10f, 90f, 90f, 90f, 10f, 10f, 90f));
+        check("star", polygon(50f, 5f, 77f, 95f, 3f, 37f, 97f, 37f,
+                              23f, 95f));
+        check("star (even-odd)", polygon(Path2D.WIND_EVEN_ODD,
+                                         50f, 5f, 77f, 95f, 3f, 37f,
+                                         97f, 37f, 23f, 95f));
+        // turning twice around (convex turns only):
+        check("double loop", polygon(50f, 10f, 90f, 50f, 50f, 90f, 10f, 50f,
+                                     50f, 11f, 89f, 50f, 50f, 89f, 11f, 50f));
+        // several subpaths:
+        final Path2D p2d = polygon(10f, 10f, 40f, 10f, 25f, 40f);
+        p2d.appendPolyline(new float[] {60f, 60f, 90f, 60f, 75f, 90f},
+                           0, 3, true);
+        check("2 subpaths", p2d);
+
+        // concave curve:
+        final Path2D curve = new Path2D();
+        curve.moveTo(10f, 10f);
+        curve.lineTo(90f, 10f);
+        curve.lineTo(90f, 90f);
+        curve.curveTo(60f, 20f, 40f, 20f, 10f, 90f);
+        curve.closePath();
+        check("concave curve", curve);
+    }
+}
@@ -0,0 +1,245 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.CompiledShape;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that storing large curves as native curve edges gives nearly
+ * the same masks as flattening them into line edges, also for clipped,
+ * compiled and parallel rendering
+ */
+public class CurveEdgesTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 420;
+    private static final int CH = 420;
+
+    // curve pieces are stepped from their y extrema, so their lines differ
+    // from the flattened curve by a fraction of a pixel at most:
+    private static final int MAX_DIFF = 64;
+
+    // max relative difference of the total coverage:
+    private static final double MAX_REL_DIFF = 0.01;
+
+    // settings read when the renderer is created:
+    private static final String CURVE_EDGES_KEY = "prism.marlin.useCurveEdges";
+    private static final String PARALLEL_KEY = "prism.marlin.parallel";
+    private static final String THREADS_KEY = "prism.marlin.parallel.threads";
+
+    private final RendererContext rdrCtx = createContext(false, false);
+    private final RendererContext curveCtx = createContext(true, false);
+    private final RendererContext parallelCurveCtx = createContext(true, true);
+
+    // sums of the alphas and of the absolute alpha differences:
+    private long sumAlpha;
+    private long sumDiff;
+
+    private static RendererContext createContext(final boolean curveEdges,
+                                                 final boolean parallel)
+    {
+        final String oldCurves = System.setProperty(CURVE_EDGES_KEY,
+                                                    Boolean.toString(curveEdges));
+        final String oldParallel = System.setProperty(PARALLEL_KEY,
+                                                      Boolean.toString(parallel));
+        // several bands even on a single processor:
+        final String oldThreads = System.setProperty(THREADS_KEY, "4");
+        try {
+            return RendererContext.createContext();
+        } finally {
+            restore(CURVE_EDGES_KEY, oldCurves);
+            restore(PARALLEL_KEY, oldParallel);
+            restore(THREADS_KEY, oldThreads);
+        }
+    }
+
+    private static void restore(final String key, final String old) {
+        if (old == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, old);
+        }
+    }
+
+    private static byte[] rasterize(final RendererContext ctx, final Path2D p2d) {
+        return MaskUtils.rasterize(ctx.renderer, p2d, CX, CY, CW, CH);
+    }
+
+    private void check(final String msg, final Path2D p2d) {
+        final byte[] expected = rasterize(rdrCtx, p2d);
+        final byte[] actual = rasterize(curveCtx, p2d);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, MAX_DIFF);
+
+        for (int i = 0; i < expected.length; i++) {
+            final int e = expected[i] & 0xFF;
+            sumAlpha += e;
+            sumDiff += Math.abs(e - (actual[i] & 0xFF));
+        }
+    }
+
+    private void checkTotal() {
+        final double rel = ((double) sumDiff) / sumAlpha;
+        assertTrue("relative coverage difference: " + rel,
+                   rel <= MAX_REL_DIFF);
+    }
+
+    private static Path2D circle(final double cx, final double cy,
+                                 final double r, final boolean quads)
+    {
+        // 4 cubic or 8 quad arcs:
+        final int n = (quads) ? 8 : 4;
+        final double da = 2.0 * Math.PI / n;
+        final double k = (quads) ? 1.0 / Math.cos(da / 2.0)
+                                 : 4.0 / 3.0 * Math.tan(da / 4.0);
+        final Path2D p2d = new Path2D();
+        p2d.moveTo((float) (cx + r), (float) cy);
+        for (int i = 0; i < n; i++) {
+            final double a0 = i * da, a1 = a0 + da;
+            final float x1 = (float) (cx + r * Math.cos(a1));
+            final float y1 = (float) (cy + r * Math.sin(a1));
+            if (quads) {
+                final double am = a0 + da / 2.0;
+                p2d.quadTo((float) (cx + k * r * Math.cos(am)),
+                           (float) (cy + k * r * Math.sin(am)), x1, y1);
+            } else {
+                p2d.curveTo((float) (cx + r * (Math.cos(a0) - k * Math.sin(a0))),
+                            (float) (cy + r * (Math.sin(a0) + k * Math.cos(a0))),
+                            (float) (cx + r * (Math.cos(a1) + k * Math.sin(a1))),
+                            (float) (cy + r * (Math.sin(a1) - k * Math.cos(a1))),
+                            x1, y1);
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    private static Path2D randomPath(final Random rnd, final boolean cubic) {
+        final Path2D p2d = new Path2D((rnd.nextBoolean()) ? Path2D.WIND_NON_ZERO
+                                                          : Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(400f * rnd.nextFloat(), 400f * rnd.nextFloat());
+        for (int i = 0; i < 4; i++) {
+            if (cubic) {
+                p2d.curveTo(400f * rnd.nextFloat(), 400f * rnd.nextFloat(),
+                            400f * rnd.nextFloat(), 400f * rnd.nextFloat(),
+                            400f * rnd.nextFloat(), 400f * rnd.nextFloat());
+            } else {
+                p2d.quadTo(400f * rnd.nextFloat(), 400f * rnd.nextFloat(),
+                           400f * rnd.nextFloat(), 400f * rnd.nextFloat());
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    @Test
+    public void testCircles() {
+        for (int n = 1; n <= 50; n++) {
+            final double r = 4.0 * n + 0.3;
+            check("cubic circle " + n, circle(200.3, 200.7, r, false));
+            check("quad circle " + n, circle(200.3, 200.7, r, true));
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testClippedCircles() {
+        // large circles crossing the clip (curves starting above it):
+        final double[] radii = {400.0, 1000.0, 1e5};
+        for (double r : radii) {
+            check("circle (r = " + r + ")", circle(-r + 150.5, 200.2, r, false));
+            check("circle (r = " + r + ")", circle(200.2, r + 150.5, r, true));
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testRandomCurves() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 400; n++) {
+            check("path " + n, randomPath(rnd, (n & 1) == 0));
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testCompiled() {
+        // compiled curve edges are expanded into line edges:
+        final Random rnd = new Random(2L);
+        final Rectangle clip = new Rectangle(CX, CY, CW, CH);
+        final Renderer r = curveCtx.renderer;
+
+        for (int n = 0; n < 50; n++) {
+            final Path2D p2d = (n < 10) ? circle(200.3, 200.7, 20.0 * n + 1.0, false)
+                                        : randomPath(rnd, (n & 1) == 0);
+            final byte[] expected = rasterize(curveCtx, p2d);
+
+            final CompiledShape cs;
+            try {
+                r.init(CX, CY, CW, CH, p2d.getWindingRule());
+                MaskUtils.feed(p2d, r);
+                cs = r.compile();
+            } finally {
+                r.dispose();
+            }
+            final byte[] actual = new byte[CW * CH];
+            try {
+                r.initCompiled(cs, 0, 0, clip);
+                MaskUtils.copyMask(r, actual, CX, CY, CW);
+            } finally {
+                r.dispose();
+            }
+            MaskUtils.assertMaskEquals("compiled " + n, expected, actual, CW, 0);
+        }
+    }
+
+    @Test
+    public void testParallelBands() {
+        // enough line edges to split in bands (8192 by default), plus curves:
+        final Random rnd = new Random(3L);
+        final Path2D p2d = new Path2D(Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(400f * rnd.nextFloat(), 400f * rnd.nextFloat());
+        for (int i = 1; i < 10000; i++) {
+            p2d.lineTo(400f * rnd.nextFloat(), 400f * rnd.nextFloat());
+        }
+        p2d.closePath();
+        p2d.append(circle(200.3, 200.7, 180.0, false), false);
+
+        MaskUtils.assertMaskEquals("parallel", rasterize(curveCtx, p2d),
+                                   rasterize(parallelCurveCtx, p2d), CW, 0);
+    }
+}
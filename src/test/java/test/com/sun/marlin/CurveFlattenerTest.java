@@ -0,0 +1,164 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the parabola-based curve flattener gives nearly the
+ * same masks as the adaptive forward differencing for quads and cubics
+ */
+public class CurveFlattenerTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 220;
+    private static final int CH = 220;
+
+    // both flatteners are within a fraction of a pixel of the curve, so
+    // alphas may differ by a quarter of the pixel coverage at most:
+    private static final int MAX_DIFF = 64;
+
+    // max relative difference of the total coverage:
+    private static final double MAX_REL_DIFF = 0.01;
+
+    // the flattener is chosen when the renderer is created:
+    private static final String FLATTENER_KEY
+        = "prism.marlin.useParabolaFlattener";
+
+    private final RendererContext rdrCtx = createContext(false);
+    private final RendererContext parabolaCtx = createContext(true);
+
+    // sums of the alphas and of the absolute alpha differences:
+    private long sumAlpha;
+    private long sumDiff;
+
+    private static RendererContext createContext(final boolean parabola) {
+        final String old = System.setProperty(FLATTENER_KEY,
+                                              Boolean.toString(parabola));
+        try {
+            return RendererContext.createContext();
+        } finally {
+            if (old == null) {
+                System.clearProperty(FLATTENER_KEY);
+            } else {
+                System.setProperty(FLATTENER_KEY, old);
+            }
+        }
+    }
+
+    private byte[] rasterize(final Path2D p2d, final boolean parabola) {
+        final Renderer r = (parabola) ? parabolaCtx.renderer : rdrCtx.renderer;
+        return MaskUtils.rasterize(r, p2d, CX, CY, CW, CH);
+    }
+
+    private void check(final String msg, final Path2D p2d) {
+        final byte[] expected = rasterize(p2d, false);
+        final byte[] actual = rasterize(p2d, true);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, MAX_DIFF);
+
+        for (int i = 0; i < expected.length; i++) {
+            final int e = expected[i] & 0xFF;
+            sumAlpha += e;
+            sumDiff += Math.abs(e - (actual[i] & 0xFF));
+        }
+    }
+
+    private void checkTotal() {
+        final double rel = ((double) sumDiff) / sumAlpha;
+        assertTrue("relative coverage difference: " + rel,
+                   rel <= MAX_REL_DIFF);
+    }
+
+    private static Path2D makePath(final Random rnd, final boolean cubic,
+                                   final float size)
+    {
+        final Path2D p2d = new Path2D((rnd.nextBoolean()) ? Path2D.WIND_NON_ZERO
+                                                          : Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(size * rnd.nextFloat(), size * rnd.nextFloat());
+        for (int i = 0; i < 4; i++) {
+            if (cubic) {
+                p2d.curveTo(size * rnd.nextFloat(), size * rnd.nextFloat(),
+                            size * rnd.nextFloat(), size * rnd.nextFloat(),
+                            size * rnd.nextFloat(), size * rnd.nextFloat());
+            } else {
+                p2d.quadTo(size * rnd.nextFloat(), size * rnd.nextFloat(),
+                           size * rnd.nextFloat(), size * rnd.nextFloat());
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    private void test(final long seed, final boolean cubic) {
+        final Random rnd = new Random(seed);
+
+        for (int n = 0; n < 500; n++) {
+            // small and large curves (loops, cusps):
+            check("path " + n, makePath(rnd, cubic, (n % 5 == 0) ? 20f : 200f));
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testEllipses() {
+        // cubic and quad arcs:
+        final float k = 0.5522848f;
+        final float cx = 100.3f, cy = 100.6f;
+
+        for (int n = 1; n <= 100; n++) {
+            final float rx = 1f + 0.99f * n, ry = 1f + 0.37f * n;
+
+            final Path2D p2d = new Path2D();
+            p2d.moveTo(cx + rx, cy);
+            p2d.curveTo(cx + rx, cy + k * ry, cx + k * rx, cy + ry, cx, cy + ry);
+            p2d.curveTo(cx - k * rx, cy + ry, cx - rx, cy + k * ry, cx - rx, cy);
+            p2d.quadTo(cx - rx, cy - ry, cx, cy - ry);
+            p2d.quadTo(cx + rx, cy - ry, cx + rx, cy);
+            p2d.closePath();
+            check("ellipse " + n, p2d);
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testQuads() {
+        test(1L, false);
+    }
+
+    @Test
+    public void testCubics() {
+        test(2L, true);
+    }
+}
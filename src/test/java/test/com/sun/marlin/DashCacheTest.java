@@ -0,0 +1,170 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that dashing curves with the Dasher arc-length cache gives
+ * exactly the same masks as without the cache, for curves dashed again
+ * (cache hits) and for more curves than cache entries (evicted entries)
+ */
+public class DashCacheTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 220;
+    private static final int CH = 220;
+
+    // more curves than the cache entries (Dasher.CACHE_SIZE = 256):
+    private static final int NUM_CURVES = 2000;
+
+    private static final float[] DASHES = {5.5f, 2.25f, 0.75f, 2.25f};
+
+    // the cache setting is read when the dasher is created:
+    private static final String CACHE_KEY = "prism.marlin.useDashCache";
+
+    private final RendererContext rdrCtx = createContext(false);
+    private final RendererContext cacheCtx = createContext(true);
+
+    private static RendererContext createContext(final boolean cache) {
+        final String old = System.setProperty(CACHE_KEY,
+                                              Boolean.toString(cache));
+        try {
+            return RendererContext.createContext();
+        } finally {
+            if (old == null) {
+                System.clearProperty(CACHE_KEY);
+            } else {
+                System.setProperty(CACHE_KEY, old);
+            }
+        }
+    }
+
+    private static byte[] stroke(final RendererContext ctx, final Path2D p2d,
+                                 final BasicStroke stroke)
+    {
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            r = MarlinPrismUtils.setupRenderer(ctx, p2d, stroke, null,
+                                               new Rectangle(CX, CY, CW, CH),
+                                               true);
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            ctx.dispose();
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d, final float phase) {
+        final BasicStroke stroke = new BasicStroke(1.5f, BasicStroke.CAP_BUTT,
+                                                   BasicStroke.JOIN_ROUND, 10f,
+                                                   DASHES, phase);
+        MaskUtils.assertMaskEquals(msg + " (phase = " + phase + ")",
+                                   stroke(rdrCtx, p2d, stroke),
+                                   stroke(cacheCtx, p2d, stroke), CW, 0);
+    }
+
+    private static Path2D randomCurves(final Random rnd, final int n,
+                                       final float size)
+    {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(size * rnd.nextFloat(), size * rnd.nextFloat());
+        for (int i = 0; i < n; i++) {
+            if (rnd.nextBoolean()) {
+                p2d.quadTo(size * rnd.nextFloat(), size * rnd.nextFloat(),
+                           size * rnd.nextFloat(), size * rnd.nextFloat());
+            } else {
+                p2d.curveTo(size * rnd.nextFloat(), size * rnd.nextFloat(),
+                            size * rnd.nextFloat(), size * rnd.nextFloat(),
+                            size * rnd.nextFloat(), size * rnd.nextFloat());
+            }
+        }
+        return p2d;
+    }
+
+    @Test
+    public void testCacheHits() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 50; n++) {
+            final Path2D p2d = randomCurves(rnd, 8, 200f);
+            // the same curves dashed again with other phases:
+            for (int i = 0; i < 4; i++) {
+                check("path " + n, p2d, 3.5f * i);
+            }
+        }
+    }
+
+    @Test
+    public void testEvictions() {
+        final Random rnd = new Random(2L);
+
+        // every cache entry is used by other curves:
+        final Path2D p2d = randomCurves(rnd, NUM_CURVES, 200f);
+        check("curves", p2d, 0f);
+
+        // curves looked up in a full cache (evicted or other curves):
+        check("curves again", p2d, 1.25f);
+        check("other curves", randomCurves(rnd, NUM_CURVES, 200f), 0f);
+    }
+
+    @Test
+    public void testNearlySameCurves() {
+        final Random rnd = new Random(3L);
+
+        // curves differing by one coordinate only must not share entries:
+        final float[] c = new float[6];
+        for (int n = 0; n < 200; n++) {
+            for (int i = 0; i < c.length; i++) {
+                c[i] = 200f * rnd.nextFloat();
+            }
+            final int k = rnd.nextInt(c.length);
+
+            for (int i = 0; i < 3; i++) {
+                final Path2D p2d = new Path2D();
+                p2d.moveTo(10f, 10f);
+                p2d.curveTo(c[0], c[1], c[2], c[3], c[4], c[5]);
+                check("curve " + n + " (" + i + ")", p2d, 0.5f);
+
+                c[k] = Math.nextUp(c[k] + 0.25f);
+            }
+        }
+    }
+}
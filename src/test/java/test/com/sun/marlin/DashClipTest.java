@@ -0,0 +1,219 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RendererContext;
+import com.sun.marlin.RendererThinLine;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that dashed strokes give the same pixels within the clip
+ * whether the Dasher skips the dashes out of the clip or not, for both the
+ * Stroker and the thin line renderer pipelines
+ */
+public class DashClipTest {
+
+    // large clip containing the whole shapes (no dash is skipped):
+    private static final int NX = -100;
+    private static final int NY = -100;
+    private static final int NW = 400;
+    private static final int NH = 400;
+
+    // clip rectangle:
+    private static final Rectangle CLIP = new Rectangle(40, 30, 100, 120);
+
+    // the dash phase is advanced analytically over the skipped parts, so
+    // dash ends may move by a float rounding error:
+    private static final int MAX_DIFF = 4;
+
+    // on random paths, such a rounding error may move a dash end across a
+    // subpixel scanline center, adding or removing one of the 8 subpixel
+    // rows (default) of the pixel coverage:
+    private static final int MAX_DIFF_PATHS = 256 / 8;
+
+    private static final float[] DASHES = {7.5f, 3.25f, 1.5f, 3.25f};
+
+    private static final int[] CAPS = {
+        BasicStroke.CAP_BUTT, BasicStroke.CAP_ROUND, BasicStroke.CAP_SQUARE
+    };
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private byte[] stroke(final Path2D p2d, final BasicStroke stroke,
+                          final Rectangle clip, final boolean thin)
+    {
+        final byte[] mask = new byte[NW * NH];
+        MarlinRenderer r = null;
+        try {
+            if (thin) {
+                // same clip setup as MarlinPrismUtils.initRenderer():
+                final float[] clipRect = rdrCtx.clipRect;
+                clipRect[0] = clip.y;
+                clipRect[1] = clip.y + clip.height;
+                clipRect[2] = clip.x;
+                clipRect[3] = clip.x + clip.width;
+                rdrCtx.doClip = true;
+
+                r = rdrCtx.getRendererThinLine();
+                r.init(clip.x, clip.y, clip.width, clip.height,
+                       Path2D.WIND_NON_ZERO);
+                MarlinPrismUtils.strokeTo(rdrCtx, p2d, stroke,
+                                          stroke.getLineWidth(), r);
+            } else {
+                r = MarlinPrismUtils.setupRenderer(rdrCtx, p2d, stroke, null,
+                                                   clip, true);
+            }
+            MaskUtils.copyMask(r, mask, NX, NY, NW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            rdrCtx.dispose();
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d,
+                       final BasicStroke stroke, final boolean thin,
+                       final int maxDiff)
+    {
+        final byte[] expected = stroke(p2d, stroke,
+                                       new Rectangle(NX, NY, NW, NH), thin);
+        final byte[] actual = stroke(p2d, stroke, CLIP, thin);
+
+        // compare the clip area only:
+        final byte[] e = new byte[CLIP.width * CLIP.height];
+        final byte[] a = new byte[e.length];
+        for (int j = 0; j < CLIP.height; j++) {
+            System.arraycopy(expected, (CLIP.y - NY + j) * NW + (CLIP.x - NX),
+                             e, j * CLIP.width, CLIP.width);
+            System.arraycopy(actual, (CLIP.y - NY + j) * NW + (CLIP.x - NX),
+                             a, j * CLIP.width, CLIP.width);
+        }
+        MaskUtils.assertMaskEquals(msg, e, a, CLIP.width, maxDiff);
+    }
+
+    private static BasicStroke dashed(final float width, final int cap,
+                                      final float phase)
+    {
+        return new BasicStroke(width, cap, BasicStroke.JOIN_MITER, 10f,
+                               DASHES, phase);
+    }
+
+    private static Path2D edgeLines(final float d) {
+        // lines along the 4 clip edges, d pixels outside:
+        final float x0 = CLIP.x - d, x1 = CLIP.x + CLIP.width + d;
+        final float y0 = CLIP.y - d, y1 = CLIP.y + CLIP.height + d;
+
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(x0 - 30f, y0);
+        p2d.lineTo(x1 + 30f, y0);
+        p2d.moveTo(x1, y0 - 30f);
+        p2d.lineTo(x1, y1 + 30f);
+        p2d.moveTo(x1 + 30f, y1);
+        p2d.lineTo(x0 - 30f, y1);
+        p2d.moveTo(x0, y1 + 30f);
+        p2d.lineTo(x0, y0 - 30f);
+        // curve along the top edge:
+        p2d.moveTo(x0 - 30f, y0);
+        p2d.curveTo(x0 + 20f, y0, x1 - 20f, y0, x1 + 30f, y0);
+        return p2d;
+    }
+
+    private static Path2D randomPath(final Random rnd) {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat());
+        for (int i = 0; i < 6; i++) {
+            final int type = rnd.nextInt(3);
+            if (type == 0) {
+                p2d.lineTo(NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat());
+            } else if (type == 1) {
+                p2d.quadTo(NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat(),
+                           NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat());
+            } else {
+                p2d.curveTo(NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat(),
+                            NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat(),
+                            NX + NW * rnd.nextFloat(), NY + NH * rnd.nextFloat());
+            }
+        }
+        return p2d;
+    }
+
+    private void testEdges(final float[] widths, final boolean thin) {
+        for (float width : widths) {
+            // centerline from just inside to beyond the stroke extent:
+            final float maxD = width * 0.75f + 0.5f;
+            for (float d = -0.5f; d <= maxD; d += 0.125f) {
+                for (int cap : CAPS) {
+                    check("edges (width = " + width + ", d = " + d
+                          + ", cap = " + cap + ")",
+                          edgeLines(d), dashed(width, cap, 0.5f), thin, MAX_DIFF);
+                }
+            }
+        }
+    }
+
+    private void testRandom(final long seed, final float[] widths,
+                            final boolean thin)
+    {
+        final Random rnd = new Random(seed);
+
+        for (int n = 0; n < 200; n++) {
+            final float width = widths[n % widths.length];
+            final int cap = CAPS[rnd.nextInt(CAPS.length)];
+            check("path " + n, randomPath(rnd),
+                  dashed(width, cap, 20f * rnd.nextFloat()), thin,
+                  MAX_DIFF_PATHS);
+        }
+    }
+
+    @Test
+    public void testStrokerEdges() {
+        testEdges(new float[] {1f, 3f, 6.5f}, false);
+    }
+
+    @Test
+    public void testStrokerPaths() {
+        testRandom(1L, new float[] {1f, 3f, 6.5f}, false);
+    }
+
+    @Test
+    public void testThinLineEdges() {
+        testEdges(new float[] {RendererThinLine.MAX_LINE_WIDTH, 0.5f}, true);
+    }
+
+    @Test
+    public void testThinLinePaths() {
+        testRandom(2L, new float[] {RendererThinLine.MAX_LINE_WIDTH, 0.5f}, true);
+    }
+}
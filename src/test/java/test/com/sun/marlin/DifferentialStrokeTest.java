@@ -0,0 +1,277 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.MaskMarlinAlphaConsumer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that inner and outer strokes rasterized as a differential
+ * fill (centered stroke mask multiplied by the fill coverage, see
+ * MarlinPrismUtils.maskStroke()) give the same mask as the composite of the
+ * plain stroke and fill masks, and nearly the same mask as the fill of the
+ * exact inner or outer stroke outline
+ */
+public class DifferentialStrokeTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 420;
+    private static final int CH = 220;
+
+    // alphas of the pixels crossed by both the stroke and the shape edges are
+    // products of two coverages instead of the coverage of their intersection:
+    private static final int MAX_DIFF_OUTLINE = 4;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    /**
+     * Rasterizes the given inner or outer stroke as MarlinRasterizer does:
+     * centered stroke mask then maskStroke() within the stroke mask bounds
+     */
+    private byte[] differentialStroke(final Path2D p2d, final BasicStroke stroke) {
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            final Rectangle rclip = rdrCtx.clip;
+            rclip.setBounds(CX, CY, CW, CH);
+
+            r = MarlinPrismUtils.setupRenderer(rdrCtx, p2d, stroke, null, rclip,
+                                               true);
+            final int ox = r.getOutpixMinX();
+            final int oy = r.getOutpixMinY();
+            final int w = r.getOutpixMaxX() - ox;
+            final int h = r.getOutpixMaxY() - oy;
+            if ((w <= 0) || (h <= 0)) {
+                return mask;
+            }
+            final MaskMarlinAlphaConsumer ac = new MaskMarlinAlphaConsumer(w * h);
+            ac.setBoundsNoClone(ox, oy, w, h);
+            r.produceAlphas(ac);
+
+            r.dispose();
+            r = null;
+
+            // restrict the fill to the stroke mask:
+            rclip.setBounds(ox, oy, w, h);
+
+            if (MarlinPrismUtils.maskStroke(rdrCtx, ac, p2d, null, rclip, true,
+                    stroke.getType() == BasicStroke.TYPE_INNER))
+            {
+                final ByteBuffer buf = ac.getMaskData().getMaskBuffer();
+                for (int j = 0; j < h; j++) {
+                    for (int i = 0; i < w; i++) {
+                        mask[(oy - CY + j) * CW + (ox - CX + i)]
+                            = buf.get(j * w + i);
+                    }
+                }
+            }
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            rdrCtx.dispose();
+        }
+        return mask;
+    }
+
+    private static byte[] rasterize(final Path2D p2d, final BasicStroke stroke) {
+        // new context (no state left by the previous renderings):
+        final RendererContext ctx = RendererContext.createContext();
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            r = MarlinPrismUtils.setupRenderer(ctx, p2d, stroke, null,
+                                               new Rectangle(CX, CY, CW, CH),
+                                               true);
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            ctx.dispose();
+        }
+        return mask;
+    }
+
+    /**
+     * Composite of the plain (centered, twice as wide) stroke mask and of the
+     * plain fill mask rendered separately
+     */
+    private static byte[] composite(final Path2D p2d, final BasicStroke stroke) {
+        // the renderer strokes inner and outer strokes centered and twice as
+        // wide:
+        final byte[] mask = rasterize(p2d, stroke);
+        final byte[] fill = rasterize(p2d, null);
+        final boolean inner = (stroke.getType() == BasicStroke.TYPE_INNER);
+
+        for (int i = 0; i < mask.length; i++) {
+            final int a = mask[i] & 0xFF;
+            final int c = (inner) ? (fill[i] & 0xFF) : 255 - (fill[i] & 0xFF);
+            mask[i] = (byte) ((a * c + 127) / 255);
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d,
+                       final BasicStroke stroke)
+    {
+        MaskUtils.assertMaskEquals(msg, composite(p2d, stroke),
+                                   differentialStroke(p2d, stroke), CW, 0);
+    }
+
+    private static BasicStroke stroke(final int type, final float width,
+                                      final int join)
+    {
+        return new BasicStroke(type, width, BasicStroke.CAP_BUTT, join, 10f,
+                               null, 0f);
+    }
+
+    private static Path2D randomPath(final Random rnd) {
+        final Path2D p2d = new Path2D((rnd.nextBoolean()) ? Path2D.WIND_NON_ZERO
+                                                          : Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(400f * rnd.nextFloat(), 200f * rnd.nextFloat());
+        for (int i = 0; i < 6; i++) {
+            if (rnd.nextBoolean()) {
+                p2d.lineTo(400f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            } else {
+                p2d.curveTo(400f * rnd.nextFloat(), 200f * rnd.nextFloat(),
+                            400f * rnd.nextFloat(), 200f * rnd.nextFloat(),
+                            400f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    // regular polygon with the given apothem (distance from the center to
+    // its sides), clockwise or not:
+    private static void polygon(final Path2D p2d, final float cx, final float cy,
+                                final double apothem, final int n,
+                                final boolean reverse)
+    {
+        final double r = apothem / Math.cos(Math.PI / n);
+        for (int i = 0; i < n; i++) {
+            final double a = ((reverse) ? -2.0 : 2.0) * Math.PI * i / n;
+            final float x = cx + (float) (r * Math.cos(a));
+            final float y = cy + (float) (r * Math.sin(a));
+            if (i == 0) {
+                p2d.moveTo(x, y);
+            } else {
+                p2d.lineTo(x, y);
+            }
+        }
+        p2d.closePath();
+    }
+
+    @Test
+    public void testComposite() {
+        final Random rnd = new Random(1L);
+        final int[] joins = {
+            BasicStroke.JOIN_MITER, BasicStroke.JOIN_ROUND, BasicStroke.JOIN_BEVEL
+        };
+
+        for (int n = 0; n < 50; n++) {
+            final Path2D p2d = randomPath(rnd);
+            final float width = 0.5f + 10f * rnd.nextFloat();
+            final int join = joins[rnd.nextInt(joins.length)];
+
+            check("inner " + n, p2d, stroke(BasicStroke.TYPE_INNER, width, join));
+            check("outer " + n, p2d, stroke(BasicStroke.TYPE_OUTER, width, join));
+        }
+
+        // stroke partly out of the clip:
+        final Path2D large = new Path2D();
+        polygon(large, 200f, 100f, 150.0, 64, false);
+        check("clipped inner", large,
+              stroke(BasicStroke.TYPE_INNER, 20f, BasicStroke.JOIN_MITER));
+        check("clipped outer", large,
+              stroke(BasicStroke.TYPE_OUTER, 20f, BasicStroke.JOIN_MITER));
+    }
+
+    @Test
+    public void testEmptyFill() {
+        // no area: no inner stroke, full (centered) outer stroke
+        final Path2D line = new Path2D();
+        line.moveTo(20f, 30f);
+        line.lineTo(300f, 150f);
+        line.closePath();
+
+        final BasicStroke inner = stroke(BasicStroke.TYPE_INNER, 4f,
+                                         BasicStroke.JOIN_MITER);
+        final BasicStroke outer = stroke(BasicStroke.TYPE_OUTER, 4f,
+                                         BasicStroke.JOIN_MITER);
+
+        assertEquals(0, MaskUtils.maxDiff(new byte[CW * CH],
+                                          differentialStroke(line, inner)));
+        MaskUtils.assertMaskEquals("outer", rasterize(line, outer),
+                                   differentialStroke(line, outer), CW, 0);
+    }
+
+    @Test
+    public void testOutline() {
+        // the inner and outer (miter) strokes of a convex regular polygon are
+        // the rings between the polygon and its offset polygons:
+        final float[] widths = {1.5f, 2.5f, 8f, 20f};
+        final double apothem = 80.0;
+        final int n = 40;
+
+        for (float width : widths) {
+            final Path2D p2d = new Path2D();
+            polygon(p2d, 200.25f, 100.125f, apothem, n, false);
+
+            final Path2D innerRing = new Path2D(Path2D.WIND_EVEN_ODD);
+            polygon(innerRing, 200.25f, 100.125f, apothem, n, false);
+            polygon(innerRing, 200.25f, 100.125f, apothem - width, n, true);
+
+            final Path2D outerRing = new Path2D(Path2D.WIND_EVEN_ODD);
+            polygon(outerRing, 200.25f, 100.125f, apothem + width, n, false);
+            polygon(outerRing, 200.25f, 100.125f, apothem, n, true);
+
+            MaskUtils.assertMaskEquals("inner (width = " + width + ")",
+                rasterize(innerRing, null),
+                differentialStroke(p2d, stroke(BasicStroke.TYPE_INNER, width,
+                                               BasicStroke.JOIN_MITER)),
+                CW, MAX_DIFF_OUTLINE);
+            MaskUtils.assertMaskEquals("outer (width = " + width + ")",
+                rasterize(outerRing, null),
+                differentialStroke(p2d, stroke(BasicStroke.TYPE_OUTER, width,
+                                               BasicStroke.JOIN_MITER)),
+                CW, MAX_DIFF_OUTLINE);
+        }
+    }
+}
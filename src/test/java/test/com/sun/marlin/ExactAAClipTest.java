@@ -0,0 +1,107 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.RendererContext;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the exact-area renderer (RendererExactAA) fills
+ * shapes clipped on the right side up to the clip edge, as Renderer does
+ */
+public class ExactAAClipTest {
+
+    // clip rectangle:
+    private static final int CX = 10;
+    private static final int CY = 5;
+    private static final int CW = 40;
+    private static final int CH = 30;
+
+    // subpixel (Renderer) vs exact area coverage on edges:
+    private static final int TOLERANCE = 32;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private void check(final String msg, final Path2D p2d) {
+        final byte[] expected = MaskUtils.rasterize(rdrCtx.renderer, p2d,
+                                                    CX, CY, CW, CH);
+        final byte[] actual = MaskUtils.rasterize(rdrCtx.getRendererExactAA(),
+                                                  p2d, CX, CY, CW, CH);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, TOLERANCE);
+    }
+
+    @Test
+    public void testRectClippedRight() {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(20f, 10f);
+        p2d.lineTo(80f, 10f);
+        p2d.lineTo(80f, 25f);
+        p2d.lineTo(20f, 25f);
+        p2d.closePath();
+
+        check("rect", p2d);
+
+        final byte[] mask = MaskUtils.rasterize(rdrCtx.getRendererExactAA(),
+                                                p2d, CX, CY, CW, CH);
+        // last clip column must be fully covered:
+        assertEquals(255, mask[(15 - CY) * CW + (CW - 1)] & 0xFF);
+    }
+
+    @Test
+    public void testPolygonClippedRight() {
+        // slanted edges crossing the right clip edge:
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(15.3f, 8.7f);
+        p2d.lineTo(70.1f, 6.2f);
+        p2d.lineTo(45.6f, 20.4f);
+        p2d.lineTo(90.5f, 31.9f);
+        p2d.lineTo(22.8f, 33.3f);
+        p2d.closePath();
+
+        check("polygon", p2d);
+    }
+
+    @Test
+    public void testEvenOddClippedRight() {
+        final Path2D p2d = new Path2D(Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(12.5f, 7.5f);
+        p2d.lineTo(95.5f, 7.5f);
+        p2d.lineTo(95.5f, 32.5f);
+        p2d.lineTo(12.5f, 32.5f);
+        p2d.closePath();
+        p2d.moveTo(30.25f, 12.25f);
+        p2d.lineTo(120.75f, 12.25f);
+        p2d.lineTo(120.75f, 22.75f);
+        p2d.lineTo(30.25f, 22.75f);
+        p2d.closePath();
+
+        check("even-odd", p2d);
+    }
+}
@@ -0,0 +1,188 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the integer (fixed-point) curve stepping gives nearly
+ * the same masks as the float adaptive forward differencing for quads and
+ * cubics, and the same masks for curves too large for fixed-point
+ */
+public class FixedPointCurvesTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 220;
+    private static final int CH = 220;
+
+    // both steppings give the same lines up to rounding errors, which may
+    // move a crossing to the next subpixel (1 / 8 of the pixel coverage):
+    private static final int MAX_DIFF = 256 / 8;
+
+    // max ratio of differing pixels:
+    private static final double MAX_DIFF_RATIO = 0.001;
+
+    // the curve stepping is chosen when the renderer is created:
+    private static final String FIXED_KEY = "prism.marlin.useFixedPointCurves";
+
+    private final RendererContext rdrCtx = createContext(false);
+    private final RendererContext fixedCtx = createContext(true);
+
+    // number of checked and differing pixels:
+    private long numPixels;
+    private long numDiffs;
+
+    private static RendererContext createContext(final boolean fixed) {
+        final String old = System.setProperty(FIXED_KEY, Boolean.toString(fixed));
+        try {
+            return RendererContext.createContext();
+        } finally {
+            if (old == null) {
+                System.clearProperty(FIXED_KEY);
+            } else {
+                System.setProperty(FIXED_KEY, old);
+            }
+        }
+    }
+
+    private byte[] rasterize(final Path2D p2d, final boolean fixed) {
+        final Renderer r = (fixed) ? fixedCtx.renderer : rdrCtx.renderer;
+        return MaskUtils.rasterize(r, p2d, CX, CY, CW, CH);
+    }
+
+    private void check(final String msg, final Path2D p2d, final int maxDiff) {
+        final byte[] expected = rasterize(p2d, false);
+        final byte[] actual = rasterize(p2d, true);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, maxDiff);
+
+        for (int i = 0; i < expected.length; i++) {
+            if (expected[i] != actual[i]) {
+                numDiffs++;
+            }
+        }
+        numPixels += expected.length;
+    }
+
+    private void checkTotal() {
+        final double ratio = ((double) numDiffs) / numPixels;
+        assertTrue("ratio of differing pixels: " + ratio,
+                   ratio <= MAX_DIFF_RATIO);
+    }
+
+    private static Path2D makePath(final Random rnd, final boolean cubic,
+                                   final float size)
+    {
+        final Path2D p2d = new Path2D((rnd.nextBoolean()) ? Path2D.WIND_NON_ZERO
+                                                          : Path2D.WIND_EVEN_ODD);
+        p2d.moveTo(size * rnd.nextFloat(), size * rnd.nextFloat());
+        for (int i = 0; i < 4; i++) {
+            if (cubic) {
+                p2d.curveTo(size * rnd.nextFloat(), size * rnd.nextFloat(),
+                            size * rnd.nextFloat(), size * rnd.nextFloat(),
+                            size * rnd.nextFloat(), size * rnd.nextFloat());
+            } else {
+                p2d.quadTo(size * rnd.nextFloat(), size * rnd.nextFloat(),
+                           size * rnd.nextFloat(), size * rnd.nextFloat());
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    private void test(final long seed, final boolean cubic) {
+        final Random rnd = new Random(seed);
+
+        for (int n = 0; n < 500; n++) {
+            // small and large curves (loops, cusps):
+            check("path " + n, makePath(rnd, cubic, (n % 5 == 0) ? 20f : 200f),
+                  MAX_DIFF);
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testEllipses() {
+        // cubic and quad arcs:
+        final float k = 0.5522848f;
+        final float cx = 100.3f, cy = 100.6f;
+
+        for (int n = 1; n <= 100; n++) {
+            final float rx = 1f + 0.99f * n, ry = 1f + 0.37f * n;
+
+            final Path2D p2d = new Path2D();
+            p2d.moveTo(cx + rx, cy);
+            p2d.curveTo(cx + rx, cy + k * ry, cx + k * rx, cy + ry, cx, cy + ry);
+            p2d.curveTo(cx - k * rx, cy + ry, cx - rx, cy + k * ry, cx - rx, cy);
+            p2d.quadTo(cx - rx, cy - ry, cx, cy - ry);
+            p2d.quadTo(cx + rx, cy - ry, cx + rx, cy);
+            p2d.closePath();
+            check("ellipse " + n, p2d, MAX_DIFF);
+        }
+        checkTotal();
+    }
+
+    @Test
+    public void testQuads() {
+        test(1L, false);
+    }
+
+    @Test
+    public void testCubics() {
+        test(2L, true);
+    }
+
+    // control point coordinate beyond 2^24 subpixels (8 per pixel):
+    private static float far(final Random rnd) {
+        final float v = 3e6f + 1e6f * rnd.nextFloat();
+        return rnd.nextBoolean() ? v : -v;
+    }
+
+    @Test
+    public void testLargeCurves() {
+        // float stepping fallback: same masks
+        final Random rnd = new Random(3L);
+
+        for (int n = 0; n < 50; n++) {
+            final Path2D p2d = new Path2D();
+            p2d.moveTo(200f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            p2d.curveTo(far(rnd), far(rnd), far(rnd), far(rnd),
+                        200f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            p2d.quadTo(far(rnd), far(rnd),
+                       200f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            p2d.closePath();
+            check("large curve " + n, p2d, 0);
+        }
+    }
+}
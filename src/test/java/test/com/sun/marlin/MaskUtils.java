@@ -0,0 +1,152 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.PathConsumer2D;
+import com.sun.javafx.geom.PathIterator;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.MaskMarlinAlphaConsumer;
+import java.nio.ByteBuffer;
+import static org.junit.Assert.fail;
+
+/**
+ * Mask helpers shared by the renderer tests: rasterize a path with a given
+ * Marlin renderer into a clip-sized alpha array and compare masks.
+ */
+final class MaskUtils {
+
+    private MaskUtils() {
+    }
+
+    /**
+     * Feeds the given path (device coordinates) into the given consumer
+     */
+    static void feed(final Path2D p2d, final PathConsumer2D pc2d) {
+        final float[] coords = new float[6];
+
+        for (PathIterator pi = p2d.getPathIterator(null); !pi.isDone(); pi.next()) {
+            switch (pi.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                    pc2d.moveTo(coords[0], coords[1]);
+                    break;
+                case PathIterator.SEG_LINETO:
+                    pc2d.lineTo(coords[0], coords[1]);
+                    break;
+                case PathIterator.SEG_QUADTO:
+                    pc2d.quadTo(coords[0], coords[1], coords[2], coords[3]);
+                    break;
+                case PathIterator.SEG_CUBICTO:
+                    pc2d.curveTo(coords[0], coords[1], coords[2], coords[3],
+                                 coords[4], coords[5]);
+                    break;
+                case PathIterator.SEG_CLOSE:
+                    pc2d.closePath();
+                    break;
+                default:
+            }
+        }
+        pc2d.pathDone();
+    }
+
+    /**
+     * Rasterizes the given path with the given renderer (fill) within the
+     * clip rectangle [cx, cy, cw, ch] and returns the alpha values of the
+     * clip area (row major, 0 outside of the mask bounds)
+     */
+    static byte[] rasterize(final MarlinRenderer r, final Path2D p2d,
+                            final int cx, final int cy,
+                            final int cw, final int ch)
+    {
+        final byte[] mask = new byte[cw * ch];
+        try {
+            r.init(cx, cy, cw, ch, p2d.getWindingRule());
+            feed(p2d, r);
+            copyMask(r, mask, cx, cy, cw);
+        } finally {
+            r.dispose();
+        }
+        return mask;
+    }
+
+    /**
+     * Produces the alphas of the given (fed) renderer into the given
+     * clip-sized mask
+     */
+    static void copyMask(final MarlinRenderer r, final byte[] mask,
+                         final int cx, final int cy, final int cw)
+    {
+        final int ox = r.getOutpixMinX();
+        final int oy = r.getOutpixMinY();
+        final int w = r.getOutpixMaxX() - ox;
+        final int h = r.getOutpixMaxY() - oy;
+        if ((w <= 0) || (h <= 0)) {
+            return;
+        }
+        final MaskMarlinAlphaConsumer ac = new MaskMarlinAlphaConsumer(w * h);
+        ac.setBoundsNoClone(ox, oy, w, h);
+        r.produceAlphas(ac);
+
+        final ByteBuffer buf = ac.getMaskData().getMaskBuffer();
+        for (int j = 0; j < h; j++) {
+            for (int i = 0; i < w; i++) {
+                mask[(oy - cy + j) * cw + (ox - cx + i)] = buf.get(j * w + i);
+            }
+        }
+    }
+
+    /**
+     * Returns the max absolute alpha difference between the given masks
+     */
+    static int maxDiff(final byte[] a, final byte[] b) {
+        int max = 0;
+        for (int i = 0; i < a.length; i++) {
+            final int d = Math.abs((a[i] & 0xFF) - (b[i] & 0xFF));
+            if (d > max) {
+                max = d;
+            }
+        }
+        return max;
+    }
+
+    /**
+     * Fails if any alpha differs by more than the given tolerance
+     */
+    static void assertMaskEquals(final String msg,
+                                 final byte[] expected, final byte[] actual,
+                                 final int cw, final int tolerance)
+    {
+        for (int i = 0; i < expected.length; i++) {
+            final int e = expected[i] & 0xFF;
+            final int a = actual[i] & 0xFF;
+            if (Math.abs(e - a) > tolerance) {
+                fail(msg + ": alpha mismatch at (" + (i % cw) + ", "
+                     + (i / cw) + "): expected " + e + " but was " + a
+                     + " (tolerance " + tolerance + ")");
+            }
+        }
+    }
+}
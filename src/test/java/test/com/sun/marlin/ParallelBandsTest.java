@@ -0,0 +1,154 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that rasterizing large shapes as parallel horizontal bands
+ * gives exactly the same masks as the serial scanline loop
+ */
+public class ParallelBandsTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 620;
+    private static final int CH = 620;
+
+    // shapes must have enough edges to be split in bands
+    // (prism.marlin.parallel.minEdges = 8192 by default):
+    private static final int NUM_POINTS = 10000;
+
+    // parallel settings are read when the renderer is created:
+    private static final String PARALLEL_KEY = "prism.marlin.parallel";
+    private static final String THREADS_KEY = "prism.marlin.parallel.threads";
+
+    private final RendererContext rdrCtx = createContext(false);
+    private final RendererContext parallelCtx = createContext(true);
+
+    private static RendererContext createContext(final boolean parallel) {
+        final String oldParallel = System.setProperty(PARALLEL_KEY,
+                                                  Boolean.toString(parallel));
+        // several bands even on a single processor:
+        final String oldThreads = System.setProperty(THREADS_KEY, "4");
+        try {
+            return RendererContext.createContext();
+        } finally {
+            restore(PARALLEL_KEY, oldParallel);
+            restore(THREADS_KEY, oldThreads);
+        }
+    }
+
+    private static void restore(final String key, final String old) {
+        if (old == null) {
+            System.clearProperty(key);
+        } else {
+            System.setProperty(key, old);
+        }
+    }
+
+    private void check(final String msg, final Path2D p2d,
+                       final int cx, final int cy, final int cw, final int ch)
+    {
+        final Renderer serial = rdrCtx.renderer;
+        final Renderer parallel = parallelCtx.renderer;
+
+        final byte[] expected = MaskUtils.rasterize(serial, p2d, cx, cy, cw, ch);
+        final byte[] actual = MaskUtils.rasterize(parallel, p2d, cx, cy, cw, ch);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, cw, 0);
+    }
+
+    private void check(final String msg, final Path2D p2d) {
+        check(msg, p2d, CX, CY, CW, CH);
+        // clip the top and bottom of the shape (edges starting above the clip):
+        check(msg + " (clipped)", p2d, 50, 123, 400, 301);
+    }
+
+    private static Path2D randomPolygon(final Random rnd, final int windingRule) {
+        final Path2D p2d = new Path2D(windingRule);
+        p2d.moveTo(600f * rnd.nextFloat(), 600f * rnd.nextFloat());
+        for (int i = 1; i < NUM_POINTS; i++) {
+            p2d.lineTo(600f * rnd.nextFloat(), 600f * rnd.nextFloat());
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    @Test
+    public void testRandomPolygons() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 4; n++) {
+            check("polygon " + n, randomPolygon(rnd, (n % 2 == 0)
+                                  ? Path2D.WIND_NON_ZERO : Path2D.WIND_EVEN_ODD));
+        }
+    }
+
+    @Test
+    public void testStar() {
+        // long spikes crossing all bands:
+        final Path2D p2d = new Path2D();
+        final double cx = 300.3, cy = 300.7;
+
+        for (int i = 0; i < NUM_POINTS; i++) {
+            final double a = (2.0 * Math.PI * i) / NUM_POINTS;
+            final double r = (i % 2 == 0) ? 299.0 : 37.5;
+            final float x = (float) (cx + r * Math.cos(a));
+            final float y = (float) (cy + r * Math.sin(a));
+            if (i == 0) {
+                p2d.moveTo(x, y);
+            } else {
+                p2d.lineTo(x, y);
+            }
+        }
+        p2d.closePath();
+        check("star", p2d);
+    }
+
+    @Test
+    public void testSmallTriangles() {
+        // short edges starting in every band:
+        final Random rnd = new Random(2L);
+        final Path2D p2d = new Path2D();
+
+        for (int i = 0; i < NUM_POINTS / 3; i++) {
+            final float x = 590f * rnd.nextFloat();
+            final float y = 590f * rnd.nextFloat();
+            p2d.moveTo(x, y);
+            p2d.lineTo(x + 10f * rnd.nextFloat(), y + 10f * rnd.nextFloat());
+            p2d.lineTo(x + 10f * rnd.nextFloat(), y + 10f * rnd.nextFloat());
+            p2d.closePath();
+        }
+        check("triangles", p2d);
+    }
+}
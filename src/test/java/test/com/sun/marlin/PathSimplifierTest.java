@@ -0,0 +1,307 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.PathIterator;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinProperties;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the path simplifier keeps every input point within its
+ * tolerance and gives nearly the same masks as the exact paths for dense
+ * polyline fills and round strokes, and the same masks for curves, dashes
+ * and other strokes
+ */
+public class PathSimplifierTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 420;
+    private static final int CH = 220;
+
+    private static final float TOLERANCE
+        = MarlinProperties.getPathSimplifierTolerance();
+
+    // edges move by the tolerance (1 subpixel) at most, so alphas may differ
+    // by a few subpixels where several edges cross the same pixel:
+    private static final int MAX_DIFF = 96;
+
+    // max relative difference of the total coverage:
+    private static final double MAX_REL_DIFF = 0.02;
+
+    // strokes have a longer outline per covered pixel than fills:
+    private static final double MAX_REL_DIFF_STROKES = 0.04;
+
+    // the simplifier setting is read when the context is created:
+    private static final String SIMPLIFIER_KEY = "prism.marlin.usePathSimplifier";
+
+    private final RendererContext rdrCtx = createContext(false);
+    private final RendererContext simplifierCtx = createContext(true);
+
+    // sums of the alphas and of the absolute alpha differences:
+    private long sumAlpha;
+    private long sumDiff;
+
+    private static RendererContext createContext(final boolean simplify) {
+        final String old = System.setProperty(SIMPLIFIER_KEY,
+                                              Boolean.toString(simplify));
+        try {
+            return RendererContext.createContext();
+        } finally {
+            if (old == null) {
+                System.clearProperty(SIMPLIFIER_KEY);
+            } else {
+                System.setProperty(SIMPLIFIER_KEY, old);
+            }
+        }
+    }
+
+    private static byte[] rasterize(final RendererContext ctx, final Path2D p2d,
+                                    final BasicStroke stroke)
+    {
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            r = MarlinPrismUtils.setupRenderer(ctx, p2d, stroke, null,
+                                               new Rectangle(CX, CY, CW, CH),
+                                               true);
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            ctx.dispose();
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d,
+                       final BasicStroke stroke, final int maxDiff)
+    {
+        final byte[] expected = rasterize(rdrCtx, p2d, stroke);
+        final byte[] actual = rasterize(simplifierCtx, p2d, stroke);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, maxDiff);
+
+        for (int i = 0; i < expected.length; i++) {
+            final int e = expected[i] & 0xFF;
+            sumAlpha += e;
+            sumDiff += Math.abs(e - (actual[i] & 0xFF));
+        }
+    }
+
+    private void checkTotal(final double maxRelDiff) {
+        final double rel = ((double) sumDiff) / sumAlpha;
+        assertTrue("relative coverage difference: " + rel,
+                   rel <= maxRelDiff);
+    }
+
+    // dense polyline: random walk of n points with small steps
+    private static Path2D randomWalk(final Random rnd, final int n,
+                                     final float step, final boolean close)
+    {
+        final Path2D p2d = new Path2D((rnd.nextBoolean()) ? Path2D.WIND_NON_ZERO
+                                                          : Path2D.WIND_EVEN_ODD);
+        float x = 200f * rnd.nextFloat(), y = 100f + 50f * rnd.nextFloat();
+        float dx = step, dy = 0f;
+        p2d.moveTo(x, y);
+        for (int i = 1; i < n; i++) {
+            // slowly turning direction plus noise:
+            final float a = 0.05f * (rnd.nextFloat() - 0.5f);
+            final float ndx = dx * (float) Math.cos(a) - dy * (float) Math.sin(a);
+            dy = dx * (float) Math.sin(a) + dy * (float) Math.cos(a);
+            dx = ndx;
+            x += dx + 0.02f * (rnd.nextFloat() - 0.5f);
+            y += dy + 0.02f * (rnd.nextFloat() - 0.5f);
+            if (x < 0f || x > 400f) {
+                dx = -dx;
+            }
+            if (y < 0f || y > 200f) {
+                dy = -dy;
+            }
+            p2d.lineTo(x, y);
+        }
+        if (close) {
+            p2d.closePath();
+        }
+        return p2d;
+    }
+
+    private static float[] points(final Path2D p2d) {
+        final float[] pts = new float[p2d.getNumCoords()];
+        final float[] coords = new float[6];
+        int n = 0;
+        for (PathIterator pi = p2d.getPathIterator(null); !pi.isDone(); pi.next()) {
+            switch (pi.currentSegment(coords)) {
+                case PathIterator.SEG_MOVETO:
+                case PathIterator.SEG_LINETO:
+                    pts[n++] = coords[0];
+                    pts[n++] = coords[1];
+                    break;
+                default:
+            }
+        }
+        return java.util.Arrays.copyOf(pts, n);
+    }
+
+    private static double distToSegment(final double px, final double py,
+                                        final double x0, final double y0,
+                                        final double x1, final double y1)
+    {
+        final double vx = x1 - x0, vy = y1 - y0;
+        final double l2 = vx * vx + vy * vy;
+        double t = (l2 == 0.0) ? 0.0 : ((px - x0) * vx + (py - y0) * vy) / l2;
+        t = Math.max(0.0, Math.min(1.0, t));
+        return Math.hypot(px - (x0 + t * vx), py - (y0 + t * vy));
+    }
+
+    @Test
+    public void testTolerance() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 50; n++) {
+            final float step = (n % 2 == 0) ? 0.05f : 0.5f;
+            final Path2D input = randomWalk(rnd, 20000, step, false);
+
+            final Path2D output = new Path2D();
+            MaskUtils.feed(input, rdrCtx.pathSimplifier.init(output, TOLERANCE));
+
+            final float[] in = points(input);
+            final float[] out = points(output);
+
+            assertTrue("walk " + n + ": not simplified", out.length < in.length / 4);
+            // same end points, output points are input points in order:
+            assertEquals(in[0], out[0], 0f);
+            assertEquals(in[1], out[1], 0f);
+            assertEquals(in[in.length - 2], out[out.length - 2], 0f);
+            assertEquals(in[in.length - 1], out[out.length - 1], 0f);
+
+            for (int i = 2, j = 0; i < in.length; i += 2) {
+                if ((in[i] == out[j + 2]) && (in[i + 1] == out[j + 3])) {
+                    j += 2;
+                    if (j + 2 >= out.length) {
+                        if (i + 2 < in.length) {
+                            fail("walk " + n + ": output ends at point " + (i / 2));
+                        }
+                        break;
+                    }
+                    continue;
+                }
+                final double d = distToSegment(in[i], in[i + 1], out[j], out[j + 1],
+                                               out[j + 2], out[j + 3]);
+                if (d > TOLERANCE * (1.0 + 1e-4)) {
+                    fail("walk " + n + ": point " + (i / 2) + " at " + d
+                         + " from the simplified path (tolerance " + TOLERANCE + ")");
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testDenseFills() {
+        final Random rnd = new Random(2L);
+
+        for (int n = 0; n < 20; n++) {
+            check("fill " + n, randomWalk(rnd, 20000, 0.1f, true), null, MAX_DIFF);
+        }
+        checkTotal(MAX_REL_DIFF);
+    }
+
+    @Test
+    public void testDenseStrokes() {
+        final Random rnd = new Random(3L);
+        final float[] widths = {1.5f, 2.5f, 6f};
+
+        for (int n = 0; n < 20; n++) {
+            final float width = widths[n % widths.length];
+            final BasicStroke stroke = new BasicStroke(width,
+                BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f);
+            check("stroke " + n + " (width = " + width + ")",
+                  randomWalk(rnd, 20000, 0.1f, (n % 3) == 0), stroke, MAX_DIFF);
+        }
+        checkTotal(MAX_REL_DIFF_STROKES);
+    }
+
+    @Test
+    public void testExactStrokes() {
+        final Random rnd = new Random(5L);
+        final int[] caps = {BasicStroke.CAP_BUTT, BasicStroke.CAP_SQUARE};
+        final int[] joins = {BasicStroke.JOIN_MITER, BasicStroke.JOIN_BEVEL};
+
+        // other joins or caps are not simplified (their outline follows the
+        // directions of the removed segments):
+        for (int n = 0; n < 20; n++) {
+            final BasicStroke stroke = (n % 2 == 0)
+                ? new BasicStroke(0.5f + 0.5f * n, rnd.nextInt(3),
+                                  joins[rnd.nextInt(joins.length)], 10f)
+                : new BasicStroke(0.5f + 0.5f * n, caps[rnd.nextInt(caps.length)],
+                                  BasicStroke.JOIN_ROUND, 10f);
+            check("stroke " + n, randomWalk(rnd, 5000, 0.1f, false), stroke, 0);
+        }
+    }
+
+    @Test
+    public void testCurvesAndDashes() {
+        final Random rnd = new Random(4L);
+
+        // curves pass through unchanged:
+        for (int n = 0; n < 20; n++) {
+            final Path2D p2d = new Path2D();
+            p2d.moveTo(400f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            for (int i = 0; i < 5; i++) {
+                p2d.curveTo(400f * rnd.nextFloat(), 200f * rnd.nextFloat(),
+                            400f * rnd.nextFloat(), 200f * rnd.nextFloat(),
+                            400f * rnd.nextFloat(), 200f * rnd.nextFloat());
+                p2d.quadTo(400f * rnd.nextFloat(), 200f * rnd.nextFloat(),
+                           400f * rnd.nextFloat(), 200f * rnd.nextFloat());
+            }
+            p2d.closePath();
+            check("curves " + n, p2d, null, 0);
+            check("stroked curves " + n, p2d, new BasicStroke(2f,
+                  BasicStroke.CAP_ROUND, BasicStroke.JOIN_ROUND, 10f), 0);
+        }
+
+        // dashed strokes are not simplified (dash length):
+        final float[] dashes = {3f, 1.5f};
+        for (int n = 0; n < 10; n++) {
+            final BasicStroke stroke = new BasicStroke((n % 2 == 0) ? 0.8f : 2f,
+                BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f, dashes, 0f);
+            check("dashes " + n, randomWalk(rnd, 5000, 0.1f, false), stroke, 0);
+        }
+    }
+}
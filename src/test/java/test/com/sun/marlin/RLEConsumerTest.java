@@ -0,0 +1,267 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RLEMarlinAlphaConsumer;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the runs produced by RLEMarlinAlphaConsumer (as used by
+ * ShapeUtil.rasterizeShapeRLE) decode to the same alphas as the regular mask
+ * for narrow and wide (block flags) fills and strokes, including fully
+ * opaque and fully empty rows
+ */
+public class RLEConsumerTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -20;
+    private static final int CW = 400;
+    private static final int CH = 150;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    // consumer reused for all shapes (as the rasterizer does):
+    private final RLEMarlinAlphaConsumer rle = new RLEMarlinAlphaConsumer();
+
+    // decodes the runs into a clip-sized mask and checks their layout:
+    private byte[] decode(final String msg) {
+        final byte[] mask = new byte[CW * CH];
+        final int[] runs = rle.getRunsNoClone();
+        final int ox = rle.getOriginX();
+        final int oy = rle.getOriginY();
+        final int w = rle.getWidth();
+
+        int prevEnd = 0;
+        for (int row = 0; row < rle.getHeight(); row++) {
+            final int start = rle.getRowStart(row);
+            final int end = rle.getRowEnd(row);
+            // rows are stored in order, runs are not shared:
+            assertTrue(msg + ": row " + row, (start == end) || (start >= prevEnd));
+            assertTrue(msg + ": row " + row, start <= end);
+            prevEnd = Math.max(prevEnd, end);
+
+            int lastX = ox;
+            int lastAlpha = 0;
+            for (int i = start * RLEMarlinAlphaConsumer.RUN_STRIDE,
+                     e = end * RLEMarlinAlphaConsumer.RUN_STRIDE;
+                 i < e; i += RLEMarlinAlphaConsumer.RUN_STRIDE)
+            {
+                final int x0 = runs[i];
+                final int x1 = runs[i + 1];
+                final int alpha = runs[i + 2];
+                final String run = msg + ": row " + row + " run [" + x0
+                                   + ", " + x1 + "[ alpha " + alpha;
+                // sorted non-empty runs within the bounds:
+                assertTrue(run, (x0 >= lastX) && (x0 < x1) && (x1 <= ox + w));
+                // no transparent run, adjacent runs have other alphas:
+                assertTrue(run, (alpha >= 1) && (alpha <= 255));
+                if (x0 == lastX) {
+                    assertTrue(run, alpha != lastAlpha);
+                }
+                for (int x = x0; x < x1; x++) {
+                    mask[(oy - CY + row) * CW + (x - CX)] = (byte) alpha;
+                }
+                lastX = x1;
+                lastAlpha = alpha;
+            }
+        }
+        return mask;
+    }
+
+    private void check(final String msg, final Path2D p2d,
+                       final BasicStroke stroke, final boolean antialias)
+    {
+        final Rectangle clip = new Rectangle(CX, CY, CW, CH);
+        final byte[] expected = new byte[CW * CH];
+        MarlinRenderer r = MarlinPrismUtils.setupRenderer(rdrCtx, p2d, stroke,
+                                                          null, clip, antialias);
+        try {
+            MaskUtils.copyMask(r, expected, CX, CY, CW);
+        } finally {
+            r.dispose();
+            rdrCtx.dispose();
+        }
+
+        final byte[] actual;
+        r = MarlinPrismUtils.setupRenderer(rdrCtx, p2d, stroke, null, clip,
+                                           antialias);
+        try {
+            final int ox = r.getOutpixMinX();
+            final int oy = r.getOutpixMinY();
+            final int w = r.getOutpixMaxX() - ox;
+            final int h = r.getOutpixMaxY() - oy;
+            if ((w <= 0) || (h <= 0)) {
+                assertEquals(msg, 0, MaskUtils.maxDiff(expected,
+                                                       new byte[CW * CH]));
+                return;
+            }
+            rle.setBoundsNoClone(ox, oy, w, h);
+            r.produceAlphas(rle);
+            actual = decode(msg);
+
+            // fillMask() expands the same runs:
+            final byte[] filled = new byte[w * h];
+            rle.fillMask(filled, 0, w);
+            for (int j = 0; j < h; j++) {
+                for (int i = 0; i < w; i++) {
+                    if (filled[j * w + i]
+                        != actual[(oy - CY + j) * CW + (ox - CX + i)])
+                    {
+                        fail(msg + ": fillMask() mismatch at (" + (ox + i)
+                             + ", " + (oy + j) + ")");
+                    }
+                }
+            }
+        } finally {
+            r.dispose();
+            rdrCtx.dispose();
+        }
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, 0);
+    }
+
+    private static Path2D randomPath(final Random rnd, final float width) {
+        final Path2D p2d = new Path2D(rnd.nextBoolean() ? Path2D.WIND_NON_ZERO
+                                                        : Path2D.WIND_EVEN_ODD);
+        final float x = CX - 5f + (CW + 10f - width) * rnd.nextFloat();
+        p2d.moveTo(x + width * rnd.nextFloat(), CY - 5f + (CH + 10f) * rnd.nextFloat());
+        for (int i = 0; i < 6; i++) {
+            if (rnd.nextBoolean()) {
+                p2d.lineTo(x + width * rnd.nextFloat(),
+                           CY - 5f + (CH + 10f) * rnd.nextFloat());
+            } else {
+                p2d.curveTo(x + width * rnd.nextFloat(),
+                            CY - 5f + (CH + 10f) * rnd.nextFloat(),
+                            x + width * rnd.nextFloat(),
+                            CY - 5f + (CH + 10f) * rnd.nextFloat(),
+                            x + width * rnd.nextFloat(),
+                            CY - 5f + (CH + 10f) * rnd.nextFloat());
+            }
+        }
+        p2d.closePath();
+        return p2d;
+    }
+
+    @Test
+    public void testRandomFills() {
+        final Random rnd = new Random(1L);
+
+        // narrow (no block flags) and wide shapes:
+        final float[] widths = {20f, 60f, 150f, CW + 10f};
+        for (int n = 0; n < 400; n++) {
+            final float width = widths[n % widths.length];
+            check("fill " + n + " (width = " + width + ")",
+                  randomPath(rnd, width), null, (n % 5) != 0);
+        }
+    }
+
+    @Test
+    public void testRandomStrokes() {
+        final Random rnd = new Random(2L);
+
+        for (int n = 0; n < 200; n++) {
+            final BasicStroke stroke = new BasicStroke(0.5f + 8f * rnd.nextFloat(),
+                rnd.nextInt(3), rnd.nextInt(3), 10f,
+                rnd.nextBoolean() ? new float[] {9f, 4f} : null, 0f);
+            check("stroke " + n, randomPath(rnd, (n & 1) == 0 ? 50f : CW),
+                  stroke, true);
+        }
+    }
+
+    @Test
+    public void testOpaqueAndEmptyRows() {
+        // two pixel aligned rectangles separated by 10 empty rows, the upper
+        // one spanning the whole clip width:
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(CX - 5f, 0f);
+        p2d.lineTo(CX + CW + 5f, 0f);
+        p2d.lineTo(CX + CW + 5f, 20f);
+        p2d.lineTo(CX - 5f, 20f);
+        p2d.closePath();
+        p2d.moveTo(100f, 30f);
+        p2d.lineTo(300f, 30f);
+        p2d.lineTo(300f, 60.5f);
+        p2d.lineTo(100f, 60.5f);
+        p2d.closePath();
+
+        check("rectangles", p2d, null, true);
+
+        // one opaque run per row of the rectangles:
+        final int[] runs = rle.getRunsNoClone();
+        final int oy = rle.getOriginY();
+        assertEquals(0, oy);
+        assertEquals(61, rle.getHeight());
+
+        for (int row = 0; row < rle.getHeight(); row++) {
+            final int start = rle.getRowStart(row);
+            final int count = rle.getRowEnd(row) - start;
+            final int i = start * RLEMarlinAlphaConsumer.RUN_STRIDE;
+            if (row < 20) {
+                assertEquals("row " + row, 1, count);
+                assertEquals("row " + row, CX, runs[i]);
+                assertEquals("row " + row, CX + CW, runs[i + 1]);
+                assertEquals("row " + row, 255, runs[i + 2]);
+            } else if (row < 30) {
+                assertEquals("empty row " + row, 0, count);
+            } else {
+                assertEquals("row " + row, 1, count);
+                assertEquals("row " + row, 100, runs[i]);
+                assertEquals("row " + row, 300, runs[i + 1]);
+                if (row < 60) {
+                    assertEquals("row " + row, 255, runs[i + 2]);
+                } else {
+                    // half covered row:
+                    assertTrue("row " + row, Math.abs(runs[i + 2] - 128) <= 1);
+                }
+            }
+        }
+    }
+
+    @Test
+    public void testEmptyShape() {
+        // shape out of the clip, then a shape after it in the same consumer:
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(CX + CW + 10f, 0f);
+        p2d.lineTo(CX + CW + 50f, 0f);
+        p2d.lineTo(CX + CW + 50f, 40f);
+        p2d.closePath();
+        check("out of clip", p2d, null, true);
+
+        check("after empty shape", randomPath(new Random(3L), CW), null, true);
+    }
+}
@@ -0,0 +1,157 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.RendererContext;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that sorting the crossings with the radix sort gives exactly
+ * the same masks as the insertion / merge sorts on dense shapes having many
+ * (duplicated) crossings per scanline, for both winding rules and orientations
+ */
+public class RadixSortTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 330;
+    private static final int CH = 330;
+
+    // the radix sort setting is read when the renderer is created:
+    private static final String RADIX_KEY = "prism.marlin.useRadixSort";
+
+    private final RendererContext mergeCtx = createContext(false);
+    private final RendererContext radixCtx = createContext(true);
+
+    private static RendererContext createContext(final boolean radix) {
+        final String old = System.setProperty(RADIX_KEY, Boolean.toString(radix));
+        try {
+            final RendererContext rdrCtx = RendererContext.createContext();
+            // create the lazy non-AA renderer now:
+            rdrCtx.getRendererNoAA();
+            return rdrCtx;
+        } finally {
+            if (old == null) {
+                System.clearProperty(RADIX_KEY);
+            } else {
+                System.setProperty(RADIX_KEY, old);
+            }
+        }
+    }
+
+    private void check(final String msg, final Path2D p2d) {
+        check(msg, p2d, mergeCtx.renderer, radixCtx.renderer);
+        check(msg + " (no AA)", p2d, mergeCtx.getRendererNoAA(),
+              radixCtx.getRendererNoAA());
+    }
+
+    private static void check(final String msg, final Path2D p2d,
+                              final MarlinRenderer merge,
+                              final MarlinRenderer radix)
+    {
+        final byte[] expected = MaskUtils.rasterize(merge, p2d, CX, CY, CW, CH);
+        final byte[] actual = MaskUtils.rasterize(radix, p2d, CX, CY, CW, CH);
+
+        MaskUtils.assertMaskEquals(msg, expected, actual, CW, 0);
+    }
+
+    private static int windingRule(final int n) {
+        return (n % 2 == 0) ? Path2D.WIND_NON_ZERO : Path2D.WIND_EVEN_ODD;
+    }
+
+    @Test
+    public void testRandomPolygons() {
+        final Random rnd = new Random(1L);
+
+        // many new edges per scanline:
+        for (int n = 0; n < 6; n++) {
+            final Path2D p2d = new Path2D(windingRule(n));
+            p2d.moveTo(300f * rnd.nextFloat(), 300f * rnd.nextFloat());
+            for (int i = 1; i < 2000; i++) {
+                p2d.lineTo(300f * rnd.nextFloat(), 300f * rnd.nextFloat());
+            }
+            p2d.closePath();
+            check("polygon " + n, p2d);
+        }
+    }
+
+    @Test
+    public void testHatching() {
+        final Random rnd = new Random(2L);
+
+        // long crossing edges (crossings out of order on every scanline):
+        for (int n = 0; n < 4; n++) {
+            final Path2D p2d = new Path2D(windingRule(n));
+            for (int i = 0; i < 300; i++) {
+                final float x0 = 300f * rnd.nextFloat();
+                final float x1 = 300f * rnd.nextFloat();
+                p2d.moveTo(x0, 0f);
+                p2d.lineTo(x1, 300f);
+                p2d.lineTo(x1 + 0.5f + rnd.nextFloat(), 300f);
+                p2d.lineTo(x0 + 0.5f + rnd.nextFloat(), 0f);
+                p2d.closePath();
+            }
+            check("hatching " + n, p2d);
+        }
+    }
+
+    @Test
+    public void testDuplicateCrossings() {
+        final Random rnd = new Random(3L);
+
+        // short overlapping rectangles on a few columns: many new edges per
+        // scanline and many equal crossings with both orientations (random
+        // rectangle direction):
+        final float[] offsets = {0f, 0.25f, 0.3f, 0.5f};
+        for (int n = 0; n < 8; n++) {
+            final float offset = offsets[n % offsets.length];
+            final Path2D p2d = new Path2D(windingRule(n));
+            for (int i = 0; i < 30000; i++) {
+                final float x0 = 6f * rnd.nextInt(40) + offset;
+                final float x1 = x0 + 6f * (1 + rnd.nextInt(3));
+                final float y0 = rnd.nextInt(300) + offset;
+                final float y1 = y0 + 1 + rnd.nextInt(4);
+                p2d.moveTo(x0, y0);
+                if (rnd.nextBoolean()) {
+                    p2d.lineTo(x1, y0);
+                    p2d.lineTo(x1, y1);
+                    p2d.lineTo(x0, y1);
+                } else {
+                    p2d.lineTo(x0, y1);
+                    p2d.lineTo(x1, y1);
+                    p2d.lineTo(x1, y0);
+                }
+                p2d.closePath();
+            }
+            check("rectangles " + n + " (offset = " + offset + ")", p2d);
+        }
+    }
+}
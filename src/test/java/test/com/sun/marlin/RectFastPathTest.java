@@ -0,0 +1,141 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.Rectangle;
+import com.sun.marlin.MarlinRenderer;
+import com.sun.marlin.MaskMarlinAlphaConsumer;
+import com.sun.marlin.RendererContext;
+import com.sun.prism.impl.shape.MarlinPrismUtils;
+import java.nio.ByteBuffer;
+import java.util.Random;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the rectangle fast path (MaskMarlinAlphaConsumer.fillRect)
+ * gives exactly the same masks as the renderer for aligned and fractional
+ * rectangles, with and without antialiasing
+ */
+public class RectFastPathTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 120;
+    private static final int CH = 120;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private byte[] render(final float x0, final float y0,
+                          final float x1, final float y1,
+                          final boolean antialias)
+    {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(x0, y0);
+        p2d.lineTo(x1, y0);
+        p2d.lineTo(x1, y1);
+        p2d.lineTo(x0, y1);
+        p2d.closePath();
+
+        final byte[] mask = new byte[CW * CH];
+        MarlinRenderer r = null;
+        try {
+            r = MarlinPrismUtils.setupRenderer(rdrCtx, p2d, null, null,
+                                               new Rectangle(CX, CY, CW, CH),
+                                               antialias);
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            if (r != null) {
+                r.dispose();
+            }
+            rdrCtx.dispose();
+        }
+        return mask;
+    }
+
+    private static byte[] fillRect(final float x0, final float y0,
+                                   final float x1, final float y1,
+                                   final boolean antialias)
+    {
+        final MaskMarlinAlphaConsumer ac = new MaskMarlinAlphaConsumer(CW * CH);
+        ac.setBoundsNoClone(CX, CY, CW, CH);
+        ac.fillRect(x0, y0, x1, y1, antialias);
+
+        final ByteBuffer buf = ac.getMaskData().getMaskBuffer();
+        final byte[] mask = new byte[CW * CH];
+        for (int i = 0; i < mask.length; i++) {
+            mask[i] = buf.get(i);
+        }
+        return mask;
+    }
+
+    private void check(final float x0, final float y0,
+                       final float x1, final float y1)
+    {
+        for (int aa = 0; aa < 2; aa++) {
+            final boolean antialias = (aa == 1);
+            MaskUtils.assertMaskEquals("rect [" + x0 + ", " + y0 + ", " + x1
+                                       + ", " + y1 + "] (aa = " + antialias + ")",
+                                       render(x0, y0, x1, y1, antialias),
+                                       fillRect(x0, y0, x1, y1, antialias),
+                                       CW, 0);
+        }
+    }
+
+    @Test
+    public void testAlignedRects() {
+        for (int x = -15; x < 100; x += 7) {
+            for (int w = 1; w < 40; w += 3) {
+                check(x, x + 3, x + w, x + 3 + 2 * w);
+            }
+        }
+    }
+
+    @Test
+    public void testFractionalRects() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 2000; n++) {
+            final float x = 110f * rnd.nextFloat() - 15f;
+            final float y = 110f * rnd.nextFloat() - 15f;
+            // thin (less than a pixel) and large rectangles:
+            final float s = (n % 4 == 0) ? 1f : 40f;
+            check(x, y, x + s * rnd.nextFloat(), y + s * rnd.nextFloat());
+        }
+    }
+
+    @Test
+    public void testSubpixelRects() {
+        // edges on subpixel sample centers and half-pixel boundaries:
+        for (int i = 0; i < 64; i++) {
+            final float x = 10f + i / 16f;
+            final float y = 20f + i / 32f;
+            check(x, y, x + 5.5f + i / 64f, y + 0.5f + i / 8f);
+        }
+    }
+}
@@ -0,0 +1,139 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.MaskMarlinAlphaConsumer;
+import com.sun.marlin.Renderer;
+import com.sun.marlin.RendererContext;
+import java.nio.ByteBuffer;
+import static org.junit.Assert.assertTrue;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that shapes rasterized at other subpixel resolutions
+ * (setSubpixelLog2) give other masks and that dispose() restores the default
+ * resolution: the next default masks are identical to the first ones (with
+ * a mask consumer shared by all resolutions)
+ */
+public class SubpixelRestoreTest {
+
+    // clip rectangle:
+    private static final int CX = -10;
+    private static final int CY = -10;
+    private static final int CW = 120;
+    private static final int CH = 120;
+
+    // subpixel levels (log2) other than the default (3, 3):
+    private static final int[][] LEVELS = {
+        {0, 0}, {2, 2}, {4, 4}, {3, 2}, {2, 3}, {8, 3}, {5, 5}
+    };
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    // consumer reused for all masks (alpha map set per mask):
+    private final MaskMarlinAlphaConsumer ac
+        = new MaskMarlinAlphaConsumer(CW * CH);
+
+    private static Path2D makeShape() {
+        // curves and slanted edges (fractional coverage everywhere):
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(10.3f, 20.7f);
+        p2d.curveTo(90.1f, -10.2f, 120.4f, 80.9f, 60.6f, 95.3f);
+        p2d.quadTo(20.2f, 105.8f, 35.5f, 60.1f);
+        p2d.lineTo(5.25f, 70.4f);
+        p2d.closePath();
+        return p2d;
+    }
+
+    private byte[] rasterize(final Path2D p2d, final int[] level) {
+        final Renderer r = rdrCtx.renderer;
+        final byte[] mask = new byte[CW * CH];
+        try {
+            if (level != null) {
+                r.setSubpixelLog2(level[0], level[1]);
+            }
+            r.init(CX, CY, CW, CH, p2d.getWindingRule());
+            MaskUtils.feed(p2d, r);
+
+            final int ox = r.getOutpixMinX();
+            final int oy = r.getOutpixMinY();
+            final int w = r.getOutpixMaxX() - ox;
+            final int h = r.getOutpixMaxY() - oy;
+            if ((w > 0) && (h > 0)) {
+                ac.setBoundsNoClone(ox, oy, w, h);
+                r.produceAlphas(ac);
+
+                final ByteBuffer buf = ac.getMaskData().getMaskBuffer();
+                for (int j = 0; j < h; j++) {
+                    for (int i = 0; i < w; i++) {
+                        mask[(oy - CY + j) * CW + (ox - CX + i)]
+                            = buf.get(j * w + i);
+                    }
+                }
+            }
+        } finally {
+            r.dispose();
+        }
+        return mask;
+    }
+
+    @Test
+    public void testRestore() {
+        final Path2D p2d = makeShape();
+        final byte[] baseline = rasterize(p2d, null);
+
+        for (int[] level : LEVELS) {
+            final String msg = "level (" + level[0] + ", " + level[1] + ")";
+
+            final byte[] other = rasterize(p2d, level);
+            assertTrue(msg + ": same mask as the default level",
+                       MaskUtils.maxDiff(baseline, other) != 0);
+
+            // default level after dispose():
+            MaskUtils.assertMaskEquals(msg + ": next default mask", baseline,
+                                       rasterize(p2d, null), CW, 0);
+        }
+    }
+
+    @Test
+    public void testRestoreAfterEmptyShape() {
+        final Path2D p2d = makeShape();
+        final byte[] baseline = rasterize(p2d, null);
+
+        // no edge in the clip (empty mask) at another level:
+        final Path2D empty = new Path2D();
+        empty.moveTo(500f, 500f);
+        empty.lineTo(600f, 500f);
+        empty.lineTo(600f, 600f);
+        empty.closePath();
+        rasterize(empty, LEVELS[1]);
+
+        MaskUtils.assertMaskEquals("next default mask", baseline,
+                                   rasterize(p2d, null), CW, 0);
+    }
+}
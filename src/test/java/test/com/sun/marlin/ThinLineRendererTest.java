@@ -0,0 +1,159 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.marlin;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.marlin.RendererContext;
+import com.sun.marlin.RendererThinLine;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check the coverage of thin strokes rasterized by the thin line
+ * renderer (RendererThinLine) against the exact line area and against the
+ * stroke outline filled by Renderer
+ */
+public class ThinLineRendererTest {
+
+    // clip rectangle:
+    private static final int CX = -5;
+    private static final int CY = -5;
+    private static final int CW = 110;
+    private static final int CH = 110;
+
+    // Renderer samples 8x8 subpixels per pixel (1 / 8 pixel error on both
+    // sides of the line):
+    private static final int MAX_DIFF = 32;
+
+    private final RendererContext rdrCtx = RendererContext.createContext();
+
+    private byte[] stroke(final Path2D p2d, final float width, final int cap) {
+        final byte[] mask = new byte[CW * CH];
+        final RendererThinLine r = rdrCtx.getRendererThinLine();
+        try {
+            r.init(CX, CY, CW, CH, Path2D.WIND_NON_ZERO);
+            MaskUtils.feed(p2d, r.initStroke(width, cap));
+            MaskUtils.copyMask(r, mask, CX, CY, CW);
+        } finally {
+            r.dispose();
+        }
+        return mask;
+    }
+
+    private static Path2D line(final float x0, final float y0,
+                               final float x1, final float y1)
+    {
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(x0, y0);
+        p2d.lineTo(x1, y1);
+        return p2d;
+    }
+
+    // butt capped outline of the given segment:
+    private static Path2D outline(final float x0, final float y0,
+                                  final float x1, final float y1,
+                                  final float width)
+    {
+        final double len = Math.hypot(x1 - x0, y1 - y0);
+        final float nx = (float) (0.5 * width * (y0 - y1) / len);
+        final float ny = (float) (0.5 * width * (x1 - x0) / len);
+
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(x0 + nx, y0 + ny);
+        p2d.lineTo(x1 + nx, y1 + ny);
+        p2d.lineTo(x1 - nx, y1 - ny);
+        p2d.lineTo(x0 - nx, y0 - ny);
+        p2d.closePath();
+        return p2d;
+    }
+
+    private static long sum(final byte[] mask) {
+        long sum = 0L;
+        for (byte b : mask) {
+            sum += (b & 0xFF);
+        }
+        return sum;
+    }
+
+    @Test
+    public void testHorizontalLine() {
+        final byte[] mask = stroke(line(10f, 20.5f, 90f, 20.5f), 1f,
+                                   RendererThinLine.CAP_BUTT);
+        final byte[] expected = new byte[CW * CH];
+        for (int x = 10; x < 90; x++) {
+            expected[(20 - CY) * CW + (x - CX)] = (byte) 255;
+        }
+        MaskUtils.assertMaskEquals("horizontal line", expected, mask, CW, 1);
+
+        // half width:
+        final byte[] half = stroke(line(10f, 20.5f, 90f, 20.5f), 0.5f,
+                                   RendererThinLine.CAP_BUTT);
+        for (int x = 10; x < 90; x++) {
+            expected[(20 - CY) * CW + (x - CX)] = (byte) 128;
+        }
+        MaskUtils.assertMaskEquals("half width line", expected, half, CW, 1);
+    }
+
+    @Test
+    public void testSquareCap() {
+        // square caps extend the line by half the line width:
+        final byte[] expected = stroke(line(10f, 50.5f, 90f, 50.5f), 1f,
+                                       RendererThinLine.CAP_BUTT);
+        final byte[] mask = stroke(line(10.5f, 50.5f, 89.5f, 50.5f), 1f,
+                                   RendererThinLine.CAP_SQUARE);
+        MaskUtils.assertMaskEquals("square cap", expected, mask, CW, 1);
+    }
+
+    @Test
+    public void testSegments() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 500; n++) {
+            final float x0 = 5f + 90f * rnd.nextFloat();
+            final float y0 = 5f + 90f * rnd.nextFloat();
+            final float x1 = 5f + 90f * rnd.nextFloat();
+            final float y1 = 5f + 90f * rnd.nextFloat();
+            final float w = 0.25f + 0.75f * rnd.nextFloat();
+            final String msg = "segment " + n + " (" + x0 + ", " + y0 + ", "
+                               + x1 + ", " + y1 + ") width " + w;
+
+            final byte[] mask = stroke(line(x0, y0, x1, y1), w,
+                                       RendererThinLine.CAP_BUTT);
+
+            // exact area (within 1%):
+            final double area = 255.0 * w * Math.hypot(x1 - x0, y1 - y0);
+            assertEquals(msg, area, sum(mask), 0.01 * area + 255.0);
+
+            // filled outline:
+            final byte[] expected = MaskUtils.rasterize(rdrCtx.renderer,
+                                        outline(x0, y0, x1, y1, w),
+                                        CX, CY, CW, CH);
+            MaskUtils.assertMaskEquals(msg, expected, mask, CW, MAX_DIFF);
+        }
+    }
+}
@@ -0,0 +1,189 @@
+/*
+ * Copyright (c) 2017, Oracle and/or its affiliates. All rights reserved.
+ * DO NOT ALTER OR REMOVE COPYRIGHT NOTICES OR THIS FILE HEADER.
+ *
+ * This code is free software; you can redistribute it and/or modify it
+ * under the terms of the GNU General Public License version 2 only, as
+ * published by the Free Software Foundation.  Oracle designates this
+ * particular file as subject to the "Classpath" exception as provided
+ * by Oracle in the LICENSE file that accompanied this code.
+ *
+ * This code is distributed in the hope that it will be useful, but WITHOUT
+ * ANY WARRANTY; without even the implied warranty of MERCHANTABILITY or
+ * FITNESS FOR A PARTICULAR PURPOSE.  See the GNU General Public License
+ * version 2 for more details (a copy is included in the LICENSE file that
+ * accompanied this code).
+ *
+ * You should have received a copy of the GNU General Public License version
+ * 2 along with this work; if not, write to the Free Software Foundation,
+ * Inc., 51 Franklin St, Fifth Floor, Boston, MA 02110-1301 USA.
+ *
+ * Please contact Oracle, 500 Oracle Parkway, Redwood Shores, CA 94065 USA
+ * or visit www.oracle.com if you need additional information or have any
+ * questions.
+ */
+
+package test.com.sun.prism.impl.shape;
+
+import com.sun.javafx.geom.Path2D;
+import com.sun.javafx.geom.transform.BaseTransform;
+import com.sun.marlin.MarlinProperties;
+import com.sun.prism.BasicStroke;
+import com.sun.prism.impl.shape.ShapeUtil;
+import java.util.Random;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNotSame;
+import org.junit.Test;
+
+/**
+ * @test
+ * @summary Check that the stroked outlines returned by
+ * ShapeUtil.createCenteredStrokedShape() for cached paths are equal to the
+ * first (stroked) outline and independent from each other and from the cache
+ */
+public class StrokedShapeCacheTest {
+
+    private static final BasicStroke STROKE
+        = new BasicStroke(2f, BasicStroke.CAP_BUTT, BasicStroke.JOIN_MITER, 10f);
+
+    private static final float[] DASHES = {5f, 2.5f};
+
+    // unique offset so the first stroke of each path is a cache miss:
+    private static float offset = 10000f * new Random().nextInt(1000);
+
+    private static Path2D stroke(final Path2D path, final BasicStroke stroke) {
+        return (Path2D) ShapeUtil.createCenteredStrokedShape(path, stroke);
+    }
+
+    private static Path2D randomPath(final Random rnd) {
+        final float x = (offset += 1000f);
+        final Path2D p2d = new Path2D();
+        p2d.moveTo(x + 100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+        for (int i = 0; i < 5; i++) {
+            if (rnd.nextBoolean()) {
+                p2d.lineTo(x + 100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+            } else {
+                p2d.curveTo(x + 100f * rnd.nextFloat(), 100f * rnd.nextFloat(),
+                            x + 100f * rnd.nextFloat(), 100f * rnd.nextFloat(),
+                            x + 100f * rnd.nextFloat(), 100f * rnd.nextFloat());
+            }
+        }
+        if (rnd.nextBoolean()) {
+            p2d.closePath();
+        }
+        return p2d;
+    }
+
+    private static BasicStroke randomStroke(final Random rnd) {
+        return new BasicStroke(0.5f + 5f * rnd.nextFloat(), rnd.nextInt(3),
+                               rnd.nextInt(3), 10f,
+                               rnd.nextBoolean() ? DASHES : null,
+                               10f * rnd.nextFloat());
+    }
+
+    @Test
+    public void testHits() {
+        final Random rnd = new Random(1L);
+
+        for (int n = 0; n < 100; n++) {
+            final Path2D path = randomPath(rnd);
+            final BasicStroke stroke = randomStroke(rnd);
+
+            final Path2D outline = stroke(path, stroke);
+            final Path2D expected = new Path2D(outline);
+
+            // same and equal path and stroke instances:
+            final Path2D hit1 = stroke(path, stroke);
+            final Path2D hit2 = stroke(new Path2D(path),
+                new BasicStroke(stroke.getLineWidth(), stroke.getEndCap(),
+                                stroke.getLineJoin(), stroke.getMiterLimit(),
+                                stroke.getDashArray(), stroke.getDashPhase()));
+
+            assertEquals("path " + n, expected, hit1);
+            assertEquals("path " + n, expected, hit2);
+            assertNotSame(outline, hit1);
+            assertNotSame(hit1, hit2);
+        }
+    }
+
+    @Test
+    public void testStrokeTypes() {
+        final Path2D path = randomPath(new Random(2L));
+
+        // inner and outer strokes are stroked centered with twice their width:
+        final Path2D centered = stroke(path,
+            new BasicStroke(BasicStroke.TYPE_CENTERED, 4f, BasicStroke.CAP_BUTT,
+                            BasicStroke.JOIN_ROUND, 10f, null, 0f));
+        final Path2D outer = stroke(path,
+            new BasicStroke(BasicStroke.TYPE_OUTER, 2f, BasicStroke.CAP_BUTT,
+                            BasicStroke.JOIN_ROUND, 10f, null, 0f));
+        final Path2D inner = stroke(path,
+            new BasicStroke(BasicStroke.TYPE_INNER, 2f, BasicStroke.CAP_BUTT,
+                            BasicStroke.JOIN_ROUND, 10f, null, 0f));
+
+        assertEquals(centered, outer);
+        assertEquals(centered, inner);
+
+        // other line width:
+        final Path2D thin = stroke(path,
+            new BasicStroke(BasicStroke.TYPE_CENTERED, 2f, BasicStroke.CAP_BUTT,
+                            BasicStroke.JOIN_ROUND, 10f, null, 0f));
+        assertNotEquals(centered, thin);
+    }
+
+    @Test
+    public void testModifiedOutlines() {
+        final Path2D path = randomPath(new Random(3L));
+
+        // miss: the returned outline shares its arrays with the cache
+        final Path2D outline = stroke(path, STROKE);
+        final Path2D expected = new Path2D(outline);
+        final Path2D hit1 = stroke(path, STROKE);
+        final Path2D hit2 = stroke(path, STROKE);
+        final Path2D hit3 = stroke(path, STROKE);
+        final Path2D hit4 = stroke(path, STROKE);
+
+        outline.lineTo(0f, 0f);
+        hit1.moveTo(1f, 1f);
+        hit2.transform(BaseTransform.getTranslateInstance(10f, 10f));
+        hit3.setTo(randomPath(new Random(4L)));
+        hit4.reset();
+        hit4.moveTo(2f, 2f);
+
+        assertEquals(expected, stroke(path, STROKE));
+        // the copies did not see each other's writes:
+        assertNotEquals(outline, hit1);
+        assertEquals(expected.getNumCommands() + 1, outline.getNumCommands());
+        assertEquals(expected.getNumCommands() + 1, hit1.getNumCommands());
+    }
+
+    @Test
+    public void testModifiedPath() {
+        final Path2D path = randomPath(new Random(5L));
+        final Path2D outline = stroke(path, STROKE);
+
+        path.lineTo(offset, 500f);
+
+        final Path2D modified = stroke(path, STROKE);
+        assertNotEquals(outline, modified);
+        assertEquals(true, modified.getBounds().getMaxY() > 500f);
+        assertEquals(modified, stroke(new Path2D(path), STROKE));
+    }
+
+    @Test
+    public void testLargePath() {
+        // path too large to be cached:
+        final int n = MarlinProperties.getStrokeCacheSize() / 2;
+        final float[] xy = new float[2 * n];
+        for (int i = 0; i < n; i++) {
+            xy[2 * i    ] = offset + 0.01f * i;
+            xy[2 * i + 1] = (i & 1);
+        }
+        final Path2D path = new Path2D();
+        path.appendPolyline(xy, 0, n, false);
+
+        final Path2D outline = stroke(path, STROKE);
+        assertEquals(outline, stroke(path, STROKE));
+    }
+}